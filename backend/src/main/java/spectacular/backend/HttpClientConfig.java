@@ -1,10 +1,10 @@
 package spectacular.backend;
 
-import static org.apache.http.impl.client.cache.CacheConfig.DEFAULT_MAX_CACHE_ENTRIES;
-
+import java.time.Duration;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.cache.CacheConfig;
-import org.apache.http.impl.client.cache.CachingHttpClients;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -12,38 +12,41 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 @Configuration
 public class HttpClientConfig {
   /**
-   * A bean factory function for the producing the required cache configuration.
+   * A bean factory function for creating a pooled CloseableHttpClient.
+   * Responses are not cached by the client, as the RestApiClient revalidates the responses it has cached with conditional requests.
+   * The connection pool is sized so that requests made concurrently to the GitHub API are not queued behind the default limit of
+   * 2 connections per route. Connecting and each read of a response are bounded by timeouts, so a GitHub API request that stops
+   * responding does not hold on to its thread, and the pool that thread belongs to, indefinitely.
    *
-   * @return a CacheConfig bean with the required cache config values
+   * @param maxConnections the maximum number of pooled connections to the GitHub API
+   * @param connectTimeout the maximum time to wait for a connection to the GitHub API to be established or leased from the pool
+   * @param readTimeout the maximum time to wait for more of a response from the GitHub API
+   * @return a pooled CloseableHttpClient
    */
   @Bean
-  public CacheConfig cacheConfigFactory() {
-    CacheConfig result = CacheConfig
-        .custom()
-        .setMaxCacheEntries(DEFAULT_MAX_CACHE_ENTRIES)
-        .setSharedCache(false)
+  public CloseableHttpClient httpClientFactory(@Value("${github.api.max-connections}") int maxConnections,
+                                               @Value("#{T(java.time.Duration).parse('${github.api.connect-timeout}')}")
+                                                   Duration connectTimeout,
+                                               @Value("#{T(java.time.Duration).parse('${github.api.read-timeout}')}")
+                                                   Duration readTimeout) {
+    var requestConfig = RequestConfig.custom()
+        .setConnectTimeout((int) connectTimeout.toMillis())
+        .setConnectionRequestTimeout((int) connectTimeout.toMillis())
+        .setSocketTimeout((int) readTimeout.toMillis())
         .build();
-    return result;
-  }
 
-  /**
-   * A bean factory function for creating a CloseableHttpClient configured to cache any cache-able http request responses.
-   *
-   * @param cacheConfig the cache configuration
-   * @return a CloseableHttpClient that will cache http response
-   */
-  @Bean
-  public CloseableHttpClient httpClientFactory(CacheConfig cacheConfig) {
-    return CachingHttpClients.custom()
-        .setCacheConfig(cacheConfig)
+    return HttpClients.custom()
+        .setDefaultRequestConfig(requestConfig)
+        .setMaxConnPerRoute(maxConnections)
+        .setMaxConnTotal(maxConnections)
         .build();
   }
 
   /**
-   * A bean factory function for creating a HttpComponentsClientHttpRequestFactory configured to use our caching CloseableHttpClient.
+   * A bean factory function for creating a HttpComponentsClientHttpRequestFactory configured to use our pooled CloseableHttpClient.
    *
    * @param httpClient the CloseableHttpClient to be used when creating new http requests
-   * @return a HttpComponentsClientHttpRequestFactory configured to created http requests who's responses that will be cached
+   * @return a HttpComponentsClientHttpRequestFactory configured to create http requests with the pooled CloseableHttpClient
    */
   @Bean
   public HttpComponentsClientHttpRequestFactory httpComponentsClientHttpRequestFactoryFactory(CloseableHttpClient httpClient) {
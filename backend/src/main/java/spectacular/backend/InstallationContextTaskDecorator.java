@@ -0,0 +1,21 @@
+package spectacular.backend;
+
+import org.springframework.core.task.TaskDecorator;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+
+/**
+ * A TaskDecorator that runs each task in the installation context of the thread that submitted it.
+ * This allows tasks running on a worker pool to make GitHub API requests for the installation of the request that submitted them.
+ */
+public class InstallationContextTaskDecorator implements TaskDecorator {
+  private final AppInstallationContextProvider appInstallationContextProvider;
+
+  public InstallationContextTaskDecorator(AppInstallationContextProvider appInstallationContextProvider) {
+    this.appInstallationContextProvider = appInstallationContextProvider;
+  }
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    return appInstallationContextProvider.wrap(runnable);
+  }
+}
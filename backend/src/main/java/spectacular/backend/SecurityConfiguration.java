@@ -1,5 +1,6 @@
 package spectacular.backend;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.nio.charset.StandardCharsets;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -15,6 +16,7 @@ import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationFilter;
+import spectacular.backend.security.CachingJwtDecoder;
 import spectacular.backend.security.JwtCookieToAuthorizationHeaderFilter;
 
 @EnableWebSecurity
@@ -26,24 +28,30 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
   @Value("${security.authentication.jwt.cookie-name}")
   private String jwtCookieName;
 
+  @Value("${security.authentication.jwt.claims-cache.max-size}")
+  private long jwtClaimsCacheMaxSize;
+
   /**
    * A bean factory method for creating a configured JwtDecoder to be used with this Spring Security configuration to allow it decode
-   * JWT tokens provided by the user login service.
+   * JWT tokens provided by the user login service. Verified tokens are cached until they expire, so the session token sent with
+   * every request is only verified once.
    *
+   * @param meterRegistry the registry the verified token cache metrics are exposed through
    * @return a JwtDecoder bean
    */
   @Bean
-  public JwtDecoder jwtDecoder() {
+  public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
     byte[] secretBytes = jwtSigningSecret.getBytes(StandardCharsets.UTF_8);
     SecretKey secretKey = new SecretKeySpec(secretBytes, "HmacSHA256");
-    return NimbusJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build();
+    var nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build();
+    return new CachingJwtDecoder(nimbusJwtDecoder, meterRegistry, jwtClaimsCacheMaxSize);
   }
 
   @Override
   public void configure(WebSecurity web) throws Exception {
     web
         .ignoring()
-        .antMatchers("/app", "/app/login", "/error");
+        .antMatchers("/app", "/app/login", "/error", "/api/github/webhooks");
   }
 
   @Override
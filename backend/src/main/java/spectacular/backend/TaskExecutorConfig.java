@@ -0,0 +1,160 @@
+package spectacular.backend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+
+@Configuration
+public class TaskExecutorConfig {
+  /**
+   * A bean factory function for the bounded pool used to retrieve the interface details of a catalogue concurrently.
+   * Tasks submitted to this pool run in the installation context of the submitting request.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param appInstallationContextProvider the provider of the installation context carried to the tasks
+   * @param maxConcurrency the maximum number of interface details retrieved at the same time
+   * @return a ThreadPoolTaskExecutor for retrieving interface details
+   */
+  @Bean
+  public ThreadPoolTaskExecutor interfaceDetailsTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      AppInstallationContextProvider appInstallationContextProvider,
+      @Value("${catalogues.interface-details.max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("interface-details-")
+        .taskDecorator(new InstallationContextTaskDecorator(appInstallationContextProvider))
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to compare the tags of a repository to a branch concurrently.
+   * The pool is shared by all requests so the number of comparison requests in flight to the GitHub API stays low enough to not trip
+   * its secondary rate limits.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param appInstallationContextProvider the provider of the installation context carried to the tasks
+   * @param maxConcurrency the maximum number of tag comparisons requested at the same time
+   * @return a ThreadPoolTaskExecutor for comparing tags to a branch
+   */
+  @Bean
+  public ThreadPoolTaskExecutor tagComparisonTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      AppInstallationContextProvider appInstallationContextProvider,
+      @Value("${spec-evolution.tag-comparisons.max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("tag-comparison-")
+        .taskDecorator(new InstallationContextTaskDecorator(appInstallationContextProvider))
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to refresh the data derived from repositories in the background after webhook
+   * events. Tasks submitted to this pool run in their own background installation context rather than the context of the submitting
+   * request.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param maxConcurrency the maximum number of repositories refreshed at the same time
+   * @return a ThreadPoolTaskExecutor for refreshing repository data in the background
+   */
+  @Bean
+  public ThreadPoolTaskExecutor webhookRefreshTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      @Value("${spec-evolution.snapshots.refresh-max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("webhook-refresh-")
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to create new installation access tokens ahead of the expiry of the tokens in
+   * use. Tokens are created with the app's own credentials, so tasks submitted to this pool need no installation context.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param maxConcurrency the maximum number of access tokens created at the same time
+   * @return a ThreadPoolTaskExecutor for refreshing installation access tokens
+   */
+  @Bean
+  public ThreadPoolTaskExecutor installationTokenRefreshTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      @Value("${github.api.app.installation-tokens.refresh-max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("installation-token-refresh-")
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to retrieve the details of a user's installations concurrently.
+   * Installation details are retrieved with the app's own credentials, so tasks submitted to this pool need no installation context.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param maxConcurrency the maximum number of installations retrieved at the same time
+   * @return a ThreadPoolTaskExecutor for retrieving installation details
+   */
+  @Bean
+  public ThreadPoolTaskExecutor installationLookupTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      @Value("${installations.lookup-max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("installation-lookup-")
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to check the access to and retrieve the contents of the catalogue manifest files
+   * of an org during a scan of the org's catalogues. Tasks submitted to this pool run in the installation context of the submitting
+   * request.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param appInstallationContextProvider the provider of the installation context carried to the tasks
+   * @param maxConcurrency the maximum number of batches of manifest files retrieved at the same time
+   * @return a ThreadPoolTaskExecutor for retrieving catalogue manifest files
+   */
+  @Bean
+  public ThreadPoolTaskExecutor catalogueManifestFetchTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      AppInstallationContextProvider appInstallationContextProvider,
+      @Value("${catalogues.org-scan.fetch-max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("catalogue-manifest-fetch-")
+        .taskDecorator(new InstallationContextTaskDecorator(appInstallationContextProvider))
+        .build();
+  }
+
+  /**
+   * A bean factory function for the bounded pool used to parse the catalogue manifest files of an org during a scan of the org's
+   * catalogues. Parsing needs no installation context itself, but the tasks still run in the installation context of the submitting
+   * request, as the next batch of manifest files of a scan is retrieved once a batch has been parsed.
+   *
+   * @param taskExecutorBuilder the builder configured by spring boot's task execution auto configuration
+   * @param appInstallationContextProvider the provider of the installation context carried to the tasks
+   * @param maxConcurrency the maximum number of manifest files parsed at the same time
+   * @return a ThreadPoolTaskExecutor for parsing catalogue manifest files
+   */
+  @Bean
+  public ThreadPoolTaskExecutor catalogueManifestParseTaskExecutor(
+      TaskExecutorBuilder taskExecutorBuilder,
+      AppInstallationContextProvider appInstallationContextProvider,
+      @Value("${catalogues.org-scan.parse-max-concurrency}") int maxConcurrency) {
+    return taskExecutorBuilder
+        .corePoolSize(maxConcurrency)
+        .maxPoolSize(maxConcurrency)
+        .threadNamePrefix("catalogue-manifest-parse-")
+        .taskDecorator(new InstallationContextTaskDecorator(appInstallationContextProvider))
+        .build();
+  }
+}
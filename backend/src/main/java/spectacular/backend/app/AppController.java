@@ -93,7 +93,7 @@ public class AppController implements AppApi {
     final var securityPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     if (securityPrincipal instanceof Jwt) {
       final var jwt = (Jwt) securityPrincipal;
-      final var installationIds = this.userSessionTokenService.getInstallationIds(jwt.getTokenValue());
+      final var installationIds = this.userSessionTokenService.getInstallationIds(jwt);
       if (installationIds.stream().anyMatch(userInstallationId -> userInstallationId.intValue() == installationId)) {
         final var installation = this.installationService.getInstallation(installationId);
         return ok(installation);
@@ -109,7 +109,7 @@ public class AppController implements AppApi {
     final var securityPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     if (securityPrincipal instanceof Jwt) {
       final var jwt = (Jwt) securityPrincipal;
-      final var installationIds = this.userSessionTokenService.getInstallationIds(jwt.getTokenValue());
+      final var installationIds = this.userSessionTokenService.getInstallationIds(jwt);
 
       Optional<CatalogueId> catalogueQuery = Optional.empty();
       if (catalogueEncodedId != null && catalogueEncodedId.length > 0) {
@@ -127,7 +127,7 @@ public class AppController implements AppApi {
     final var securityPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     if (securityPrincipal instanceof Jwt) {
       final var jwt = (Jwt) securityPrincipal;
-      var userDetails = this.userSessionTokenService.populateUserDetailsFromSessionToken(jwt.getTokenValue());
+      var userDetails = this.userSessionTokenService.populateUserDetailsFromSessionToken(jwt);
       return ok(userDetails);
     }
     throw new RuntimeException("An error occurred while processing the user session.");
@@ -21,6 +21,8 @@ public class InstallationIdInterceptor extends HandlerInterceptorAdapter {
   @Override
   @SuppressWarnings("unchecked")
   public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // a pooled request thread starts each request without the installation context of the last request it handled
+    this.appInstallationContextProvider.clear();
     Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
 
     if (pathVariables != null) {
@@ -33,4 +35,15 @@ public class InstallationIdInterceptor extends HandlerInterceptorAdapter {
 
     return true;
   }
+
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // the request thread is released while an async request, such as a server-sent event stream, carries on without it
+    this.appInstallationContextProvider.clear();
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    this.appInstallationContextProvider.clear();
+  }
 }
@@ -1,9 +1,22 @@
 package spectacular.backend.app;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import spectacular.backend.api.model.GetInstallationsResult;
 import spectacular.backend.api.model.Installation;
@@ -12,38 +25,77 @@ import spectacular.backend.github.app.AppApiClient;
 
 @Service
 public class InstallationService {
+  private static final String CACHE_NAME = "github-app-installations";
+
   private final AppApiClient appApiClient;
   private final InstallationMapper installationMapper;
-
+  private final Executor installationLookupExecutor;
+  private final Cache<String, spectacular.backend.github.domain.Installation> installationCache;
 
   /**
    * A service for retrieving information about an installation of Spectacular on a source control platform.
    * @param appApiClient an API client for the source control platform
    * @param installationMapper a mapper to translate the API responses into a generic installation object
+   * @param meterRegistry the registry the installation cache metrics are exposed through
+   * @param installationLookupExecutor the bounded executor installations are retrieved on concurrently
+   * @param maxSize the maximum number of installations cached
+   * @param maxAge how long the details of an installation are cached for
    */
   public InstallationService(AppApiClient appApiClient,
-                             InstallationMapper installationMapper) {
+                             InstallationMapper installationMapper,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("installationLookupTaskExecutor") Executor installationLookupExecutor,
+                             @Value("${installations.cache.max-size}") long maxSize,
+                             @Value("#{T(java.time.Duration).parse('${installations.cache.max-age}')}") Duration maxAge) {
     this.appApiClient = appApiClient;
     this.installationMapper = installationMapper;
+    this.installationLookupExecutor = installationLookupExecutor;
+    this.installationCache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(maxAge)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, installationCache, CACHE_NAME);
   }
 
   public Installation getInstallation(Integer installationId) {
-    var gitHubInstallation = appApiClient.getAppInstallation(installationId.toString());
+    var gitHubInstallation = installationCache.get(installationId.toString(), appApiClient::getAppInstallation);
     return installationMapper.mapInstallation(gitHubInstallation);
   }
 
   /**
    * Gets the details of all installations of the app for a given set of installation ids.
+   * The details of installations retrieved recently are served from a cache, and the rest are retrieved concurrently so the result is
+   * returned in about the time it takes to retrieve a single installation.
    * @param installationIds that are to be used to retrieve the installation details
    * @return a GetInstallationsResult containing all the retrieved installations
    */
   public GetInstallationsResult getInstallations(List<Long> installationIds, Optional<CatalogueId> catalogueId) {
-    final var installations = installationIds.stream()
-        .map(installationId -> this.appApiClient.getAppInstallation(installationId.toString()))
+    var ids = installationIds.stream().map(Object::toString).collect(Collectors.toList());
+    var gitHubInstallations = installationCache.getAll(ids, this::getAppInstallationsConcurrently);
+
+    final var installations = ids.stream()
+        .map(gitHubInstallations::get)
         .filter(installation -> catalogueId.isEmpty() ||
             Objects.equals(catalogueId.get().getRepositoryId().getOwner(), installation.getAccount().getLogin()))
         .map(this.installationMapper::mapInstallation)
         .collect(Collectors.toList());
     return new GetInstallationsResult().installations(installations);
   }
+
+  private Map<String, spectacular.backend.github.domain.Installation> getAppInstallationsConcurrently(Iterable<? extends String> ids) {
+    var lookups = StreamSupport.stream(ids.spliterator(), false)
+        .collect(Collectors.toMap(Function.identity(),
+            id -> CompletableFuture.supplyAsync(() -> appApiClient.getAppInstallation(id), installationLookupExecutor)));
+
+    try {
+      return lookups.entrySet().stream()
+          .collect(Collectors.toMap(Map.Entry::getKey, lookup -> lookup.getValue().join()));
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
 }
@@ -6,9 +6,7 @@ import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.SignedJWT;
-import java.text.ParseException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
@@ -18,7 +16,11 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import spectacular.backend.api.model.UserDetails;
 import spectacular.backend.github.domain.GetInstallationsResult;
 import spectacular.backend.github.domain.Installation;
@@ -43,24 +45,15 @@ public class UserSessionTokenService {
   }
 
   /**
-   * Extracts User Details from a user session token.
-   * @param token that represents a user's session
-   * @return the UserDetails extracted from the contents of the user session token
+   * Extracts User Details from a verified user session token.
+   * @param jwt the verified JWT that represents a user's session
+   * @return the UserDetails extracted from the claims of the user session token
    */
-  public UserDetails populateUserDetailsFromSessionToken(String token) {
-    try {
-      var jwt = JWTParser.parse(token);
-      var claims = jwt.getJWTClaimsSet();
-
-      return new UserDetails()
-          .username(claims.getSubject())
-          .fullName(claims.getStringClaim(CLAIM_FULL_NAME))
-          .profileImageUrl(claims.getStringClaim(CLAIM_PROFILE_IMAGE_URL));
-    } catch (ParseException e) {
-      logger.error("An error occurred while parsing a User Session token.", e);
-    }
-
-    return null;
+  public UserDetails populateUserDetailsFromSessionToken(Jwt jwt) {
+    return new UserDetails()
+        .username(jwt.getSubject())
+        .fullName(jwt.getClaimAsString(CLAIM_FULL_NAME))
+        .profileImageUrl(jwt.getClaimAsString(CLAIM_PROFILE_IMAGE_URL));
   }
 
   /**
@@ -99,22 +92,41 @@ public class UserSessionTokenService {
   }
 
   /**
-   * Extracts the installation ids that the user has access to from the user session token.
-   * @param tokenValue representing the JWT encoded user session
+   * Extracts the installation ids that the user has access to from the verified user session token.
+   * The claims are read from the JWT decoded when the request was authenticated, which is cached for repeated requests with the same
+   * token, so the token is not parsed again.
+   * @param jwt the verified JWT representing the user session
    * @return a list of installation ids
    */
   @SuppressWarnings("unchecked")
-  public List<Long> getInstallationIds(String tokenValue) {
-    try {
-      var jwt = JWTParser.parse(tokenValue);
-      var claims = jwt.getJWTClaimsSet();
+  public List<Long> getInstallationIds(Jwt jwt) {
+    var installationIds = jwt.getClaims().get(CLAIM_INSTALLATIONS);
+    if (!(installationIds instanceof List)) {
+      logger.error("The User Session token of user '{}' has no installations claim.", jwt.getSubject());
+      return Collections.emptyList();
+    }
+
+    return (List<Long>) installationIds;
+  }
 
-      return (List<Long>) claims.getClaim(CLAIM_INSTALLATIONS);
+  /**
+   * Gets the verified user session token of the current request, after checking the user has access to an installation.
+   * @param installationId the id of the installation the request is for
+   * @return the verified JWT representing the user session
+   * @throws ResponseStatusException with a not found status if the user does not have access to the installation
+   */
+  public Jwt getSessionTokenForInstallation(Integer installationId) {
+    final var securityPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    if (!(securityPrincipal instanceof Jwt)) {
+      throw new RuntimeException("An error occurred while processing the user session.");
+    }
 
-    } catch (ParseException e) {
-      logger.error("An error occurred while parsing a User Session token.", e);
+    final var jwt = (Jwt) securityPrincipal;
+    final var installationIds = getInstallationIds(jwt);
+    if (installationIds.stream().noneMatch(userInstallationId -> userInstallationId.intValue() == installationId)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Installation Id not found.");
     }
 
-    return Collections.emptyList();
+    return jwt;
   }
 }
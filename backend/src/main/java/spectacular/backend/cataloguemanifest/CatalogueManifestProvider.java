@@ -1,38 +1,55 @@
 package spectacular.backend.cataloguemanifest;
 
-import java.io.UnsupportedEncodingException;
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
-import spectacular.backend.common.CatalogueId;
+import org.springframework.web.util.UriComponentsBuilder;
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestIndex;
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestLocation;
 import spectacular.backend.common.CatalogueManifestId;
-import spectacular.backend.common.RepositoryId;
 import spectacular.backend.github.RestApiClient;
 import spectacular.backend.github.domain.ContentItem;
 import spectacular.backend.github.domain.RepositoryTopics;
-import spectacular.backend.github.domain.SearchCodeResultItem;
+import spectacular.backend.github.graphql.GraphQlRequest;
+import spectacular.backend.github.graphql.RepositoryWithManifestFile;
+import spectacular.backend.github.permissions.RepositoryPermissionResolver;
 
 @Service
 public class CatalogueManifestProvider {
-  private static final String CATALOGUE_MANIFEST_FILE_NAME = "spectacular-config";
-  private static final String CATALOGUE_MANIFEST_YAML_FILE_EXTENSION = "yaml";
-  private static final String CATALOGUE_MANIFEST_YML_FILE_EXTENSION = "yml";
-  private static final String CATALOGUE_MANIFEST_FILE_PATH = "/";
-  private static final String CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME =
-      CATALOGUE_MANIFEST_FILE_NAME + "." + CATALOGUE_MANIFEST_YAML_FILE_EXTENSION;
-  private static final String CATALOGUE_MANIFEST_FULL_YML_FILE_NAME =
-      CATALOGUE_MANIFEST_FILE_NAME + "." + CATALOGUE_MANIFEST_YML_FILE_EXTENSION;
   private static final Logger logger = LoggerFactory.getLogger(CatalogueManifestProvider.class);
+  private static final String ALIAS_PREFIX = "manifest";
+  private static final String NOT_FOUND_ERROR_TYPE = "NOT_FOUND";
 
   private final RestApiClient restApiClient;
+  private final CatalogueManifestIndex catalogueManifestIndex;
+  private final RepositoryPermissionResolver repositoryPermissionResolver;
+  private final int batchSize;
 
-  public CatalogueManifestProvider(RestApiClient restApiClient) {
+  /**
+   * A provider of catalogue manifest files and their contents.
+   *
+   * @param restApiClient a github rest api client
+   * @param catalogueManifestIndex the index of catalogue manifest file locations
+   * @param repositoryPermissionResolver the resolver of the repositories users have access to
+   * @param batchSize the maximum number of manifest files retrieved in a single GraphQL request
+   */
+  public CatalogueManifestProvider(RestApiClient restApiClient,
+                                   CatalogueManifestIndex catalogueManifestIndex,
+                                   RepositoryPermissionResolver repositoryPermissionResolver,
+                                   @Value("${catalogue-manifest.content-batch-size}") int batchSize) {
     this.restApiClient = restApiClient;
+    this.catalogueManifestIndex = catalogueManifestIndex;
+    this.repositoryPermissionResolver = repositoryPermissionResolver;
+    this.batchSize = batchSize;
   }
 
   /**
@@ -43,39 +60,140 @@ public class CatalogueManifestProvider {
    * @return a GetCatalogueManifestFileContentResult object
    */
   public GetCatalogueManifestFileContentResult getCatalogueManifest(CatalogueManifestId catalogueManifestId, String username) {
-    if (!isRepositoryAccessible(catalogueManifestId.getRepositoryId(), username)) {
+    if (!repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), username)) {
       return GetCatalogueManifestFileContentResult.createNotFoundResult(catalogueManifestId);
     }
 
-    return getCatalogueManifestFileContent(catalogueManifestId);
+    return getCatalogueManifestFileContents(List.of(catalogueManifestId)).get(0);
   }
 
   /**
-   * Searches for catalogue manifest files that are in repositories that belong to an organisation and the user has access to.
+   * Finds the catalogue manifest files in the catalogue manifest index that are in repositories that belong to an organisation.
    *
-   * @param orgName the name of the organisation to search repositories in
+   * @param orgName the name of the organisation to find manifest files in the repositories of
+   * @return the identifiers of all the indexed manifest files, in the order of their repository names
+   */
+  public List<CatalogueManifestId> findCatalogueManifestIdsForOrg(String orgName) {
+    var catalogueManifestLocations = catalogueManifestIndex.getCatalogueManifestLocations(orgName);
+    logger.debug("indexed catalogue manifest files for org '{}': {}", orgName, catalogueManifestLocations.size());
+
+    return catalogueManifestLocations.stream()
+        .map(CatalogueManifestLocation::getCatalogueManifestId)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Filters catalogue manifest files down to the ones in repositories the user has access to.
+   *
+   * @param catalogueManifestIds the identifiers of the manifest files to check
    * @param username the user who's access to check
-   * @return all the manifest files that are found and their file content
+   * @return the identifiers of the accessible manifest files, in the order they were given in
    */
-  public List<GetCatalogueManifestFileContentResult> findCatalogueManifestsForOrg(String orgName, String username) {
-    var searchCodeResults = restApiClient.findFiles(CATALOGUE_MANIFEST_FILE_NAME,
-        List.of(CATALOGUE_MANIFEST_YAML_FILE_EXTENSION, CATALOGUE_MANIFEST_YML_FILE_EXTENSION),
-        CATALOGUE_MANIFEST_FILE_PATH,
-        orgName, null);
-    logger.debug("find catalogue manifest files results for org '{}': {}", orgName, searchCodeResults.toString());
-
-    var repositorySearchCodeResultsMap = searchCodeResults.getItems().stream()
-        .filter(resultItem -> isExactFileNameMatch(resultItem, CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME) ||
-            isExactFileNameMatch(resultItem, CATALOGUE_MANIFEST_FULL_YML_FILE_NAME))
-        .collect(Collectors.groupingBy(RepositoryId::createRepositoryFrom));
-
-    return repositorySearchCodeResultsMap.values().stream()
-        .map(this::pickCatalogueFileFromSearchResults)
-        .filter(catalogueManifestId -> isRepositoryAccessible(catalogueManifestId.getRepositoryId(), username))
-        .map(this::getCatalogueManifestFileContent)
+  public List<CatalogueManifestId> getAccessibleCatalogueManifestIds(List<CatalogueManifestId> catalogueManifestIds, String username) {
+    var accessibleRepositories = repositoryPermissionResolver.getAccessibleRepositories(catalogueManifestIds.stream()
+        .map(CatalogueManifestId::getRepositoryId)
+        .collect(Collectors.toList()), username);
+
+    return catalogueManifestIds.stream()
+        .filter(catalogueManifestId -> accessibleRepositories.contains(catalogueManifestId.getRepositoryId()))
         .collect(Collectors.toList());
   }
 
+  /**
+   * Gets the contents of catalogue manifest files and the topics of their repositories, without checking the access of a user to them.
+   * The manifest files are retrieved in batches, with a single GraphQL request for each batch. A manifest file whose repository failed
+   * to be retrieved by the request for any other reason than not being found is retrieved on its own from the rest api instead.
+   *
+   * @param catalogueManifestIds the identifiers of the manifest files
+   * @return a GetCatalogueManifestFileContentResult for each manifest file, in the order they were given in
+   */
+  public List<GetCatalogueManifestFileContentResult> getCatalogueManifestFileContents(List<CatalogueManifestId> catalogueManifestIds) {
+    var results = new ArrayList<GetCatalogueManifestFileContentResult>(catalogueManifestIds.size());
+    for (var start = 0; start < catalogueManifestIds.size(); start += batchSize) {
+      var batch = catalogueManifestIds.subList(start, Math.min(catalogueManifestIds.size(), start + batchSize));
+      results.addAll(getCatalogueManifestFileContentBatch(batch));
+    }
+    return results;
+  }
+
+  private List<GetCatalogueManifestFileContentResult> getCatalogueManifestFileContentBatch(List<CatalogueManifestId> batch) {
+    var response = restApiClient.graphQlQuery(createManifestFilesRequest(batch));
+    if (response.getData() == null) {
+      logger.error("Failed to retrieve catalogue manifest files in a single query, retrieving them one at a time: " + response.getErrors());
+      return batch.stream()
+          .map(this::getCatalogueManifestFileContent)
+          .collect(Collectors.toList());
+    }
+
+    // repositories that no longer exist or the installation has no access to are reported as errors, so these are expected
+    if (response.getErrors() != null && !response.getErrors().isEmpty()) {
+      logger.debug("The following errors occurred while retrieving catalogue manifest files: {}", response.getErrors());
+    }
+
+    var results = new ArrayList<GetCatalogueManifestFileContentResult>(batch.size());
+    for (var i = 0; i < batch.size(); i++) {
+      var alias = ALIAS_PREFIX + i;
+      // an error such as a timeout or a rate limit says nothing about whether the manifest file exists, so it is retrieved on its own
+      if (response.getErrorTypes(alias).stream().anyMatch(errorType -> !NOT_FOUND_ERROR_TYPE.equals(errorType))) {
+        results.add(getCatalogueManifestFileContent(batch.get(i)));
+      } else {
+        var repository = response.getData().getAliasedRepository(alias, RepositoryWithManifestFile.class);
+        results.add(createCatalogueManifestFileContentResult(batch.get(i), repository));
+      }
+    }
+    return results;
+  }
+
+  private GetCatalogueManifestFileContentResult createCatalogueManifestFileContentResult(CatalogueManifestId catalogueManifestId,
+                                                                                        RepositoryWithManifestFile repository) {
+    var manifestFile = repository == null ? null : repository.getManifestFile();
+    if (manifestFile == null || manifestFile.getOid() == null) {
+      logger.warn("A request for a catalogue manifest that does not exist was received. catalogueManifestId: {}", catalogueManifestId);
+      return GetCatalogueManifestFileContentResult.createNotFoundResult(catalogueManifestId);
+    }
+
+    // the GraphQL api only returns the text of blobs that are not binary and not too large, so any others are retrieved on their own
+    if (manifestFile.getText() == null || manifestFile.isTruncated()) {
+      return getCatalogueManifestFileContent(catalogueManifestId);
+    }
+
+    var branch = repository.getDefaultBranchRef() == null ? "HEAD" : repository.getDefaultBranchRef().getName();
+    var htmlUrl = UriComponentsBuilder.fromUri(repository.getUrl())
+        .path("/blob/" + branch + "/" + catalogueManifestId.getPath())
+        .build()
+        .encode()
+        .toUri();
+    var fileContentItem = ContentItem.createForText(catalogueManifestId.getPath(), manifestFile.getOid(), htmlUrl, manifestFile.getText());
+
+    var topics = repository.getRepositoryTopics() == null || repository.getRepositoryTopics().getNodes() == null ?
+        Collections.<String>emptyList() :
+        repository.getRepositoryTopics().getNodes().stream()
+            .map(repositoryTopic -> repositoryTopic.getTopic().getName())
+            .collect(Collectors.toList());
+
+    return GetCatalogueManifestFileContentResult.createSuccessfulResult(catalogueManifestId, fileContentItem, new RepositoryTopics(topics));
+  }
+
+  private static GraphQlRequest createManifestFilesRequest(List<CatalogueManifestId> catalogueManifestIds) {
+    var query = new StringBuilder("query {\n");
+    for (var i = 0; i < catalogueManifestIds.size(); i++) {
+      var catalogueManifestId = catalogueManifestIds.get(i);
+      query.append("  ").append(ALIAS_PREFIX).append(i)
+          .append(": repository(owner: ").append(quote(catalogueManifestId.getRepositoryId().getOwner()))
+          .append(", name: ").append(quote(catalogueManifestId.getRepositoryId().getName())).append(") {\n")
+          .append("    nameWithOwner url\n")
+          .append("    defaultBranchRef { name }\n")
+          .append("    manifestFile: object(expression: ").append(quote("HEAD:" + catalogueManifestId.getPath()))
+          .append(") { ... on Blob { oid text isTruncated } }\n")
+          .append("    repositoryTopics(first: 100) { nodes { topic { name } } }\n")
+          .append("  }\n");
+    }
+    query.append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  // retrieves a catalogue manifest file and the topics of its repository from the rest api, with a request for each
   private GetCatalogueManifestFileContentResult getCatalogueManifestFileContent(CatalogueManifestId catalogueManifestId) {
     ContentItem fileContentItem = null;
     RepositoryTopics repositoryTopics = null;
@@ -100,33 +218,4 @@ public class CatalogueManifestProvider {
 
     return GetCatalogueManifestFileContentResult.createSuccessfulResult(catalogueManifestId, fileContentItem, repositoryTopics);
   }
-
-  private CatalogueManifestId pickCatalogueFileFromSearchResults(List<SearchCodeResultItem> searchCodeResultItems) {
-    var manifestFileResult = searchCodeResultItems.stream()
-        .filter(resultItem -> isExactFileNameMatch(resultItem, CATALOGUE_MANIFEST_FULL_YML_FILE_NAME))
-        .findFirst();
-
-    if (manifestFileResult.isPresent()) {
-      return CatalogueManifestId.createFrom(manifestFileResult.get());
-    }
-
-    manifestFileResult = searchCodeResultItems.stream()
-        .filter(resultItem -> isExactFileNameMatch(resultItem, CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME))
-        .findFirst();
-
-    return manifestFileResult.map(CatalogueManifestId::createFrom).orElse(null);
-  }
-
-  private boolean isExactFileNameMatch(SearchCodeResultItem searchCodeResultItem, String filename) {
-    return searchCodeResultItem.getName().equals(filename);
-  }
-
-  private boolean isRepositoryAccessible(RepositoryId repo, String username) {
-    try {
-      return restApiClient.isUserRepositoryCollaborator(repo, username);
-    } catch (HttpClientErrorException ex) {
-      logger.debug("An error occurred while trying to check collaborators for repo: " + repo.getNameWithOwner(), ex);
-      return false;
-    }
-  }
 }
@@ -3,13 +3,26 @@ package spectacular.backend.cataloguemanifest.catalogueentry;
 import static spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError.createConfigError;
 import static spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError.createNotFoundError;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import spectacular.backend.cataloguemanifest.CatalogueManifestProvider;
 import spectacular.backend.cataloguemanifest.GetCatalogueManifestFileContentResult;
@@ -18,18 +31,49 @@ import spectacular.backend.cataloguemanifest.configurationitem.ResolveConfigurat
 import spectacular.backend.cataloguemanifest.model.Catalogue;
 import spectacular.backend.cataloguemanifest.parse.CatalogueManifestParser;
 import spectacular.backend.common.CatalogueId;
+import spectacular.backend.common.CatalogueManifestId;
 
 @Service
 public class CatalogueEntryConfigurationResolver {
   private static final Logger logger = LoggerFactory.getLogger(CatalogueEntryConfigurationResolver.class);
 
+  private static final String STAGE_METRIC_NAME = "catalogues.org-scan.stage";
+  private static final String QUEUE_WAIT_METRIC_NAME = "catalogues.org-scan.queue-wait";
+  private static final String SCAN_METRIC_NAME = "catalogues.org-scan";
+
   private final CatalogueManifestParser catalogueManifestParser;
   private final CatalogueManifestProvider catalogueManifestProvider;
+  private final Executor fetchExecutor;
+  private final Executor parseExecutor;
+  private final MeterRegistry meterRegistry;
+  private final int batchSize;
+  private final int maxInFlightBatches;
 
+  /**
+   * A resolver of the catalogue entries in catalogue manifest files.
+   *
+   * @param catalogueManifestParser the parser of catalogue manifest files
+   * @param catalogueManifestProvider the provider of catalogue manifest files and their contents
+   * @param fetchExecutor the bounded executor the access to and contents of manifest files are retrieved on during an org scan
+   * @param parseExecutor the bounded executor manifest files are parsed on during an org scan
+   * @param meterRegistry the registry the org scan metrics are exposed through
+   * @param batchSize the number of manifest files retrieved together in each batch of an org scan
+   * @param maxInFlightBatches the maximum number of batches of an org scan being retrieved or parsed at the same time
+   */
   public CatalogueEntryConfigurationResolver(CatalogueManifestParser catalogueManifestParser,
-                                             CatalogueManifestProvider catalogueManifestProvider) {
+                                             CatalogueManifestProvider catalogueManifestProvider,
+                                             @Qualifier("catalogueManifestFetchTaskExecutor") Executor fetchExecutor,
+                                             @Qualifier("catalogueManifestParseTaskExecutor") Executor parseExecutor,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${catalogue-manifest.content-batch-size}") int batchSize,
+                                             @Value("${catalogues.org-scan.max-in-flight-batches}") int maxInFlightBatches) {
     this.catalogueManifestParser = catalogueManifestParser;
     this.catalogueManifestProvider = catalogueManifestProvider;
+    this.fetchExecutor = fetchExecutor;
+    this.parseExecutor = parseExecutor;
+    this.meterRegistry = meterRegistry;
+    this.batchSize = batchSize;
+    this.maxInFlightBatches = maxInFlightBatches;
   }
 
   /**
@@ -43,11 +87,43 @@ public class CatalogueEntryConfigurationResolver {
    *     2. an error if the catalogue manifest file was not parsable
    */
   public List<GetCatalogueEntryConfigurationResult> findCataloguesForOrgAndUser(String orgName, String username) {
-    var manifestFiles = this.catalogueManifestProvider.findCatalogueManifestsForOrg(orgName, username);
-    return manifestFiles.stream()
-        .map(this::getCatalogueEntriesFrom)
-        .flatMap(Collection::stream)
-        .collect(Collectors.toList());
+    try {
+      return scanCataloguesForOrgAndUser(orgName, username, catalogueEntries -> { }).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Scans the catalogue manifest files for an org that a user has access to for their catalogue entries, without waiting for the scan
+   * to complete. The manifest files are split into batches that each go through the stages of a pipeline in turn: the manifest files
+   * the user has no access to are filtered out and the contents of the rest retrieved on the fetch executor, then each manifest file
+   * is parsed on the parse executor. Only a limited number of batches are in the pipeline at a time and the next batch is started as
+   * each batch is parsed, so the GitHub API requests for some batches overlap with the parsing of others, and parsing that falls
+   * behind holds back further requests rather than letting retrieved manifest files pile up.
+   *
+   * @param orgName the org to search for files in
+   * @param username the user to check for access on
+   * @param onManifestScanned called with the catalogue entries of each manifest file that has any as soon as it has been parsed, which
+   *     may be in any order and from several threads at the same time
+   * @return a future completed with all the catalogue entries, in the order of the manifest files in the index, once every manifest
+   *     file has been scanned. Cancelling the future stops any further batches from being started.
+   */
+  public CompletableFuture<List<GetCatalogueEntryConfigurationResult>> scanCataloguesForOrgAndUser(
+      String orgName,
+      String username,
+      Consumer<List<GetCatalogueEntryConfigurationResult>> onManifestScanned) {
+    var catalogueManifestIds = catalogueManifestProvider.findCatalogueManifestIdsForOrg(orgName);
+
+    var batches = new ArrayList<List<CatalogueManifestId>>();
+    for (var start = 0; start < catalogueManifestIds.size(); start += batchSize) {
+      batches.add(catalogueManifestIds.subList(start, Math.min(catalogueManifestIds.size(), start + batchSize)));
+    }
+
+    return new OrgCatalogueScan(batches, username, onManifestScanned).start();
   }
 
   /**
@@ -128,6 +204,120 @@ public class CatalogueEntryConfigurationResolver {
         .collect(Collectors.toList());
   }
 
+  private class OrgCatalogueScan {
+    private final List<List<CatalogueManifestId>> batches;
+    private final String username;
+    private final Consumer<List<GetCatalogueEntryConfigurationResult>> onManifestScanned;
+    private final AtomicReferenceArray<List<GetCatalogueEntryConfigurationResult>> catalogueEntriesByBatch;
+    private final AtomicInteger nextBatch = new AtomicInteger();
+    private final AtomicInteger remainingBatches;
+    private final CompletableFuture<List<GetCatalogueEntryConfigurationResult>> result = new CompletableFuture<>();
+    private final long startTime = System.nanoTime();
+
+    private OrgCatalogueScan(List<List<CatalogueManifestId>> batches,
+                             String username,
+                             Consumer<List<GetCatalogueEntryConfigurationResult>> onManifestScanned) {
+      this.batches = batches;
+      this.username = username;
+      this.onManifestScanned = onManifestScanned;
+      this.catalogueEntriesByBatch = new AtomicReferenceArray<>(batches.size());
+      this.remainingBatches = new AtomicInteger(batches.size());
+    }
+
+    private CompletableFuture<List<GetCatalogueEntryConfigurationResult>> start() {
+      if (batches.isEmpty()) {
+        complete();
+      }
+      for (var i = 0; i < Math.min(maxInFlightBatches, batches.size()); i++) {
+        startNextBatch();
+      }
+      return result;
+    }
+
+    private void startNextBatch() {
+      var batchIndex = nextBatch.getAndIncrement();
+      if (batchIndex >= batches.size() || result.isDone()) {
+        return;
+      }
+
+      supplyStage("permissions", fetchExecutor,
+          () -> catalogueManifestProvider.getAccessibleCatalogueManifestIds(batches.get(batchIndex), username))
+          .thenCompose(accessibleManifestIds -> supplyStage("fetch", fetchExecutor,
+              () -> catalogueManifestProvider.getCatalogueManifestFileContents(accessibleManifestIds)))
+          .thenCompose(this::parseAll)
+          .whenComplete((catalogueEntries, error) -> {
+            if (error != null) {
+              fail(error instanceof CompletionException ? error.getCause() : error);
+              return;
+            }
+
+            catalogueEntriesByBatch.set(batchIndex, catalogueEntries);
+            if (remainingBatches.decrementAndGet() == 0) {
+              complete();
+            } else {
+              startNextBatch();
+            }
+          });
+    }
+
+    private CompletableFuture<List<GetCatalogueEntryConfigurationResult>> parseAll(
+        List<GetCatalogueManifestFileContentResult> manifestFiles) {
+      var pendingCatalogueEntries = manifestFiles.stream()
+          .map(manifestFile -> supplyStage("parse", parseExecutor, () -> getCatalogueEntriesFrom(manifestFile))
+              .thenApply(catalogueEntries -> {
+                if (!catalogueEntries.isEmpty() && !result.isDone()) {
+                  onManifestScanned.accept(catalogueEntries);
+                }
+                return catalogueEntries;
+              }))
+          .collect(Collectors.toList());
+
+      return CompletableFuture.allOf(pendingCatalogueEntries.toArray(CompletableFuture[]::new))
+          .thenApply(done -> pendingCatalogueEntries.stream()
+              .map(CompletableFuture::join)
+              .flatMap(Collection::stream)
+              .collect(Collectors.toList()));
+    }
+
+    // records how long each task waits for a thread of its stage's executor, and how long it then takes
+    private <T> CompletableFuture<T> supplyStage(String stage, Executor executor, Supplier<T> task) {
+      var submitTime = System.nanoTime();
+      return CompletableFuture.supplyAsync(() -> {
+        var stageStartTime = System.nanoTime();
+        recordTime(QUEUE_WAIT_METRIC_NAME, "The time org scan tasks wait for a thread to run their stage on", "stage", stage, submitTime);
+        try {
+          return task.get();
+        } finally {
+          recordTime(STAGE_METRIC_NAME, "The time taken by org scan tasks to run their stage", "stage", stage, stageStartTime);
+        }
+      }, executor);
+    }
+
+    private void complete() {
+      var catalogueEntries = new ArrayList<GetCatalogueEntryConfigurationResult>();
+      for (var i = 0; i < catalogueEntriesByBatch.length(); i++) {
+        catalogueEntries.addAll(catalogueEntriesByBatch.get(i));
+      }
+      recordTime(SCAN_METRIC_NAME, "The time taken to scan the catalogue manifest files of an org", "result", "success", startTime);
+      result.complete(catalogueEntries);
+    }
+
+    private void fail(Throwable error) {
+      if (result.completeExceptionally(error)) {
+        logger.error("An error occurred while scanning the catalogue manifest files of an org.", error);
+        recordTime(SCAN_METRIC_NAME, "The time taken to scan the catalogue manifest files of an org", "result", "failure", startTime);
+      }
+    }
+
+    private void recordTime(String metricName, String description, String tagKey, String tagValue, long startTime) {
+      Timer.builder(metricName)
+          .description(description)
+          .tag(tagKey, tagValue)
+          .register(meterRegistry)
+          .record(Duration.ofNanos(System.nanoTime() - startTime));
+    }
+  }
+
   public static class GetCatalogueEntryConfigurationResult extends ResolveConfigurationItemResult {
     private final Catalogue catalogueEntry;
     private final URI manifestUri;
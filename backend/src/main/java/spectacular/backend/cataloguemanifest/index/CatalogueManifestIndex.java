@@ -0,0 +1,301 @@
+package spectacular.backend.cataloguemanifest.index;
+
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.RestApiClient;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+import spectacular.backend.github.graphql.GraphQlRequest;
+import spectacular.backend.github.graphql.GraphQlResponse;
+import spectacular.backend.github.graphql.PagedConnection;
+import spectacular.backend.github.graphql.RepositoryWithManifestObjects;
+import spectacular.backend.github.webhooks.WebhookSignatureVerifier;
+
+/**
+ * An index of the catalogue manifest files in the repositories of each user or organisation an installation has access to, so the
+ * catalogue manifests of an organisation can be listed without searching GitHub for them on every request.
+ * The index of an owner is built by scanning all its repositories the first time it is needed, a page of repositories per GraphQL
+ * request, and is then kept current by indexing single repositories again as webhook events report changes to them. It is scanned
+ * again from scratch once it is older than the rescan interval, to pick up any changes no webhook event was received for.
+ * As webhook deliveries are only accepted when a webhook secret is configured, a much shorter rescan interval is used without one, so
+ * a catalogue manifest file added to a repository shows up in listings within minutes rather than only after the next daily rescan.
+ * Indexes are kept in memory and can optionally be kept in a directory on disk as well, so they survive restarts.
+ */
+@Component
+public class CatalogueManifestIndex {
+  private static final Logger logger = LoggerFactory.getLogger(CatalogueManifestIndex.class);
+  private static final String CACHE_NAME = "catalogue-manifest-index";
+  private static final String CATALOGUE_MANIFEST_FULL_YML_FILE_NAME = "spectacular-config.yml";
+  private static final String CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME = "spectacular-config.yaml";
+  private static final int PAGE_SIZE = 100;
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9A-Za-z-]+_[0-9a-z-]+");
+
+  private final RestApiClient restApiClient;
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final ObjectMapper objectMapper;
+  private final Cache<String, OwnerCatalogueManifestIndex> ownerIndexes;
+  private final Duration rescanInterval;
+  private final Path directory;
+
+  /**
+   * An index of catalogue manifest file locations.
+   *
+   * @param restApiClient a github rest api client
+   * @param appInstallationContextProvider the provider of the installation the current request is for
+   * @param objectMapper the mapper to write and read the indexes as JSON with
+   * @param meterRegistry the registry the index metrics are exposed through
+   * @param maxSize the maximum number of owner indexes kept in memory
+   * @param rescanInterval how long after an owner index was built its repositories are scanned again
+   * @param rescanIntervalWithoutWebhooks the rescan interval used instead when no webhook secret is configured
+   * @param directory the directory to keep the indexes in on disk, or empty to only keep them in memory
+   * @param webhookSignatureVerifier the verifier of webhook deliveries, used to check whether webhooks keep the indexes up to date
+   */
+  public CatalogueManifestIndex(RestApiClient restApiClient,
+                                AppInstallationContextProvider appInstallationContextProvider,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalogue-manifest.index.max-size}") long maxSize,
+                                @Value("#{T(java.time.Duration).parse('${catalogue-manifest.index.rescan-interval}')}")
+                                    Duration rescanInterval,
+                                @Value("#{T(java.time.Duration).parse('${catalogue-manifest.index.rescan-interval-no-webhooks}')}")
+                                    Duration rescanIntervalWithoutWebhooks,
+                                @Value("${catalogue-manifest.index.directory}") String directory,
+                                WebhookSignatureVerifier webhookSignatureVerifier) {
+    this.restApiClient = restApiClient;
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.objectMapper = objectMapper;
+    this.ownerIndexes = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+    this.directory = directory.isBlank() ? null : Paths.get(directory);
+    CaffeineCacheMetrics.monitor(meterRegistry, ownerIndexes, CACHE_NAME);
+
+    if (webhookSignatureVerifier.isConfigured()) {
+      this.rescanInterval = rescanInterval;
+    } else {
+      this.rescanInterval = rescanIntervalWithoutWebhooks;
+      logger.info("No webhook secret is configured, so catalogue manifest indexes are scanned again every {} instead of being kept up "
+          + "to date by webhook events.", rescanIntervalWithoutWebhooks);
+    }
+  }
+
+  /**
+   * Gets the locations of the catalogue manifest files in the repositories of a user or organisation the installation of the current
+   * request has access to, scanning the repositories if they have not been indexed yet or the index is due a rescan.
+   * Concurrent requests for the same index wait for it to be scanned once.
+   *
+   * @param owner the login of the user or organisation
+   * @return the CatalogueManifestLocation of each repository with a catalogue manifest file, in repository name order
+   */
+  public List<CatalogueManifestLocation> getCatalogueManifestLocations(String owner) {
+    var key = getKey(owner);
+    var ownerIndex = ownerIndexes.get(key, k -> readFromDirectory(k).orElseGet(() -> scan(owner, k)));
+
+    if (ownerIndex.getScannedAt().plus(rescanInterval).isBefore(Instant.now())) {
+      ownerIndexes.asMap().remove(key, ownerIndex);
+      ownerIndex = ownerIndexes.get(key, k -> scan(owner, k));
+    }
+
+    if (!ownerIndex.isComplete()) {
+      ownerIndexes.asMap().remove(key, ownerIndex);
+    }
+
+    return new ArrayList<>(ownerIndex.getCatalogueManifestLocations());
+  }
+
+  /**
+   * Indexes the catalogue manifest file of a single repository again for the installation of the current request, after a change to
+   * the repository was reported. Nothing is done if the repositories of its owner have not been indexed yet, as they will be scanned
+   * the first time they are needed.
+   *
+   * @param repositoryId the repository that changed
+   * @return true if the index of the repository's owner was updated
+   */
+  public boolean refreshRepository(RepositoryId repositoryId) {
+    var key = getKey(repositoryId.getOwner());
+    var ownerIndex = Optional.ofNullable(ownerIndexes.getIfPresent(key)).or(() -> readFromDirectory(key));
+    if (ownerIndex.isEmpty()) {
+      return false;
+    }
+
+    var response = restApiClient.graphQlQuery(createRepositoryRequest(repositoryId));
+    logErrors(response, repositoryId.getNameWithOwner());
+    if (response.getData() == null) {
+      return false;
+    }
+
+    // a repository that no longer exists or the installation no longer has access to is not returned, so is removed from the index
+    var location = createLocation(response.getData().getManifestRepository());
+    var updatedIndex = ownerIndexes.asMap().merge(key, ownerIndex.get().withRepository(repositoryId, location),
+        (current, ignored) -> current.withRepository(repositoryId, location));
+    writeToDirectory(key, updatedIndex);
+    return true;
+  }
+
+  private OwnerCatalogueManifestIndex scan(String owner, String key) {
+    var scannedAt = Instant.now();
+    var response = restApiClient.graphQlQuery(createOwnerRepositoriesRequest(owner, null));
+    var complete = !logErrors(response, owner);
+
+    var repositoryOwner = response.getData() == null ? null : response.getData().getRepositoryOwner();
+    var repositories = PagedConnection.startingWith(repositoryOwner == null ? null : repositoryOwner.getRepositories());
+    while (repositories.hasNextPage()) {
+      response = restApiClient.graphQlQuery(createOwnerRepositoriesRequest(owner, repositories.getNextCursor()));
+      complete &= !logErrors(response, owner);
+
+      repositoryOwner = response.getData() == null ? null : response.getData().getRepositoryOwner();
+      repositories.addPage(repositoryOwner == null ? null : repositoryOwner.getRepositories());
+    }
+
+    if (repositoryOwner == null) {
+      complete = false;
+    }
+
+    var locations = new HashMap<String, CatalogueManifestLocation>();
+    for (var repository : repositories.getNodes()) {
+      var location = createLocation(repository);
+      if (location != null) {
+        locations.put(OwnerCatalogueManifestIndex.getKey(RepositoryId.createRepositoryFrom(repository)), location);
+      }
+    }
+
+    var ownerIndex = new OwnerCatalogueManifestIndex(scannedAt, locations, complete);
+    logger.debug("Indexed {} catalogue manifest files in {} repositories of '{}'.", locations.size(), repositories.getNodes().size(),
+        owner);
+    if (complete) {
+      writeToDirectory(key, ownerIndex);
+    }
+    return ownerIndex;
+  }
+
+  // the .yml manifest file is used if a repository has both
+  private static CatalogueManifestLocation createLocation(RepositoryWithManifestObjects repository) {
+    if (repository == null) {
+      return null;
+    }
+
+    if (repository.getYmlManifest() != null && repository.getYmlManifest().getOid() != null) {
+      return new CatalogueManifestLocation(repository.getNameWithOwner(), CATALOGUE_MANIFEST_FULL_YML_FILE_NAME,
+          repository.getYmlManifest().getOid());
+    }
+
+    if (repository.getYamlManifest() != null && repository.getYamlManifest().getOid() != null) {
+      return new CatalogueManifestLocation(repository.getNameWithOwner(), CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME,
+          repository.getYamlManifest().getOid());
+    }
+
+    return null;
+  }
+
+  private static boolean logErrors(GraphQlResponse response, String indexed) {
+    if (response.getErrors().isEmpty()) {
+      return false;
+    }
+
+    logger.error("The following error occurred while indexing the catalogue manifest files of '" + indexed + "': " +
+        response.getErrors().toString());
+    return true;
+  }
+
+  private static GraphQlRequest createOwnerRepositoriesRequest(String owner, String afterCursor) {
+    var repositoriesArguments = "first: " + PAGE_SIZE + (afterCursor == null ? "" : ", after: " + quote(afterCursor));
+    var query = new StringBuilder("query {\n")
+        .append("  repositoryOwner(login: ").append(quote(owner)).append(") {\n")
+        .append("    repositories(").append(repositoriesArguments).append(", orderBy: {field: NAME, direction: ASC}) {\n")
+        .append("      totalCount\n")
+        .append("      pageInfo { hasNextPage endCursor }\n")
+        .append("      nodes {\n")
+        .append(manifestObjectsSelection("        "))
+        .append("      }\n")
+        .append("    }\n")
+        .append("  }\n")
+        .append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  private static GraphQlRequest createRepositoryRequest(RepositoryId repositoryId) {
+    var query = new StringBuilder("query {\n")
+        .append("  manifestRepository: repository(owner: ").append(quote(repositoryId.getOwner()))
+        .append(", name: ").append(quote(repositoryId.getName())).append(") {\n")
+        .append(manifestObjectsSelection("    "))
+        .append("  }\n")
+        .append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  // the manifest files are looked for at the root of the default branch, which HEAD refers to
+  private static String manifestObjectsSelection(String indent) {
+    return indent + "nameWithOwner url\n" +
+        indent + "ymlManifest: " + manifestObjectField(CATALOGUE_MANIFEST_FULL_YML_FILE_NAME) + "\n" +
+        indent + "yamlManifest: " + manifestObjectField(CATALOGUE_MANIFEST_FULL_YAML_FILE_NAME) + "\n";
+  }
+
+  private static String manifestObjectField(String fileName) {
+    return "object(expression: " + quote("HEAD:" + fileName) + ") { ... on Blob { oid } }";
+  }
+
+  private String getKey(String owner) {
+    return appInstallationContextProvider.getInstallationId() + "_" + owner.toLowerCase();
+  }
+
+  private Optional<OwnerCatalogueManifestIndex> readFromDirectory(String key) {
+    var file = getDirectoryFile(key);
+    if (file == null || !Files.exists(file)) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(objectMapper.readValue(file.toFile(), OwnerCatalogueManifestIndex.class));
+    } catch (IOException e) {
+      logger.warn("Failed to read the catalogue manifest index " + key + " from disk", e);
+      return Optional.empty();
+    }
+  }
+
+  private void writeToDirectory(String key, OwnerCatalogueManifestIndex ownerIndex) {
+    var file = getDirectoryFile(key);
+    if (file == null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(directory);
+      var tempFile = Files.createTempFile(directory, key, ".tmp");
+      objectMapper.writeValue(tempFile.toFile(), ownerIndex);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write the catalogue manifest index " + key + " to disk", e);
+    }
+  }
+
+  private Path getDirectoryFile(String key) {
+    if (directory == null || !KEY_PATTERN.matcher(key).matches()) {
+      return null;
+    }
+    return directory.resolve(key + ".json");
+  }
+}
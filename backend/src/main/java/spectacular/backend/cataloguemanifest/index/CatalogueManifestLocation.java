@@ -0,0 +1,49 @@
+package spectacular.backend.cataloguemanifest.index;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import spectacular.backend.common.CatalogueManifestId;
+import spectacular.backend.common.RepositoryId;
+
+/**
+ * The location of a catalogue manifest file in the catalogue manifest index, along with the git blob SHA of its contents when it was
+ * last indexed.
+ */
+public class CatalogueManifestLocation {
+  private final String repositoryNameWithOwner;
+  private final String path;
+  private final String blobSha;
+
+  /**
+   * A catalogue manifest file location.
+   * @param repositoryNameWithOwner the name with owner of the repository the manifest file is in
+   * @param path the path to the manifest file
+   * @param blobSha the git blob SHA of the manifest file contents
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public CatalogueManifestLocation(@JsonProperty("repositoryNameWithOwner") String repositoryNameWithOwner,
+                                   @JsonProperty("path") String path,
+                                   @JsonProperty("blobSha") String blobSha) {
+    this.repositoryNameWithOwner = repositoryNameWithOwner;
+    this.path = path;
+    this.blobSha = blobSha;
+  }
+
+  public String getRepositoryNameWithOwner() {
+    return repositoryNameWithOwner;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public String getBlobSha() {
+    return blobSha;
+  }
+
+  @JsonIgnore
+  public CatalogueManifestId getCatalogueManifestId() {
+    return new CatalogueManifestId(RepositoryId.createForNameWithOwner(repositoryNameWithOwner), path);
+  }
+}
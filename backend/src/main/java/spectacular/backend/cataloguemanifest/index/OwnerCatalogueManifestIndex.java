@@ -0,0 +1,78 @@
+package spectacular.backend.cataloguemanifest.index;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import spectacular.backend.common.RepositoryId;
+
+/**
+ * The catalogue manifest files found in the repositories of a user or organisation for an installation, keyed by the lower case name
+ * with owner of their repository, and when the repositories were last scanned for them.
+ */
+public class OwnerCatalogueManifestIndex {
+  private final Instant scannedAt;
+  private final Map<String, CatalogueManifestLocation> locations;
+  private final boolean complete;
+
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public OwnerCatalogueManifestIndex(@JsonProperty("scannedAt") Instant scannedAt,
+                                     @JsonProperty("locations") Map<String, CatalogueManifestLocation> locations) {
+    this(scannedAt, locations, true);
+  }
+
+  /**
+   * An index of the catalogue manifest files of an owner.
+   * @param scannedAt when the repositories of the owner were last scanned for catalogue manifest files
+   * @param locations the catalogue manifest file locations keyed by the lower case name with owner of their repository
+   * @param complete false if some of the repositories of the owner could not be scanned
+   */
+  public OwnerCatalogueManifestIndex(Instant scannedAt, Map<String, CatalogueManifestLocation> locations, boolean complete) {
+    this.scannedAt = scannedAt;
+    this.locations = Collections.unmodifiableMap(new TreeMap<>(locations));
+    this.complete = complete;
+  }
+
+  public Instant getScannedAt() {
+    return scannedAt;
+  }
+
+  public Map<String, CatalogueManifestLocation> getLocations() {
+    return locations;
+  }
+
+  @JsonIgnore
+  public Collection<CatalogueManifestLocation> getCatalogueManifestLocations() {
+    return locations.values();
+  }
+
+  @JsonIgnore
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Creates a copy of this index with the catalogue manifest file of a repository replaced.
+   * @param repositoryId the repository that was indexed again
+   * @param location the catalogue manifest file location in the repository, or null if it no longer has one
+   * @return an OwnerCatalogueManifestIndex
+   */
+  public OwnerCatalogueManifestIndex withRepository(RepositoryId repositoryId, CatalogueManifestLocation location) {
+    var updatedLocations = new TreeMap<>(locations);
+    var key = getKey(repositoryId);
+    if (location == null) {
+      updatedLocations.remove(key);
+    } else {
+      updatedLocations.put(key, location);
+    }
+    return new OwnerCatalogueManifestIndex(scannedAt, updatedLocations, complete);
+  }
+
+  static String getKey(RepositoryId repositoryId) {
+    return repositoryId.getNameWithOwner().toLowerCase();
+  }
+}
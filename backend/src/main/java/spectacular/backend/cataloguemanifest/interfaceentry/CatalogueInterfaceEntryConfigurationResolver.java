@@ -8,6 +8,7 @@ import spectacular.backend.cataloguemanifest.catalogueentry.CatalogueEntryConfig
 import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError;
 import spectacular.backend.cataloguemanifest.configurationitem.ResolveConfigurationItemResult;
 import spectacular.backend.cataloguemanifest.model.Interface;
+import spectacular.backend.cataloguemanifest.model.SpecFileLocation;
 import spectacular.backend.common.CatalogueId;
 
 @Service
@@ -46,12 +47,26 @@ public class CatalogueInterfaceEntryConfigurationResolver {
     }
 
     if (catalogueInterfaceEntry.getSpecFile().getRepo() == null) {
-      catalogueInterfaceEntry.getSpecFile().setRepo(catalogueId.getRepositoryId().getNameWithOwner());
+      catalogueInterfaceEntry = copyWithSpecFileRepo(catalogueInterfaceEntry, catalogueId.getRepositoryId().getNameWithOwner());
     }
 
     return GetInterfaceEntryConfigurationResult.createSuccessfulResult(catalogueInterfaceEntry, catalogueId, interfaceName);
   }
 
+  // parsed catalogue manifests are shared between requests, so the interface entry is copied rather than having its spec file changed
+  private static Interface copyWithSpecFileRepo(Interface interfaceEntry, String repo) {
+    var specFile = new SpecFileLocation()
+        .withFilePath(interfaceEntry.getSpecFile().getFilePath())
+        .withRepo(repo);
+    interfaceEntry.getSpecFile().getAdditionalProperties().forEach(specFile::setAdditionalProperty);
+
+    var interfaceEntryCopy = new Interface()
+        .withSpecFile(specFile)
+        .withSpecEvolutionConfig(interfaceEntry.getSpecEvolutionConfig());
+    interfaceEntry.getAdditionalProperties().forEach(interfaceEntryCopy::setAdditionalProperty);
+    return interfaceEntryCopy;
+  }
+
   public static class GetInterfaceEntryConfigurationResult extends ResolveConfigurationItemResult {
     private final Interface interfaceEntry;
     private final CatalogueId catalogueId;
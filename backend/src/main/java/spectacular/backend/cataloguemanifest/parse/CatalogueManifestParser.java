@@ -1,25 +1,56 @@
 package spectacular.backend.cataloguemanifest.parse;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
 import java.util.stream.Collectors;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import spectacular.backend.cataloguemanifest.model.Catalogue;
 import spectacular.backend.cataloguemanifest.model.CatalogueManifest;
+import spectacular.backend.cataloguemanifest.parse.ParsedCatalogueManifest.ParsedCatalogue;
 import spectacular.backend.github.domain.ContentItem;
 
+/**
+ * Parses and validates catalogue manifest files. As a git blob SHA always identifies the same file contents, each version of a manifest
+ * file is parsed and validated once and the ParsedCatalogueManifest kept in a cache keyed by its blob SHA, which never needs invalidating,
+ * only evicting.
+ */
 @Component
 public class CatalogueManifestParser {
   private static final Logger logger = LoggerFactory.getLogger(CatalogueManifestParser.class);
   private static final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
   private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+  private static final String CACHE_NAME = "parsed-catalogue-manifests";
+
+  private final Cache<String, ParsedCatalogueManifest> parsedManifestCache;
+
+  /**
+   * A parser of catalogue manifest files that caches the parsed manifests.
+   *
+   * @param meterRegistry the registry the cache metrics are exposed through
+   * @param maxSize the maximum number of parsed manifest file versions to keep in memory
+   */
+  public CatalogueManifestParser(MeterRegistry meterRegistry,
+                                 @Value("${catalogue-manifest.parse-cache.max-size}") long maxSize) {
+    this.parsedManifestCache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, parsedManifestCache, CACHE_NAME);
+  }
 
   /**
    * Parses the YAML contents of a catalogue manifest file and returns the result.
@@ -28,40 +59,15 @@ public class CatalogueManifestParser {
    * @return the CatalogueManifestContentItemParseResult
    */
   public CatalogueManifestContentItemParseResult parseManifestFileContentItem(ContentItem contentItem) {
-    String manifestFileContents;
-    try {
-      manifestFileContents = contentItem.getDecodedContent();
-    } catch (UnsupportedEncodingException e) {
-      logger.error("An error occurred while decoding the catalogue manifest yaml file at " + contentItem.getHtml_url().toString(), e);
-      var error = "An error occurred while decoding the catalogue manifest yaml file contents.";
-      return CatalogueManifestContentItemParseResult.createParseErrorResult(error, contentItem);
-    }
-
-    CatalogueManifest manifest;
-    try {
-      manifest = mapper.readValue(manifestFileContents, CatalogueManifest.class);
-    } catch (MismatchedInputException e) {
-      logger.debug("A mapping error occurred while parsing a catalogue manifest yaml file. ", e);
-      var error = "A mapping error occurred while parsing the catalogue manifest yaml file. The following field is invalid: " +
-          e.getPathReference();
-      return CatalogueManifestContentItemParseResult.createParseErrorResult(error, contentItem);
-    } catch (IOException e) {
-      logger.error("An IO error occurred while parsing a catalogue manifest yaml file.", e);
-      var error = "An IO error occurred while parsing the catalogue manifest yaml file: " + e.getMessage();
-      return CatalogueManifestContentItemParseResult.createParseErrorResult(error, contentItem);
+    var parsedManifest = getParsedManifest(contentItem);
+    if (parsedManifest.getContentsError() != null) {
+      return CatalogueManifestContentItemParseResult.createParseErrorResult(parsedManifest.getContentsError(), contentItem);
     }
-
-    var violations = validator.validate(manifest);
-    if (violations.size() > 0) {
-      var violationMessage = violations.stream()
-          .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
-          .collect(Collectors.toList());
-      var error = "The following validation errors were found with the catalogue manifest file: " +
-          String.join(", ", violationMessage);
-      return CatalogueManifestContentItemParseResult.createParseErrorResult(error, contentItem);
+    if (parsedManifest.getManifestError() != null) {
+      return CatalogueManifestContentItemParseResult.createParseErrorResult(parsedManifest.getManifestError(), contentItem);
     }
 
-    return CatalogueManifestContentItemParseResult.createSuccessfulParseResult(manifest, contentItem);
+    return CatalogueManifestContentItemParseResult.createSuccessfulParseResult(parsedManifest.getCatalogueManifest(), contentItem);
   }
 
   /**
@@ -75,38 +81,85 @@ public class CatalogueManifestParser {
    *     property is returned.
    */
   public FindAndParseCatalogueResult findAndParseCatalogueInManifestFileContents(ContentItem contentItem, String catalogueName) {
+    var parsedManifest = getParsedManifest(contentItem);
+    if (parsedManifest.getContentsError() != null) {
+      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, parsedManifest.getContentsError());
+    }
+
+    var parsedCatalogue = parsedManifest.getCatalogue(catalogueName);
+    if (parsedCatalogue == null) {
+      logger.debug("Unable to find catalogue node '{}' in 'catalogues' node catalogue manifest yaml file.", catalogueName);
+      return FindAndParseCatalogueResult.createCatalogueEntryNotFoundResult(contentItem);
+    }
+    if (parsedCatalogue.getError() != null) {
+      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, parsedCatalogue.getError());
+    }
+
+    return FindAndParseCatalogueResult.createCatalogueEntryParsedResult(contentItem, parsedCatalogue.getCatalogue());
+  }
+
+  private ParsedCatalogueManifest getParsedManifest(ContentItem contentItem) {
+    if (contentItem.getSha() == null) {
+      return parseManifest(contentItem);
+    }
+    return parsedManifestCache.get(contentItem.getSha(), blobSha -> parseManifest(contentItem));
+  }
+
+  private static ParsedCatalogueManifest parseManifest(ContentItem contentItem) {
     String manifestFileContents;
     try {
       manifestFileContents = contentItem.getDecodedContent();
     } catch (UnsupportedEncodingException e) {
       logger.error("An error occurred while decoding the catalogue manifest yaml file at " + contentItem.getHtml_url().toString(), e);
       var error = "An error occurred while decoding the catalogue manifest yaml file contents.";
-      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, error);
+      return ParsedCatalogueManifest.createContentsErrorResult(error);
+    }
+
+    JsonNode rootNode;
+    try {
+      rootNode = mapper.readTree(manifestFileContents);
+    } catch (IOException e) {
+      return ParsedCatalogueManifest.createContentsErrorResult(getParseError(e));
+    }
+
+    var catalogues = new LinkedHashMap<String, ParsedCatalogue>();
+    if (rootNode == null || rootNode.isMissingNode()) {
+      return ParsedCatalogueManifest.createParsedResult(null, "The catalogue manifest yaml file is empty.", catalogues);
+    }
+
+    var cataloguesNode = rootNode.get("catalogues");
+    if (cataloguesNode == null) {
+      logger.debug("Unable to find 'catalogues' root node catalogue manifest yaml file.");
+    } else {
+      cataloguesNode.fields().forEachRemaining(catalogueNode ->
+          catalogues.put(catalogueNode.getKey(), parseCatalogue(catalogueNode.getKey(), catalogueNode.getValue())));
+    }
+
+    CatalogueManifest manifest;
+    try {
+      manifest = mapper.treeToValue(rootNode, CatalogueManifest.class);
+    } catch (IOException e) {
+      return ParsedCatalogueManifest.createParsedResult(null, getParseError(e), catalogues);
+    }
+    var violations = validator.validate(manifest);
+    if (violations.size() > 0) {
+      var violationMessage = violations.stream()
+          .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+          .collect(Collectors.toList());
+      var error = "The following validation errors were found with the catalogue manifest file: " +
+          String.join(", ", violationMessage);
+      return ParsedCatalogueManifest.createParsedResult(null, error, catalogues);
     }
 
+    return ParsedCatalogueManifest.createParsedResult(manifest, null, catalogues);
+  }
+
+  private static ParsedCatalogue parseCatalogue(String catalogueName, JsonNode catalogueNode) {
     Catalogue catalogue;
     try {
-      var rootNode = mapper.readTree(manifestFileContents);
-      var cataloguesNode = rootNode.get("catalogues");
-      if (cataloguesNode == null) {
-        logger.debug("Unable to find 'catalogues' root node catalogue manifest yaml file.");
-        return FindAndParseCatalogueResult.createCatalogueEntryNotFoundResult(contentItem);
-      }
-      var catalogueNode = cataloguesNode.get(catalogueName);
-      if (catalogueNode == null) {
-        logger.debug("Unable to find catalogue node '{}' in 'catalogues' node catalogue manifest yaml file.", catalogueName);
-        return FindAndParseCatalogueResult.createCatalogueEntryNotFoundResult(contentItem);
-      }
       catalogue = mapper.treeToValue(catalogueNode, Catalogue.class);
-    } catch (MismatchedInputException e) {
-      logger.debug("A mapping error occurred while parsing a catalogue manifest yaml file. ", e);
-      var error = "A mapping error occurred while parsing the catalogue manifest yaml file. The following field is invalid: " +
-          e.getPathReference();
-      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, error);
     } catch (IOException e) {
-      logger.error("An IO error occurred while parsing a catalogue manifest yaml file.", e);
-      var error = "An IO error occurred while parsing the catalogue manifest yaml file: " + e.getMessage();
-      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, error);
+      return ParsedCatalogue.createErrorResult(getParseError(e));
     }
 
     var violations = validator.validate(catalogue);
@@ -116,9 +169,19 @@ public class CatalogueManifestParser {
           .collect(Collectors.toList());
       var error = "The following validation errors were found with catalogue entry '" + catalogueName + "': " +
           String.join(", ", violationMessage);
-      return FindAndParseCatalogueResult.createCatalogueEntryParseErrorResult(contentItem, error);
+      return ParsedCatalogue.createErrorResult(error);
     }
 
-    return FindAndParseCatalogueResult.createCatalogueEntryParsedResult(contentItem, catalogue);
+    return ParsedCatalogue.createValidResult(catalogue);
+  }
+
+  private static String getParseError(IOException e) {
+    if (e instanceof MismatchedInputException) {
+      logger.debug("A mapping error occurred while parsing a catalogue manifest yaml file. ", e);
+      return "A mapping error occurred while parsing the catalogue manifest yaml file. The following field is invalid: " +
+          ((MismatchedInputException) e).getPathReference();
+    }
+    logger.error("An IO error occurred while parsing a catalogue manifest yaml file.", e);
+    return "An IO error occurred while parsing the catalogue manifest yaml file: " + e.getMessage();
   }
 }
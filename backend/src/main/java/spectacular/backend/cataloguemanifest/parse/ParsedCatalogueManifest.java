@@ -0,0 +1,95 @@
+package spectacular.backend.cataloguemanifest.parse;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import spectacular.backend.cataloguemanifest.model.Catalogue;
+import spectacular.backend.cataloguemanifest.model.CatalogueManifest;
+
+/**
+ * The parsed and validated contents of a single version of a catalogue manifest file.
+ * Each catalogue entry is parsed and validated on its own, so an invalid entry does not stop the other entries in the same file being
+ * found. Instances are shared between requests for the same manifest file version, so the objects they hold must not be modified.
+ */
+class ParsedCatalogueManifest {
+  private final String contentsError;
+  private final CatalogueManifest catalogueManifest;
+  private final String manifestError;
+  private final Map<String, ParsedCatalogue> catalogues;
+
+  private ParsedCatalogueManifest(String contentsError, CatalogueManifest catalogueManifest, String manifestError,
+                                  Map<String, ParsedCatalogue> catalogues) {
+    this.contentsError = contentsError;
+    this.catalogueManifest = catalogueManifest;
+    this.manifestError = manifestError;
+    this.catalogues = Collections.unmodifiableMap(new LinkedHashMap<>(catalogues));
+  }
+
+  static ParsedCatalogueManifest createContentsErrorResult(String contentsError) {
+    return new ParsedCatalogueManifest(contentsError, null, null, Collections.emptyMap());
+  }
+
+  static ParsedCatalogueManifest createParsedResult(CatalogueManifest catalogueManifest, String manifestError,
+                                                    Map<String, ParsedCatalogue> catalogues) {
+    return new ParsedCatalogueManifest(null, catalogueManifest, manifestError, catalogues);
+  }
+
+  /**
+   * Gets the error that stopped the contents of the manifest file from being read at all.
+   * @return the error or null if the contents could be read
+   */
+  String getContentsError() {
+    return contentsError;
+  }
+
+  /**
+   * Gets the whole manifest, if every part of it was valid.
+   * @return the CatalogueManifest or null if there was an error with any part of it
+   */
+  CatalogueManifest getCatalogueManifest() {
+    return catalogueManifest;
+  }
+
+  /**
+   * Gets the error found with the whole manifest.
+   * @return the error or null if the whole manifest was valid
+   */
+  String getManifestError() {
+    return manifestError;
+  }
+
+  /**
+   * Gets a catalogue entry in the manifest by its name.
+   * @param catalogueName the name of the catalogue entry
+   * @return the ParsedCatalogue or null if the manifest has no catalogue entry with the name
+   */
+  ParsedCatalogue getCatalogue(String catalogueName) {
+    return catalogues.get(catalogueName);
+  }
+
+  static class ParsedCatalogue {
+    private final Catalogue catalogue;
+    private final String error;
+
+    private ParsedCatalogue(Catalogue catalogue, String error) {
+      this.catalogue = catalogue;
+      this.error = error;
+    }
+
+    static ParsedCatalogue createErrorResult(String error) {
+      return new ParsedCatalogue(null, error);
+    }
+
+    static ParsedCatalogue createValidResult(Catalogue catalogue) {
+      return new ParsedCatalogue(catalogue, null);
+    }
+
+    Catalogue getCatalogue() {
+      return catalogue;
+    }
+
+    String getError() {
+      return error;
+    }
+  }
+}
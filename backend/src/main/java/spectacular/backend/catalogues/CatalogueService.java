@@ -1,17 +1,32 @@
 package spectacular.backend.catalogues;
 
-import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import spectacular.backend.api.model.GetInterfaceResult;
+import spectacular.backend.api.model.SpecEvolutionSummary;
 import spectacular.backend.cataloguemanifest.catalogueentry.CatalogueEntryConfigurationResolver;
+import spectacular.backend.cataloguemanifest.catalogueentry.CatalogueEntryConfigurationResolver.GetCatalogueEntryConfigurationResult;
 import spectacular.backend.cataloguemanifest.interfaceentry.CatalogueInterfaceEntryConfigurationResolver;
+import spectacular.backend.cataloguemanifest.interfaceentry.CatalogueInterfaceEntryConfigurationResolver.GetInterfaceEntryConfigurationResult;
 import spectacular.backend.common.CatalogueId;
 import spectacular.backend.interfaces.GetInterfaceFileContentsResult;
 import spectacular.backend.interfaces.InterfaceService;
+import spectacular.backend.specevolution.SpecEvolutionPageCursor;
 
 @Service
 public class CatalogueService {
@@ -21,6 +36,8 @@ public class CatalogueService {
   private final CatalogueInterfaceEntryConfigurationResolver catalogueInterfaceEntryConfigurationResolver;
   private final CatalogueMapper catalogueMapper;
   private final InterfaceService interfaceService;
+  private final Executor interfaceDetailsExecutor;
+  private final Duration interfaceDetailsDeadline;
 
   /**
    * A service component that encapsulates all the logic required to build Catalogue objects from the information stored in git repositories
@@ -29,15 +46,22 @@ public class CatalogueService {
    * @param catalogueInterfaceEntryConfigurationResolver a helper service for retrieving and parsing interface entries in manifest files
    * @param catalogueMapper a helper service for mapping catalogue manifest objects to API model objects
    * @param interfaceService a service for retrieving more interface information for an interface configured in a catalogue manifest
+   * @param interfaceDetailsExecutor a bounded executor used to retrieve the details of the interfaces in a catalogue concurrently
+   * @param interfaceDetailsDeadline the maximum time to wait for the details of all the interfaces in a catalogue
    */
   public CatalogueService(CatalogueEntryConfigurationResolver catalogueEntryConfigurationResolver,
                           CatalogueInterfaceEntryConfigurationResolver catalogueInterfaceEntryConfigurationResolver,
                           CatalogueMapper catalogueMapper,
-                          InterfaceService interfaceService) {
+                          InterfaceService interfaceService,
+                          @Qualifier("interfaceDetailsTaskExecutor") Executor interfaceDetailsExecutor,
+                          @Value("#{T(java.time.Duration).parse('${catalogues.interface-details.deadline}')}")
+                              Duration interfaceDetailsDeadline) {
     this.catalogueEntryConfigurationResolver = catalogueEntryConfigurationResolver;
     this.catalogueInterfaceEntryConfigurationResolver = catalogueInterfaceEntryConfigurationResolver;
     this.catalogueMapper = catalogueMapper;
     this.interfaceService = interfaceService;
+    this.interfaceDetailsExecutor = interfaceDetailsExecutor;
+    this.interfaceDetailsDeadline = interfaceDetailsDeadline;
   }
 
   /**
@@ -55,8 +79,38 @@ public class CatalogueService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Stream all catalogues a given user can access in a specific organisation, passing on the catalogues in each catalogue manifest
+   * file as soon as it has been scanned rather than once the whole organisation has been scanned.
+   *
+   * @param orgName the name of the organisation
+   * @param username the username of the user
+   * @param onCatalogues called with the catalogues in each manifest file as soon as it has been scanned, possibly from several threads
+   *     at the same time
+   * @return a future completed once every manifest file has been scanned. Cancelling it stops the rest of the scan.
+   */
+  public CompletableFuture<Void> streamCataloguesForOrgAndUser(String orgName,
+                                                              String username,
+                                                              Consumer<List<spectacular.backend.api.model.Catalogue>> onCatalogues) {
+    var scan = catalogueEntryConfigurationResolver.scanCataloguesForOrgAndUser(orgName, username, catalogueEntryResults ->
+        onCatalogues.accept(catalogueEntryResults.stream()
+            .map(catalogueMapper::mapCatalogue)
+            .collect(Collectors.toList())));
+
+    var completion = scan.thenAccept(catalogueEntryResults -> { });
+    completion.whenComplete((result, error) -> {
+      if (completion.isCancelled()) {
+        scan.cancel(false);
+      }
+    });
+    return completion;
+  }
+
   /**
    * Get a Catalogue matching the given identifier and accessible for the given user.
+   * The details of the interfaces in the catalogue are retrieved concurrently and returned in the order of the interface entries in the
+   * catalogue. Interfaces whose details fail to be retrieved, or are not retrieved within the configured deadline, are left out of the
+   * spec evolution summaries.
    *
    * @param catalogueId the identifier giving the exact location of the catalogue definition
    * @param username the username of the user
@@ -73,14 +127,9 @@ public class CatalogueService {
     var catalogueEntry = getCatalogueEntryConfigurationResult.getCatalogueEntry();
 
     if (catalogueEntry.getInterfaces() != null) {
-      var resolvedInterfaceEntries = catalogueEntry.getInterfaces().getAdditionalProperties().keySet().stream()
-          .map(interfaceEntryName -> catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(
-              getCatalogueEntryConfigurationResult, interfaceEntryName))
-          .filter(getInterfaceEntryConfigurationResult -> !getInterfaceEntryConfigurationResult.hasError())
-          .collect(Collectors.toList());;
-
-      var specEvolutionSummaries = resolvedInterfaceEntries.stream()
-          .map(this.interfaceService::getInterfaceDetails)
+      var resolvedInterfaceEntries = resolveInterfaceEntries(getCatalogueEntryConfigurationResult);
+
+      var specEvolutionSummaries = getInterfaceDetailsWithinDeadline(resolvedInterfaceEntries).stream()
           .map(GetInterfaceResult::getSpecEvolutionSummary)
           .collect(Collectors.toList());
 
@@ -90,6 +139,81 @@ public class CatalogueService {
     return GetCatalogueForUserResult.createFoundResult(catalogueDetails);
   }
 
+  /**
+   * Get a Catalogue matching the given identifier and accessible for the given user, without waiting for the spec evolution summaries
+   * of its interfaces. The details of the interfaces are retrieved concurrently, and the summary of each is returned as a future that
+   * completes as soon as it has been retrieved, so they can be passed on to the user one at a time.
+   *
+   * @param catalogueId the identifier giving the exact location of the catalogue definition
+   * @param username the username of the user
+   * @return A StreamCatalogueForUserResult with the catalogue, without its spec evolution summaries, and the pending summaries
+   */
+  public StreamCatalogueForUserResult streamCatalogueForUser(CatalogueId catalogueId, String username) {
+    var getCatalogueEntryConfigurationResult = catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, username);
+
+    if (getCatalogueEntryConfigurationResult.hasError()) {
+      return StreamCatalogueForUserResult.createErrorResult(getCatalogueEntryConfigurationResult.getError());
+    }
+
+    var catalogueDetails = catalogueMapper.mapCatalogue(getCatalogueEntryConfigurationResult);
+    var pendingSpecEvolutionSummaries = new LinkedHashMap<String, CompletableFuture<SpecEvolutionSummary>>();
+
+    if (getCatalogueEntryConfigurationResult.getCatalogueEntry().getInterfaces() != null) {
+      for (var interfaceEntry : resolveInterfaceEntries(getCatalogueEntryConfigurationResult)) {
+        var pendingSpecEvolutionSummary = CompletableFuture.supplyAsync(
+            () -> this.interfaceService.getInterfaceDetails(interfaceEntry).getSpecEvolutionSummary(), interfaceDetailsExecutor);
+        pendingSpecEvolutionSummaries.put(interfaceEntry.getInterfaceName(), pendingSpecEvolutionSummary);
+      }
+    }
+
+    return StreamCatalogueForUserResult.createFoundResult(catalogueDetails, pendingSpecEvolutionSummaries);
+  }
+
+  private List<GetInterfaceEntryConfigurationResult> resolveInterfaceEntries(
+      GetCatalogueEntryConfigurationResult getCatalogueEntryConfigurationResult) {
+    return getCatalogueEntryConfigurationResult.getCatalogueEntry().getInterfaces().getAdditionalProperties().keySet().stream()
+        .map(interfaceEntryName -> catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(
+            getCatalogueEntryConfigurationResult, interfaceEntryName))
+        .filter(getInterfaceEntryConfigurationResult -> !getInterfaceEntryConfigurationResult.hasError())
+        .collect(Collectors.toList());
+  }
+
+  private List<GetInterfaceResult> getInterfaceDetailsWithinDeadline(List<GetInterfaceEntryConfigurationResult> interfaceEntries) {
+    var deadline = System.nanoTime() + interfaceDetailsDeadline.toNanos();
+
+    // FutureTasks rather than CompletableFutures, so the retrievals that overrun the deadline can be interrupted to free up the pool
+    var pendingInterfaceDetails = interfaceEntries.stream()
+        .map(interfaceEntry -> {
+          var pendingResult = new FutureTask<GetInterfaceResult>(() -> this.interfaceService.getInterfaceDetails(interfaceEntry));
+          interfaceDetailsExecutor.execute(pendingResult);
+          return pendingResult;
+        })
+        .collect(Collectors.toList());
+
+    var interfaceDetails = new ArrayList<GetInterfaceResult>(pendingInterfaceDetails.size());
+    try {
+      for (var i = 0; i < pendingInterfaceDetails.size(); i++) {
+        var pendingResult = pendingInterfaceDetails.get(i);
+        try {
+          interfaceDetails.add(pendingResult.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+          pendingResult.cancel(true);
+          logger.warn("The details for interface entry '{}' were not retrieved within the deadline of {}.",
+              interfaceEntries.get(i).getInterfaceName(), interfaceDetailsDeadline);
+        } catch (ExecutionException e) {
+          logger.warn("The details for interface entry '{}' could not be retrieved.", interfaceEntries.get(i).getInterfaceName(),
+              e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      pendingInterfaceDetails.forEach(pendingResult -> pendingResult.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while retrieving the interface details of a catalogue.", e);
+    }
+
+    return interfaceDetails;
+  }
+
   /**
    * Get details about an interface that is listed in a catalogue for a given user.
    * @param catalogueId an identifier object containing the exact location of the catalogue definition
@@ -122,6 +246,37 @@ public class CatalogueService {
     return GetInterfaceDetailsResult.createFoundResult(interfaceDetails);
   }
 
+  /**
+   * Get a page of the spec evolution of an interface that is listed in a catalogue for a given user.
+   * @param catalogueId an identifier object containing the exact location of the catalogue definition
+   * @param interfaceName the name of the interface entry in the catalogue definition
+   * @param cursor the position of the page in the evolution items of the spec evolution
+   * @param pageSize the maximum number of evolution items on the page
+   * @param username the username of the user trying to access the interface details
+   * @return a GetInterfaceEvolutionPageResult object with either the page or the reason the interface entry could not be retrieved
+   */
+  public GetInterfaceEvolutionPageResult getInterfaceEvolutionPage(CatalogueId catalogueId,
+                                                                   String interfaceName,
+                                                                   SpecEvolutionPageCursor cursor,
+                                                                   int pageSize,
+                                                                   String username) {
+    var getCatalogueEntryConfigurationResult = catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, username);
+
+    if (getCatalogueEntryConfigurationResult.hasError()) {
+      return GetInterfaceEvolutionPageResult.createErrorResult(getCatalogueEntryConfigurationResult.getError());
+    }
+
+    var getInterfaceEntryConfigurationResult = catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(
+        getCatalogueEntryConfigurationResult, interfaceName);
+
+    if (getInterfaceEntryConfigurationResult.hasError()) {
+      return GetInterfaceEvolutionPageResult.createErrorResult(getInterfaceEntryConfigurationResult.getError());
+    }
+
+    var specEvolutionPage = this.interfaceService.getSpecEvolutionPage(getInterfaceEntryConfigurationResult, cursor, pageSize);
+    return GetInterfaceEvolutionPageResult.createFoundResult(specEvolutionPage);
+  }
+
   /**
    * Get contents of an interface specification file that is listed in a catalogue for a given user.
    * @param catalogueId an identifier object containing the exact location of the catalogue definition
@@ -129,10 +284,11 @@ public class CatalogueService {
    * @param ref a specific point in the version control history of the file to get the contents at
    * @param username the username of the user trying to access the interface details
    * @return a InterfaceFileContents containing the file contents and other file information
-   * @throws UnsupportedEncodingException if the contents of the file can't be decoded
    */
-  public GetInterfaceFileContentsResult getInterfaceFileContents(CatalogueId catalogueId, String interfaceName, String ref, String username)
-      throws UnsupportedEncodingException {
+  public GetInterfaceFileContentsResult getInterfaceFileContents(CatalogueId catalogueId,
+                                                                 String interfaceName,
+                                                                 String ref,
+                                                                 String username) {
     var getCatalogueEntryConfigurationResult = catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, username);
 
     if (getCatalogueEntryConfigurationResult.hasError()) {
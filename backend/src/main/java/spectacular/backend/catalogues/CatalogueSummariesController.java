@@ -0,0 +1,200 @@
+package spectacular.backend.catalogues;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import spectacular.backend.api.model.SpecEvolutionSummary;
+import spectacular.backend.app.InstallationService;
+import spectacular.backend.app.UserSessionTokenService;
+import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemErrorType;
+import spectacular.backend.common.CatalogueId;
+
+@RestController
+public class CatalogueSummariesController {
+  private static final Logger logger = LoggerFactory.getLogger(CatalogueSummariesController.class);
+  private static final String CATALOGUE_EVENT = "catalogue";
+  private static final String SPEC_EVOLUTION_SUMMARY_EVENT = "spec-evolution-summary";
+  private static final String INTERFACE_ERROR_EVENT = "interface-error";
+  private static final String COMPLETE_EVENT = "complete";
+  private static final String CATALOGUES_EVENT = "catalogues";
+
+  private final CatalogueService catalogueService;
+  private final InstallationService installationService;
+  private final UserSessionTokenService userSessionTokenService;
+  private final Duration interfaceDetailsDeadline;
+  private final Duration orgScanStreamTimeout;
+
+  /**
+   * Controller for streaming catalogues and the spec evolution summaries of the interfaces in a catalogue as server-sent events.
+   * @param catalogueService with which all catalogue resource operations are orchestrated.
+   * @param installationService that provides the details of the installation the catalogues are found in
+   * @param userSessionTokenService that provides functionality around handling user session tokens
+   * @param interfaceDetailsDeadline the maximum time to stream the summaries of the interfaces in a catalogue for
+   * @param orgScanStreamTimeout the maximum time to stream the catalogues of an org for
+   */
+  public CatalogueSummariesController(CatalogueService catalogueService,
+                                      InstallationService installationService,
+                                      UserSessionTokenService userSessionTokenService,
+                                      @Value("#{T(java.time.Duration).parse('${catalogues.interface-details.deadline}')}")
+                                          Duration interfaceDetailsDeadline,
+                                      @Value("#{T(java.time.Duration).parse('${catalogues.org-scan.stream-timeout}')}")
+                                          Duration orgScanStreamTimeout) {
+    this.catalogueService = catalogueService;
+    this.installationService = installationService;
+    this.userSessionTokenService = userSessionTokenService;
+    this.interfaceDetailsDeadline = interfaceDetailsDeadline;
+    this.orgScanStreamTimeout = orgScanStreamTimeout;
+  }
+
+  /**
+   * Streams the catalogues a user can access in the org of an installation as server-sent events, so catalogues can be shown while the
+   * rest of the org is still being scanned. A "catalogues" event with the catalogues in a catalogue manifest file is sent as soon as
+   * each manifest file has been scanned, in no particular order. A "complete" event ends the stream once every manifest file has been
+   * scanned, or when the timeout for the stream passes.
+   *
+   * @param installationId the id of the specific installation of the Spectacular app
+   * @return an SseEmitter the events are sent through
+   */
+  @GetMapping(value = "/catalogues/{installationId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamCatalogues(@PathVariable("installationId") Integer installationId) {
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
+
+    final var installation = this.installationService.getInstallation(installationId);
+
+    var emitter = new SseEmitter(orgScanStreamTimeout.toMillis());
+    var pendingScan = catalogueService.streamCataloguesForOrgAndUser(installation.getOwner(), jwt.getSubject(), catalogues -> {
+      try {
+        emitter.send(SseEmitter.event().name(CATALOGUES_EVENT).data(catalogues));
+      } catch (IOException | IllegalStateException e) {
+        // the client has gone away, or the stream has already been completed, so the rest of the scan is not needed
+        emitter.completeWithError(e);
+      }
+    });
+
+    emitter.onTimeout(() -> {
+      pendingScan.cancel(false);
+      sendComplete(emitter);
+    });
+    emitter.onError(e -> pendingScan.cancel(false));
+    emitter.onCompletion(() -> pendingScan.cancel(false));
+
+    pendingScan.whenComplete((result, error) -> {
+      if (error == null) {
+        sendComplete(emitter);
+      } else if (!pendingScan.isCancelled()) {
+        emitter.completeWithError(error);
+      }
+    });
+
+    return emitter;
+  }
+
+  /**
+   * Streams a catalogue and the spec evolution summaries of its interfaces as server-sent events, so the catalogue can be shown before
+   * the summaries of all its interfaces have been retrieved. A "catalogue" event with the catalogue is sent first, followed by a
+   * "spec-evolution-summary" event as soon as the summary of each interface is retrieved, or an "interface-error" event with the name
+   * of an interface whose summary could not be. A "complete" event ends the stream once every summary has been sent, or when the
+   * deadline for retrieving them passes.
+   *
+   * @param installationId the id of the specific installation of the Spectacular app
+   * @param encodedId the base64 encoded id of the catalogue
+   * @return an SseEmitter the events are sent through
+   */
+  @GetMapping(value = "/catalogues/{installationId}/{encodedId}/spec-evolution-summaries", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamSpecEvolutionSummaries(@PathVariable("installationId") Integer installationId,
+                                                 @PathVariable("encodedId") byte[] encodedId) {
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
+
+    var catalogueId = CatalogueId.createFromBase64(encodedId);
+
+    var streamCatalogueForUserResult = catalogueService.streamCatalogueForUser(catalogueId, jwt.getSubject());
+
+    if (streamCatalogueForUserResult.hasError()) {
+      var errorType = streamCatalogueForUserResult.getError().getType();
+      var errorMessage = streamCatalogueForUserResult.getError().getMessage();
+      throw new ResponseStatusException(errorType == ConfigurationItemErrorType.NOT_FOUND ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST,
+          errorMessage);
+    }
+
+    var pendingSummaries = streamCatalogueForUserResult.getPendingSpecEvolutionSummaries();
+    var emitter = new SseEmitter(interfaceDetailsDeadline.toMillis());
+    emitter.onTimeout(() -> {
+      cancelAll(pendingSummaries);
+      sendComplete(emitter);
+    });
+    emitter.onError(e -> cancelAll(pendingSummaries));
+
+    try {
+      emitter.send(SseEmitter.event().name(CATALOGUE_EVENT).data(streamCatalogueForUserResult.getCatalogueDetails()));
+    } catch (IOException e) {
+      cancelAll(pendingSummaries);
+      emitter.completeWithError(e);
+      return emitter;
+    }
+
+    // the stream is completed after the event of each interface has been sent, rather than after each summary has been retrieved, as
+    // the dependents of a future are not run in the order they were added
+    var sentEvents = pendingSummaries.entrySet().stream()
+        .map(pendingSummary -> pendingSummary.getValue().handle((summary, error) -> {
+          sendSummaryEvent(emitter, pendingSummary.getKey(), pendingSummary.getValue(), summary, error, pendingSummaries);
+          return null;
+        }))
+        .toArray(CompletableFuture[]::new);
+
+    CompletableFuture.allOf(sentEvents)
+        .whenComplete((result, error) -> sendComplete(emitter));
+
+    return emitter;
+  }
+
+  private static void sendSummaryEvent(SseEmitter emitter,
+                                       String interfaceName,
+                                       CompletableFuture<SpecEvolutionSummary> pendingSummary,
+                                       SpecEvolutionSummary summary,
+                                       Throwable error,
+                                       Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSummaries) {
+    if (error == null) {
+      send(emitter, SseEmitter.event().name(SPEC_EVOLUTION_SUMMARY_EVENT).data(summary), pendingSummaries);
+    } else if (!pendingSummary.isCancelled()) {
+      var cause = error instanceof CompletionException ? error.getCause() : error;
+      logger.error("An error occurred while retrieving the spec evolution summary of interface entry '" + interfaceName + "'.", cause);
+      send(emitter, SseEmitter.event().name(INTERFACE_ERROR_EVENT).data(interfaceName), pendingSummaries);
+    }
+  }
+
+  private static void send(SseEmitter emitter,
+                           SseEmitter.SseEventBuilder event,
+                           Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSummaries) {
+    try {
+      emitter.send(event);
+    } catch (IOException | IllegalStateException e) {
+      // the client has gone away, or the stream has already been completed, so the rest of the summaries are not needed
+      cancelAll(pendingSummaries);
+    }
+  }
+
+  private static void sendComplete(SseEmitter emitter) {
+    try {
+      emitter.send(SseEmitter.event().name(COMPLETE_EVENT).data(""));
+      emitter.complete();
+    } catch (IOException | IllegalStateException e) {
+      logger.debug("The event stream was closed before it could be completed.", e);
+    }
+  }
+
+  private static void cancelAll(Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSummaries) {
+    pendingSummaries.values().forEach(pendingSummary -> pendingSummary.cancel(false));
+  }
+}
@@ -2,26 +2,36 @@ package spectacular.backend.catalogues;
 
 import static org.springframework.http.ResponseEntity.ok;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.server.ResponseStatusException;
 import spectacular.backend.api.CataloguesApi;
 import spectacular.backend.api.model.FindCataloguesResult;
 import spectacular.backend.api.model.GetCatalogueResult;
 import spectacular.backend.api.model.GetInterfaceResult;
+import spectacular.backend.api.model.SpecEvolutionPage;
 import spectacular.backend.app.InstallationService;
 import spectacular.backend.app.UserSessionTokenService;
 import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError;
 import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemErrorType;
 import spectacular.backend.common.CatalogueId;
+import spectacular.backend.specevolution.SpecEvolutionPageCursor;
 
 @RestController
 public class CataloguesController implements CataloguesApi {
+  private static final Logger logger = LoggerFactory.getLogger(CataloguesController.class);
+  private static final int MAX_EVOLUTION_PAGE_SIZE = 100;
+  private static final String INTERFACE_FILE_CONTENTS_ATTRIBUTE = CataloguesController.class.getName() + ".interfaceFileContents";
+
   private final CatalogueService catalogueService;
   private final UserSessionTokenService userSessionTokenService;
   private final InstallationService installationService;
@@ -41,7 +51,7 @@ public class CataloguesController implements CataloguesApi {
 
   @Override
   public ResponseEntity<FindCataloguesResult> findCataloguesForUser(Integer installationId) {
-    final var jwt = validateRequest(installationId);
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
 
     final var installation = this.installationService.getInstallation(installationId);
     final var catalogues = catalogueService.findCataloguesForOrgAndUser(installation.getOwner(), jwt.getSubject());
@@ -51,7 +61,7 @@ public class CataloguesController implements CataloguesApi {
 
   @Override
   public ResponseEntity<GetCatalogueResult> getCatalogue(Integer installationId, byte[] encoded) {
-    final var jwt = validateRequest(installationId);
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
 
     var catalogueId = CatalogueId.createFromBase64(encoded);
 
@@ -65,7 +75,7 @@ public class CataloguesController implements CataloguesApi {
 
   @Override
   public ResponseEntity<GetInterfaceResult> getInterfaceDetails(Integer installationId, byte[] encodedId, String interfaceName) {
-    final var jwt = validateRequest(installationId);
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
 
     var catalogueId = CatalogueId.createFromBase64(encodedId);
 
@@ -76,48 +86,72 @@ public class CataloguesController implements CataloguesApi {
     return ResponseEntity.ok(getInterfaceDetailsResult.getGetInterfaceResult());
   }
 
+  @Override
+  public ResponseEntity<SpecEvolutionPage> getInterfaceEvolutionPage(Integer installationId,
+                                                                     byte[] encodedId,
+                                                                     String interfaceName,
+                                                                     @Valid String cursor,
+                                                                     @Valid Integer pageSize) {
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
+
+    var catalogueId = CatalogueId.createFromBase64(encodedId);
+
+    if (pageSize < 1 || pageSize > MAX_EVOLUTION_PAGE_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page size must be between 1 and " + MAX_EVOLUTION_PAGE_SIZE + ".");
+    }
+
+    SpecEvolutionPageCursor pageCursor;
+    try {
+      pageCursor = SpecEvolutionPageCursor.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.", e);
+    }
+
+    var getInterfaceEvolutionPageResult = this.catalogueService.getInterfaceEvolutionPage(catalogueId, interfaceName, pageCursor,
+        pageSize, jwt.getSubject());
+
+    handleAnyError(getInterfaceEvolutionPageResult.getError());
+
+    return ResponseEntity.ok(getInterfaceEvolutionPageResult.getSpecEvolutionPage());
+  }
+
   @Override
   public ResponseEntity<Object> getInterfaceFileContents(Integer installationId,
                                                          byte[] encodedId,
                                                          String interfaceName,
                                                          @Valid String ref) {
-    final var jwt = validateRequest(installationId);
+    final var jwt = this.userSessionTokenService.getSessionTokenForInstallation(installationId);
 
     var catalogueId = CatalogueId.createFromBase64(encodedId);
 
-    try {
-      var getInterfaceFileContentsResult = this.catalogueService.getInterfaceFileContents(
-          catalogueId,
-          interfaceName,
-          ref,
-          jwt.getSubject());
-
-      handleAnyError(getInterfaceFileContentsResult.getError());
-
-      return ResponseEntity
-          .ok()
-          .contentType(getInterfaceFileContentsResult.getInterfaceFileContents().getMediaTypeGuess())
-          .body(getInterfaceFileContentsResult.getInterfaceFileContents().getContents());
-    } catch (UnsupportedEncodingException e) {
-      return ResponseEntity
-          .status(HttpStatus.INTERNAL_SERVER_ERROR)
-          .body("An unexpected error occurred while decoding the file contents.");
-    }
-  }
+    var getInterfaceFileContentsResult = this.catalogueService.getInterfaceFileContents(
+        catalogueId,
+        interfaceName,
+        ref,
+        jwt.getSubject());
 
-  private Jwt validateRequest(Integer installationId) {
-    final var securityPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-    if (!(securityPrincipal instanceof Jwt)) {
-      throw new RuntimeException("An error occurred while processing the user session.");
-    }
+    handleAnyError(getInterfaceFileContentsResult.getError());
 
-    final var jwt = (Jwt) securityPrincipal;
-    final var installationIds = this.userSessionTokenService.getInstallationIds(jwt.getTokenValue());
-    if (installationIds.stream().noneMatch(userInstallationId -> userInstallationId.intValue() == installationId)) {
-      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Installation Id not found.");
-    }
+    var interfaceFileContents = getInterfaceFileContentsResult.getInterfaceFileContents();
+    closeWhenRequestCompletes(interfaceFileContents.getContents());
 
-    return jwt;
+    // an InputStreamResource body is copied to the response as it is read, and closed once written
+    return ResponseEntity
+        .ok()
+        .contentType(interfaceFileContents.getMediaTypeGuess())
+        .body(new InputStreamResource(interfaceFileContents.getContents()));
+  }
+
+  // the body is only closed once it has been written, so it is also closed when the request completes in case writing the response
+  // fails before then, e.g. if the media type of the contents is not acceptable, so its pooled GitHub API connection is released
+  private static void closeWhenRequestCompletes(InputStream contents) {
+    RequestContextHolder.currentRequestAttributes().registerDestructionCallback(INTERFACE_FILE_CONTENTS_ATTRIBUTE, () -> {
+      try {
+        contents.close();
+      } catch (IOException e) {
+        logger.debug("The interface file contents could not be closed.", e);
+      }
+    }, RequestAttributes.SCOPE_REQUEST);
   }
 
   private void handleAnyError(ConfigurationItemError configurationItemError) {
@@ -0,0 +1,27 @@
+package spectacular.backend.catalogues;
+
+import spectacular.backend.api.model.SpecEvolutionPage;
+import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError;
+import spectacular.backend.cataloguemanifest.configurationitem.ResolveConfigurationItemResult;
+
+public class GetInterfaceEvolutionPageResult extends ResolveConfigurationItemResult {
+  private final SpecEvolutionPage specEvolutionPage;
+
+  private GetInterfaceEvolutionPageResult(ConfigurationItemError getConfigurationItemError,
+                                          SpecEvolutionPage specEvolutionPage) {
+    super(getConfigurationItemError);
+    this.specEvolutionPage = specEvolutionPage;
+  }
+
+  public static GetInterfaceEvolutionPageResult createErrorResult(ConfigurationItemError getConfigurationItemError) {
+    return new GetInterfaceEvolutionPageResult(getConfigurationItemError, null);
+  }
+
+  public static GetInterfaceEvolutionPageResult createFoundResult(SpecEvolutionPage specEvolutionPage) {
+    return new GetInterfaceEvolutionPageResult(null, specEvolutionPage);
+  }
+
+  public SpecEvolutionPage getSpecEvolutionPage() {
+    return specEvolutionPage;
+  }
+}
@@ -0,0 +1,43 @@
+package spectacular.backend.catalogues;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import spectacular.backend.api.model.Catalogue;
+import spectacular.backend.api.model.SpecEvolutionSummary;
+import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError;
+import spectacular.backend.cataloguemanifest.configurationitem.ResolveConfigurationItemResult;
+
+public class StreamCatalogueForUserResult extends ResolveConfigurationItemResult {
+  private final Catalogue catalogueDetails;
+  private final Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSpecEvolutionSummaries;
+
+  private StreamCatalogueForUserResult(ConfigurationItemError getConfigurationItemError,
+                                       Catalogue catalogueDetails,
+                                       Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSpecEvolutionSummaries) {
+    super(getConfigurationItemError);
+    this.catalogueDetails = catalogueDetails;
+    this.pendingSpecEvolutionSummaries = pendingSpecEvolutionSummaries;
+  }
+
+  public static StreamCatalogueForUserResult createErrorResult(ConfigurationItemError getConfigurationItemError) {
+    return new StreamCatalogueForUserResult(getConfigurationItemError, null, Map.of());
+  }
+
+  public static StreamCatalogueForUserResult createFoundResult(Catalogue catalogueDetails,
+                                                               Map<String, CompletableFuture<SpecEvolutionSummary>> pendingSummaries) {
+    return new StreamCatalogueForUserResult(null, catalogueDetails, pendingSummaries);
+  }
+
+  public Catalogue getCatalogueDetails() {
+    return catalogueDetails;
+  }
+
+  /**
+   * Gets the spec evolution summaries of the interfaces in the catalogue, each of which completes as soon as it has been retrieved.
+   *
+   * @return a map of interface entry names to their pending summaries, in the order of the interface entries in the catalogue
+   */
+  public Map<String, CompletableFuture<SpecEvolutionSummary>> getPendingSpecEvolutionSummaries() {
+    return pendingSpecEvolutionSummaries;
+  }
+}
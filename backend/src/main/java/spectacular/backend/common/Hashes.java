@@ -0,0 +1,41 @@
+package spectacular.backend.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for hashing values into keys and fingerprints, and for writing digests out as lower case hex.
+ */
+public final class Hashes {
+  private Hashes() {
+  }
+
+  /**
+   * Hashes a value with SHA-256.
+   *
+   * @param value the value to hash, as UTF-8
+   * @return the lower case hex SHA-256 digest of the value
+   */
+  public static String sha256Hex(String value) {
+    try {
+      return toHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Writes bytes out as lower case hex, two digits for each byte.
+   *
+   * @param bytes the bytes to write out
+   * @return the lower case hex string
+   */
+  public static String toHex(byte[] bytes) {
+    var hex = new StringBuilder(bytes.length * 2);
+    for (var b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,197 @@
+package spectacular.backend.github;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+
+/**
+ * A cache of GitHub API responses and their ETags, used to make conditional requests with an If-None-Match header.
+ * GitHub responds to a conditional request with a 304 Not Modified response, that does not count against the rate limit, if the
+ * resource has not changed since the cached response, in which case the cached response is used instead.
+ * Responses are cached per installation and evicted by the size of their bodies.
+ */
+@Component
+public class ConditionalRequestCache {
+  private static final String CACHE_NAME = "github-conditional-requests";
+  private static final String METRIC_NAME = "github.api.conditional.requests";
+  private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final MeterRegistry meterRegistry;
+  private final Cache<CacheKey, CachedResponse> responseCache;
+
+  /**
+   * A cache of GitHub API responses for conditional requests.
+   *
+   * @param appInstallationContextProvider the provider of the installation the current request is for
+   * @param meterRegistry the registry the cache and conditional request metrics are exposed through
+   * @param maxWeightBytes the approximate number of bytes the cached responses may take up
+   */
+  public ConditionalRequestCache(AppInstallationContextProvider appInstallationContextProvider,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${github.api.conditional-requests.cache.max-weight-bytes}") long maxWeightBytes) {
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.meterRegistry = meterRegistry;
+    this.responseCache = Caffeine.newBuilder()
+        .maximumWeight(maxWeightBytes)
+        .weigher((CacheKey key, CachedResponse cachedResponse) -> ENTRY_OVERHEAD_BYTES + cachedResponse.body.length)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, responseCache, CACHE_NAME);
+  }
+
+  /**
+   * Gets the cached response of a GET request for the installation of the current request.
+   *
+   * @param uri the uri of the request
+   * @param accept the media type accepted by the request
+   * @return the CachedResponse whose ETag should be sent with the request, or null if there is none
+   */
+  public CachedResponse getCachedResponse(String uri, String accept) {
+    return responseCache.getIfPresent(new CacheKey(appInstallationContextProvider.getInstallationId(), uri, accept));
+  }
+
+  /**
+   * Resolves the response of a GET request to the response that should be read by the caller.
+   * A 304 Not Modified response to a request sent with the ETag of a cached response resolves to the cached response.
+   * Any other response is read into memory and, if it is a successful response with an ETag, cached for the next request.
+   * Each response is counted against the endpoint as either not modified, modified or unconditional, the latter when there was
+   * no cached response to make the request conditional with.
+   *
+   * @param endpoint the name of the API endpoint the request was made to, used to tag the metrics
+   * @param uri the uri of the request
+   * @param accept the media type accepted by the request
+   * @param cachedResponse the cached response whose ETag was sent with the request, or null if the request was not conditional
+   * @param response the response received from the API
+   * @return the response to read
+   * @throws IOException if the response body could not be read
+   */
+  public ClientHttpResponse resolveResponse(String endpoint,
+                                            String uri,
+                                            String accept,
+                                            CachedResponse cachedResponse,
+                                            ClientHttpResponse response) throws IOException {
+    if (cachedResponse != null && response.getRawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+      countRequest(endpoint, "not-modified");
+      response.close();
+      return cachedResponse.toClientHttpResponse();
+    }
+
+    countRequest(endpoint, cachedResponse == null ? "unconditional" : "modified");
+
+    var body = StreamUtils.copyToByteArray(response.getBody());
+    var freshResponse = new CachedResponse(response.getRawStatusCode(), response.getHeaders(), body);
+    response.close();
+
+    if (freshResponse.rawStatusCode == HttpStatus.OK.value() && freshResponse.getETag() != null) {
+      responseCache.put(new CacheKey(appInstallationContextProvider.getInstallationId(), uri, accept), freshResponse);
+    }
+
+    return freshResponse.toClientHttpResponse();
+  }
+
+  private void countRequest(String endpoint, String result) {
+    Counter.builder(METRIC_NAME)
+        .description("The number of GitHub API GET requests by whether they were answered with 304 Not Modified")
+        .tag("endpoint", endpoint)
+        .tag("result", result)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  public static class CachedResponse {
+    private final int rawStatusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    private CachedResponse(int rawStatusCode, HttpHeaders headers, byte[] body) {
+      this.rawStatusCode = rawStatusCode;
+      var headersCopy = new HttpHeaders();
+      headersCopy.putAll(headers);
+      this.headers = HttpHeaders.readOnlyHttpHeaders(headersCopy);
+      this.body = body;
+    }
+
+    public String getETag() {
+      return headers.getETag();
+    }
+
+    private ClientHttpResponse toClientHttpResponse() {
+      return new ClientHttpResponse() {
+        @Override
+        public HttpStatus getStatusCode() {
+          return HttpStatus.valueOf(rawStatusCode);
+        }
+
+        @Override
+        public int getRawStatusCode() {
+          return rawStatusCode;
+        }
+
+        @Override
+        public String getStatusText() {
+          var status = HttpStatus.resolve(rawStatusCode);
+          return status == null ? "" : status.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+          return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+          return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+    }
+  }
+
+  private static class CacheKey {
+    private final String installationId;
+    private final String uri;
+    private final String accept;
+
+    private CacheKey(String installationId, String uri, String accept) {
+      this.installationId = installationId;
+      this.uri = uri;
+      this.accept = accept;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return installationId.equals(that.installationId) &&
+          uri.equals(that.uri) &&
+          Objects.equals(accept, that.accept);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(installationId, uri, accept);
+    }
+  }
+}
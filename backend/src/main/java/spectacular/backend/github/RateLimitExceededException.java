@@ -0,0 +1,12 @@
+package spectacular.backend.github;
+
+import java.time.Instant;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class RateLimitExceededException extends RuntimeException {
+  public RateLimitExceededException(String installationId, String resource, Instant availableAt) {
+    super("The GitHub API " + resource + " rate limit of installation " + installationId + " is exhausted until " + availableAt + ".");
+  }
+}
@@ -0,0 +1,331 @@
+package spectacular.backend.github;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+
+/**
+ * Schedules GitHub API requests against the rate limit budget of the installation they are made for.
+ * The remaining budget of each installation and rate limit resource (core, search or graphql) is taken from the X-RateLimit-*
+ * headers of every response and counted down locally for each request sent, like a token bucket that refills when the rate limit
+ * resets. Background requests leave a reserve of the budget for interactive requests, and any request that would exceed the
+ * budget, or is made while backing off from a secondary rate limit, waits for the budget to be available again. Requests that
+ * would have to wait for longer than their priority allows fail with a RateLimitExceededException instead.
+ * A secondary rate limit is recognised from a 429 response, or from a 403 response whose message says a secondary rate limit was
+ * exceeded, as that is how GitHub reports most of them.
+ */
+@Component
+public class RateLimitScheduler implements ClientHttpRequestInterceptor {
+  private static final Logger logger = LoggerFactory.getLogger(RateLimitScheduler.class);
+  private static final String LIMIT_HEADER = "X-RateLimit-Limit";
+  private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+  private static final String RESET_HEADER = "X-RateLimit-Reset";
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final List<String> SECONDARY_LIMIT_MESSAGES = List.of("secondary rate limit", "abuse detection");
+  private static final List<String> RESOURCES = List.of("core", "search", "graphql");
+
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final MeterRegistry meterRegistry;
+  private final Duration interactiveMaxWait;
+  private final Duration backgroundMaxWait;
+  private final double backgroundReserve;
+  private final Duration secondaryLimitBackoff;
+  private final Duration maxSecondaryLimitBackoff;
+  private final ConcurrentMap<BudgetKey, Budget> budgets = new ConcurrentHashMap<>();
+
+  /**
+   * A scheduler of GitHub API requests that keeps within the rate limits of each installation.
+   *
+   * @param appInstallationContextProvider the provider of the installation and priority of the current request
+   * @param meterRegistry the registry the remaining budgets and throttled requests are exposed through
+   * @param interactiveMaxWait the longest an interactive request waits for the rate limit before failing
+   * @param backgroundMaxWait the longest a background request waits for the rate limit before failing
+   * @param backgroundReserve the fraction of each rate limit background requests leave for interactive requests
+   * @param secondaryLimitBackoff how long requests are held back for after a secondary rate limit without a Retry-After header
+   * @param maxSecondaryLimitBackoff the longest the secondary rate limit backoff doubles up to on consecutive secondary rate limits
+   */
+  public RateLimitScheduler(AppInstallationContextProvider appInstallationContextProvider,
+                            MeterRegistry meterRegistry,
+                            @Value("#{T(java.time.Duration).parse('${github.api.rate-limit.interactive-max-wait}')}")
+                                Duration interactiveMaxWait,
+                            @Value("#{T(java.time.Duration).parse('${github.api.rate-limit.background-max-wait}')}")
+                                Duration backgroundMaxWait,
+                            @Value("${github.api.rate-limit.background-reserve}") double backgroundReserve,
+                            @Value("#{T(java.time.Duration).parse('${github.api.rate-limit.secondary-limit-backoff}')}")
+                                Duration secondaryLimitBackoff,
+                            @Value("#{T(java.time.Duration).parse('${github.api.rate-limit.max-secondary-limit-backoff}')}")
+                                Duration maxSecondaryLimitBackoff) {
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.meterRegistry = meterRegistry;
+    this.interactiveMaxWait = interactiveMaxWait;
+    this.backgroundMaxWait = backgroundMaxWait;
+    this.backgroundReserve = backgroundReserve;
+    this.secondaryLimitBackoff = secondaryLimitBackoff;
+    this.maxSecondaryLimitBackoff = maxSecondaryLimitBackoff;
+
+    // a single series per resource rather than per installation, so the number of series does not grow with the installations
+    for (var resource : RESOURCES) {
+      Gauge.builder("github.api.rate-limit.remaining", this, scheduler -> scheduler.getFewestRemaining(resource))
+          .description("The fewest GitHub API requests any installation has remaining until its rate limit resets")
+          .tag("resource", resource)
+          .register(meterRegistry);
+    }
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    var installationId = appInstallationContextProvider.getInstallationId();
+    var priority = appInstallationContextProvider.getRequestPriority();
+    var budgetKey = new BudgetKey(installationId, getResource(request));
+    var budget = budgets.computeIfAbsent(budgetKey, key -> new Budget());
+
+    acquire(budgetKey, budget, priority);
+
+    var response = execution.execute(request, body);
+    var secondaryRateLimited = response.getRawStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value();
+    if (response.getRawStatusCode() == HttpStatus.FORBIDDEN.value() && response.getHeaders().getFirst(RETRY_AFTER_HEADER) == null) {
+      // the message of a 403 response is the only way to tell a secondary rate limit apart from a lack of permission
+      var bufferedResponse = new BufferedClientHttpResponse(response);
+      secondaryRateLimited = isSecondaryRateLimitMessage(bufferedResponse.body);
+      response = bufferedResponse;
+    }
+
+    budget.update(response.getRawStatusCode(), secondaryRateLimited, response.getHeaders(), Instant.now());
+    return response;
+  }
+
+  private void acquire(BudgetKey budgetKey, Budget budget, RequestPriority priority) throws IOException {
+    var deadline = Instant.now().plus(priority == RequestPriority.BACKGROUND ? backgroundMaxWait : interactiveMaxWait);
+    var delayed = false;
+
+    while (true) {
+      var now = Instant.now();
+      var availableAt = budget.tryAcquire(priority, now);
+      if (availableAt == null) {
+        if (delayed) {
+          countThrottledRequest(priority, "delayed");
+        }
+        return;
+      }
+
+      if (availableAt.isAfter(deadline)) {
+        countThrottledRequest(priority, "rejected");
+        throw new RateLimitExceededException(budgetKey.installationId, budgetKey.resource, availableAt);
+      }
+
+      delayed = true;
+      try {
+        Thread.sleep(Math.max(1, Duration.between(now, availableAt).toMillis()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the GitHub API rate limit");
+      }
+    }
+  }
+
+  private double getFewestRemaining(String resource) {
+    return budgets.entrySet().stream()
+        .filter(entry -> entry.getKey().resource.equals(resource))
+        .mapToDouble(entry -> entry.getValue().getRemaining())
+        .filter(remaining -> !Double.isNaN(remaining))
+        .min()
+        .orElse(Double.NaN);
+  }
+
+  private static boolean isSecondaryRateLimitMessage(byte[] body) {
+    var message = new String(body, StandardCharsets.UTF_8).toLowerCase();
+    return SECONDARY_LIMIT_MESSAGES.stream().anyMatch(message::contains);
+  }
+
+  private void countThrottledRequest(RequestPriority priority, String result) {
+    Counter.builder("github.api.rate-limit.throttled")
+        .description("The number of GitHub API requests delayed or rejected to keep within the rate limit")
+        .tag("priority", priority.name().toLowerCase())
+        .tag("result", result)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  private static String getResource(HttpRequest request) {
+    var path = request.getURI().getPath();
+    if (path.endsWith("/graphql")) {
+      return "graphql";
+    }
+    if (path.contains("/search/")) {
+      return "search";
+    }
+    return "core";
+  }
+
+  private class Budget {
+    private int limit = -1;
+    private int remaining = -1;
+    private Instant resetAt = null;
+    private Instant backoffUntil = null;
+    private Duration nextSecondaryLimitBackoff = secondaryLimitBackoff;
+
+    /**
+     * Takes a request from the budget if it is available to a request of the given priority.
+     *
+     * @return null if the request was taken from the budget, or otherwise when the budget is expected to be available again
+     */
+    private synchronized Instant tryAcquire(RequestPriority priority, Instant now) {
+      if (backoffUntil != null && now.isBefore(backoffUntil)) {
+        return backoffUntil;
+      }
+      if (limit < 0) {
+        return null;
+      }
+      if (resetAt != null && !now.isBefore(resetAt)) {
+        remaining = limit;
+        resetAt = null;
+      }
+
+      var reserved = priority == RequestPriority.BACKGROUND ? (int) Math.ceil(limit * backgroundReserve) : 0;
+      if (remaining > reserved) {
+        remaining--;
+        return null;
+      }
+      return resetAt == null ? now.plus(secondaryLimitBackoff) : resetAt;
+    }
+
+    private synchronized void update(int statusCode, boolean secondaryRateLimited, HttpHeaders headers, Instant now) {
+      var remainingHeader = headers.getFirst(REMAINING_HEADER);
+      var limitHeader = headers.getFirst(LIMIT_HEADER);
+      var resetHeader = headers.getFirst(RESET_HEADER);
+      if (remainingHeader != null && limitHeader != null && resetHeader != null) {
+        try {
+          limit = Integer.parseInt(limitHeader);
+          var reportedResetAt = Instant.ofEpochSecond(Long.parseLong(resetHeader));
+          // requests sent since this response was generated have already been counted down from the local budget
+          remaining = Objects.equals(reportedResetAt, resetAt) ? Math.min(remaining, Integer.parseInt(remainingHeader))
+              : Integer.parseInt(remainingHeader);
+          resetAt = reportedResetAt;
+        } catch (NumberFormatException e) {
+          logger.warn("Ignoring GitHub API rate limit headers that could not be parsed: " + headers);
+        }
+      }
+
+      var rateLimited = statusCode == HttpStatus.TOO_MANY_REQUESTS.value() || statusCode == HttpStatus.FORBIDDEN.value();
+      if (rateLimited && headers.getFirst(RETRY_AFTER_HEADER) != null) {
+        backoffUntil = now.plusSeconds(parseRetryAfter(headers.getFirst(RETRY_AFTER_HEADER)));
+        logger.warn("A GitHub API secondary rate limit was hit, holding back requests until " + backoffUntil);
+      } else if (rateLimited && remaining == 0 && resetAt != null) {
+        backoffUntil = resetAt;
+      } else if (secondaryRateLimited) {
+        backoffUntil = now.plus(nextSecondaryLimitBackoff);
+        nextSecondaryLimitBackoff = min(nextSecondaryLimitBackoff.multipliedBy(2), maxSecondaryLimitBackoff);
+        logger.warn("A GitHub API secondary rate limit was hit, holding back requests until " + backoffUntil);
+      } else if (!rateLimited) {
+        nextSecondaryLimitBackoff = secondaryLimitBackoff;
+      }
+    }
+
+    private long parseRetryAfter(String retryAfter) {
+      try {
+        return Long.parseLong(retryAfter.trim());
+      } catch (NumberFormatException e) {
+        return secondaryLimitBackoff.getSeconds();
+      }
+    }
+
+    private synchronized double getRemaining() {
+      return remaining < 0 ? Double.NaN : remaining;
+    }
+  }
+
+  private static Duration min(Duration first, Duration second) {
+    return first.compareTo(second) <= 0 ? first : second;
+  }
+
+  private static class BufferedClientHttpResponse implements ClientHttpResponse {
+    private final ClientHttpResponse response;
+    private final byte[] body;
+
+    private BufferedClientHttpResponse(ClientHttpResponse response) throws IOException {
+      this.response = response;
+      this.body = StreamUtils.copyToByteArray(response.getBody());
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+      return response.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+      return response.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return response.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return response.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void close() {
+      response.close();
+    }
+  }
+
+  private static class BudgetKey {
+    private final String installationId;
+    private final String resource;
+
+    private BudgetKey(String installationId, String resource) {
+      this.installationId = installationId;
+      this.resource = resource;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BudgetKey that = (BudgetKey) o;
+      return installationId.equals(that.installationId) &&
+          resource.equals(that.resource);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(installationId, resource);
+    }
+  }
+}
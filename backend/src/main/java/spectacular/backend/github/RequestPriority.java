@@ -0,0 +1,17 @@
+package spectacular.backend.github;
+
+/**
+ * The priority of the GitHub API requests made for a unit of work, used to decide which requests may use up the last of an
+ * installation's rate limit.
+ */
+public enum RequestPriority {
+  /**
+   * Requests made while a user waits on the response, such as loading a catalogue in the UI.
+   */
+  INTERACTIVE,
+
+  /**
+   * Requests made to refresh data in the background, that can wait for the rate limit to reset.
+   */
+  BACKGROUND
+}
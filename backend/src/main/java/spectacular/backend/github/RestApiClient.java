@@ -1,5 +1,8 @@
 package spectacular.backend.github;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
@@ -13,8 +16,12 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import spectacular.backend.common.RepositoryId;
@@ -39,27 +46,35 @@ public class RestApiClient {
   private static final String REPO_COLLABORATORS_PATH = "/repos/{repo}/collaborators/{username}";
 
   private static final String REPO_TOPICS_PREVIEW_HEADER = "application/vnd.github.mercy-preview+json";
+  private static final String REPO_CONTENT_RAW_HEADER = "application/vnd.github.v3.raw";
 
   private final RestTemplate restTemplate;
+  private final ConditionalRequestCache conditionalRequestCache;
 
   /**
    * Constructs a GitHub REST API client.
    *
    * @param rootUrl the configuration value for the root-url (or base url) of the GitHub API.
    * @param restTemplateBuilder a RestTemplateBuilder bean used to create a new RestTemplate instance for the use in the REST API client
-   * @param requestFactory the caching HttpComponentsClientHttpRequestFactory bean to be used by the RestTemplate to create HTTP requests
+   * @param requestFactory the HttpComponentsClientHttpRequestFactory bean to be used by the RestTemplate to create HTTP requests
    * @param appInstallationAuthenticationHeaderRequestInterceptor an AppInstallationAuthenticationHeaderRequestInterceptor bean used to
    *     ensure all API requests have the necessary Authentication Header for the current App Installation context
+   * @param rateLimitScheduler a RateLimitScheduler bean used to hold back API requests that would exceed the rate limit of the current
+   *     App Installation context
+   * @param conditionalRequestCache the cache of responses used to make GET requests conditional on the resource having changed
    */
   public RestApiClient(@Value("${github.api.root-url}") String rootUrl,
                        RestTemplateBuilder restTemplateBuilder,
                        HttpComponentsClientHttpRequestFactory requestFactory,
-                       AppInstallationAuthenticationHeaderRequestInterceptor appInstallationAuthenticationHeaderRequestInterceptor) {
+                       AppInstallationAuthenticationHeaderRequestInterceptor appInstallationAuthenticationHeaderRequestInterceptor,
+                       RateLimitScheduler rateLimitScheduler,
+                       ConditionalRequestCache conditionalRequestCache) {
     this.restTemplate = restTemplateBuilder
         .rootUri(rootUrl)
         .requestFactory(() -> requestFactory)
-        .additionalInterceptors(appInstallationAuthenticationHeaderRequestInterceptor)
+        .additionalInterceptors(rateLimitScheduler, appInstallationAuthenticationHeaderRequestInterceptor)
         .build();
+    this.conditionalRequestCache = conditionalRequestCache;
   }
 
   /**
@@ -71,19 +86,8 @@ public class RestApiClient {
    * @return a ContentItem representing the details and encoded contents of the file
    */
   public ContentItem getRepositoryContent(RepositoryId repo, String path, String ref) {
-    UriComponentsBuilder uriComponentsBuilder =
-        UriComponentsBuilder.fromUriString(REPO_CONTENT_PATH);
-    if (ref != null && ref.length() > 0) {
-      uriComponentsBuilder.queryParam("ref", ref);
-    }
-
-    HttpHeaders headers = new HttpHeaders();
-    headers.set("Accept", MediaType.APPLICATION_JSON_VALUE);
-    HttpEntity entity = new HttpEntity(headers);
-
-    String contentUri =
-        uriComponentsBuilder.buildAndExpand(repo.getNameWithOwner(), path).toUriString();
-    var response = restTemplate.exchange(contentUri, HttpMethod.GET, entity, ContentItem.class);
+    String contentUri = getRepositoryContentUri(repo, path, ref);
+    var response = getConditionally(REPO_CONTENT_PATH, contentUri, MediaType.APPLICATION_JSON_VALUE, ContentItem.class);
 
     var contentItem = response.getBody();
     var lastModified = OffsetDateTime.ofInstant(Instant.ofEpochMilli(response.getHeaders().getLastModified()), ZoneId.of("GMT"));
@@ -92,6 +96,46 @@ public class RestApiClient {
     return contentItem;
   }
 
+  /**
+   * Gets the raw content of a file in a repository at a specific ref from the API as a stream.
+   * The content is requested with the raw media type, so it is neither base64 encoded in a JSON content item nor read into memory,
+   * and can be read straight from the connection. The returned stream must be closed to release the connection.
+   *
+   * @param repo the repository the file belongs to
+   * @param path the path of the file
+   * @param ref the reference to the commit at which to take the contents from
+   * @return an InputStream of the raw bytes of the file
+   */
+  public InputStream getRepositoryContentStream(RepositoryId repo, String path, String ref) {
+    String contentUri = getRepositoryContentUri(repo, path, ref);
+    try {
+      var request = restTemplate.getRequestFactory().createRequest(restTemplate.getUriTemplateHandler().expand(contentUri), HttpMethod.GET);
+      request.getHeaders().set(HttpHeaders.ACCEPT, REPO_CONTENT_RAW_HEADER);
+      var response = request.execute();
+      try {
+        if (restTemplate.getErrorHandler().hasError(response)) {
+          restTemplate.getErrorHandler().handleError(response);
+        }
+        return new ResponseBodyInputStream(response);
+      } catch (IOException | RuntimeException e) {
+        response.close();
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new ResourceAccessException("I/O error on GET request for \"" + contentUri + "\": " + e.getMessage(), e);
+    }
+  }
+
+  private static String getRepositoryContentUri(RepositoryId repo, String path, String ref) {
+    UriComponentsBuilder uriComponentsBuilder =
+        UriComponentsBuilder.fromUriString(REPO_CONTENT_PATH);
+    if (ref != null && ref.length() > 0) {
+      uriComponentsBuilder.queryParam("ref", ref);
+    }
+
+    return uriComponentsBuilder.buildAndExpand(repo.getNameWithOwner(), path).toUriString();
+  }
+
   /**
    * Finds files with a given filename, extension, path and organisation/repository.
    *
@@ -160,12 +204,9 @@ public class RestApiClient {
   public spectacular.backend.github.domain.Repository getRepository(RepositoryId repoId) {
     UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUriString(REPO_PATH);
 
-    HttpHeaders headers = new HttpHeaders();
-    HttpEntity entity = new HttpEntity(headers);
-
     String contentUri = uriComponentsBuilder.buildAndExpand(repoId.getNameWithOwner()).toUriString();
-    ResponseEntity<spectacular.backend.github.domain.Repository> response = restTemplate
-        .exchange(contentUri, HttpMethod.GET, entity, spectacular.backend.github.domain.Repository.class);
+    ResponseEntity<spectacular.backend.github.domain.Repository> response =
+        getConditionally(REPO_PATH, contentUri, null, spectacular.backend.github.domain.Repository.class);
     return response.getBody();
   }
 
@@ -178,12 +219,9 @@ public class RestApiClient {
   public RepositoryTopics getRepositoryTopics(RepositoryId repoId) {
     UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUriString(REPO_TOPICS_PATH);
 
-    HttpHeaders headers = new HttpHeaders();
-    headers.set(HttpHeaders.ACCEPT, REPO_TOPICS_PREVIEW_HEADER);
-    HttpEntity entity = new HttpEntity(headers);
-
     String contentUri = uriComponentsBuilder.buildAndExpand(repoId.getNameWithOwner()).toUriString();
-    ResponseEntity<RepositoryTopics> response = restTemplate.exchange(contentUri, HttpMethod.GET, entity, RepositoryTopics.class);
+    ResponseEntity<RepositoryTopics> response =
+        getConditionally(REPO_TOPICS_PATH, contentUri, REPO_TOPICS_PREVIEW_HEADER, RepositoryTopics.class);
 
     return response.getBody();
   }
@@ -197,12 +235,9 @@ public class RestApiClient {
   public List<spectacular.backend.github.domain.Tag> getRepositoryTags(RepositoryId repoId) {
     UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUriString(REPO_TAGS_PATH);
 
-    HttpHeaders headers = new HttpHeaders();
-    HttpEntity entity = new HttpEntity(headers);
-
     String contentUri = uriComponentsBuilder.buildAndExpand(repoId.getNameWithOwner()).toUriString();
-    ResponseEntity<spectacular.backend.github.domain.Tag[]> response = restTemplate
-        .exchange(contentUri, HttpMethod.GET, entity, spectacular.backend.github.domain.Tag[].class);
+    ResponseEntity<spectacular.backend.github.domain.Tag[]> response =
+        getConditionally(REPO_TAGS_PATH, contentUri, null, spectacular.backend.github.domain.Tag[].class);
     return Arrays.asList(response.getBody());
   }
 
@@ -217,12 +252,8 @@ public class RestApiClient {
   public Comparison getComparison(RepositoryId repoId, String base, String head) {
     UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder.fromUriString(REPO_COMPARE_PATH);
 
-    HttpHeaders headers = new HttpHeaders();
-    HttpEntity entity = new HttpEntity(headers);
-
     String contentUri = uriComponentsBuilder.buildAndExpand(repoId.getNameWithOwner(), base, head).toUriString();
-    ResponseEntity<Comparison> response = restTemplate
-        .exchange(contentUri, HttpMethod.GET, entity, Comparison.class);
+    ResponseEntity<Comparison> response = getConditionally(REPO_COMPARE_PATH, contentUri, null, Comparison.class);
     return response.getBody();
   }
 
@@ -249,4 +280,55 @@ public class RestApiClient {
     final String response = restTemplate.getForObject(RATE_LIMIT, String.class);
     return response;
   }
+
+  /**
+   * Makes a GET request that is conditional on the resource having changed since the response cached for it, if there is one.
+   * A 304 Not Modified response is answered with the cached response, so callers read the response the same either way.
+   *
+   * @param endpoint the path template of the API endpoint, used to tag the conditional request metrics
+   * @param uri the uri of the request
+   * @param accept the media type to accept, or null to accept any the response type can be read from
+   * @param responseType the type to read the response body as
+   * @param <T> the type of the response body
+   * @return the ResponseEntity of the request
+   */
+  private <T> ResponseEntity<T> getConditionally(String endpoint, String uri, String accept, Class<T> responseType) {
+    var cachedResponse = conditionalRequestCache.getCachedResponse(uri, accept);
+
+    RequestCallback acceptHeaderRequestCallback = restTemplate.acceptHeaderRequestCallback(responseType);
+    RequestCallback requestCallback = request -> {
+      acceptHeaderRequestCallback.doWithRequest(request);
+      if (accept != null) {
+        request.getHeaders().set(HttpHeaders.ACCEPT, accept);
+      }
+      if (cachedResponse != null) {
+        request.getHeaders().setIfNoneMatch(cachedResponse.getETag());
+      }
+    };
+
+    ResponseExtractor<ResponseEntity<T>> responseEntityExtractor = restTemplate.responseEntityExtractor(responseType);
+    return restTemplate.execute(uri, HttpMethod.GET, requestCallback, response ->
+        responseEntityExtractor.extractData(conditionalRequestCache.resolveResponse(endpoint, uri, accept, cachedResponse, response)));
+  }
+
+  /**
+   * The body of a response that closes the response, and with it the connection it is read from, when it is closed.
+   */
+  private static class ResponseBodyInputStream extends FilterInputStream {
+    private final ClientHttpResponse response;
+
+    private ResponseBodyInputStream(ClientHttpResponse response) throws IOException {
+      super(response.getBody());
+      this.response = response;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        response.close();
+      }
+    }
+  }
 }
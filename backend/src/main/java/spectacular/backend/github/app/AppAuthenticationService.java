@@ -12,7 +12,9 @@ import com.nimbusds.jwt.SignedJWT;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,9 +24,15 @@ import org.springframework.stereotype.Service;
 @Service
 public class AppAuthenticationService {
   private static final Logger logger = LoggerFactory.getLogger(AppAuthenticationService.class);
+  // GitHub recommends backdating the issue time of app JWTs to allow for clock drift between this app and GitHub
+  private static final Duration ISSUE_TIME_CLOCK_DRIFT = Duration.ofSeconds(60);
+
   private final String appId;
   private final String privateKeyFilePath;
   private final Duration jwtDuration;
+  private final Duration jwtRefreshMargin;
+  private volatile SigningKey signingKey = null;
+  private volatile AppJwt appJwt = null;
 
   /**
    * Functionality needed to Authenticate as the configured GitHub App.
@@ -32,59 +40,120 @@ public class AppAuthenticationService {
    * @param appId a config value of the id for the GitHub app representing this application instance
    * @param privateKeyFilePath config value of the file path to the RSA private key provided by GitHub for this app.
    * @param jwtDuration a config value for how long each JWT created should be valid for
+   * @param jwtRefreshMargin a config value for how long before its expiry a JWT stops being reused and a new one is created
    */
   public AppAuthenticationService(@Value("${github.api.app.id}") String appId,
                                   @Value("${github.api.app.jwt-signing-key-file-path}") String privateKeyFilePath,
-                                  @Value("#{T(java.time.Duration).parse('${github.api.app.jwt-duration}')}") Duration jwtDuration) {
+                                  @Value("#{T(java.time.Duration).parse('${github.api.app.jwt-duration}')}") Duration jwtDuration,
+                                  @Value("#{T(java.time.Duration).parse('${github.api.app.jwt-refresh-margin}')}")
+                                      Duration jwtRefreshMargin) {
     this.appId = appId;
     this.privateKeyFilePath = privateKeyFilePath;
     this.jwtDuration = jwtDuration;
+    this.jwtRefreshMargin = jwtRefreshMargin;
     logger.info("Initialised AppAuthenticationService for GitHub App with id '{}' and using JWT Signing private key at path '{}'.",
         appId,
         privateKeyFilePath);
   }
 
   /**
-   * Generate a RSA signed, RS256 encoded JWT for identifying this app when making requests to the GitHub App API.
+   * Get a RSA signed, RS256 encoded JWT for identifying this app when making requests to the GitHub App API.
+   * The same JWT is reused until it is within the refresh margin of its expiry, so the private key is only read and a new JWT is
+   * only signed a few times an hour. The private key is parsed once and only parsed again if the key file has been modified since.
    *
    * @return a string representation of the JWT payload
    * @throws JOSEException if a problem occurs during the parsing of the RSA private key or during JWT signing
    * @throws IOException if a problem occurs when reading teh RSA private key file at the configured path
    */
   public String generateJwt() throws JOSEException, IOException {
-    Path path = Path.of(privateKeyFilePath);
-    String privateKeyFileContent = Files.readString(path);
+    var currentJwt = appJwt;
+    if (currentJwt != null && currentJwt.isReusableAt(Instant.now())) {
+      return currentJwt.serialized;
+    }
 
-    var jwk = JWK.parseFromPEMEncodedObjects(privateKeyFileContent);
+    return createJwt();
+  }
 
-    if (!jwk.isPrivate() || jwk.getKeyType() != KeyType.RSA) {
-      return "";
+  private synchronized String createJwt() throws JOSEException, IOException {
+    var now = Instant.now();
+    if (appJwt != null && appJwt.isReusableAt(now)) {
+      return appJwt.serialized;
     }
 
-    if (!(jwk instanceof RSAKey)) {
+    var currentSigningKey = loadSigningKey();
+    if (currentSigningKey == null) {
       return "";
     }
 
-    var rsaKey = (RSAKey) jwk;
-
-    var jwsSigner = new RSASSASigner(rsaKey);
-
-    var now = new Date();
-    var expiration = new Date(now.getTime() + jwtDuration.toMillis());
+    var expiration = now.plus(jwtDuration);
     JWTClaimsSet claims = new JWTClaimsSet.Builder()
         .issuer(appId)
-        .issueTime(now)
-        .expirationTime(expiration)
+        .issueTime(Date.from(now.minus(ISSUE_TIME_CLOCK_DRIFT)))
+        .expirationTime(Date.from(expiration))
         .build();
 
     JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).build();
 
     var signedJwt = new SignedJWT(header, claims);
-    signedJwt.sign(jwsSigner);
+    signedJwt.sign(currentSigningKey.signer);
 
     logger.info("Generated and signed new App JWT for AppId: '{}' issued at '{}' and expiring at '{}'.", appId, claims.getIssueTime(),
         claims.getExpirationTime());
 
-    return signedJwt.serialize();
+    var serializedJwt = signedJwt.serialize();
+    appJwt = new AppJwt(serializedJwt, expiration.minus(jwtRefreshMargin));
+    return serializedJwt;
+  }
+
+  private SigningKey loadSigningKey() throws JOSEException, IOException {
+    Path path = Path.of(privateKeyFilePath);
+    var lastModified = Files.getLastModifiedTime(path);
+    if (signingKey != null && signingKey.lastModified.equals(lastModified)) {
+      return signingKey;
+    }
+
+    String privateKeyFileContent = Files.readString(path);
+
+    var jwk = JWK.parseFromPEMEncodedObjects(privateKeyFileContent);
+
+    if (!jwk.isPrivate() || jwk.getKeyType() != KeyType.RSA) {
+      return null;
+    }
+
+    if (!(jwk instanceof RSAKey)) {
+      return null;
+    }
+
+    var rsaKey = (RSAKey) jwk;
+
+    if (signingKey != null) {
+      logger.info("Reloaded the JWT Signing private key at path '{}' after it was modified.", privateKeyFilePath);
+    }
+    signingKey = new SigningKey(new RSASSASigner(rsaKey), lastModified);
+    return signingKey;
+  }
+
+  private static class SigningKey {
+    private final RSASSASigner signer;
+    private final FileTime lastModified;
+
+    private SigningKey(RSASSASigner signer, FileTime lastModified) {
+      this.signer = signer;
+      this.lastModified = lastModified;
+    }
+  }
+
+  private static class AppJwt {
+    private final String serialized;
+    private final Instant reusableUntil;
+
+    private AppJwt(String serialized, Instant reusableUntil) {
+      this.serialized = serialized;
+      this.reusableUntil = reusableUntil;
+    }
+
+    private boolean isReusableAt(Instant now) {
+      return now.isBefore(reusableUntil);
+    }
   }
 }
@@ -1,13 +1,16 @@
 package spectacular.backend.github.app;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.springframework.stereotype.Repository;
 import spectacular.backend.github.domain.AccessTokenResult;
 
+/**
+ * A store of the latest access token of each installation, safe to read and replace from concurrent requests.
+ */
 @Repository
 public class AppInstallationAccessTokenStore {
-  private final Map<String, AccessTokenResult> accessTokenMap = new HashMap<>();
+  private final ConcurrentMap<String, AccessTokenResult> accessTokenMap = new ConcurrentHashMap<>();
 
   public void putAccessTokenForInstallation(AccessTokenResult accessToken, String installationId) {
     accessTokenMap.put(installationId, accessToken);
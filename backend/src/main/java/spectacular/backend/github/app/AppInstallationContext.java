@@ -0,0 +1,53 @@
+package spectacular.backend.github.app;
+
+import java.util.Objects;
+import spectacular.backend.github.RequestPriority;
+
+/**
+ * The GitHub App Installation a unit of work is done for, and the priority its GitHub API requests are made with.
+ * The context is immutable so that it can be handed from the thread that started the work to the threads that continue it, without
+ * later changes on one thread leaking into the work done on the others.
+ */
+public class AppInstallationContext {
+  private final String installationId;
+  private final RequestPriority requestPriority;
+
+  public AppInstallationContext(String installationId, RequestPriority requestPriority) {
+    this.installationId = installationId;
+    this.requestPriority = requestPriority;
+  }
+
+  public String getInstallationId() {
+    return installationId;
+  }
+
+  public RequestPriority getRequestPriority() {
+    return requestPriority;
+  }
+
+  public AppInstallationContext withInstallationId(String installationId) {
+    return new AppInstallationContext(installationId, requestPriority);
+  }
+
+  public AppInstallationContext withRequestPriority(RequestPriority requestPriority) {
+    return new AppInstallationContext(installationId, requestPriority);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AppInstallationContext that = (AppInstallationContext) o;
+    return Objects.equals(installationId, that.installationId) &&
+        requestPriority == that.requestPriority;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(installationId, requestPriority);
+  }
+}
@@ -1,17 +1,29 @@
 package spectacular.backend.github.app;
 
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import spectacular.backend.github.RequestPriority;
+
 /**
- * A bean for holding the GitHub App Installation Id context sent with each API request.
+ * A bean for holding the GitHub App Installation context of the unit of work being done on the current thread, such as handling
+ * an API request or refreshing a repository in the background.
+ * The context is held per thread rather than in the bean, so concurrent work for different installations never sees each other's
+ * installation. Work handed to another thread carries the context with it by being wrapped with wrap, which every task executor
+ * does through the InstallationContextTaskDecorator, so the GitHub API requests it makes are authenticated for the same installation.
  */
+@Component
 public class AppInstallationContextProvider {
-  private String installationId = null;
+  private static final AppInstallationContext EMPTY_CONTEXT = new AppInstallationContext(null, RequestPriority.INTERACTIVE);
+
+  private final ThreadLocal<AppInstallationContext> currentContext = ThreadLocal.withInitial(() -> EMPTY_CONTEXT);
 
   /**
-   * Get the installation if for the current API request context.
+   * Get the installation id of the work being done on the current thread.
    *
-   * @return the installation id for the API request currently being handled
+   * @return the installation id for the API request or background work currently being handled
    */
   public String getInstallationId() {
+    var installationId = currentContext.get().getInstallationId();
     if (installationId == null) {
       throw new AppInstallationContextNotSetException();
     }
@@ -19,6 +31,84 @@ public class AppInstallationContextProvider {
   }
 
   public void setInstallationId(String installationId) {
-    this.installationId = installationId;
+    currentContext.set(currentContext.get().withInstallationId(installationId));
+  }
+
+  /**
+   * Get the priority of the GitHub API requests made for the work being done on the current thread.
+   *
+   * @return the RequestPriority of the API request or background work currently being handled, INTERACTIVE unless set otherwise
+   */
+  public RequestPriority getRequestPriority() {
+    return currentContext.get().getRequestPriority();
+  }
+
+  public void setRequestPriority(RequestPriority requestPriority) {
+    currentContext.set(currentContext.get().withRequestPriority(requestPriority));
+  }
+
+  /**
+   * Get the installation context of the work being done on the current thread.
+   *
+   * @return the current AppInstallationContext, with no installation id if none has been set
+   */
+  public AppInstallationContext getContext() {
+    return currentContext.get();
+  }
+
+  /**
+   * Removes the installation context from the current thread once the work it was set for is done, so it does not leak into the
+   * next work done by a pooled thread.
+   */
+  public void clear() {
+    currentContext.remove();
+  }
+
+  /**
+   * Runs a task on the current thread in the given installation context, restoring the previous context once it is done.
+   *
+   * @param context the installation context to run the task in
+   * @param task the task to run
+   */
+  public void runWith(AppInstallationContext context, Runnable task) {
+    var previousContext = currentContext.get();
+    currentContext.set(context);
+    try {
+      task.run();
+    } finally {
+      currentContext.set(previousContext);
+    }
+  }
+
+  /**
+   * Wraps a task so it runs in the installation context of the current thread, on whichever thread it is later run.
+   *
+   * @param task the task to wrap
+   * @return a Runnable that runs the task in the current installation context
+   */
+  public Runnable wrap(Runnable task) {
+    var context = currentContext.get();
+    return () -> runWith(context, task);
+  }
+
+  /**
+   * Wraps a supplier so it supplies its result in the installation context of the current thread, on whichever thread it is later
+   * called, such as in a CompletableFuture chain.
+   *
+   * @param supplier the supplier to wrap
+   * @param <T> the type of result supplied
+   * @return a Supplier that calls the supplier in the current installation context
+   */
+  public <T> Supplier<T> wrap(Supplier<T> supplier) {
+    var context = currentContext.get();
+    return () -> {
+      var previousContext = currentContext.get();
+      currentContext.set(context);
+      try {
+        return supplier.get();
+      } finally {
+        currentContext.set(previousContext);
+      }
+    };
   }
 }
@@ -1,34 +1,137 @@
 package spectacular.backend.github.app;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import spectacular.backend.github.domain.AccessTokenResult;
 
 @Service
 public class AppInstallationService {
+  private static final Logger logger = LoggerFactory.getLogger(AppInstallationService.class);
+  private static final String REFRESH_METRIC_NAME = "github.app.installation-token.refresh";
+
   private final AppApiClient appApiClient;
   private final AppInstallationAccessTokenStore appInstallationAccessTokenStore;
+  private final MeterRegistry meterRegistry;
+  private final Executor tokenRefreshExecutor;
+  private final Duration minValidity;
+  private final Duration refreshAhead;
+  private final ConcurrentMap<String, CompletableFuture<AccessTokenResult>> inFlightRefreshes = new ConcurrentHashMap<>();
 
+  /**
+   * A service for getting the access tokens of the installations of this GitHub app.
+   *
+   * @param appApiClient the client used to create new access tokens
+   * @param appInstallationAccessTokenStore the store of the latest access token of each installation
+   * @param meterRegistry the registry the token refresh latencies are exposed through
+   * @param tokenRefreshExecutor the executor tokens are refreshed on ahead of their expiry
+   * @param minValidity how long a token must still be valid for to be used for a request
+   * @param refreshAhead how long before its expiry a token in use is refreshed in the background
+   */
   public AppInstallationService(AppApiClient appApiClient,
-                                AppInstallationAccessTokenStore appInstallationAccessTokenStore) {
+                                AppInstallationAccessTokenStore appInstallationAccessTokenStore,
+                                MeterRegistry meterRegistry,
+                                @Qualifier("installationTokenRefreshTaskExecutor") Executor tokenRefreshExecutor,
+                                @Value("#{T(java.time.Duration).parse('${github.api.app.installation-tokens.min-validity}')}")
+                                    Duration minValidity,
+                                @Value("#{T(java.time.Duration).parse('${github.api.app.installation-tokens.refresh-ahead}')}")
+                                    Duration refreshAhead) {
     this.appApiClient = appApiClient;
     this.appInstallationAccessTokenStore = appInstallationAccessTokenStore;
+    this.meterRegistry = meterRegistry;
+    this.tokenRefreshExecutor = tokenRefreshExecutor;
+    this.minValidity = minValidity;
+    this.refreshAhead = refreshAhead;
   }
 
   /**
    * Get a GitHub API access token for the given installation.
+   * A stored token that is close to expiring is still returned while a new one is created in the background, so requests only
+   * wait for a new token when there is no stored token valid for long enough. Concurrent requests for a new token of the same
+   * installation all wait for a single token to be created.
    *
    * @param installationId the installation id of the installation of this GitHub app for a given user or organisation
    * @return a new AccessTokenResult object with the actual access token and other details like expiration date
    */
   public AccessTokenResult getAccessTokenForInstallation(String installationId) {
     var accessToken = appInstallationAccessTokenStore.getAccessTokenForInstallation(installationId);
+    var now = ZonedDateTime.now();
 
-    if (accessToken == null || accessToken.getExpirationDateTime().isBefore(ZonedDateTime.now().plusSeconds(30))) {
-      accessToken = this.appApiClient.requestNewAppInstallationAccessToken(installationId);
-      appInstallationAccessTokenStore.putAccessTokenForInstallation(accessToken, installationId);
+    if (accessToken == null || accessToken.getExpirationDateTime().isBefore(now.plus(minValidity))) {
+      return awaitRefresh(refresh(installationId, Runnable::run, "on-demand"));
+    }
+
+    if (accessToken.getExpirationDateTime().isBefore(now.plus(refreshAhead))) {
+      try {
+        refresh(installationId, tokenRefreshExecutor, "ahead");
+      } catch (RejectedExecutionException e) {
+        logger.warn("Could not refresh the access token of installation " + installationId + " ahead of its expiry", e);
+      }
     }
 
     return accessToken;
   }
+
+  private CompletableFuture<AccessTokenResult> refresh(String installationId, Executor executor, String trigger) {
+    var refresh = new CompletableFuture<AccessTokenResult>();
+    var inFlightRefresh = inFlightRefreshes.putIfAbsent(installationId, refresh);
+    if (inFlightRefresh != null) {
+      return inFlightRefresh;
+    }
+
+    try {
+      executor.execute(() -> createAccessToken(installationId, trigger, refresh));
+    } catch (RejectedExecutionException e) {
+      inFlightRefreshes.remove(installationId, refresh);
+      throw e;
+    }
+    return refresh;
+  }
+
+  private void createAccessToken(String installationId, String trigger, CompletableFuture<AccessTokenResult> refresh) {
+    var start = System.nanoTime();
+    try {
+      var accessToken = this.appApiClient.requestNewAppInstallationAccessToken(installationId);
+      appInstallationAccessTokenStore.putAccessTokenForInstallation(accessToken, installationId);
+      recordRefresh(trigger, "success", start);
+      inFlightRefreshes.remove(installationId, refresh);
+      refresh.complete(accessToken);
+    } catch (RuntimeException e) {
+      recordRefresh(trigger, "failure", start);
+      inFlightRefreshes.remove(installationId, refresh);
+      refresh.completeExceptionally(e);
+    }
+  }
+
+  private void recordRefresh(String trigger, String result, long start) {
+    Timer.builder(REFRESH_METRIC_NAME)
+        .description("The time taken to create a new installation access token")
+        .tag("trigger", trigger)
+        .tag("result", result)
+        .register(meterRegistry)
+        .record(Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private static AccessTokenResult awaitRefresh(CompletableFuture<AccessTokenResult> refresh) {
+    try {
+      return refresh.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
 }
@@ -0,0 +1,170 @@
+package spectacular.backend.github.commitgraph;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import spectacular.backend.github.domain.Comparison;
+
+/**
+ * An in memory graph of the commits fetched from the history of one or many branches of a repository.
+ * Commits are numbered in the order they were added and their parents are stored as primitive arrays of commit numbers, so ancestry
+ * questions are answered by walking arrays instead of calling the compare API for every pair of refs.
+ * The history fetched may be cut off, so a parent that was not fetched is kept as a missing parent and any answer that depends on
+ * the commits beyond it is not given.
+ */
+public class CommitGraph {
+  private static final int MISSING_PARENT = -1;
+
+  private final Map<String, Integer> commitNumbers;
+  private final int[] parentOffsets;
+  private final int[] parents;
+
+  private CommitGraph(Map<String, Integer> commitNumbers, int[] parentOffsets, int[] parents) {
+    this.commitNumbers = commitNumbers;
+    this.parentOffsets = parentOffsets;
+    this.parents = parents;
+  }
+
+  public static CommitGraph empty() {
+    return new CommitGraph(Collections.emptyMap(), new int[] {0}, new int[0]);
+  }
+
+  /**
+   * A factory method for creating a CommitGraph from the parents of each fetched commit.
+   *
+   * @param parentOidsByCommitOid the oids of the parents of each commit, keyed by commit oid. A null parent oid, or a parent oid that
+   *     is not a key itself, is a parent that was not fetched.
+   * @return a newly constructed CommitGraph
+   */
+  public static CommitGraph createFrom(Map<String, List<String>> parentOidsByCommitOid) {
+    var commitNumbers = new HashMap<String, Integer>(parentOidsByCommitOid.size() * 2);
+    parentOidsByCommitOid.keySet().forEach(oid -> commitNumbers.put(oid, commitNumbers.size()));
+
+    var parentOffsets = new int[commitNumbers.size() + 1];
+    var parents = new int[parentOidsByCommitOid.values().stream().mapToInt(List::size).sum()];
+
+    var commitNumber = 0;
+    var parentIndex = 0;
+    for (var parentOids : parentOidsByCommitOid.values()) {
+      parentOffsets[commitNumber++] = parentIndex;
+      for (var parentOid : parentOids) {
+        parents[parentIndex++] = parentOid == null ? MISSING_PARENT : commitNumbers.getOrDefault(parentOid, MISSING_PARENT);
+      }
+    }
+    parentOffsets[commitNumber] = parentIndex;
+
+    return new CommitGraph(commitNumbers, parentOffsets, parents);
+  }
+
+  public int size() {
+    return commitNumbers.size();
+  }
+
+  public boolean contains(String oid) {
+    return commitNumbers.containsKey(oid);
+  }
+
+  /**
+   * Compares two commits the same way as the compare API, counting the commits reachable from the head commit but not the base commit
+   * as ahead and the commits reachable from the base commit but not the head commit as behind.
+   * A comparison is only given when both commits are in the graph and every missing parent reachable from either commit is reachable
+   * from both, so the commits beyond it can not change the counts.
+   *
+   * @param baseOid the oid of the base commit
+   * @param headOid the oid of the head commit
+   * @return the Comparison of the head commit to the base commit, or empty if it can not be worked out from this graph
+   */
+  public Optional<Comparison> compare(String baseOid, String headOid) {
+    var baseNumber = commitNumbers.get(baseOid);
+    var headNumber = commitNumbers.get(headOid);
+    if (baseNumber == null || headNumber == null) {
+      return Optional.empty();
+    }
+
+    var baseAncestry = new Ancestry(baseNumber);
+    var headAncestry = new Ancestry(headNumber);
+    if (!baseAncestry.hasAllCutOffCommitsIn(headAncestry) || !headAncestry.hasAllCutOffCommitsIn(baseAncestry)) {
+      return Optional.empty();
+    }
+
+    var aheadBy = headAncestry.countCommitsNotIn(baseAncestry);
+    var behindBy = baseAncestry.countCommitsNotIn(headAncestry);
+    return Optional.of(new Comparison(null, getComparisonStatus(aheadBy, behindBy), aheadBy, behindBy, aheadBy));
+  }
+
+  /**
+   * Checks if a commit is known not to be in the history of a head commit, because the whole history of the head commit is in the
+   * graph and the commit is not part of it.
+   *
+   * @param oid the oid of the commit
+   * @param headOid the oid of the head commit
+   * @return true if the commit is known not to be reachable from the head commit
+   */
+  public boolean isOutsideHistoryOf(String oid, String headOid) {
+    var headNumber = commitNumbers.get(headOid);
+    if (headNumber == null) {
+      return false;
+    }
+
+    var headAncestry = new Ancestry(headNumber);
+    if (!headAncestry.cutOffCommits.isEmpty()) {
+      return false;
+    }
+
+    var commitNumber = commitNumbers.get(oid);
+    return commitNumber == null || !headAncestry.commits.get(commitNumber);
+  }
+
+  private static String getComparisonStatus(int aheadBy, int behindBy) {
+    if (aheadBy == 0 && behindBy == 0) {
+      return "identical";
+    }
+    if (behindBy == 0) {
+      return "ahead";
+    }
+    if (aheadBy == 0) {
+      return "behind";
+    }
+    return "diverged";
+  }
+
+  private class Ancestry {
+    private final BitSet commits = new BitSet(size());
+    private final BitSet cutOffCommits = new BitSet(size());
+
+    private Ancestry(int commitNumber) {
+      var pending = new int[size()];
+      var pendingCount = 0;
+      pending[pendingCount++] = commitNumber;
+      commits.set(commitNumber);
+
+      while (pendingCount > 0) {
+        var current = pending[--pendingCount];
+        for (var i = parentOffsets[current]; i < parentOffsets[current + 1]; i++) {
+          var parent = parents[i];
+          if (parent == MISSING_PARENT) {
+            cutOffCommits.set(current);
+          } else if (!commits.get(parent)) {
+            commits.set(parent);
+            pending[pendingCount++] = parent;
+          }
+        }
+      }
+    }
+
+    private boolean hasAllCutOffCommitsIn(Ancestry other) {
+      var cutOffCommitsOutsideOther = (BitSet) cutOffCommits.clone();
+      cutOffCommitsOutsideOther.andNot(other.commits);
+      return cutOffCommitsOutsideOther.isEmpty();
+    }
+
+    private int countCommitsNotIn(Ancestry other) {
+      var commitsNotInOther = (BitSet) commits.clone();
+      commitsNotInOther.andNot(other.commits);
+      return commitsNotInOther.cardinality();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package spectacular.backend.github.commitgraph;
+
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.RestApiClient;
+import spectacular.backend.github.graphql.Commit;
+import spectacular.backend.github.graphql.GraphQlRequest;
+import spectacular.backend.github.graphql.RepositoryWithRefHistories;
+
+@Repository
+public class CommitGraphRepository {
+  private static final Logger logger = LoggerFactory.getLogger(CommitGraphRepository.class);
+  private static final String ALIAS_PREFIX = "history";
+  private static final int PAGE_SIZE = 100;
+  private static final int MAX_PARENTS = 5;
+
+  private final RestApiClient restApiClient;
+  private final int maxCommits;
+
+  /**
+   * A repository for the commit history of branches, fetched through the GraphQL history connection of each branch's head commit.
+   *
+   * @param restApiClient a github rest api client
+   * @param maxCommits the number of commits after which no further pages of history are requested for a repository
+   */
+  public CommitGraphRepository(RestApiClient restApiClient,
+                               @Value("${spec-evolution.commit-graph.max-commits}") int maxCommits) {
+    this.restApiClient = restApiClient;
+    this.maxCommits = maxCommits;
+  }
+
+  /**
+   * Gets a CommitGraph of the history of branches on a repository.
+   * The histories of all the branches are paged through together, with one GraphQL request per page, and a branch stops being paged
+   * through once a page brings no new commits, as the rest of its history has already been fetched through another branch.
+   *
+   * @param repoId the repository identifier
+   * @param branchNames the names of the branches
+   * @return a CommitGraph of the commits fetched
+   */
+  public CommitGraph getCommitGraph(RepositoryId repoId, Collection<String> branchNames) {
+    var parentOidsByCommitOid = new LinkedHashMap<String, List<String>>();
+    var cursorsByBranchName = new LinkedHashMap<String, String>();
+    for (var branchName : branchNames) {
+      cursorsByBranchName.put(branchName, null);
+    }
+
+    while (!cursorsByBranchName.isEmpty() && parentOidsByCommitOid.size() < maxCommits) {
+      var pagedBranchNames = new ArrayList<>(cursorsByBranchName.keySet());
+      var response = restApiClient.graphQlQuery(createHistoryPageRequest(repoId, cursorsByBranchName));
+
+      if (!response.getErrors().isEmpty()) {
+        logger.error("The following error occurred while fetching commit history for repo '" +
+            repoId.getNameWithOwner() + "': " + response.getErrors().toString());
+      }
+
+      if (response.getData() == null || response.getData().getRefHistories() == null) {
+        break;
+      }
+
+      cursorsByBranchName = addHistoryPages(response.getData().getRefHistories(), pagedBranchNames, parentOidsByCommitOid);
+    }
+
+    return CommitGraph.createFrom(parentOidsByCommitOid);
+  }
+
+  private LinkedHashMap<String, String> addHistoryPages(RepositoryWithRefHistories refHistories,
+                                                        List<String> pagedBranchNames,
+                                                        Map<String, List<String>> parentOidsByCommitOid) {
+    var nextCursorsByBranchName = new LinkedHashMap<String, String>();
+    for (var i = 0; i < pagedBranchNames.size(); i++) {
+      var ref = refHistories.getAliasedRef(ALIAS_PREFIX + i);
+      if (ref == null || ref.getTarget() == null || ref.getTarget().getHistory() == null) {
+        continue;
+      }
+
+      var history = ref.getTarget().getHistory();
+      var foundNewCommits = false;
+      for (var commit : history.getNodes()) {
+        foundNewCommits |= parentOidsByCommitOid.putIfAbsent(commit.getOid(), getParentOids(commit)) == null;
+      }
+
+      if (foundNewCommits && history.getPageInfo() != null && history.getPageInfo().hasNextPage()) {
+        nextCursorsByBranchName.put(pagedBranchNames.get(i), history.getPageInfo().getEndCursor());
+      }
+    }
+    return nextCursorsByBranchName;
+  }
+
+  // parents beyond the ones requested are kept as a null oid so they are treated as not fetched
+  private static List<String> getParentOids(Commit commit) {
+    var parents = commit.getParents();
+    var parentOids = parents.getNodes().stream().map(Commit::getOid).collect(Collectors.toList());
+    if (parents.getCount() > parentOids.size()) {
+      parentOids.add(null);
+    }
+    return parentOids;
+  }
+
+  private static GraphQlRequest createHistoryPageRequest(RepositoryId repoId, Map<String, String> cursorsByBranchName) {
+    var query = new StringBuilder("query {\n")
+        .append("  refHistories: repository(owner: ").append(quote(repoId.getOwner()))
+        .append(", name: ").append(quote(repoId.getName())).append(") {\n");
+
+    var aliasNumber = 0;
+    for (var branchCursor : cursorsByBranchName.entrySet()) {
+      var historyArguments = "first: " + PAGE_SIZE + (branchCursor.getValue() == null ? "" : ", after: " + quote(branchCursor.getValue()));
+      query.append("    ").append(ALIAS_PREFIX).append(aliasNumber++)
+          .append(": ref(qualifiedName: ").append(quote("refs/heads/" + branchCursor.getKey())).append(") {\n")
+          .append("      name\n")
+          .append("      target {\n")
+          .append("        oid\n")
+          .append("        ... on Commit {\n")
+          .append("          history(").append(historyArguments).append(") {\n")
+          .append("            pageInfo { hasNextPage endCursor }\n")
+          .append("            nodes { oid parents(first: ").append(MAX_PARENTS).append(") { totalCount nodes { oid } } }\n")
+          .append("          }\n")
+          .append("        }\n")
+          .append("      }\n")
+          .append("    }\n");
+    }
+
+    query.append("  }\n").append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+}
@@ -2,13 +2,19 @@ package spectacular.backend.github.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Base64;
 
 public class ContentItem {
+  private static final String BASE64_ENCODING = "base64";
+  private static final String UTF8_ENCODING = "utf-8";
+
   private final String name;
   private final String path;
   private final String sha;
@@ -34,6 +40,20 @@ public class ContentItem {
     this.encoding = encoding;
   }
 
+  /**
+   * Creates a content item for the text contents of a file that were not base64 encoded, such as those of a blob from the GraphQL api.
+   *
+   * @param path the path of the file
+   * @param sha the git blob SHA of the file contents
+   * @param htmlUrl the url to the file on github
+   * @param text the text contents of the file
+   * @return a ContentItem with the contents utf-8 encoded
+   */
+  public static ContentItem createForText(String path, String sha, URI htmlUrl, String text) {
+    var name = path.substring(path.lastIndexOf('/') + 1);
+    return new ContentItem(name, path, sha, "file", htmlUrl, text, UTF8_ENCODING);
+  }
+
   public String getName() {
     return name;
   }
@@ -64,9 +84,31 @@ public class ContentItem {
 
   @JsonIgnore
   public String getDecodedContent() throws UnsupportedEncodingException {
-    if (encoding.equalsIgnoreCase("base64")) {
+    if (encoding.equalsIgnoreCase(BASE64_ENCODING)) {
       byte[] decodedBytes = Base64.getMimeDecoder().decode(content);
-      return new String(decodedBytes);
+      return new String(decodedBytes, StandardCharsets.UTF_8);
+    }
+    if (encoding.equalsIgnoreCase(UTF8_ENCODING)) {
+      return content;
+    }
+
+    throw new UnsupportedEncodingException(encoding);
+  }
+
+  /**
+   * Gets a stream of the decoded bytes of the content, decoded from the base64 content as the stream is read rather than all at once,
+   * so large files can be read without holding a decoded copy of the whole file in memory.
+   *
+   * @return an InputStream of the decoded content
+   * @throws UnsupportedEncodingException if the content is neither base64 nor utf-8 encoded
+   */
+  @JsonIgnore
+  public InputStream getDecodedContentStream() throws UnsupportedEncodingException {
+    if (encoding.equalsIgnoreCase(BASE64_ENCODING)) {
+      return Base64.getMimeDecoder().wrap(new AsciiInputStream(content));
+    }
+    if (encoding.equalsIgnoreCase(UTF8_ENCODING)) {
+      return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
     }
 
     throw new UnsupportedEncodingException(encoding);
@@ -79,4 +121,40 @@ public class ContentItem {
   public void setLastModified(OffsetDateTime lastModified) {
     this.lastModified = lastModified;
   }
+
+  // reads the characters of an ASCII string, such as base64 content, as bytes without copying the string
+  private static class AsciiInputStream extends InputStream {
+    private final String value;
+    private int position = 0;
+
+    private AsciiInputStream(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public int read() {
+      return position < value.length() ? value.charAt(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= value.length()) {
+        return -1;
+      }
+
+      var count = Math.min(length, value.length() - position);
+      for (var i = 0; i < count; i++) {
+        buffer[offset + i] = (byte) value.charAt(position++);
+      }
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return value.length() - position;
+    }
+  }
 }
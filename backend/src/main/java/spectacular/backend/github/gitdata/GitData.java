@@ -0,0 +1,74 @@
+package spectacular.backend.github.gitdata;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import spectacular.backend.github.graphql.RepositoryRef;
+import spectacular.backend.github.pullrequests.PullRequest;
+import spectacular.backend.github.refs.BranchRef;
+import spectacular.backend.github.refs.TagRef;
+
+public class GitData {
+  private final Map<RefSelection, List<RepositoryRef>> refs;
+  private final List<PullRequest> openPullRequests;
+  private final boolean incomplete;
+
+  public GitData(Map<RefSelection, List<RepositoryRef>> refs, List<PullRequest> openPullRequests) {
+    this(refs, openPullRequests, false);
+  }
+
+  /**
+   * The git data of a repository retrieved for a GitDataQuery.
+   * @param refs the refs retrieved for each ref selection in the query
+   * @param openPullRequests the open pull requests of the repository
+   * @param incomplete whether errors were returned alongside the git data or paging stopped early, so some of it may be missing
+   */
+  public GitData(Map<RefSelection, List<RepositoryRef>> refs, List<PullRequest> openPullRequests, boolean incomplete) {
+    this.refs = refs;
+    this.openPullRequests = openPullRequests;
+    this.incomplete = incomplete;
+  }
+
+  /**
+   * Gets the branches retrieved with names matching a query.
+   * @param query the branch name query the branches were selected with
+   * @return a list of BranchRef objects
+   */
+  public List<BranchRef> getBranches(String query) {
+    return getRefs(RefSelection.branches(query)).stream()
+        .map(BranchRef::createBranchRefFrom)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the tags retrieved with names matching a query.
+   * @param query the tag name query the tags were selected with
+   * @return a list of TagRef objects
+   */
+  public List<TagRef> getTags(String query) {
+    return getRefs(RefSelection.tags(query)).stream()
+        .map(TagRef::createTagRefFrom)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the open pull requests of the repository targeting a branch.
+   * @param baseBranchName the name of the branch the pull requests are targeting to merge into
+   * @return a list of PullRequest objects
+   */
+  public List<PullRequest> getOpenPullRequests(String baseBranchName) {
+    return openPullRequests.stream()
+        .filter(pullRequest -> Objects.equals(pullRequest.getBaseBranchName(), baseBranchName))
+        .collect(Collectors.toList());
+  }
+
+  public boolean isIncomplete() {
+    return incomplete;
+  }
+
+  private List<RepositoryRef> getRefs(RefSelection refSelection) {
+    return refs.getOrDefault(refSelection, Collections.emptyList());
+  }
+}
@@ -0,0 +1,148 @@
+package spectacular.backend.github.gitdata;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import spectacular.backend.github.graphql.ChangedFile;
+import spectacular.backend.github.graphql.Connection;
+import spectacular.backend.github.graphql.Label;
+import spectacular.backend.github.graphql.PagedConnection;
+import spectacular.backend.github.graphql.PullRequest;
+import spectacular.backend.github.graphql.RepositoryRef;
+import spectacular.backend.github.graphql.RepositoryWithPullRequestPages;
+import spectacular.backend.github.graphql.RepositoryWithPullRequests;
+
+/**
+ * The pages of git data retrieved so far for a GitDataQuery, across the open pull requests of the repository, the labels and changed
+ * files of each of them and every aliased refs connection, along with the cursors to request the next page of each connection after.
+ */
+class GitDataPages {
+  static final String PULL_REQUEST_ALIAS_PREFIX = "pr";
+
+  private final PagedConnection<PullRequest> pullRequests;
+  private final Map<Integer, PullRequest> pullRequestsByNumber = new LinkedHashMap<>();
+  private final Map<Integer, PagedConnection<Label>> labelsByNumber = new LinkedHashMap<>();
+  private final Map<Integer, PagedConnection<ChangedFile>> changedFilesByNumber = new LinkedHashMap<>();
+  private final Map<String, PagedConnection<RepositoryRef>> refsByAlias = new LinkedHashMap<>();
+
+  private GitDataPages(RepositoryWithPullRequests repository, Collection<String> refAliases) {
+    this.pullRequests = PagedConnection.startingWith(repository.getPullRequests());
+    addPullRequests(repository.getPullRequests());
+    refAliases.forEach(alias -> refsByAlias.put(alias, PagedConnection.startingWith(repository.getAliasedRefs(alias))));
+  }
+
+  /**
+   * Starts collecting the git data of a repository from the first page of each of its connections.
+   * @param repository the repository in the response to the first git data query
+   * @param refAliases the aliases of the refs connections requested
+   * @return the GitDataPages of the first query
+   */
+  static GitDataPages startingWith(RepositoryWithPullRequests repository, Collection<String> refAliases) {
+    return new GitDataPages(repository, refAliases);
+  }
+
+  /**
+   * Adds the next page of each connection that had one, from the response to a query for them.
+   * A connection that is missing from the response is treated as having no more pages.
+   * @param repository the repository in the response with the next pages of the pull requests and refs, or null if there were none
+   * @param pullRequestPages the pull requests in the response with the next pages of their labels and changed files, or null
+   */
+  void addNextPages(RepositoryWithPullRequests repository, RepositoryWithPullRequestPages pullRequestPages) {
+    if (pullRequests.hasNextPage()) {
+      var nextPage = repository == null ? null : repository.getPullRequests();
+      pullRequests.addPage(nextPage);
+      addPullRequests(nextPage);
+    }
+
+    refsByAlias.forEach((alias, refs) -> {
+      if (refs.hasNextPage()) {
+        refs.addPage(repository == null ? null : repository.getAliasedRefs(alias));
+      }
+    });
+
+    labelsByNumber.forEach((number, labels) -> {
+      if (labels.hasNextPage()) {
+        var pullRequest = getPullRequestPage(pullRequestPages, number);
+        labels.addPage(pullRequest == null ? null : pullRequest.getLabels());
+      }
+    });
+
+    changedFilesByNumber.forEach((number, changedFiles) -> {
+      if (changedFiles.hasNextPage()) {
+        var pullRequest = getPullRequestPage(pullRequestPages, number);
+        changedFiles.addPage(pullRequest == null ? null : pullRequest.getChangedFiles());
+      }
+    });
+  }
+
+  boolean hasNextPages() {
+    return getNextPullRequestsCursor() != null || !getNextRefCursors().isEmpty() || !getNextLabelCursors().isEmpty() ||
+        !getNextChangedFileCursors().isEmpty();
+  }
+
+  String getNextPullRequestsCursor() {
+    return pullRequests.getNextCursor();
+  }
+
+  Map<String, String> getNextRefCursors() {
+    return getNextCursors(refsByAlias);
+  }
+
+  Map<Integer, String> getNextLabelCursors() {
+    return getNextCursors(labelsByNumber);
+  }
+
+  Map<Integer, String> getNextChangedFileCursors() {
+    return getNextCursors(changedFilesByNumber);
+  }
+
+  List<RepositoryRef> getRefs(String alias) {
+    var refs = refsByAlias.get(alias);
+    return refs == null ? Collections.emptyList() : refs.getNodes();
+  }
+
+  /**
+   * Gets the open pull requests retrieved, with all the labels and changed files retrieved for each of them.
+   * Pull requests opened from branches that no longer exist are left out.
+   * @return a list of PullRequest objects
+   */
+  List<spectacular.backend.github.pullrequests.PullRequest> getOpenPullRequests() {
+    return pullRequestsByNumber.values().stream()
+        .filter(pullRequest -> pullRequest.getHeadRef() != null)
+        .map(pullRequest -> spectacular.backend.github.pullrequests.PullRequest.createPullRequestFrom(pullRequest,
+            labelsByNumber.get(pullRequest.getNumber()).getNodes(), changedFilesByNumber.get(pullRequest.getNumber()).getNodes()))
+        .collect(Collectors.toList());
+  }
+
+  // pull requests are paged in the order they were created in, so none should be returned on more than one page, but any that are
+  // seen again on a later page are skipped rather than added twice
+  private void addPullRequests(Connection<PullRequest> page) {
+    if (page == null || page.getNodes() == null) {
+      return;
+    }
+
+    for (var pullRequest : page.getNodes()) {
+      if (pullRequestsByNumber.putIfAbsent(pullRequest.getNumber(), pullRequest) == null) {
+        labelsByNumber.put(pullRequest.getNumber(), PagedConnection.startingWith(pullRequest.getLabels()));
+        changedFilesByNumber.put(pullRequest.getNumber(), PagedConnection.startingWith(pullRequest.getChangedFiles()));
+      }
+    }
+  }
+
+  private static PullRequest getPullRequestPage(RepositoryWithPullRequestPages pullRequestPages, int number) {
+    return pullRequestPages == null ? null : pullRequestPages.getAliasedPullRequest(PULL_REQUEST_ALIAS_PREFIX + number);
+  }
+
+  private static <K> Map<K, String> getNextCursors(Map<K, ? extends PagedConnection<?>> connections) {
+    var nextCursors = new LinkedHashMap<K, String>();
+    connections.forEach((key, connection) -> {
+      if (connection.hasNextPage()) {
+        nextCursors.put(key, connection.getNextCursor());
+      }
+    });
+    return nextCursors;
+  }
+}
@@ -0,0 +1,163 @@
+package spectacular.backend.github.gitdata;
+
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.graphql.GraphQlRequest;
+
+/**
+ * Collects all the ref selections needed from a repository, for one or many interfaces, into a single GraphQL query document.
+ * Each distinct ref selection is requested through its own aliased refs connection and the open pull requests of the repository
+ * are always included, so the first page of all the git data is retrieved in one round trip, as is the next page of every connection
+ * with more nodes than fit on a page.
+ */
+public class GitDataQuery {
+  private static final String ALIAS_PREFIX = "refs";
+  private static final String PULL_REQUEST_PAGES_ALIAS = "pullRequestPages";
+
+  private final RepositoryId repositoryId;
+  private final Map<RefSelection, String> refSelectionAliases = new LinkedHashMap<>();
+
+  private GitDataQuery(RepositoryId repositoryId) {
+    this.repositoryId = repositoryId;
+  }
+
+  public static GitDataQuery forRepository(RepositoryId repositoryId) {
+    return new GitDataQuery(repositoryId);
+  }
+
+  /**
+   * Adds the branches with names matching a query to the git data to be retrieved.
+   * @param query the branch name query, or null for all branches
+   * @return this query
+   */
+  public GitDataQuery withBranches(String query) {
+    return withRefSelection(RefSelection.branches(query));
+  }
+
+  /**
+   * Adds the tags with names matching a query to the git data to be retrieved.
+   * @param query the tag name query, or null for all tags
+   * @return this query
+   */
+  public GitDataQuery withTags(String query) {
+    return withRefSelection(RefSelection.tags(query));
+  }
+
+  private GitDataQuery withRefSelection(RefSelection refSelection) {
+    refSelectionAliases.putIfAbsent(refSelection, ALIAS_PREFIX + refSelectionAliases.size());
+    return this;
+  }
+
+  public RepositoryId getRepositoryId() {
+    return repositoryId;
+  }
+
+  public Map<RefSelection, String> getRefSelectionAliases() {
+    return Collections.unmodifiableMap(refSelectionAliases);
+  }
+
+  /**
+   * Creates the GraphQL request for the first page of all the git data collected in this query.
+   * @return a GraphQlRequest
+   */
+  public GraphQlRequest toGraphQlRequest() {
+    var query = new StringBuilder("query {\n");
+    appendRepository(query, "");
+    query.append("    nameWithOwner url\n");
+    appendPullRequestsField(query, null);
+    refSelectionAliases.forEach((refSelection, alias) -> query.append("    ").append(refSelection.toGraphQlField(alias)).append("\n"));
+    query.append("  }\n").append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  /**
+   * Creates the GraphQL request for the next page of every connection of the git data that has more nodes than retrieved so far.
+   * The next pages of the pull requests and refs connections are requested under the repository at the root of the query, and the next
+   * pages of the labels and changed files of each pull request under an aliased pull request of the pullRequestPages repository.
+   * @param gitDataPages the pages of the git data retrieved so far
+   * @return a GraphQlRequest
+   */
+  GraphQlRequest toNextPagesRequest(GitDataPages gitDataPages) {
+    var query = new StringBuilder("query {\n");
+
+    var pullRequestsCursor = gitDataPages.getNextPullRequestsCursor();
+    var refCursors = gitDataPages.getNextRefCursors();
+    if (pullRequestsCursor != null || !refCursors.isEmpty()) {
+      appendRepository(query, "");
+      query.append("    nameWithOwner url\n");
+      if (pullRequestsCursor != null) {
+        appendPullRequestsField(query, pullRequestsCursor);
+      }
+      refSelectionAliases.forEach((refSelection, alias) -> {
+        if (refCursors.containsKey(alias)) {
+          query.append("    ").append(refSelection.toGraphQlField(alias, refCursors.get(alias))).append("\n");
+        }
+      });
+      query.append("  }\n");
+    }
+
+    var labelCursors = gitDataPages.getNextLabelCursors();
+    var changedFileCursors = gitDataPages.getNextChangedFileCursors();
+    var pullRequestNumbers = new LinkedHashSet<>(labelCursors.keySet());
+    pullRequestNumbers.addAll(changedFileCursors.keySet());
+    if (!pullRequestNumbers.isEmpty()) {
+      appendRepository(query, PULL_REQUEST_PAGES_ALIAS + ": ");
+      for (var number : pullRequestNumbers) {
+        query.append("    ").append(GitDataPages.PULL_REQUEST_ALIAS_PREFIX).append(number)
+            .append(": pullRequest(number: ").append(number).append(") {\n")
+            .append("      number\n");
+        if (labelCursors.containsKey(number)) {
+          query.append("      ").append(labelsField(labelCursors.get(number))).append("\n");
+        }
+        if (changedFileCursors.containsKey(number)) {
+          query.append("      ").append(filesField(changedFileCursors.get(number))).append("\n");
+        }
+        query.append("    }\n");
+      }
+      query.append("  }\n");
+    }
+
+    query.append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  private void appendRepository(StringBuilder query, String alias) {
+    query.append("  ").append(alias).append("repository(owner: ").append(quote(repositoryId.getOwner()))
+        .append(", name: ").append(quote(repositoryId.getName())).append(") {\n");
+  }
+
+  // paged in the order the pull requests were created in, as the cursors of an order that changes while being paged through, such as
+  // by when they were last updated, can skip pull requests that move ahead of them between page requests
+  private static void appendPullRequestsField(StringBuilder query, String afterCursor) {
+    query.append("    pullRequests(first: 100").append(afterArgument(afterCursor))
+        .append(", states: [OPEN], orderBy: {field: CREATED_AT, direction: ASC}) {\n")
+        .append("      totalCount\n")
+        .append("      pageInfo { hasNextPage endCursor }\n")
+        .append("      nodes {\n")
+        .append("        number url updatedAt title baseRefName\n")
+        .append("        headRef { name repository { nameWithOwner url } }\n")
+        .append("        ").append(labelsField(null)).append("\n")
+        .append("        ").append(filesField(null)).append("\n")
+        .append("      }\n")
+        .append("    }\n");
+  }
+
+  private static String labelsField(String afterCursor) {
+    return "labels(first: 100" + afterArgument(afterCursor) + ") { totalCount pageInfo { hasNextPage endCursor } nodes { name } }";
+  }
+
+  private static String filesField(String afterCursor) {
+    return "files(first: 100" + afterArgument(afterCursor) + ") { totalCount pageInfo { hasNextPage endCursor } nodes { path } }";
+  }
+
+  private static String afterArgument(String afterCursor) {
+    return afterCursor == null ? "" : ", after: " + quote(afterCursor);
+  }
+}
@@ -0,0 +1,197 @@
+package spectacular.backend.github.gitdata;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.RestApiClient;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+import spectacular.backend.github.graphql.GraphQlResponse;
+import spectacular.backend.github.graphql.RepositoryRef;
+
+@Repository
+public class GitDataRepository {
+  private static final Logger logger = LoggerFactory.getLogger(GitDataRepository.class);
+  private static final String CACHE_NAME = "git-data";
+
+  private final RestApiClient restApiClient;
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final AsyncCache<GitDataCacheKey, GitData> gitDataCache;
+  private final int maxPageRequests;
+
+  /**
+   * A repository for the git data of repositories, kept in a cache shared by all requests and scoped by installation.
+   *
+   * @param restApiClient a github rest api client
+   * @param appInstallationContextProvider the provider of the installation the current request is for
+   * @param meterRegistry the registry the cache metrics are exposed through
+   * @param maxSize the maximum number of git data results cached
+   * @param timeToLive how long a git data result is cached for after it was retrieved
+   * @param maxPageRequests the number of GraphQL requests after which no further pages of git data are requested for a query
+   */
+  public GitDataRepository(RestApiClient restApiClient,
+                           AppInstallationContextProvider appInstallationContextProvider,
+                           MeterRegistry meterRegistry,
+                           @Value("${github.git-data.cache.max-size}") long maxSize,
+                           @Value("#{T(java.time.Duration).parse('${github.git-data.cache.ttl}')}") Duration timeToLive,
+                           @Value("${github.git-data.max-page-requests}") int maxPageRequests) {
+    this.restApiClient = restApiClient;
+    this.maxPageRequests = maxPageRequests;
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.gitDataCache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .buildAsync();
+    CaffeineCacheMetrics.monitor(meterRegistry, gitDataCache.synchronous(), CACHE_NAME);
+  }
+
+  /**
+   * Gets all the git data collected in a GitDataQuery, with a GraphQL request for the first page of every connection of it and then a
+   * request for the next page of all the connections with more nodes than retrieved so far, until every connection has been paged
+   * through. Pull requests opened from branches that no longer exist are left out.
+   * The git data is cached for the installation of the current request, and concurrent requests for the same git data wait on a
+   * single GraphQL request rather than making their own. Git data retrieved with errors, or cut short after the maximum number of page
+   * requests, is not kept in the cache.
+   * The cache holds a future of the git data, which the first request completes once it has fetched the git data outside of the
+   * cache's lock, so fetching the git data does not block the cache for other queries.
+   *
+   * @param gitDataQuery the query describing the git data needed from a repository
+   * @return the GitData for the repository
+   */
+  public GitData getGitData(GitDataQuery gitDataQuery) {
+    var cacheKey = new GitDataCacheKey(appInstallationContextProvider.getInstallationId(), gitDataQuery);
+    var pendingGitData = new CompletableFuture<GitData>();
+    var cachedGitData = gitDataCache.get(cacheKey, (key, executor) -> pendingGitData);
+
+    if (cachedGitData != pendingGitData) {
+      try {
+        return cachedGitData.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    // fetched on the requesting thread, as the GitHub API requests are made with the installation context of the current request
+    try {
+      var gitData = fetchGitData(gitDataQuery);
+      if (gitData.isIncomplete()) {
+        gitDataCache.asMap().remove(cacheKey, pendingGitData);
+      }
+      pendingGitData.complete(gitData);
+      return gitData;
+    } catch (RuntimeException | Error e) {
+      // any failure has to complete the future, or the requests waiting on it and any later ones would wait until it expires
+      gitDataCache.asMap().remove(cacheKey, pendingGitData);
+      pendingGitData.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Removes all the git data cached for a repository for the installation of the current request, so the next request for it gets the
+   * latest git data.
+   *
+   * @param repositoryId the repository that changed
+   */
+  public void invalidate(RepositoryId repositoryId) {
+    var installationId = appInstallationContextProvider.getInstallationId();
+    gitDataCache.asMap().keySet().removeIf(key -> key.installationId.equals(installationId) &&
+        key.repositoryId.getNameWithOwner().equalsIgnoreCase(repositoryId.getNameWithOwner()));
+  }
+
+  private GitData fetchGitData(GitDataQuery gitDataQuery) {
+    var repoId = gitDataQuery.getRepositoryId();
+    var response = restApiClient.graphQlQuery(gitDataQuery.toGraphQlRequest());
+
+    var incomplete = logErrors(response, repoId);
+
+    if (response.getData() == null || response.getData().getRepository() == null) {
+      return new GitData(Collections.emptyMap(), Collections.emptyList(), incomplete);
+    }
+
+    var gitDataPages = GitDataPages.startingWith(response.getData().getRepository(), gitDataQuery.getRefSelectionAliases().values());
+
+    var pageRequests = 1;
+    while (gitDataPages.hasNextPages() && pageRequests < maxPageRequests) {
+      response = restApiClient.graphQlQuery(gitDataQuery.toNextPagesRequest(gitDataPages));
+      pageRequests++;
+      incomplete |= logErrors(response, repoId);
+
+      if (response.getData() == null) {
+        incomplete = true;
+        break;
+      }
+
+      gitDataPages.addNextPages(response.getData().getRepository(), response.getData().getPullRequestPages());
+    }
+
+    if (gitDataPages.hasNextPages()) {
+      incomplete = true;
+      logger.warn("Stopped paging through the git data for repo '" + repoId.getNameWithOwner() + "' after " + pageRequests +
+          " requests, leaving out the rest of it.");
+    }
+
+    var refs = new HashMap<RefSelection, List<RepositoryRef>>();
+    gitDataQuery.getRefSelectionAliases().forEach((refSelection, alias) -> refs.put(refSelection, gitDataPages.getRefs(alias)));
+
+    return new GitData(refs, gitDataPages.getOpenPullRequests(), incomplete);
+  }
+
+  private static boolean logErrors(GraphQlResponse response, RepositoryId repoId) {
+    if (response.getErrors().isEmpty()) {
+      return false;
+    }
+
+    logger.error("The following error occurred while fetching git data for repo '" +
+        repoId.getNameWithOwner() + "': " + response.getErrors().toString());
+    return true;
+  }
+
+  private static class GitDataCacheKey {
+    private final String installationId;
+    private final RepositoryId repositoryId;
+    private final Set<RefSelection> refSelections;
+
+    private GitDataCacheKey(String installationId, GitDataQuery gitDataQuery) {
+      this.installationId = installationId;
+      this.repositoryId = gitDataQuery.getRepositoryId();
+      this.refSelections = Set.copyOf(gitDataQuery.getRefSelectionAliases().keySet());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      GitDataCacheKey that = (GitDataCacheKey) o;
+      return installationId.equals(that.installationId) &&
+          repositoryId.equals(that.repositoryId) &&
+          refSelections.equals(that.refSelections);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(installationId, repositoryId, refSelections);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package spectacular.backend.github.gitdata;
+
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import java.util.Objects;
+
+public class RefSelection {
+  private static final String BRANCH_REF_PREFIX = "refs/heads/";
+  private static final String TAG_REF_PREFIX = "refs/tags/";
+
+  private final String refPrefix;
+  private final String query;
+
+  private RefSelection(String refPrefix, String query) {
+    this.refPrefix = refPrefix;
+    this.query = query;
+  }
+
+  /**
+   * Creates a selection of the branches in a repository with names matching a query.
+   * @param query the branch name query, or null for all branches
+   * @return a RefSelection for branches
+   */
+  public static RefSelection branches(String query) {
+    return new RefSelection(BRANCH_REF_PREFIX, query);
+  }
+
+  /**
+   * Creates a selection of the tags in a repository with names matching a query.
+   * @param query the tag name query, or null for all tags
+   * @return a RefSelection for tags
+   */
+  public static RefSelection tags(String query) {
+    return new RefSelection(TAG_REF_PREFIX, query);
+  }
+
+  /**
+   * Creates the GraphQL refs connection field for the first page of this selection.
+   * @param alias the alias the connection is returned under
+   * @return a GraphQL field selection
+   */
+  public String toGraphQlField(String alias) {
+    return toGraphQlField(alias, null);
+  }
+
+  /**
+   * Creates the GraphQL refs connection field for a page of this selection.
+   * @param alias the alias the connection is returned under
+   * @param afterCursor the end cursor of the previous page, or null for the first page
+   * @return a GraphQL field selection
+   */
+  public String toGraphQlField(String alias, String afterCursor) {
+    var arguments = new StringBuilder("refPrefix: ").append(quote(refPrefix)).append(", first: 100");
+    if (afterCursor != null) {
+      arguments.append(", after: ").append(quote(afterCursor));
+    }
+    if (query != null) {
+      arguments.append(", query: ").append(quote(query));
+    }
+
+    // annotated tags target a tag object, so the commit it points to is requested as well
+    var targetSelection = isTags() ? "target { oid ... on Tag { target { oid } } }" : "target { oid }";
+
+    return alias + ": refs(" + arguments + ") {\n" +
+        "      totalCount\n" +
+        "      pageInfo { hasNextPage endCursor }\n" +
+        "      nodes { name " + targetSelection + " }\n" +
+        "    }";
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public boolean isTags() {
+    return TAG_REF_PREFIX.equals(refPrefix);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RefSelection that = (RefSelection) o;
+    return refPrefix.equals(that.refPrefix) &&
+        Objects.equals(query, that.query);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(refPrefix, query);
+  }
+}
@@ -1,15 +1,37 @@
 package spectacular.backend.github.graphql;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Blob {
+  private final String oid;
   private final String text;
+  private final boolean isTruncated;
 
-  public Blob(@JsonProperty("text") String text) {
+  /**
+   * A GitHub GraphQL Blob object.
+   * @param oid the git object id of the blob, if it was requested
+   * @param text the text contents of the blob, if they were requested, or null if the blob is binary
+   * @param isTruncated whether the text contents were truncated because the blob is too large, if it was requested
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public Blob(@JsonProperty("oid") String oid,
+              @JsonProperty("text") String text,
+              @JsonProperty("isTruncated") boolean isTruncated) {
+    this.oid = oid;
     this.text = text;
+    this.isTruncated = isTruncated;
+  }
+
+  public String getOid() {
+    return oid;
   }
 
   public String getText() {
     return text;
   }
+
+  public boolean isTruncated() {
+    return isTruncated;
+  }
 }
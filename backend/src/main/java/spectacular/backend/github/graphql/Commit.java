@@ -1,24 +1,42 @@
 package spectacular.backend.github.graphql;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Commit {
   private final String oid;
   private final String message;
   private final File file;
+  private final Connection<Commit> parents;
+  private final Connection<Commit> history;
+  private final Commit target;
+
+  public Commit(String oid, String message, File file) {
+    this(oid, message, file, null, null, null);
+  }
 
   /**
    * A GitHub GraphQL Commit object.
    * @param oid the git object id
    * @param message the commit message
    * @param file a file tree entry for a specified path
+   * @param parents the parent commits, if they were requested
+   * @param history a page of the commits reachable from this commit, if it was requested
+   * @param target the commit an annotated tag points to, if this git object is an annotated tag rather than a commit
    */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
   public Commit(@JsonProperty("oid") String oid,
                 @JsonProperty("message") String message,
-                @JsonProperty("file") File file) {
+                @JsonProperty("file") File file,
+                @JsonProperty("parents") Connection<Commit> parents,
+                @JsonProperty("history") Connection<Commit> history,
+                @JsonProperty("target") Commit target) {
     this.oid = oid;
     this.message = message;
     this.file = file;
+    this.parents = parents;
+    this.history = history;
+    this.target = target;
   }
 
   public String getOid() {
@@ -32,4 +50,16 @@ public class Commit {
   public File getFile() {
     return file;
   }
+
+  public Connection<Commit> getParents() {
+    return parents;
+  }
+
+  public Connection<Commit> getHistory() {
+    return history;
+  }
+
+  public Commit getTarget() {
+    return target;
+  }
 }
@@ -7,11 +7,25 @@ import java.util.List;
 public class Connection<T> {
   private final int count;
   private final List<T> nodes;
+  private final PageInfo pageInfo;
 
+  public Connection(int count, List<T> nodes) {
+    this(count, nodes, null);
+  }
+
+  /**
+   * A GitHub GraphQL connection to a list of nodes.
+   * @param count the total number of nodes in the connection
+   * @param nodes the nodes in the requested page of the connection
+   * @param pageInfo where the requested page ends, if it was requested
+   */
   @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
-  public Connection(@JsonProperty("totalCount") int count, @JsonProperty("nodes") List<T> nodes) {
+  public Connection(@JsonProperty("totalCount") int count,
+                    @JsonProperty("nodes") List<T> nodes,
+                    @JsonProperty("pageInfo") PageInfo pageInfo) {
     this.count = count;
     this.nodes = nodes;
+    this.pageInfo = pageInfo;
   }
 
   public List<T> getNodes() {
@@ -21,4 +35,8 @@ public class Connection<T> {
   public int getCount() {
     return count;
   }
+
+  public PageInfo getPageInfo() {
+    return pageInfo;
+  }
 }
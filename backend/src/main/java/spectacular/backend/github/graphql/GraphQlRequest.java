@@ -10,4 +10,13 @@ public class GraphQlRequest {
   public String getQuery() {
     return query;
   }
+
+  /**
+   * Quotes a value as a GraphQL string literal, escaping any quotes and backslashes in it.
+   * @param value the value to quote
+   * @return a GraphQL string literal
+   */
+  public static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
 }
@@ -3,6 +3,8 @@ package spectacular.backend.github.graphql;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GraphQlResponse {
   private final ResponseData data;
@@ -22,4 +24,25 @@ public class GraphQlResponse {
   public JsonNode getErrors() {
     return errors;
   }
+
+  /**
+   * Gets the types of the errors reported for a top level field of the data, such as an aliased repository, including the errors of
+   * any field nested in it. An error without a type is given an empty type.
+   *
+   * @param field the name or alias of the top level field
+   * @return the types of the errors whose path starts with the field
+   */
+  public List<String> getErrorTypes(String field) {
+    var errorTypes = new ArrayList<String>();
+    if (errors == null) {
+      return errorTypes;
+    }
+
+    for (var error : errors) {
+      if (field.equals(error.path("path").path(0).asText())) {
+        errorTypes.add(error.path("type").asText());
+      }
+    }
+    return errorTypes;
+  }
 }
@@ -0,0 +1,29 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PageInfo {
+  private final boolean hasNextPage;
+  private final String endCursor;
+
+  /**
+   * A GitHub GraphQL PageInfo object describing where a page of a connection ends.
+   * @param hasNextPage whether there are more nodes in the connection after this page
+   * @param endCursor the cursor to request the next page after
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public PageInfo(@JsonProperty("hasNextPage") boolean hasNextPage,
+                  @JsonProperty("endCursor") String endCursor) {
+    this.hasNextPage = hasNextPage;
+    this.endCursor = endCursor;
+  }
+
+  public boolean hasNextPage() {
+    return hasNextPage;
+  }
+
+  public String getEndCursor() {
+    return endCursor;
+  }
+}
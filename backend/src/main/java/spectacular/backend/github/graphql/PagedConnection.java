@@ -0,0 +1,65 @@
+package spectacular.backend.github.graphql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the nodes of a GitHub GraphQL connection across the pages it is requested in, keeping track of the cursor to request the
+ * next page after. The node list is sized up front from the total count of the connection reported with its first page.
+ * @param <T> the type of the nodes
+ */
+public class PagedConnection<T> {
+  private final List<T> nodes;
+  private String nextCursor;
+
+  private PagedConnection(int expectedCount) {
+    this.nodes = new ArrayList<>(expectedCount);
+  }
+
+  /**
+   * Starts collecting the nodes of a connection from its first page.
+   * @param firstPage the first page of the connection, or null if the connection was not returned
+   * @param <T> the type of the nodes
+   * @return a PagedConnection with the nodes of the first page
+   */
+  public static <T> PagedConnection<T> startingWith(Connection<T> firstPage) {
+    if (firstPage == null) {
+      return new PagedConnection<>(0);
+    }
+
+    var nodeCount = firstPage.getNodes() == null ? 0 : firstPage.getNodes().size();
+    var pagedConnection = new PagedConnection<T>(Math.max(firstPage.getCount(), nodeCount));
+    pagedConnection.addPage(firstPage);
+    return pagedConnection;
+  }
+
+  /**
+   * Adds the nodes of the next page of the connection.
+   * @param page the page requested after the cursor of the last page added, or null if the connection was not returned
+   */
+  public void addPage(Connection<T> page) {
+    if (page == null) {
+      nextCursor = null;
+      return;
+    }
+
+    if (page.getNodes() != null) {
+      nodes.addAll(page.getNodes());
+    }
+
+    var pageInfo = page.getPageInfo();
+    nextCursor = pageInfo != null && pageInfo.hasNextPage() ? pageInfo.getEndCursor() : null;
+  }
+
+  public boolean hasNextPage() {
+    return nextCursor != null;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public List<T> getNodes() {
+    return nodes;
+  }
+}
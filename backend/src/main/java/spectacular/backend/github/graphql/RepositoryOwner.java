@@ -0,0 +1,21 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RepositoryOwner {
+  private final Connection<RepositoryWithManifestObjects> repositories;
+
+  /**
+   * A GitHub GraphQL RepositoryOwner object, the user or organisation repositories belong to.
+   * @param repositories a page of the repositories of the owner
+   */
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public RepositoryOwner(@JsonProperty("repositories") Connection<RepositoryWithManifestObjects> repositories) {
+    this.repositories = repositories;
+  }
+
+  public Connection<RepositoryWithManifestObjects> getRepositories() {
+    return repositories;
+  }
+}
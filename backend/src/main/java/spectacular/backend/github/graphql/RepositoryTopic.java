@@ -0,0 +1,17 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RepositoryTopic {
+  private final Topic topic;
+
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public RepositoryTopic(@JsonProperty("topic") Topic topic) {
+    this.topic = topic;
+  }
+
+  public Topic getTopic() {
+    return topic;
+  }
+}
@@ -0,0 +1,25 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.net.URI;
+
+public class RepositoryWithCollaborators extends Repository {
+  private final Connection<Object> collaborators;
+
+  /**
+   * A repository object with its collaborators filtered to a single user.
+   * @param nameWithOwner the identifier of the repo
+   * @param url the url to the repository
+   * @param collaborators the collaborators of the repository with the login of the user, or null if they could not be retrieved
+   */
+  public RepositoryWithCollaborators(@JsonProperty("nameWithOwner") String nameWithOwner,
+                                     @JsonProperty("url") URI url,
+                                     @JsonProperty("collaborators") Connection<Object> collaborators) {
+    super(nameWithOwner, url);
+    this.collaborators = collaborators;
+  }
+
+  public Connection<Object> getCollaborators() {
+    return collaborators;
+  }
+}
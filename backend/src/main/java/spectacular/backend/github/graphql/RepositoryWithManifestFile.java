@@ -0,0 +1,41 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.net.URI;
+
+public class RepositoryWithManifestFile extends Repository {
+  private final Ref defaultBranchRef;
+  private final Blob manifestFile;
+  private final Connection<RepositoryTopic> repositoryTopics;
+
+  /**
+   * A repository object with the blob of a catalogue manifest file on its default branch and the topics of the repository.
+   * @param nameWithOwner the identifier of the repo
+   * @param url the url to the repository
+   * @param defaultBranchRef the default branch of the repository
+   * @param manifestFile the blob of the catalogue manifest file, or null if there is no file at its path
+   * @param repositoryTopics the topics of the repository
+   */
+  public RepositoryWithManifestFile(@JsonProperty("nameWithOwner") String nameWithOwner,
+                                    @JsonProperty("url") URI url,
+                                    @JsonProperty("defaultBranchRef") Ref defaultBranchRef,
+                                    @JsonProperty("manifestFile") Blob manifestFile,
+                                    @JsonProperty("repositoryTopics") Connection<RepositoryTopic> repositoryTopics) {
+    super(nameWithOwner, url);
+    this.defaultBranchRef = defaultBranchRef;
+    this.manifestFile = manifestFile;
+    this.repositoryTopics = repositoryTopics;
+  }
+
+  public Ref getDefaultBranchRef() {
+    return defaultBranchRef;
+  }
+
+  public Blob getManifestFile() {
+    return manifestFile;
+  }
+
+  public Connection<RepositoryTopic> getRepositoryTopics() {
+    return repositoryTopics;
+  }
+}
@@ -0,0 +1,33 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.net.URI;
+
+public class RepositoryWithManifestObjects extends Repository {
+  private final Blob ymlManifest;
+  private final Blob yamlManifest;
+
+  /**
+   * A repository object with the blobs of the catalogue manifest files at the root of its default branch.
+   * @param nameWithOwner the identifier of the repo
+   * @param url the url to the repository
+   * @param ymlManifest the blob of the .yml catalogue manifest file, or null if there is none
+   * @param yamlManifest the blob of the .yaml catalogue manifest file, or null if there is none
+   */
+  public RepositoryWithManifestObjects(@JsonProperty("nameWithOwner") String nameWithOwner,
+                                       @JsonProperty("url") URI url,
+                                       @JsonProperty("ymlManifest") Blob ymlManifest,
+                                       @JsonProperty("yamlManifest") Blob yamlManifest) {
+    super(nameWithOwner, url);
+    this.ymlManifest = ymlManifest;
+    this.yamlManifest = yamlManifest;
+  }
+
+  public Blob getYmlManifest() {
+    return ymlManifest;
+  }
+
+  public Blob getYamlManifest() {
+    return yamlManifest;
+  }
+}
@@ -0,0 +1,23 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RepositoryWithPullRequestPages {
+  private final Map<String, PullRequest> aliasedPullRequests = new HashMap<>();
+
+  /**
+   * Gets a pull request, with the next pages of its labels and changed files, that was requested under an alias in the query.
+   * @param alias the alias of the pull request
+   * @return the pull request or null if there was no pull request with the alias in the response
+   */
+  public PullRequest getAliasedPullRequest(String alias) {
+    return aliasedPullRequests.get(alias);
+  }
+
+  @JsonAnySetter
+  public void setAliasedPullRequest(String alias, PullRequest pullRequest) {
+    aliasedPullRequests.put(alias, pullRequest);
+  }
+}
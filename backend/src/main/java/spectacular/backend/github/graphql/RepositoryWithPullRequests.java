@@ -1,11 +1,15 @@
 package spectacular.backend.github.graphql;
 
+import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 
 public class RepositoryWithPullRequests extends Repository {
   private final Connection<PullRequest> pullRequests;
   private final Connection<RepositoryRef> refs;
+  private final Map<String, Connection<RepositoryRef>> aliasedRefs = new HashMap<>();
 
   /**
    * A repository object that is the root of a graph query.
@@ -30,4 +34,18 @@ public class RepositoryWithPullRequests extends Repository {
   public Connection<RepositoryRef> getRefs() {
     return refs;
   }
+
+  /**
+   * Gets a refs connection that was requested under an alias in the query.
+   * @param alias the alias of the refs connection
+   * @return the refs connection or null if there was no connection with the alias in the response
+   */
+  public Connection<RepositoryRef> getAliasedRefs(String alias) {
+    return aliasedRefs.get(alias);
+  }
+
+  @JsonAnySetter
+  public void setAliasedRefs(String alias, Connection<RepositoryRef> refs) {
+    aliasedRefs.put(alias, refs);
+  }
 }
@@ -0,0 +1,23 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RepositoryWithRefHistories {
+  private final Map<String, RepositoryRef> aliasedRefs = new HashMap<>();
+
+  /**
+   * Gets a ref, with a page of the history of its target commit, that was requested under an alias in the query.
+   * @param alias the alias of the ref
+   * @return the ref or null if there was no ref with the alias in the response
+   */
+  public RepositoryRef getAliasedRef(String alias) {
+    return aliasedRefs.get(alias);
+  }
+
+  @JsonAnySetter
+  public void setAliasedRef(String alias, RepositoryRef ref) {
+    aliasedRefs.put(alias, ref);
+  }
+}
@@ -1,17 +1,88 @@
 package spectacular.backend.github.graphql;
 
+import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashMap;
+import java.util.Map;
 
 public class ResponseData {
+  private static final ObjectMapper objectMapper = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
   private final RepositoryWithPullRequests repository;
+  private final RepositoryWithRefHistories refHistories;
+  private final RepositoryWithPullRequestPages pullRequestPages;
+  private final RepositoryOwner repositoryOwner;
+  private final RepositoryWithManifestObjects manifestRepository;
+  private final Map<String, JsonNode> aliasedRepositories = new HashMap<>();
+
+  public ResponseData(RepositoryWithPullRequests repository) {
+    this(repository, null, null, null, null);
+  }
 
+  /**
+   * The data returned from a GraphQL query.
+   * @param repository the repository selected at the root of the query
+   * @param refHistories the repository selected under the refHistories alias at the root of a ref history query
+   * @param pullRequestPages the repository selected under the pullRequestPages alias at the root of a git data next pages query
+   * @param repositoryOwner the repository owner selected at the root of a catalogue manifest index query
+   * @param manifestRepository the repository selected under the manifestRepository alias at the root of a catalogue manifest query
+   */
   @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
-  public ResponseData(@JsonProperty("repository") RepositoryWithPullRequests repository) {
+  public ResponseData(@JsonProperty("repository") RepositoryWithPullRequests repository,
+                      @JsonProperty("refHistories") RepositoryWithRefHistories refHistories,
+                      @JsonProperty("pullRequestPages") RepositoryWithPullRequestPages pullRequestPages,
+                      @JsonProperty("repositoryOwner") RepositoryOwner repositoryOwner,
+                      @JsonProperty("manifestRepository") RepositoryWithManifestObjects manifestRepository) {
     this.repository = repository;
+    this.refHistories = refHistories;
+    this.pullRequestPages = pullRequestPages;
+    this.repositoryOwner = repositoryOwner;
+    this.manifestRepository = manifestRepository;
   }
 
   public RepositoryWithPullRequests getRepository() {
     return repository;
   }
-}
\ No newline at end of file
+
+  public RepositoryWithRefHistories getRefHistories() {
+    return refHistories;
+  }
+
+  public RepositoryWithPullRequestPages getPullRequestPages() {
+    return pullRequestPages;
+  }
+
+  public RepositoryOwner getRepositoryOwner() {
+    return repositoryOwner;
+  }
+
+  public RepositoryWithManifestObjects getManifestRepository() {
+    return manifestRepository;
+  }
+
+  /**
+   * Gets a repository that was requested under an alias at the root of a query, such as a repository permissions query.
+   * The repository is read as the type with the fields selected for it in the query, as different queries select different fields.
+   * @param alias the alias of the repository
+   * @param repositoryType the type of repository object the fields selected in the query are read into
+   * @param <T> the type of repository object
+   * @return the repository or null if there was no repository with the alias in the response
+   */
+  public <T extends Repository> T getAliasedRepository(String alias, Class<T> repositoryType) {
+    var repository = aliasedRepositories.get(alias);
+    if (repository == null || repository.isNull()) {
+      return null;
+    }
+    return objectMapper.convertValue(repository, repositoryType);
+  }
+
+  @JsonAnySetter
+  public void setAliasedRepository(String alias, JsonNode repository) {
+    aliasedRepositories.put(alias, repository);
+  }
+}
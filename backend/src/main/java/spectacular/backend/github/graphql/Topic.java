@@ -0,0 +1,17 @@
+package spectacular.backend.github.graphql;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class Topic {
+  private final String name;
+
+  @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+  public Topic(@JsonProperty("name") String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,215 @@
+package spectacular.backend.github.permissions;
+
+import static spectacular.backend.github.graphql.GraphQlRequest.quote;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.RestApiClient;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+import spectacular.backend.github.graphql.GraphQlRequest;
+import spectacular.backend.github.graphql.GraphQlResponse;
+import spectacular.backend.github.graphql.RepositoryWithCollaborators;
+
+/**
+ * Resolves which repositories a user has access to, as a collaborator through any affiliation, from the GitHub GraphQL API.
+ * The repositories not already resolved are checked in batches, each repository under its own alias in a single GraphQL request, and
+ * both allow and deny decisions are cached for the user, repository and installation for a short time. Only decisions GitHub answered
+ * are cached, being either the collaborators of a repository or that it was not found, so a repository that failed to be checked is
+ * checked again on the next request. Cached decisions can be removed early when webhook events report changes to the members or teams
+ * of a repository or organisation.
+ */
+@Component
+public class RepositoryPermissionResolver {
+  private static final Logger logger = LoggerFactory.getLogger(RepositoryPermissionResolver.class);
+  private static final String CACHE_NAME = "repository-permissions";
+  private static final String ALIAS_PREFIX = "permission";
+  private static final String NOT_FOUND_ERROR_TYPE = "NOT_FOUND";
+
+  private final RestApiClient restApiClient;
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final Cache<PermissionKey, Boolean> permissions;
+  private final int batchSize;
+
+  /**
+   * A resolver of the repositories users have access to.
+   *
+   * @param restApiClient a github rest api client
+   * @param appInstallationContextProvider the provider of the installation the current request is for
+   * @param meterRegistry the registry the cache metrics are exposed through
+   * @param maxSize the maximum number of decisions cached
+   * @param timeToLive how long a decision is cached for after it was resolved
+   * @param batchSize the maximum number of repositories checked in a single GraphQL request
+   */
+  public RepositoryPermissionResolver(RestApiClient restApiClient,
+                                      AppInstallationContextProvider appInstallationContextProvider,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${github.repository-permissions.cache.max-size}") long maxSize,
+                                      @Value("#{T(java.time.Duration).parse('${github.repository-permissions.cache.ttl}')}")
+                                          Duration timeToLive,
+                                      @Value("${github.repository-permissions.batch-size}") int batchSize) {
+    this.restApiClient = restApiClient;
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.permissions = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+    this.batchSize = batchSize;
+    CaffeineCacheMetrics.monitor(meterRegistry, permissions, CACHE_NAME);
+  }
+
+  /**
+   * Checks if a user has access to a repository.
+   *
+   * @param repositoryId the repository to check
+   * @param username the user who's access to check
+   * @return true if the user is a collaborator of the repository
+   */
+  public boolean isAccessible(RepositoryId repositoryId, String username) {
+    return getAccessibleRepositories(List.of(repositoryId), username).contains(repositoryId);
+  }
+
+  /**
+   * Finds which of a collection of repositories a user has access to.
+   * A repository that could not be checked is treated as not accessible, without the decision being cached.
+   *
+   * @param repositoryIds the repositories to check
+   * @param username the user who's access to check
+   * @return the repositories the user is a collaborator of
+   */
+  public Set<RepositoryId> getAccessibleRepositories(Collection<RepositoryId> repositoryIds, String username) {
+    var installationId = appInstallationContextProvider.getInstallationId();
+    var accessibleRepositories = new HashSet<RepositoryId>();
+    var unresolvedRepositories = new ArrayList<RepositoryId>();
+    for (var repositoryId : new LinkedHashSet<>(repositoryIds)) {
+      var permission = permissions.getIfPresent(new PermissionKey(installationId, username, repositoryId));
+      if (permission == null) {
+        unresolvedRepositories.add(repositoryId);
+      } else if (permission) {
+        accessibleRepositories.add(repositoryId);
+      }
+    }
+
+    for (var start = 0; start < unresolvedRepositories.size(); start += batchSize) {
+      var batch = unresolvedRepositories.subList(start, Math.min(unresolvedRepositories.size(), start + batchSize));
+      accessibleRepositories.addAll(resolveBatch(installationId, username, batch));
+    }
+
+    return accessibleRepositories;
+  }
+
+  /**
+   * Removes the cached decisions for a user, a repository or both, across all installations.
+   *
+   * @param username the user whose access changed, or null for all users
+   * @param repositoryId the repository whose access changed, or null for all repositories
+   */
+  public void invalidate(String username, RepositoryId repositoryId) {
+    permissions.asMap().keySet().removeIf(key -> (username == null || key.username.equals(username.toLowerCase())) &&
+        (repositoryId == null || key.repository.equals(repositoryId.getNameWithOwner().toLowerCase())));
+  }
+
+  private Set<RepositoryId> resolveBatch(String installationId, String username, List<RepositoryId> batch) {
+    GraphQlResponse response;
+    try {
+      response = restApiClient.graphQlQuery(createPermissionsRequest(batch, username));
+    } catch (HttpClientErrorException e) {
+      logger.debug("An error occurred while trying to check the repository permissions of '" + username + "'", e);
+      return Collections.emptySet();
+    }
+
+    // repositories the installation has no access to are reported as errors, so these are expected
+    if (!response.getErrors().isEmpty()) {
+      logger.debug("The following errors occurred while checking the repository permissions of '{}': {}", username,
+          response.getErrors());
+    }
+
+    var accessibleRepositories = new HashSet<RepositoryId>();
+    if (response.getData() == null) {
+      logger.error("Failed to check the repository permissions of '" + username + "': " + response.getErrors());
+      return accessibleRepositories;
+    }
+
+    for (var i = 0; i < batch.size(); i++) {
+      var alias = ALIAS_PREFIX + i;
+      var repository = response.getData().getAliasedRepository(alias, RepositoryWithCollaborators.class);
+      var errorTypes = response.getErrorTypes(alias);
+      var permissionKey = new PermissionKey(installationId, username, batch.get(i));
+
+      if (repository != null && repository.getCollaborators() != null && errorTypes.isEmpty()) {
+        var isCollaborator = repository.getCollaborators().getCount() > 0;
+        permissions.put(permissionKey, isCollaborator);
+        if (isCollaborator) {
+          accessibleRepositories.add(batch.get(i));
+        }
+      } else if (repository == null && !errorTypes.isEmpty() && errorTypes.stream().allMatch(NOT_FOUND_ERROR_TYPE::equals)) {
+        permissions.put(permissionKey, false);
+      }
+    }
+    return accessibleRepositories;
+  }
+
+  private static GraphQlRequest createPermissionsRequest(List<RepositoryId> repositoryIds, String username) {
+    var query = new StringBuilder("query {\n");
+    for (var i = 0; i < repositoryIds.size(); i++) {
+      var repositoryId = repositoryIds.get(i);
+      query.append("  ").append(ALIAS_PREFIX).append(i)
+          .append(": repository(owner: ").append(quote(repositoryId.getOwner()))
+          .append(", name: ").append(quote(repositoryId.getName())).append(") {\n")
+          .append("    nameWithOwner url\n")
+          .append("    collaborators(login: ").append(quote(username)).append(", first: 1) { totalCount }\n")
+          .append("  }\n");
+    }
+    query.append("}");
+
+    return new GraphQlRequest(query.toString());
+  }
+
+  private static class PermissionKey {
+    private final String installationId;
+    private final String username;
+    private final String repository;
+
+    private PermissionKey(String installationId, String username, RepositoryId repositoryId) {
+      this.installationId = installationId;
+      this.username = username.toLowerCase();
+      this.repository = repositoryId.getNameWithOwner().toLowerCase();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PermissionKey that = (PermissionKey) o;
+      return installationId.equals(that.installationId) &&
+          username.equals(that.username) &&
+          repository.equals(that.repository);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(installationId, username, repository);
+    }
+  }
+}
@@ -52,11 +52,25 @@ public class PullRequest {
    * @return a PullRequest object
    */
   public static PullRequest createPullRequestFrom(spectacular.backend.github.graphql.PullRequest pullRequest) {
+    return createPullRequestFrom(pullRequest, pullRequest.getLabels().getNodes(), pullRequest.getChangedFiles().getNodes());
+  }
+
+  /**
+   * Creates a PullRequest object from a GitHub GraphQL PullRequest response object and all the pages of its labels and changed files.
+   *
+   * @param pullRequest the GitHub GraphQL PullRequest response object
+   * @param pullRequestLabels the labels of the PR, across all the pages of its labels connection
+   * @param pullRequestChangedFiles the files changed in the PR, across all the pages of its files connection
+   * @return a PullRequest object
+   */
+  public static PullRequest createPullRequestFrom(spectacular.backend.github.graphql.PullRequest pullRequest,
+                                                  List<Label> pullRequestLabels,
+                                                  List<ChangedFile> pullRequestChangedFiles) {
     var repository = RepositoryId.createRepositoryFrom(pullRequest.getHeadRef().getRepository());
     var branchName = pullRequest.getHeadRef().getName();
     var baseBranchName = pullRequest.getBaseRefName();
-    List<String> labels = pullRequest.getLabels().getNodes().stream().map(Label::getName).collect(Collectors.toList());
-    List<String> changedFiles = pullRequest.getChangedFiles().getNodes().stream().map(ChangedFile::getPath).collect(Collectors.toList());
+    List<String> labels = pullRequestLabels.stream().map(Label::getName).collect(Collectors.toList());
+    List<String> changedFiles = pullRequestChangedFiles.stream().map(ChangedFile::getPath).collect(Collectors.toList());
 
     return new PullRequest(repository, branchName, baseBranchName, pullRequest.getNumber(), pullRequest.getUrl(), labels, changedFiles,
         pullRequest.getTitle(), pullRequest.getUpdatedAt());
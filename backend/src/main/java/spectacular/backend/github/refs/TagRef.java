@@ -13,12 +13,14 @@ public class TagRef {
 
   /**
    * A factory method for creating TagRef objects from GraphQL data.
+   * The commit of an annotated tag is the commit its tag object points to.
    * @param ref the graphql data
    * @return a newly constructed TagRef object
    */
   public static TagRef createTagRefFrom(RepositoryRef ref) {
     var name = ref.getName();
-    var commit = ref.getTarget().getOid();
+    var target = ref.getTarget().getTarget() != null ? ref.getTarget().getTarget() : ref.getTarget();
+    var commit = target.getOid();
     return new TagRef(name, commit);
   }
 
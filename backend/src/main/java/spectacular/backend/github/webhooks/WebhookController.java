@@ -0,0 +1,121 @@
+package spectacular.backend.github.webhooks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.permissions.RepositoryPermissionResolver;
+
+@RestController
+public class WebhookController {
+  private static final Set<String> REFRESH_EVENTS = Set.of("push", "pull_request", "create", "delete", "repository",
+      "installation_repositories");
+  private static final List<String> CHANGED_REPOSITORIES_FIELDS = List.of("repositories_added", "repositories_removed");
+  private static final Set<String> PERMISSION_EVENTS = Set.of("member", "membership", "organization", "team", "team_add");
+
+  private final WebhookSignatureVerifier webhookSignatureVerifier;
+  private final WebhookRefreshService webhookRefreshService;
+  private final RepositoryPermissionResolver repositoryPermissionResolver;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Controller for receiving the webhook events GitHub delivers for the App's installations.
+   * @param webhookSignatureVerifier a verifier of the signature GitHub signs each delivery with
+   * @param webhookRefreshService a service for refreshing the data derived from a repository in the background
+   * @param repositoryPermissionResolver the resolver of repository permissions whose cached decisions are removed on membership changes
+   * @param objectMapper the object mapper to read the event payloads with
+   */
+  public WebhookController(WebhookSignatureVerifier webhookSignatureVerifier,
+                           WebhookRefreshService webhookRefreshService,
+                           RepositoryPermissionResolver repositoryPermissionResolver,
+                           ObjectMapper objectMapper) {
+    this.webhookSignatureVerifier = webhookSignatureVerifier;
+    this.webhookRefreshService = webhookRefreshService;
+    this.repositoryPermissionResolver = repositoryPermissionResolver;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Receives a webhook event. Push, pull request, branch or tag create and delete, and repository events schedule a background refresh
+   * of the data derived from the repository they are about, and installation repositories events a refresh of each repository added to
+   * or removed from the installation. They are accepted before the refreshes are done. Member, membership, organization and team
+   * events remove the cached repository permission decisions of the user or repository they are about. All other events are ignored.
+   *
+   * @param event the type of the event, from the X-GitHub-Event header
+   * @param signature the signature of the payload, from the X-Hub-Signature-256 header
+   * @param payload the raw event payload
+   * @return 202 Accepted if a refresh was scheduled, otherwise 204 No Content
+   */
+  @PostMapping(value = "api/github/webhooks")
+  public ResponseEntity<Void> receiveEvent(@RequestHeader("X-GitHub-Event") String event,
+                                           @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+                                           @RequestBody byte[] payload) {
+    if (!webhookSignatureVerifier.isValidSignature(payload, signature)) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "The webhook delivery signature is not valid.");
+    }
+
+    if (PERMISSION_EVENTS.contains(event)) {
+      var eventPayload = readPayload(payload);
+      // member events are about a repository collaborator, and organization events about an organisation member
+      var username = eventPayload.path("member").path("login").asText(null);
+      if (username == null) {
+        username = eventPayload.path("membership").path("user").path("login").asText(null);
+      }
+      var repositoryNameWithOwner = eventPayload.path("repository").path("full_name").asText(null);
+      repositoryPermissionResolver.invalidate(username,
+          repositoryNameWithOwner == null ? null : RepositoryId.createForNameWithOwner(repositoryNameWithOwner));
+      return ResponseEntity.noContent().build();
+    }
+
+    if (!REFRESH_EVENTS.contains(event)) {
+      return ResponseEntity.noContent().build();
+    }
+
+    var eventPayload = readPayload(payload);
+    var installationId = eventPayload.path("installation").path("id").asText(null);
+    var repositoryNamesWithOwner = getRepositoryNamesWithOwner(eventPayload);
+    if (installationId == null || repositoryNamesWithOwner.isEmpty()) {
+      return ResponseEntity.noContent().build();
+    }
+
+    repositoryNamesWithOwner.forEach(repositoryNameWithOwner ->
+        webhookRefreshService.scheduleRefresh(installationId, RepositoryId.createForNameWithOwner(repositoryNameWithOwner)));
+    return ResponseEntity.accepted().build();
+  }
+
+  private JsonNode readPayload(byte[] payload) {
+    try {
+      return objectMapper.readTree(payload);
+    } catch (IOException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The webhook event payload could not be read.", e);
+    }
+  }
+
+  private static List<String> getRepositoryNamesWithOwner(JsonNode eventPayload) {
+    var repositoryNamesWithOwner = new ArrayList<String>();
+    var repositoryNameWithOwner = eventPayload.path("repository").path("full_name").asText(null);
+    if (repositoryNameWithOwner != null) {
+      repositoryNamesWithOwner.add(repositoryNameWithOwner);
+    }
+
+    for (var field : CHANGED_REPOSITORIES_FIELDS) {
+      for (var repository : eventPayload.path(field)) {
+        var changedRepositoryNameWithOwner = repository.path("full_name").asText(null);
+        if (changedRepositoryNameWithOwner != null) {
+          repositoryNamesWithOwner.add(changedRepositoryNameWithOwner);
+        }
+      }
+    }
+    return repositoryNamesWithOwner;
+  }
+}
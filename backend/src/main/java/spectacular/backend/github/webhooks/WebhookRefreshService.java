@@ -0,0 +1,79 @@
+package spectacular.backend.github.webhooks;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestIndex;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.RequestPriority;
+import spectacular.backend.github.app.AppInstallationContext;
+import spectacular.backend.github.app.AppInstallationContextProvider;
+import spectacular.backend.github.gitdata.GitDataRepository;
+import spectacular.backend.specevolution.SpecEvolutionService;
+
+@Service
+public class WebhookRefreshService {
+  private static final Logger logger = LoggerFactory.getLogger(WebhookRefreshService.class);
+
+  private final GitDataRepository gitDataRepository;
+  private final SpecEvolutionService specEvolutionService;
+  private final CatalogueManifestIndex catalogueManifestIndex;
+  private final AppInstallationContextProvider appInstallationContextProvider;
+  private final Executor refreshExecutor;
+  private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+  /**
+   * A service for refreshing the data derived from a repository in the background after a webhook event reported a change to it.
+   *
+   * @param gitDataRepository the repository of cached git data to invalidate
+   * @param specEvolutionService the service whose spec evolution snapshots are rebuilt
+   * @param catalogueManifestIndex the index of catalogue manifest files to index the repository in again
+   * @param appInstallationContextProvider the provider of the installation context the refresh is done in
+   * @param refreshExecutor the bounded executor the refreshes are done on
+   */
+  public WebhookRefreshService(GitDataRepository gitDataRepository,
+                               SpecEvolutionService specEvolutionService,
+                               CatalogueManifestIndex catalogueManifestIndex,
+                               AppInstallationContextProvider appInstallationContextProvider,
+                               @Qualifier("webhookRefreshTaskExecutor") Executor refreshExecutor) {
+    this.gitDataRepository = gitDataRepository;
+    this.specEvolutionService = specEvolutionService;
+    this.catalogueManifestIndex = catalogueManifestIndex;
+    this.appInstallationContextProvider = appInstallationContextProvider;
+    this.refreshExecutor = refreshExecutor;
+  }
+
+  /**
+   * Schedules the data derived from a repository for an installation to be refreshed in the background.
+   * The cached git data of the repository is invalidated, the spec evolution snapshots of the spec files in it are rebuilt and its
+   * catalogue manifest file is indexed again, with the GitHub API requests made at background priority. A refresh scheduled while
+   * another of the same repository is still waiting to start is merged into it.
+   *
+   * @param installationId the installation the webhook event was delivered for
+   * @param repositoryId the repository that changed
+   * @return true if a new refresh was scheduled, false if it was merged into one already waiting to start
+   */
+  public boolean scheduleRefresh(String installationId, RepositoryId repositoryId) {
+    var refreshKey = installationId + ":" + repositoryId.getNameWithOwner().toLowerCase();
+    if (!pendingRefreshes.add(refreshKey)) {
+      return false;
+    }
+
+    var refreshContext = new AppInstallationContext(installationId, RequestPriority.BACKGROUND);
+    refreshExecutor.execute(() -> appInstallationContextProvider.runWith(refreshContext, () -> {
+      pendingRefreshes.remove(refreshKey);
+
+      gitDataRepository.invalidate(repositoryId);
+      var refreshed = specEvolutionService.refreshSpecEvolutions(repositoryId);
+      logger.info("Refreshed {} spec evolution snapshots of repo '{}' for installation {}.", refreshed, repositoryId.getNameWithOwner(),
+          installationId);
+
+      catalogueManifestIndex.refreshRepository(repositoryId);
+    }));
+    return true;
+  }
+}
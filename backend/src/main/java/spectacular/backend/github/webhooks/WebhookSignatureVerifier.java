@@ -0,0 +1,66 @@
+package spectacular.backend.github.webhooks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import spectacular.backend.common.Hashes;
+
+@Component
+public class WebhookSignatureVerifier {
+  private static final Logger logger = LoggerFactory.getLogger(WebhookSignatureVerifier.class);
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final String SIGNATURE_PREFIX = "sha256=";
+
+  private final String webhookSecret;
+
+  public WebhookSignatureVerifier(@Value("${github.api.app.webhook-secret}") String webhookSecret) {
+    this.webhookSecret = webhookSecret;
+  }
+
+  /**
+   * Whether a webhook secret is configured, without which no webhook delivery is accepted, so nothing is refreshed by webhook events.
+   *
+   * @return true if webhook deliveries can be verified
+   */
+  public boolean isConfigured() {
+    return webhookSecret != null && !webhookSecret.isBlank();
+  }
+
+  /**
+   * Verifies a webhook delivery was signed by GitHub with the webhook secret of the App.
+   * No delivery is valid if no webhook secret is configured.
+   *
+   * @param payload the raw payload of the webhook delivery
+   * @param signature the value of the X-Hub-Signature-256 header of the webhook delivery
+   * @return true if the signature is the HMAC SHA-256 hex digest of the payload
+   */
+  public boolean isValidSignature(byte[] payload, String signature) {
+    if (!isConfigured()) {
+      logger.warn("A webhook delivery was received but no webhook secret is configured to verify it with.");
+      return false;
+    }
+    if (signature == null) {
+      return false;
+    }
+
+    var expectedSignature = SIGNATURE_PREFIX + Hashes.toHex(sign(payload));
+    return MessageDigest.isEqual(expectedSignature.getBytes(StandardCharsets.US_ASCII), signature.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private byte[] sign(byte[] payload) {
+    try {
+      var mac = Mac.getInstance(ALGORITHM);
+      mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+      return mac.doFinal(payload);
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      throw new IllegalStateException("Unable to sign webhook payloads with " + ALGORITHM, e);
+    }
+  }
+}
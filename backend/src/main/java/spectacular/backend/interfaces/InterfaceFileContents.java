@@ -1,26 +1,27 @@
 package spectacular.backend.interfaces;
 
+import java.io.InputStream;
 import java.util.Optional;
 import org.springframework.http.MediaType;
 
 public class InterfaceFileContents {
-  private final String contents;
+  private final InputStream contents;
   private final String filePath;
   private final MediaType mediaTypeGuess;
 
   /**
    * Constructs a new InterfaceFileContents object.
    *
-   * @param contents the decoded contents of the interface file retrieved from git
+   * @param contents a stream of the raw contents of the interface file retrieved from git, to be closed once read
    * @param filePath the file path of the interface file in the git repository
    */
-  public InterfaceFileContents(String contents, String filePath) {
+  public InterfaceFileContents(InputStream contents, String filePath) {
     this.contents = contents;
     this.filePath = filePath;
     this.mediaTypeGuess = guessFileMediaType(filePath);
   }
 
-  public String getContents() {
+  public InputStream getContents() {
     return contents;
   }
 
@@ -1,12 +1,12 @@
 package spectacular.backend.interfaces;
 
-import java.io.UnsupportedEncodingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import spectacular.backend.api.model.GetInterfaceResult;
+import spectacular.backend.api.model.SpecEvolutionPage;
 import spectacular.backend.cataloguemanifest.SpecFileRepositoryResolver;
 import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemError;
 import spectacular.backend.cataloguemanifest.interfaceentry.CatalogueInterfaceEntryConfigurationResolver;
@@ -14,6 +14,7 @@ import spectacular.backend.cataloguemanifest.model.Interface;
 import spectacular.backend.common.CatalogueId;
 import spectacular.backend.common.RepositoryId;
 import spectacular.backend.github.RestApiClient;
+import spectacular.backend.specevolution.SpecEvolutionPageCursor;
 import spectacular.backend.specevolution.SpecEvolutionService;
 import spectacular.backend.specevolution.SpecEvolutionSummaryMapper;
 
@@ -48,10 +49,8 @@ public class InterfaceService {
    * @return a GetInterfaceFileContentsResult
    *     result with the InterfaceFileContents if the file is found and the user has access to it.
    *     Else it returns with an error.
-   * @throws UnsupportedEncodingException if an error occurred while decoding the content
    */
-  public GetInterfaceFileContentsResult getInterfaceFileContents(CatalogueId catalogueId, Interface interfaceConfig, String ref)
-      throws UnsupportedEncodingException {
+  public GetInterfaceFileContentsResult getInterfaceFileContents(CatalogueId catalogueId, Interface interfaceConfig, String ref) {
     if (interfaceConfig.getSpecFile() == null) {
       var errorMessage = "The requested interface spec file has no location configured.";
       var configError = ConfigurationItemError.createConfigError(errorMessage);
@@ -62,8 +61,8 @@ public class InterfaceService {
     var filePath = interfaceConfig.getSpecFile().getFilePath();
 
     try {
-      var fileContentItem = restApiClient.getRepositoryContent(fileRepo, filePath, ref);
-      var fileContents = fileContentItem.getDecodedContent();
+      // the raw contents are streamed through to the caller rather than being decoded from a content item in memory
+      var fileContents = restApiClient.getRepositoryContentStream(fileRepo, filePath, ref);
 
       var interfaceFileContents = new InterfaceFileContents(fileContents, filePath);
       return GetInterfaceFileContentsResult.createFoundResult(interfaceFileContents);
@@ -100,4 +99,24 @@ public class InterfaceService {
         .specEvolutionSummary(specEvolutionSummary)
         .specEvolution(specEvolution);
   }
+
+  /**
+   * Gets a page of the spec evolution of an interface.
+   *
+   * @param interfaceEntryConfigurationResult a successful result containing a resolved interface entry from a catalogue manifest file.
+   * @param cursor the position of the page in the evolution items of the spec evolution
+   * @param pageSize the maximum number of evolution items on the page
+   */
+  public SpecEvolutionPage getSpecEvolutionPage(
+      CatalogueInterfaceEntryConfigurationResolver.GetInterfaceEntryConfigurationResult interfaceEntryConfigurationResult,
+      SpecEvolutionPageCursor cursor,
+      int pageSize) {
+    var interfaceName = interfaceEntryConfigurationResult.getInterfaceName();
+    var specEvolutionConfig = interfaceEntryConfigurationResult.getInterfaceEntry().getSpecEvolutionConfig();
+
+    var specFileRepo = RepositoryId.createForNameWithOwner(interfaceEntryConfigurationResult.getInterfaceEntry().getSpecFile().getRepo());
+    var specFilePath = interfaceEntryConfigurationResult.getInterfaceEntry().getSpecFile().getFilePath();
+
+    return specEvolutionService.getSpecEvolutionPage(interfaceName, specEvolutionConfig, specFileRepo, specFilePath, cursor, pageSize);
+  }
 }
@@ -0,0 +1,77 @@
+package spectacular.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import spectacular.backend.common.Hashes;
+
+/**
+ * A JwtDecoder that caches the verified JWTs decoded by another JwtDecoder, keyed by a SHA-256 hash of the token.
+ * The same user session token is sent with every request of the UI, so after its first request the token is not decoded, parsed or
+ * verified again until it expires. Each cached JWT expires with the token it was decoded from, and the number of cached JWTs is
+ * bounded. Tokens that fail to decode are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+  private static final String CACHE_NAME = "session-jwt-claims";
+
+  private final JwtDecoder jwtDecoder;
+  private final Cache<String, Jwt> verifiedJwts;
+
+  /**
+   * A cache of the JWTs verified by a JwtDecoder.
+   *
+   * @param jwtDecoder the decoder that decodes and verifies tokens that are not cached
+   * @param meterRegistry the registry the cache metrics are exposed through
+   * @param maxSize the maximum number of verified JWTs cached
+   */
+  public CachingJwtDecoder(JwtDecoder jwtDecoder, MeterRegistry meterRegistry, long maxSize) {
+    this.jwtDecoder = jwtDecoder;
+    this.verifiedJwts = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new TokenExpiry())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, verifiedJwts, CACHE_NAME);
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+    var tokenHash = Hashes.sha256Hex(token);
+    var cachedJwt = verifiedJwts.getIfPresent(tokenHash);
+    if (cachedJwt != null) {
+      return cachedJwt;
+    }
+
+    var jwt = jwtDecoder.decode(token);
+    verifiedJwts.put(tokenHash, jwt);
+    return jwt;
+  }
+
+  private static class TokenExpiry implements Expiry<String, Jwt> {
+    @Override
+    public long expireAfterCreate(String tokenHash, Jwt jwt, long currentTime) {
+      var expiresAt = jwt.getExpiresAt();
+      if (expiresAt == null) {
+        return 0;
+      }
+      return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+    }
+
+    @Override
+    public long expireAfterUpdate(String tokenHash, Jwt jwt, long currentTime, long currentDuration) {
+      return expireAfterCreate(tokenHash, jwt, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String tokenHash, Jwt jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
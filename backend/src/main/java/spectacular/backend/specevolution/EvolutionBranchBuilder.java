@@ -7,10 +7,14 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import spectacular.backend.api.mapper.PullRequestMapper;
 import spectacular.backend.api.model.EvolutionItem;
@@ -19,6 +23,7 @@ import spectacular.backend.api.model.SpecItem;
 import spectacular.backend.common.RepositoryId;
 import spectacular.backend.github.RestApiClient;
 import spectacular.backend.github.WebPageUrlGenerator;
+import spectacular.backend.github.commitgraph.CommitGraph;
 import spectacular.backend.github.domain.Comparison;
 import spectacular.backend.github.pullrequests.PullRequest;
 import spectacular.backend.github.refs.BranchRef;
@@ -31,6 +36,7 @@ public class EvolutionBranchBuilder {
   private final RestApiClient restApiClient;
   private final SpecService specService;
   private final WebPageUrlGenerator webPageUrlGenerator;
+  private final Executor tagComparisonExecutor;
 
   /**
    * A helper class for building spec evolution items for a given branch.
@@ -38,13 +44,16 @@ public class EvolutionBranchBuilder {
    * @param restApiClient a github rest api client
    * @param specService a spec service for generating spec items
    * @param webPageUrlGenerator a service for generating github web page urls
+   * @param tagComparisonExecutor a bounded executor shared by all requests for comparing tags to a branch concurrently
    */
   public EvolutionBranchBuilder(RestApiClient restApiClient,
                                 SpecService specService,
-                                WebPageUrlGenerator webPageUrlGenerator) {
+                                WebPageUrlGenerator webPageUrlGenerator,
+                                @Qualifier("tagComparisonTaskExecutor") Executor tagComparisonExecutor) {
     this.restApiClient = restApiClient;
     this.specService = specService;
     this.webPageUrlGenerator = webPageUrlGenerator;
+    this.tagComparisonExecutor = tagComparisonExecutor;
   }
 
   /**
@@ -55,23 +64,23 @@ public class EvolutionBranchBuilder {
    * @param branch the branch on the repository the evolution items are being calculated against
    * @param tags the collection of tags in the repository
    * @param pullRequests the collection of pull requests associated to this branch
+   * @param commitGraph the commit history of the repository's branches, used to compare the tags to the branch. Any tags it can not
+   *     compare are compared to the branch using the compare API.
    * @return a list of evolution items for the branch
    */
   public List<EvolutionItem> generateEvolutionItems(RepositoryId fileRepo,
                                                     String specFilePath,
                                                     BranchRef branch,
                                                     Collection<TagRef> tags,
-                                                    Collection<PullRequest> pullRequests) {
+                                                    Collection<PullRequest> pullRequests,
+                                                    CommitGraph commitGraph) {
     var tagsOnBranchHead = tags.stream()
         .collect(Collectors.partitioningBy(tag -> tag.getCommit().equals(branch.getCommit())));
 
     var branchHeadEvolutionItem = createBranchHeadEvolutionItem(fileRepo, specFilePath, branch, tagsOnBranchHead.get(true));
 
-    var branchTagComparisonsGroupedByCommitsBehind = tagsOnBranchHead.get(false).stream()
-        .map(tag -> {
-          var comparison = this.restApiClient.getComparison(fileRepo, branch.getName(), tag.getName());
-          return new BranchTagComparison(tag, branch.getName(), comparison);
-        })
+    var tagComparisons = compareTagsToBranch(fileRepo, branch, tagsOnBranchHead.get(false), commitGraph);
+    var branchTagComparisonsGroupedByCommitsBehind = tagComparisons.stream()
         .filter(branchTagComparison -> branchTagComparison.getAheadBy() == 0)
         .collect(Collectors.groupingBy(BranchTagComparison::getBehindBy))
         .entrySet().stream()
@@ -89,6 +98,34 @@ public class EvolutionBranchBuilder {
     return concat.collect(Collectors.toList());
   }
 
+  private List<BranchTagComparison> compareTagsToBranch(RepositoryId fileRepo,
+                                                        BranchRef branch,
+                                                        List<TagRef> tags,
+                                                        CommitGraph commitGraph) {
+    // tags known not to be in the history of the branch can never be behind it, so they are left out without being compared
+    var pendingComparisons = tags.stream()
+        .filter(tag -> !commitGraph.isOutsideHistoryOf(tag.getCommit(), branch.getCommit()))
+        .map(tag -> commitGraph.compare(branch.getCommit(), tag.getCommit())
+            .map(comparison -> CompletableFuture.completedFuture(new BranchTagComparison(tag, branch.getName(), comparison)))
+            .orElseGet(() -> CompletableFuture.supplyAsync(() -> {
+              var comparison = this.restApiClient.getComparison(fileRepo, branch.getName(), tag.getName());
+              return new BranchTagComparison(tag, branch.getName(), comparison);
+            }, tagComparisonExecutor)))
+        .collect(Collectors.toList());
+
+    try {
+      return pendingComparisons.stream()
+          .map(CompletableFuture::join)
+          .collect(Collectors.toList());
+    } catch (CompletionException e) {
+      pendingComparisons.forEach(pendingComparison -> pendingComparison.cancel(false));
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   private EvolutionItem createBranchHeadEvolutionItem(RepositoryId fileRepo,
                                                       String specFilePath,
                                                       BranchRef branch,
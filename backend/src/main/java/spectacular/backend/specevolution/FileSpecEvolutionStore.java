@@ -0,0 +1,110 @@
+package spectacular.backend.specevolution;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import spectacular.backend.api.model.SpecEvolution;
+import spectacular.backend.common.Hashes;
+
+/**
+ * A SpecEvolutionStore kept as JSON files in a directory, so stored views survive restarts and can be shared by replicas that
+ * mount the same directory. The views of each spec file are kept in their own sub directory, named after a hash of the repository
+ * and path of the spec file, in files named after their ref fingerprint. Files are written to a temporary file first and then moved
+ * into place, so a view is never read half written, and only the most recently written views of each spec file are kept.
+ */
+@Component
+@ConditionalOnProperty(name = "spec-evolution.store.type", havingValue = "file")
+public class FileSpecEvolutionStore implements SpecEvolutionStore {
+  private static final Logger logger = LoggerFactory.getLogger(FileSpecEvolutionStore.class);
+  private static final String FILE_EXTENSION = ".json";
+
+  private final ObjectMapper objectMapper;
+  private final Path directory;
+  private final int maxVersionsPerSpecFile;
+
+  /**
+   * A store of Spec Evolution views in a directory.
+   *
+   * @param objectMapper the mapper to write and read the views as JSON with
+   * @param directory the directory to keep the views in
+   * @param maxVersionsPerSpecFile the number of views of each spec file kept, the least recently written being deleted first
+   */
+  public FileSpecEvolutionStore(ObjectMapper objectMapper,
+                                @Value("${spec-evolution.store.file.directory}") String directory,
+                                @Value("${spec-evolution.store.file.max-versions-per-spec-file}") int maxVersionsPerSpecFile) {
+    this.objectMapper = objectMapper;
+    this.directory = Paths.get(directory);
+    this.maxVersionsPerSpecFile = maxVersionsPerSpecFile;
+  }
+
+  @Override
+  public Optional<SpecEvolution> find(SpecEvolutionStoreKey key) {
+    var file = getFile(key);
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(objectMapper.readValue(file.toFile(), SpecEvolution.class));
+    } catch (IOException e) {
+      logger.warn("Failed to read the stored spec evolution of '" + key.getSpecFilePath() + "' in repo '" +
+          key.getSpecFileRepo().getNameWithOwner() + "' from " + file, e);
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void save(SpecEvolutionStoreKey key, SpecEvolution specEvolution) {
+    var file = getFile(key);
+    var specFileDirectory = file.getParent();
+
+    try {
+      Files.createDirectories(specFileDirectory);
+      var tempFile = Files.createTempFile(specFileDirectory, key.getRefFingerprint(), ".tmp");
+      objectMapper.writeValue(tempFile.toFile(), specEvolution);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      deleteOldVersions(specFileDirectory);
+    } catch (IOException e) {
+      logger.warn("Failed to write the spec evolution of '" + key.getSpecFilePath() + "' in repo '" +
+          key.getSpecFileRepo().getNameWithOwner() + "' to " + file, e);
+    }
+  }
+
+  private void deleteOldVersions(Path specFileDirectory) throws IOException {
+    try (var files = Files.list(specFileDirectory)) {
+      var versions = files
+          .filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION))
+          .sorted(Comparator.comparing(FileSpecEvolutionStore::getLastModifiedMillis).reversed())
+          .collect(Collectors.toList());
+
+      for (var oldVersion : versions.subList(Math.min(maxVersionsPerSpecFile, versions.size()), versions.size())) {
+        Files.deleteIfExists(oldVersion);
+      }
+    }
+  }
+
+  private Path getFile(SpecEvolutionStoreKey key) {
+    var specFileId = key.getSpecFileRepo().getNameWithOwner().toLowerCase() + ":" + key.getSpecFilePath();
+    return directory.resolve(Hashes.sha256Hex(specFileId)).resolve(key.getRefFingerprint() + FILE_EXTENSION);
+  }
+
+  private static long getLastModifiedMillis(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      // the file has been deleted by another replica
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package spectacular.backend.specevolution;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import spectacular.backend.api.model.SpecEvolution;
+
+/**
+ * A SpecEvolutionStore kept in memory, so stored views are lost on restart. This is the default store.
+ */
+@Component
+@ConditionalOnProperty(name = "spec-evolution.store.type", havingValue = "in-memory", matchIfMissing = true)
+public class InMemorySpecEvolutionStore implements SpecEvolutionStore {
+  private static final String CACHE_NAME = "spec-evolution-store";
+
+  private final Cache<SpecEvolutionStoreKey, SpecEvolution> specEvolutions;
+
+  /**
+   * An in memory store of Spec Evolution views.
+   *
+   * @param meterRegistry the registry the store metrics are exposed through
+   * @param maxSize the maximum number of views kept
+   */
+  public InMemorySpecEvolutionStore(MeterRegistry meterRegistry,
+                                    @Value("${spec-evolution.store.in-memory.max-size}") long maxSize) {
+    this.specEvolutions = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, specEvolutions, CACHE_NAME);
+  }
+
+  @Override
+  public Optional<SpecEvolution> find(SpecEvolutionStoreKey key) {
+    return Optional.ofNullable(specEvolutions.getIfPresent(key));
+  }
+
+  @Override
+  public void save(SpecEvolutionStoreKey key, SpecEvolution specEvolution) {
+    specEvolutions.put(key, specEvolution);
+  }
+}
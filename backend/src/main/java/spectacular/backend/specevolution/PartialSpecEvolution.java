@@ -0,0 +1,91 @@
+package spectacular.backend.specevolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import spectacular.backend.api.model.EvolutionBranch;
+import spectacular.backend.api.model.SpecEvolution;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.refs.TagRef;
+
+/**
+ * A Spec Evolution that is built one evolution branch at a time, as the branches are asked for.
+ * The main branch comes first, followed by the release branches, and each branch is built only once all the branches before it have
+ * been, as the tags placed on the earlier branches are left off the later ones.
+ */
+public class PartialSpecEvolution {
+  private final String interfaceName;
+  private final RepositoryId specFileRepo;
+  private final String specFilePath;
+  private final SpecEvolutionData specEvolutionData;
+  private final List<BranchData> branches = new ArrayList<>();
+  private final List<TagRef> remainingTags;
+  private final List<EvolutionBranch> builtBranches = new ArrayList<>();
+
+  /**
+   * A Spec Evolution built from the git data of a spec file as its branches are asked for.
+   * @param interfaceName the name of the interface in the catalogue manifest
+   * @param specFileRepo the repository the spec file is in
+   * @param specFilePath the path to the spec file
+   * @param specEvolutionData the spec evolution git history data pulled from the repository, including its commit graph
+   */
+  public PartialSpecEvolution(String interfaceName, RepositoryId specFileRepo, String specFilePath, SpecEvolutionData specEvolutionData) {
+    this.interfaceName = interfaceName;
+    this.specFileRepo = specFileRepo;
+    this.specFilePath = specFilePath;
+    this.specEvolutionData = specEvolutionData;
+    specEvolutionData.getMainBranch().ifPresent(branches::add);
+    branches.addAll(specEvolutionData.getReleaseBranches());
+    this.remainingTags = new ArrayList<>(specEvolutionData.getTags());
+  }
+
+  public int getBranchCount() {
+    return branches.size();
+  }
+
+  public boolean hasMainBranch() {
+    return specEvolutionData.getMainBranch().isPresent();
+  }
+
+  public Object getConfigUsed() {
+    return specEvolutionData.getSpecEvolutionConfig();
+  }
+
+  /**
+   * Gets an evolution branch, building it and any branches before it that have not been built yet.
+   * @param index the index of the branch, starting with the main branch if there is one
+   * @param specEvolutionBuilder the builder to build the branches with
+   * @return the EvolutionBranch at the index
+   */
+  public synchronized EvolutionBranch getBranch(int index, SpecEvolutionBuilder specEvolutionBuilder) {
+    while (builtBranches.size() <= index) {
+      var branchData = branches.get(builtBranches.size());
+      builtBranches.add(specEvolutionBuilder.generateEvolutionBranch(branchData, remainingTags, specEvolutionData.getCommitGraph(),
+          specFileRepo, specFilePath));
+    }
+    return builtBranches.get(index);
+  }
+
+  public synchronized boolean isComplete() {
+    return builtBranches.size() == branches.size();
+  }
+
+  /**
+   * Gets the complete Spec Evolution once all its branches have been built.
+   * @return the SpecEvolution
+   */
+  public synchronized SpecEvolution toSpecEvolution() {
+    if (!isComplete()) {
+      throw new IllegalStateException("The spec evolution of '" + specFilePath + "' has branches that have not been built yet.");
+    }
+
+    var specEvolution = new SpecEvolution()
+        .interfaceName(interfaceName)
+        .configUsed(specEvolutionData.getSpecEvolutionConfig());
+    var releasesStart = hasMainBranch() ? 1 : 0;
+    if (hasMainBranch()) {
+      specEvolution.setMain(builtBranches.get(0));
+    }
+    specEvolution.setReleases(new ArrayList<>(builtBranches.subList(releasesStart, builtBranches.size())));
+    return specEvolution;
+  }
+}
@@ -0,0 +1,49 @@
+package spectacular.backend.specevolution;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * A store of the Spec Evolutions being built a page at a time, keyed by the refs they are built from, so the branches built for one
+ * page don't need building again for the next. A partial Spec Evolution is removed once all its branches have been built, and
+ * otherwise expires when its pages stop being asked for.
+ */
+@Component
+public class PartialSpecEvolutionStore {
+  private static final String CACHE_NAME = "spec-evolution-partial-builds";
+
+  private final Cache<SpecEvolutionStoreKey, PartialSpecEvolution> partialSpecEvolutions;
+
+  /**
+   * A store of partially built Spec Evolutions.
+   *
+   * @param meterRegistry the registry the store metrics are exposed through
+   * @param maxSize the maximum number of partial Spec Evolutions kept
+   * @param expireAfterAccess how long a partial Spec Evolution is kept for after its last page was asked for
+   */
+  public PartialSpecEvolutionStore(MeterRegistry meterRegistry,
+                                   @Value("${spec-evolution.partial-builds.max-size}") long maxSize,
+                                   @Value("#{T(java.time.Duration).parse('${spec-evolution.partial-builds.expire-after-access}')}")
+                                       Duration expireAfterAccess) {
+    this.partialSpecEvolutions = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterAccess(expireAfterAccess)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, partialSpecEvolutions, CACHE_NAME);
+  }
+
+  public PartialSpecEvolution get(SpecEvolutionStoreKey key, Supplier<PartialSpecEvolution> partialSpecEvolutionSupplier) {
+    return partialSpecEvolutions.get(key, k -> partialSpecEvolutionSupplier.get());
+  }
+
+  public void remove(SpecEvolutionStoreKey key) {
+    partialSpecEvolutions.invalidate(key);
+  }
+}
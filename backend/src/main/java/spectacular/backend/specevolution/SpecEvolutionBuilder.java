@@ -7,9 +7,7 @@ import spectacular.backend.api.model.EvolutionBranch;
 import spectacular.backend.api.model.EvolutionItem;
 import spectacular.backend.api.model.SpecEvolution;
 import spectacular.backend.common.RepositoryId;
-import spectacular.backend.github.domain.Tag;
-import spectacular.backend.github.pullrequests.PullRequest;
-import spectacular.backend.github.refs.BranchRef;
+import spectacular.backend.github.commitgraph.CommitGraph;
 import spectacular.backend.github.refs.TagRef;
 
 @Service
@@ -41,17 +39,16 @@ public class SpecEvolutionBuilder {
         .configUsed(specEvolutionData.getSpecEvolutionConfig());
 
     var tags = specEvolutionData.getTags();
+    var commitGraph = specEvolutionData.getCommitGraph();
 
     if (specEvolutionData.getMainBranch().isPresent()) {
-      var mainBranch = specEvolutionData.getMainBranch().get().getBranch();
-      var mainBranchPRs = specEvolutionData.getMainBranch().get().getAssociatedPullRequest();
-      var mainEvolutionBranch = generateEvolutionBranch(mainBranch, tags, mainBranchPRs, specFileRepo, specFilePath);
+      var mainEvolutionBranch = generateEvolutionBranch(specEvolutionData.getMainBranch().get(), tags, commitGraph, specFileRepo,
+          specFilePath);
       specEvolution.setMain(mainEvolutionBranch);
     }
 
     var releaseBranches = specEvolutionData.getReleaseBranches().stream()
-        .map(branchData ->
-            this.generateEvolutionBranch(branchData.getBranch(), tags, branchData.getAssociatedPullRequest(), specFileRepo, specFilePath))
+        .map(branchData -> this.generateEvolutionBranch(branchData, tags, commitGraph, specFileRepo, specFilePath))
         .collect(Collectors.toList());
 
     specEvolution.setReleases(releaseBranches);
@@ -59,18 +56,30 @@ public class SpecEvolutionBuilder {
     return specEvolution;
   }
 
-  private EvolutionBranch generateEvolutionBranch(BranchRef branchRef,
-                                                  Collection<TagRef> tags,
-                                                  Collection<PullRequest> pullRequests,
-                                                  RepositoryId specFileRepo,
-                                                  String specFilePath) {
-    var branchName = branchRef.getName();
+  /**
+   * Generates the evolution branch of a single branch of a spec file's repository.
+   * The tags placed on the evolution branch are removed from the collection of tags given, so the branches generated after it with the
+   * same collection don't repeat them.
+   * @param branchData the branch and its pull requests
+   * @param tags the tags not yet placed on an evolution branch
+   * @param commitGraph the commit history of the repository's branches
+   * @param specFileRepo the specFileRepo
+   * @param specFilePath the specFilePath
+   * @return an evolution branch for the branch
+   */
+  public EvolutionBranch generateEvolutionBranch(BranchData branchData,
+                                                 Collection<TagRef> tags,
+                                                 CommitGraph commitGraph,
+                                                 RepositoryId specFileRepo,
+                                                 String specFilePath) {
+    var branchName = branchData.getBranch().getName();
     var evolutionItems = this.evolutionBranchBuilder.generateEvolutionItems(
         specFileRepo,
         specFilePath,
-        branchRef,
+        branchData.getBranch(),
         tags,
-        pullRequests);
+        branchData.getAssociatedPullRequest(),
+        commitGraph);
 
     var usedTags = evolutionItems.stream()
         .flatMap(evolutionItem -> evolutionItem.getTags().stream())
@@ -3,6 +3,7 @@ package spectacular.backend.specevolution;
 import java.util.List;
 import java.util.Optional;
 import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig;
+import spectacular.backend.github.commitgraph.CommitGraph;
 import spectacular.backend.github.domain.Tag;
 import spectacular.backend.github.refs.TagRef;
 
@@ -11,6 +12,14 @@ public class SpecEvolutionData {
   private final List<TagRef> tags;
   private final List<BranchData> releaseBranches;
   private final SpecEvolutionConfig specEvolutionConfig;
+  private final CommitGraph commitGraph;
+
+  public SpecEvolutionData(Optional<BranchData> mainBranch,
+                           List<TagRef> tags,
+                           List<BranchData> releaseBranches,
+                           SpecEvolutionConfig specEvolutionConfig) {
+    this(mainBranch, tags, releaseBranches, specEvolutionConfig, CommitGraph.empty());
+  }
 
   /**
    * An object with all the data needed from a git service to build up an spec evolution view.
@@ -18,15 +27,18 @@ public class SpecEvolutionData {
    * @param tags all the tags on the repository that matches the config
    * @param releaseBranches all the release branches that match the config
    * @param specEvolutionConfig the original config used to pull the correct git data
+   * @param commitGraph the commit history of the main and release branches
    */
   public SpecEvolutionData(Optional<BranchData> mainBranch,
                            List<TagRef> tags,
                            List<BranchData> releaseBranches,
-                           SpecEvolutionConfig specEvolutionConfig) {
+                           SpecEvolutionConfig specEvolutionConfig,
+                           CommitGraph commitGraph) {
     this.mainBranch = mainBranch;
     this.tags = tags;
     this.releaseBranches = releaseBranches;
     this.specEvolutionConfig = specEvolutionConfig;
+    this.commitGraph = commitGraph;
   }
 
   public List<TagRef> getTags() {
@@ -44,4 +56,8 @@ public class SpecEvolutionData {
   public Optional<BranchData> getMainBranch() {
     return mainBranch;
   }
+
+  public CommitGraph getCommitGraph() {
+    return commitGraph;
+  }
 }
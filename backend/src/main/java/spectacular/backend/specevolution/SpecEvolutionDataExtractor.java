@@ -1,86 +1,113 @@
 package spectacular.backend.specevolution;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
-import org.springframework.beans.factory.annotation.Autowired;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Component;
 import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig;
 import spectacular.backend.common.RepositoryId;
-import spectacular.backend.github.domain.Tag;
-import spectacular.backend.github.pullrequests.PullRequestRepository;
+import spectacular.backend.github.commitgraph.CommitGraphRepository;
+import spectacular.backend.github.gitdata.GitData;
+import spectacular.backend.github.gitdata.GitDataQuery;
+import spectacular.backend.github.gitdata.GitDataRepository;
 import spectacular.backend.github.refs.BranchRef;
-import spectacular.backend.github.refs.RefRepository;
-import spectacular.backend.github.refs.TagRef;
 
 @Component
 public class SpecEvolutionDataExtractor {
-  private final RefRepository refRepository;
+  private final GitDataRepository gitDataRepository;
+  private final CommitGraphRepository commitGraphRepository;
 
-  @Autowired
-  private PullRequestRepository pullRequestRepository;
-
-  public SpecEvolutionDataExtractor(RefRepository refRepository) {
-    this.refRepository = refRepository;
+  public SpecEvolutionDataExtractor(GitDataRepository gitDataRepository, CommitGraphRepository commitGraphRepository) {
+    this.gitDataRepository = gitDataRepository;
+    this.commitGraphRepository = commitGraphRepository;
   }
 
   /**
-   * Gets the Tag data needed build a Spec Evolution view of a Spec File from the data stored in a git service.
-   * @param specEvolutionConfig the config about what tag data pull
+   * Gets all the git data needed to build a Spec Evolution view of a Spec File from the data stored in a git service.
+   * The main branch, tags, release branches and open pull requests are all retrieved with a single query, followed by the commit
+   * history of the main and release branches so the tags can be compared to them without a request per tag.
+   *
+   * @param specEvolutionConfig the resolved config about what branch and tag data to pull
    * @param specFileRepo the git repo of the file that the spec evolution is about
-   * @return the tag data
+   * @param specFilePath the path to the file that the spec evolution is about
+   * @return the spec evolution data
    */
-  public List<TagRef> getRepoTagsAccordingToConfig(SpecEvolutionConfig specEvolutionConfig, RepositoryId specFileRepo) {
-    final String tagPrefix = specEvolutionConfig.getReleaseTagConfig().getTagPrefix();
-
-    return this.refRepository.getTagsForRepo(specFileRepo, tagPrefix);
+  public SpecEvolutionData getSpecEvolutionData(SpecEvolutionConfig specEvolutionConfig,
+                                                RepositoryId specFileRepo,
+                                                String specFilePath) {
+    return addCommitGraph(getSpecEvolutionRefData(specEvolutionConfig, specFileRepo, specFilePath), specFileRepo);
   }
 
   /**
-   * Gets the Release Branch data needed build a Spec Evolution view of a Spec File from the data stored in a git service.
-   * @param specEvolutionConfig the config about what branch data pull
+   * Gets the branch, tag and open pull request data needed to build a Spec Evolution view of a Spec File, without the commit
+   * history of the branches. The refs are enough to tell whether a view built before is still up to date, so the commit history
+   * only needs to be retrieved if it is not.
+   *
+   * @param specEvolutionConfig the resolved config about what branch and tag data to pull
    * @param specFileRepo the git repo of the file that the spec evolution is about
    * @param specFilePath the path to the file that the spec evolution is about
-   * @return the release branch data
+   * @return the spec evolution data with an empty commit graph
    */
-  public List<BranchData> getReleaseBranchesAccordingToConfig(SpecEvolutionConfig specEvolutionConfig,
-                                                             RepositoryId specFileRepo,
-                                                             String specFilePath) {
+  public SpecEvolutionData getSpecEvolutionRefData(SpecEvolutionConfig specEvolutionConfig,
+                                                   RepositoryId specFileRepo,
+                                                   String specFilePath) {
+    final String mainBranchName = specEvolutionConfig.getMainBranchConfig().getBranchName();
+    final String tagPrefix = specEvolutionConfig.getReleaseTagConfig().getTagPrefix();
+    final String releaseBranchPrefix = specEvolutionConfig.getReleaseBranchConfig().getBranchPrefix();
+
+    var gitDataQuery = GitDataQuery.forRepository(specFileRepo)
+        .withBranches(mainBranchName)
+        .withTags(tagPrefix);
+
+    if (releaseBranchPrefix != null) {
+      gitDataQuery.withBranches(releaseBranchPrefix);
+    }
+
+    var gitData = this.gitDataRepository.getGitData(gitDataQuery);
 
-    if (specEvolutionConfig.getReleaseBranchConfig().getBranchPrefix() != null) {
-      var branchPrefix = specEvolutionConfig.getReleaseBranchConfig().getBranchPrefix();
-      var matchingBranches = this.refRepository.getBranchesForRepo(specFileRepo, branchPrefix, specFilePath);
-      return matchingBranches.stream()
-          .map(branchRef -> getAllBranchDataFor(branchRef, specFileRepo, specFilePath))
+    var mainBranch = gitData.getBranches(mainBranchName).stream()
+        .filter(branchRef -> branchRef.getName().equalsIgnoreCase(mainBranchName))
+        .map(branchRef -> getAllBranchDataFor(branchRef, gitData, specFileRepo, specFilePath))
+        .findFirst();
+
+    var tags = new ArrayList<>(gitData.getTags(tagPrefix));
+
+    List<BranchData> releaseBranches = Collections.emptyList();
+    if (releaseBranchPrefix != null) {
+      releaseBranches = gitData.getBranches(releaseBranchPrefix).stream()
+          .map(branchRef -> getAllBranchDataFor(branchRef, gitData, specFileRepo, specFilePath))
           .collect(Collectors.toList());
     }
 
-    return Collections.emptyList();
+    return new SpecEvolutionData(mainBranch, tags, releaseBranches, specEvolutionConfig);
   }
 
   /**
-   * Gets the Main Branch data needed build a Spec Evolution view of a Spec File from the data stored in a git service.
-   * @param specEvolutionConfig the config about what branch data pull
+   * Adds the commit history of the main and release branches to spec evolution data retrieved with getSpecEvolutionRefData.
+   *
+   * @param specEvolutionRefData the spec evolution data without a commit graph
    * @param specFileRepo the git repo of the file that the spec evolution is about
-   * @param specFilePath the path to the file that the spec evolution is about
-   * @return the main branch data
+   * @return the spec evolution data with the commit graph of its branches
    */
-  public Optional<BranchData> getMainBranchAccordingToConfig(SpecEvolutionConfig specEvolutionConfig,
-                                                             RepositoryId specFileRepo,
-                                                             String specFilePath) {
-    final String mainBranchName = specEvolutionConfig.getMainBranchConfig().getBranchName();
-
-    var branches = this.refRepository.getBranchesForRepo(specFileRepo, mainBranchName, specFilePath);
+  public SpecEvolutionData addCommitGraph(SpecEvolutionData specEvolutionRefData, RepositoryId specFileRepo) {
+    var branchNames = Stream.concat(specEvolutionRefData.getMainBranch().stream(), specEvolutionRefData.getReleaseBranches().stream())
+        .map(branchData -> branchData.getBranch().getName())
+        .collect(Collectors.toList());
+    var commitGraph = this.commitGraphRepository.getCommitGraph(specFileRepo, branchNames);
 
-    return branches.stream()
-        .filter(branchRef -> branchRef.getName().equalsIgnoreCase(mainBranchName))
-        .map(branchRef -> getAllBranchDataFor(branchRef, specFileRepo, specFilePath))
-        .findFirst();
+    return new SpecEvolutionData(specEvolutionRefData.getMainBranch(), specEvolutionRefData.getTags(),
+        specEvolutionRefData.getReleaseBranches(), specEvolutionRefData.getSpecEvolutionConfig(), commitGraph);
   }
 
-  private BranchData getAllBranchDataFor(BranchRef branchRef, RepositoryId specFileRepo, String specFilePath) {
-    var pullRequests = this.pullRequestRepository.getPullRequestsForRepoAndFile(specFileRepo, specFilePath, branchRef.getName());
+  private BranchData getAllBranchDataFor(BranchRef branchRef,
+                                         GitData gitData,
+                                         RepositoryId specFileRepo,
+                                         String specFilePath) {
+    var pullRequests = gitData.getOpenPullRequests(branchRef.getName()).stream()
+        .filter(pullRequest -> pullRequest.changesFile(specFileRepo, specFilePath))
+        .collect(Collectors.toList());
     return new BranchData(branchRef, pullRequests);
   }
 }
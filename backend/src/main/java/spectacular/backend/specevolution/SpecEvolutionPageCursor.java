@@ -0,0 +1,86 @@
+package spectacular.backend.specevolution;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of a page in the evolution items of a Spec Evolution, as the index of the branch the page starts in and the offset of
+ * the page's first evolution item in that branch. It is passed to clients as an opaque string.
+ * Cursors after the first page carry the fingerprint of the refs the Spec Evolution was built from, as the position only means the
+ * same thing for a view built from the same refs.
+ */
+public class SpecEvolutionPageCursor {
+  private static final SpecEvolutionPageCursor FIRST_PAGE = new SpecEvolutionPageCursor(0, 0, null);
+
+  private final int branchIndex;
+  private final int itemOffset;
+  private final String refFingerprint;
+
+  SpecEvolutionPageCursor(int branchIndex, int itemOffset, String refFingerprint) {
+    this.branchIndex = branchIndex;
+    this.itemOffset = itemOffset;
+    this.refFingerprint = refFingerprint;
+  }
+
+  public static SpecEvolutionPageCursor firstPage() {
+    return FIRST_PAGE;
+  }
+
+  /**
+   * Decodes a cursor from the string it was passed to a client as.
+   *
+   * @param cursor the encoded cursor, or null for the first page
+   * @return the SpecEvolutionPageCursor
+   * @throws IllegalArgumentException if the cursor is not a valid encoded cursor
+   */
+  public static SpecEvolutionPageCursor decode(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return FIRST_PAGE;
+    }
+
+    var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    var parts = decoded.split(":");
+    if (parts.length != 3 || parts[2].isEmpty()) {
+      throw new IllegalArgumentException("Invalid spec evolution page cursor: " + cursor);
+    }
+
+    try {
+      var branchIndex = Integer.parseInt(parts[0]);
+      var itemOffset = Integer.parseInt(parts[1]);
+      if (branchIndex < 0 || itemOffset < 0) {
+        throw new IllegalArgumentException("Invalid spec evolution page cursor: " + cursor);
+      }
+      return new SpecEvolutionPageCursor(branchIndex, itemOffset, parts[2]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid spec evolution page cursor: " + cursor, e);
+    }
+  }
+
+  public String encode() {
+    var cursor = branchIndex + ":" + itemOffset + ":" + refFingerprint;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Checks whether the cursor can be used to page over a Spec Evolution built from the given refs. The first page can always be
+   * served, while the position of any later page may point at different evolution items once the refs have changed.
+   *
+   * @param refFingerprint the fingerprint of the refs the Spec Evolution being paged over was built from
+   * @return true if the cursor can be used to page over the Spec Evolution
+   */
+  public boolean isFor(String refFingerprint) {
+    return this.refFingerprint == null || this.refFingerprint.equals(refFingerprint);
+  }
+
+  public int getBranchIndex() {
+    return branchIndex;
+  }
+
+  public int getItemOffset() {
+    return itemOffset;
+  }
+
+  public String getRefFingerprint() {
+    return refFingerprint;
+  }
+}
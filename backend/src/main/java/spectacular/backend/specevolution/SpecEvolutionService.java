@@ -1,32 +1,59 @@
 package spectacular.backend.specevolution;
 
+import java.util.ArrayList;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import spectacular.backend.api.model.EvolutionBranch;
 import spectacular.backend.api.model.SpecEvolution;
+import spectacular.backend.api.model.SpecEvolutionPage;
 import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig;
 import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.app.AppInstallationContextProvider;
 
 @Service
 public class SpecEvolutionService {
+  private static final Logger logger = LoggerFactory.getLogger(SpecEvolutionService.class);
+
   private final SpecEvolutionDataExtractor specEvolutionDataExtractor;
   private final SpecEvolutionBuilder specEvolutionBuilder;
   private final SpecEvolutionConfigResolver specEvolutionConfigResolver;
+  private final SpecEvolutionSnapshotStore specEvolutionSnapshotStore;
+  private final SpecEvolutionStore specEvolutionStore;
+  private final PartialSpecEvolutionStore partialSpecEvolutionStore;
+  private final AppInstallationContextProvider appInstallationContextProvider;
 
   /**
    * A service for generating Spec Evolutions.
    * @param specEvolutionDataExtractor a data provider for the raw git data
    * @param specEvolutionBuilder a builder to convert the raw git data
    * @param specEvolutionConfigResolver a helper for defaulting missing config
+   * @param specEvolutionSnapshotStore a store of the spec evolutions last built for each spec file
+   * @param specEvolutionStore a store of built spec evolutions keyed by the refs they were built from
+   * @param partialSpecEvolutionStore a store of the spec evolutions being built a page at a time
+   * @param appInstallationContextProvider the provider of the installation the current request is for
    */
   public SpecEvolutionService(SpecEvolutionDataExtractor specEvolutionDataExtractor,
                               SpecEvolutionBuilder specEvolutionBuilder,
-                              SpecEvolutionConfigResolver specEvolutionConfigResolver) {
+                              SpecEvolutionConfigResolver specEvolutionConfigResolver,
+                              SpecEvolutionSnapshotStore specEvolutionSnapshotStore,
+                              SpecEvolutionStore specEvolutionStore,
+                              PartialSpecEvolutionStore partialSpecEvolutionStore,
+                              AppInstallationContextProvider appInstallationContextProvider) {
     this.specEvolutionDataExtractor = specEvolutionDataExtractor;
     this.specEvolutionBuilder = specEvolutionBuilder;
     this.specEvolutionConfigResolver = specEvolutionConfigResolver;
+    this.specEvolutionSnapshotStore = specEvolutionSnapshotStore;
+    this.specEvolutionStore = specEvolutionStore;
+    this.partialSpecEvolutionStore = partialSpecEvolutionStore;
+    this.appInstallationContextProvider = appInstallationContextProvider;
   }
 
   /**
    * Gets the Spec Evolution view of an interface's spec file.
+   * The view is served from the snapshot last built for the spec file if there is one, and otherwise from the SpecEvolutionStore
+   * if a view has been stored for the current refs of the spec file repository, only being built from the git data if neither has it.
    * @param interfaceName the name of the interface in a catalogue
    * @param specEvolutionConfig the config to use when building the view
    * @param specFileRepo the repository the spec file is in
@@ -37,22 +64,176 @@ public class SpecEvolutionService {
                                         SpecEvolutionConfig specEvolutionConfig,
                                         RepositoryId specFileRepo,
                                         String specFilePath) {
-    var specEvolutionDataResult = getSpecEvolutionDataForInterface(specEvolutionConfig, specFileRepo, specFilePath);
+    var snapshotKey = new SpecEvolutionSnapshotKey(appInstallationContextProvider.getInstallationId(), interfaceName,
+        specEvolutionConfig, specFileRepo, specFilePath);
 
-    return specEvolutionBuilder.generateSpecEvolution(interfaceName, specFileRepo, specFilePath, specEvolutionDataResult);
+    return specEvolutionSnapshotStore.getSnapshot(snapshotKey)
+        .map(SpecEvolutionSnapshot::getSpecEvolution)
+        .orElseGet(() -> buildSnapshot(snapshotKey));
   }
 
-  private SpecEvolutionData getSpecEvolutionDataForInterface(SpecEvolutionConfig specEvolutionConfig,
-                                                             RepositoryId specFileRepo,
-                                                             String specFilePath) {
+  /**
+   * Gets a page of the Spec Evolution view of an interface's spec file.
+   * Pages are served from the complete view if it has already been built, as for getSpecEvolution. Otherwise the view is built a
+   * branch at a time, starting with the main branch, and only up to the last branch the page has evolution items from. Once all its
+   * branches have been built for the pages asked for, the complete view is stored and snapshotted like one built in one go.
+   * Each page's cursor to the next page is tied to the refs the view was built from, so a page is not served from a view built from
+   * different refs than the previous page.
+   * @param interfaceName the name of the interface in a catalogue
+   * @param specEvolutionConfig the config to use when building the view
+   * @param specFileRepo the repository the spec file is in
+   * @param specFilePath the path to the spec file
+   * @param cursor the position of the page in the evolution items of the view
+   * @param pageSize the maximum number of evolution items on the page
+   * @return a page of the Spec Evolution view of the spec file's git data
+   * @throws StaleSpecEvolutionPageCursorException if the refs of the spec file repository have changed since the cursor was issued
+   */
+  public SpecEvolutionPage getSpecEvolutionPage(String interfaceName,
+                                                SpecEvolutionConfig specEvolutionConfig,
+                                                RepositoryId specFileRepo,
+                                                String specFilePath,
+                                                SpecEvolutionPageCursor cursor,
+                                                int pageSize) {
+    var snapshotKey = new SpecEvolutionSnapshotKey(appInstallationContextProvider.getInstallationId(), interfaceName,
+        specEvolutionConfig, specFileRepo, specFilePath);
+
+    var snapshot = specEvolutionSnapshotStore.getSnapshot(snapshotKey);
+    if (snapshot.isPresent()) {
+      checkCursor(interfaceName, cursor, snapshot.get().getRefFingerprint());
+      return createPage(snapshot.get().getSpecEvolution(), snapshot.get().getRefFingerprint(), cursor, pageSize);
+    }
+
     var resolvedConfig = specEvolutionConfigResolver.resolveConfig(specEvolutionConfig, specFileRepo);
+    var specEvolutionRefData = specEvolutionDataExtractor.getSpecEvolutionRefData(resolvedConfig, specFileRepo, specFilePath);
+    var storeKey = SpecEvolutionStoreKey.createFor(interfaceName, specEvolutionRefData, specFileRepo, specFilePath);
+    checkCursor(interfaceName, cursor, storeKey.getRefFingerprint());
+
+    var storedSpecEvolution = specEvolutionStore.find(storeKey);
+    if (storedSpecEvolution.isPresent()) {
+      specEvolutionSnapshotStore.putSnapshot(snapshotKey, storeKey, storedSpecEvolution.get());
+      return createPage(storedSpecEvolution.get(), storeKey.getRefFingerprint(), cursor, pageSize);
+    }
+
+    var partialSpecEvolution = partialSpecEvolutionStore.get(storeKey, () -> new PartialSpecEvolution(interfaceName, specFileRepo,
+        specFilePath, specEvolutionDataExtractor.addCommitGraph(specEvolutionRefData, specFileRepo)));
+    var page = createPage(interfaceName, partialSpecEvolution.getConfigUsed(), partialSpecEvolution.hasMainBranch(),
+        partialSpecEvolution.getBranchCount(), index -> partialSpecEvolution.getBranch(index, specEvolutionBuilder),
+        storeKey.getRefFingerprint(), cursor, pageSize);
+
+    if (partialSpecEvolution.isComplete()) {
+      var specEvolution = partialSpecEvolution.toSpecEvolution();
+      specEvolutionStore.save(storeKey, specEvolution);
+      specEvolutionSnapshotStore.putSnapshot(snapshotKey, storeKey, specEvolution);
+      partialSpecEvolutionStore.remove(storeKey);
+    }
+
+    return page;
+  }
+
+  /**
+   * Rebuilds the Spec Evolution snapshots of all the spec files in a repository that have been built for the current installation.
+   * A snapshot that fails to be rebuilt is left as it was.
+   * @param repositoryId the repository that changed
+   * @return the number of snapshots rebuilt
+   */
+  public int refreshSpecEvolutions(RepositoryId repositoryId) {
+    var snapshotKeys = specEvolutionSnapshotStore.getSnapshotKeys(appInstallationContextProvider.getInstallationId(), repositoryId);
+
+    var refreshed = 0;
+    for (var snapshotKey : snapshotKeys) {
+      try {
+        buildSnapshot(snapshotKey);
+        refreshed++;
+      } catch (RuntimeException e) {
+        logger.error("An error occurred while rebuilding the spec evolution of '" + snapshotKey.getSpecFilePath() + "' in repo '" +
+            repositoryId.getNameWithOwner() + "'", e);
+      }
+    }
+    return refreshed;
+  }
+
+  private SpecEvolution buildSnapshot(SpecEvolutionSnapshotKey snapshotKey) {
+    var specFileRepo = snapshotKey.getSpecFileRepo();
+    var specFilePath = snapshotKey.getSpecFilePath();
+    var resolvedConfig = specEvolutionConfigResolver.resolveConfig(snapshotKey.getSpecEvolutionConfig(), specFileRepo);
+    var specEvolutionRefData = specEvolutionDataExtractor.getSpecEvolutionRefData(resolvedConfig, specFileRepo, specFilePath);
+
+    // the view only needs building if the refs have changed since it was last built, by any installation or replica
+    var storeKey = SpecEvolutionStoreKey.createFor(snapshotKey.getInterfaceName(), specEvolutionRefData, specFileRepo, specFilePath);
+    var specEvolution = specEvolutionStore.find(storeKey).orElseGet(() -> {
+      var specEvolutionData = specEvolutionDataExtractor.addCommitGraph(specEvolutionRefData, specFileRepo);
+      var builtSpecEvolution = specEvolutionBuilder.generateSpecEvolution(snapshotKey.getInterfaceName(), specFileRepo, specFilePath,
+          specEvolutionData);
+      specEvolutionStore.save(storeKey, builtSpecEvolution);
+      return builtSpecEvolution;
+    });
+
+    specEvolutionSnapshotStore.putSnapshot(snapshotKey, storeKey, specEvolution);
+    return specEvolution;
+  }
+
+  private static void checkCursor(String interfaceName, SpecEvolutionPageCursor cursor, String refFingerprint) {
+    if (!cursor.isFor(refFingerprint)) {
+      throw new StaleSpecEvolutionPageCursorException(interfaceName);
+    }
+  }
+
+  private static SpecEvolutionPage createPage(SpecEvolution specEvolution,
+                                              String refFingerprint,
+                                              SpecEvolutionPageCursor cursor,
+                                              int pageSize) {
+    var branches = new ArrayList<EvolutionBranch>();
+    if (specEvolution.getMain() != null) {
+      branches.add(specEvolution.getMain());
+    }
+    branches.addAll(specEvolution.getReleases());
+
+    return createPage(specEvolution.getInterfaceName(), specEvolution.getConfigUsed(), specEvolution.getMain() != null, branches.size(),
+        branches::get, refFingerprint, cursor, pageSize);
+  }
 
-    var mainBranch = specEvolutionDataExtractor.getMainBranchAccordingToConfig(resolvedConfig, specFileRepo, specFilePath);
+  private static SpecEvolutionPage createPage(String interfaceName,
+                                              Object configUsed,
+                                              boolean hasMainBranch,
+                                              int branchCount,
+                                              IntFunction<EvolutionBranch> getBranch,
+                                              String refFingerprint,
+                                              SpecEvolutionPageCursor cursor,
+                                              int pageSize) {
+    var page = new SpecEvolutionPage()
+        .interfaceName(interfaceName)
+        .configUsed(configUsed)
+        .releases(new ArrayList<>());
 
-    var tags = specEvolutionDataExtractor.getRepoTagsAccordingToConfig(resolvedConfig, specFileRepo);
+    var branchIndex = cursor.getBranchIndex();
+    var itemOffset = cursor.getItemOffset();
+    var remainingItems = pageSize;
+    while (branchIndex < branchCount && remainingItems > 0) {
+      var branch = getBranch.apply(branchIndex);
+      var evolutionItems = branch.getEvolutionItems();
+      if (itemOffset < evolutionItems.size()) {
+        var end = Math.min(evolutionItems.size(), itemOffset + remainingItems);
+        var pageBranch = new EvolutionBranch()
+            .branchName(branch.getBranchName())
+            .evolutionItems(new ArrayList<>(evolutionItems.subList(itemOffset, end)));
+        if (hasMainBranch && branchIndex == 0) {
+          page.setMain(pageBranch);
+        } else {
+          page.addReleasesItem(pageBranch);
+        }
+        remainingItems -= end - itemOffset;
+        itemOffset = end;
+      }
 
-    var branches = specEvolutionDataExtractor.getReleaseBranchesAccordingToConfig(resolvedConfig, specFileRepo, specFilePath);
+      if (itemOffset >= evolutionItems.size()) {
+        branchIndex++;
+        itemOffset = 0;
+      }
+    }
 
-    return new SpecEvolutionData(mainBranch, tags, branches, resolvedConfig);
+    if (branchIndex < branchCount) {
+      page.setNextCursor(new SpecEvolutionPageCursor(branchIndex, itemOffset, refFingerprint).encode());
+    }
+    return page;
   }
 }
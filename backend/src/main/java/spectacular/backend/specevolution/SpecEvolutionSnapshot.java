@@ -0,0 +1,30 @@
+package spectacular.backend.specevolution;
+
+import spectacular.backend.api.model.SpecEvolution;
+
+/**
+ * The Spec Evolution view last built for an interface's spec file, with the fingerprint of the refs it was built from.
+ */
+public class SpecEvolutionSnapshot {
+  private final SpecEvolution specEvolution;
+  private final String refFingerprint;
+
+  /**
+   * A Spec Evolution snapshot.
+   *
+   * @param specEvolution the Spec Evolution view
+   * @param refFingerprint the fingerprint of the refs and config the view was built from
+   */
+  public SpecEvolutionSnapshot(SpecEvolution specEvolution, String refFingerprint) {
+    this.specEvolution = specEvolution;
+    this.refFingerprint = refFingerprint;
+  }
+
+  public SpecEvolution getSpecEvolution() {
+    return specEvolution;
+  }
+
+  public String getRefFingerprint() {
+    return refFingerprint;
+  }
+}
@@ -0,0 +1,78 @@
+package spectacular.backend.specevolution;
+
+import java.util.Objects;
+import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig;
+import spectacular.backend.common.RepositoryId;
+
+/**
+ * Identifies the Spec Evolution view of an interface's spec file, as built for an installation with a given config.
+ */
+public class SpecEvolutionSnapshotKey {
+  private final String installationId;
+  private final String interfaceName;
+  private final SpecEvolutionConfig specEvolutionConfig;
+  private final RepositoryId specFileRepo;
+  private final String specFilePath;
+
+  /**
+   * The identifier of a Spec Evolution snapshot.
+   *
+   * @param installationId the installation the spec evolution was built for
+   * @param interfaceName the name of the interface in a catalogue
+   * @param specEvolutionConfig the config the spec evolution was built with
+   * @param specFileRepo the repository the spec file is in
+   * @param specFilePath the path to the spec file
+   */
+  public SpecEvolutionSnapshotKey(String installationId,
+                                  String interfaceName,
+                                  SpecEvolutionConfig specEvolutionConfig,
+                                  RepositoryId specFileRepo,
+                                  String specFilePath) {
+    this.installationId = installationId;
+    this.interfaceName = interfaceName;
+    this.specEvolutionConfig = specEvolutionConfig;
+    this.specFileRepo = specFileRepo;
+    this.specFilePath = specFilePath;
+  }
+
+  public String getInstallationId() {
+    return installationId;
+  }
+
+  public String getInterfaceName() {
+    return interfaceName;
+  }
+
+  public SpecEvolutionConfig getSpecEvolutionConfig() {
+    return specEvolutionConfig;
+  }
+
+  public RepositoryId getSpecFileRepo() {
+    return specFileRepo;
+  }
+
+  public String getSpecFilePath() {
+    return specFilePath;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SpecEvolutionSnapshotKey that = (SpecEvolutionSnapshotKey) o;
+    return installationId.equals(that.installationId) &&
+        Objects.equals(interfaceName, that.interfaceName) &&
+        Objects.equals(specEvolutionConfig, that.specEvolutionConfig) &&
+        specFileRepo.equals(that.specFileRepo) &&
+        specFilePath.equals(that.specFilePath);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(installationId, interfaceName, specEvolutionConfig, specFileRepo, specFilePath);
+  }
+}
@@ -0,0 +1,91 @@
+package spectacular.backend.specevolution;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import spectacular.backend.api.model.SpecEvolution;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.webhooks.WebhookSignatureVerifier;
+
+/**
+ * A store of the Spec Evolution views last built for each interface's spec file, so they can be served without rebuilding them from
+ * the git data on every request. Snapshots are replaced when they are rebuilt after a change to their spec file's repository, and
+ * expire after a maximum age in case a change was missed.
+ * As only webhook events trigger those rebuilds, no snapshots are kept unless a webhook secret is configured. Otherwise each request
+ * checks the current refs of the spec file repository, so changes show up as soon as the cached git data expires.
+ */
+@Component
+public class SpecEvolutionSnapshotStore {
+  private static final String CACHE_NAME = "spec-evolution-snapshots";
+
+  private static final Logger logger = LoggerFactory.getLogger(SpecEvolutionSnapshotStore.class);
+
+  private final Cache<SpecEvolutionSnapshotKey, SpecEvolutionSnapshot> snapshots;
+  private final boolean enabled;
+
+  /**
+   * A store of Spec Evolution snapshots.
+   *
+   * @param meterRegistry the registry the store metrics are exposed through
+   * @param maxSize the maximum number of snapshots kept
+   * @param maxAge how long a snapshot is served for after it was built before it is rebuilt on the next request
+   * @param webhookSignatureVerifier the verifier of webhook deliveries, used to check whether webhooks keep the snapshots up to date
+   */
+  public SpecEvolutionSnapshotStore(MeterRegistry meterRegistry,
+                                    @Value("${spec-evolution.snapshots.max-size}") long maxSize,
+                                    @Value("#{T(java.time.Duration).parse('${spec-evolution.snapshots.max-age}')}") Duration maxAge,
+                                    WebhookSignatureVerifier webhookSignatureVerifier) {
+    this.snapshots = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(maxAge)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, snapshots, CACHE_NAME);
+
+    this.enabled = webhookSignatureVerifier.isConfigured();
+    if (!enabled) {
+      logger.info("No webhook secret is configured, so spec evolution snapshots are not kept and the refs are checked on every request.");
+    }
+  }
+
+  public Optional<SpecEvolutionSnapshot> getSnapshot(SpecEvolutionSnapshotKey key) {
+    return enabled ? Optional.ofNullable(snapshots.getIfPresent(key)) : Optional.empty();
+  }
+
+  /**
+   * Keeps the Spec Evolution view built for a spec file as its snapshot, unless snapshots are not kept as no webhook secret is
+   * configured.
+   *
+   * @param key the key of the snapshot
+   * @param storeKey the key the Spec Evolution view is stored under, with the fingerprint of the refs it was built from
+   * @param specEvolution the Spec Evolution view
+   */
+  public void putSnapshot(SpecEvolutionSnapshotKey key, SpecEvolutionStoreKey storeKey, SpecEvolution specEvolution) {
+    if (enabled) {
+      snapshots.put(key, new SpecEvolutionSnapshot(specEvolution, storeKey.getRefFingerprint()));
+    }
+  }
+
+  /**
+   * Gets the keys of all the snapshots of spec files in a repository built for an installation.
+   *
+   * @param installationId the installation the snapshots were built for
+   * @param repositoryId the repository the spec files are in
+   * @return a list of SpecEvolutionSnapshotKey objects
+   */
+  public List<SpecEvolutionSnapshotKey> getSnapshotKeys(String installationId, RepositoryId repositoryId) {
+    return snapshots.asMap().keySet().stream()
+        .filter(key -> key.getInstallationId().equals(installationId))
+        .filter(key -> key.getSpecFileRepo().getNameWithOwner().equalsIgnoreCase(repositoryId.getNameWithOwner()))
+        .collect(Collectors.toList());
+  }
+}
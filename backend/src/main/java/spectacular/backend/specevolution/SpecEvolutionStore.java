@@ -0,0 +1,27 @@
+package spectacular.backend.specevolution;
+
+import java.util.Optional;
+import spectacular.backend.api.model.SpecEvolution;
+
+/**
+ * A store of built Spec Evolution views, keyed by the git refs they were built from so a stored view can be reused for as long as the
+ * refs have not changed, including by other installations, replicas and after restarts if the store is persistent.
+ * The implementation used is chosen with the spec-evolution.store.type config value.
+ */
+public interface SpecEvolutionStore {
+  /**
+   * Finds the Spec Evolution view built from the refs of a SpecEvolutionStoreKey.
+   *
+   * @param key the key of the spec file and refs the view was built from
+   * @return the stored SpecEvolution, or empty if there is none
+   */
+  Optional<SpecEvolution> find(SpecEvolutionStoreKey key);
+
+  /**
+   * Stores the Spec Evolution view built from the refs of a SpecEvolutionStoreKey.
+   *
+   * @param key the key of the spec file and refs the view was built from
+   * @param specEvolution the SpecEvolution to store
+   */
+  void save(SpecEvolutionStoreKey key, SpecEvolution specEvolution);
+}
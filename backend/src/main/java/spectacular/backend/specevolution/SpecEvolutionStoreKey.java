@@ -0,0 +1,120 @@
+package spectacular.backend.specevolution;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import spectacular.backend.common.Hashes;
+import spectacular.backend.common.RepositoryId;
+import spectacular.backend.github.pullrequests.PullRequest;
+import spectacular.backend.github.refs.TagRef;
+
+/**
+ * Identifies a Spec Evolution view by the spec file it is about and a fingerprint of everything else it was built from: the interface
+ * name, the resolved config, and the commits of the branches and tags and the details of the pull requests it shows.
+ * As the contents of the spec file at each commit never change, a view built from the same fingerprint is always the same.
+ */
+public class SpecEvolutionStoreKey {
+  // changed whenever the way spec evolution views are built changes, so views built the old way are not reused
+  private static final String FINGERPRINT_VERSION = "1";
+
+  private final RepositoryId specFileRepo;
+  private final String specFilePath;
+  private final String refFingerprint;
+
+  /**
+   * The key of a stored Spec Evolution view.
+   *
+   * @param specFileRepo the repository the spec file is in
+   * @param specFilePath the path to the spec file
+   * @param refFingerprint the fingerprint of the refs and config the view was built from
+   */
+  public SpecEvolutionStoreKey(RepositoryId specFileRepo, String specFilePath, String refFingerprint) {
+    this.specFileRepo = specFileRepo;
+    this.specFilePath = specFilePath;
+    this.refFingerprint = refFingerprint;
+  }
+
+  /**
+   * Creates the key of the Spec Evolution view that would be built from the given spec evolution data.
+   *
+   * @param interfaceName the name of the interface in a catalogue
+   * @param specEvolutionData the data of the refs the view is built from, with the resolved config
+   * @param specFileRepo the repository the spec file is in
+   * @param specFilePath the path to the spec file
+   * @return a SpecEvolutionStoreKey
+   */
+  public static SpecEvolutionStoreKey createFor(String interfaceName,
+                                                SpecEvolutionData specEvolutionData,
+                                                RepositoryId specFileRepo,
+                                                String specFilePath) {
+    var fingerprintLines = new StringBuilder()
+        .append("version:").append(FINGERPRINT_VERSION).append('\n')
+        .append("interface:").append(interfaceName).append('\n');
+
+    var config = specEvolutionData.getSpecEvolutionConfig();
+    fingerprintLines.append("config:")
+        .append(config.getMainBranchConfig() == null ? null : config.getMainBranchConfig().getBranchName()).append('|')
+        .append(config.getReleaseTagConfig() == null ? null : config.getReleaseTagConfig().getTagPrefix()).append('|')
+        .append(config.getReleaseBranchConfig() == null ? null : config.getReleaseBranchConfig().getBranchPrefix()).append('\n');
+
+    specEvolutionData.getMainBranch().ifPresent(mainBranch -> appendBranch(fingerprintLines, "main", mainBranch));
+    specEvolutionData.getReleaseBranches().stream()
+        .sorted(Comparator.comparing(releaseBranch -> releaseBranch.getBranch().getName()))
+        .forEach(releaseBranch -> appendBranch(fingerprintLines, "release", releaseBranch));
+    specEvolutionData.getTags().stream()
+        .sorted(Comparator.comparing(TagRef::getName))
+        .forEach(tag -> fingerprintLines.append("tag:").append(tag.getName()).append('@').append(tag.getCommit()).append('\n'));
+
+    return new SpecEvolutionStoreKey(specFileRepo, specFilePath, Hashes.sha256Hex(fingerprintLines.toString()));
+  }
+
+  private static void appendBranch(StringBuilder fingerprintLines, String type, BranchData branchData) {
+    fingerprintLines.append(type).append(':')
+        .append(branchData.getBranch().getName()).append('@').append(branchData.getBranch().getCommit()).append('\n');
+
+    List<PullRequest> pullRequests = branchData.getAssociatedPullRequest().stream()
+        .sorted(Comparator.comparingInt(PullRequest::getNumber))
+        .collect(Collectors.toList());
+    for (var pullRequest : pullRequests) {
+      fingerprintLines.append("pr:").append(pullRequest.getNumber())
+          .append('|').append(pullRequest.getBranchName())
+          .append('|').append(pullRequest.getBaseBranchName())
+          .append('|').append(pullRequest.getTitle())
+          .append('|').append(pullRequest.getUrl())
+          .append('|').append(pullRequest.getLabels())
+          .append('|').append(pullRequest.getUpdatedAt()).append('\n');
+    }
+  }
+
+  public RepositoryId getSpecFileRepo() {
+    return specFileRepo;
+  }
+
+  public String getSpecFilePath() {
+    return specFilePath;
+  }
+
+  public String getRefFingerprint() {
+    return refFingerprint;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SpecEvolutionStoreKey that = (SpecEvolutionStoreKey) o;
+    return specFileRepo.equals(that.specFileRepo) &&
+        specFilePath.equals(that.specFilePath) &&
+        refFingerprint.equals(that.refFingerprint);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(specFileRepo, specFilePath, refFingerprint);
+  }
+}
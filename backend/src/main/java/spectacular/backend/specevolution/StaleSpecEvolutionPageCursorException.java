@@ -0,0 +1,12 @@
+package spectacular.backend.specevolution;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StaleSpecEvolutionPageCursorException extends RuntimeException {
+  public StaleSpecEvolutionPageCursorException(String interfaceName) {
+    super("The spec evolution of interface '" + interfaceName + "' has changed since the page cursor was issued. "
+        + "Request the first page again.");
+  }
+}
@@ -0,0 +1,140 @@
+package spectacular.backend.specs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import spectacular.backend.api.model.OpenApiSpecParseResult;
+
+/**
+ * A content addressed cache of OpenApiSpecParseResult objects keyed by the git blob SHA of the spec file contents they were parsed from.
+ * As a blob SHA always identifies the same contents, the same spec file version found on different branches, tags or catalogues is
+ * parsed once and the cached results never need invalidating, only evicting. Results are evicted from memory by their approximate
+ * size and can optionally be kept in a directory on disk as well, so they survive evictions and restarts.
+ */
+@Component
+public class SpecParseResultCache {
+  private static final Logger logger = LoggerFactory.getLogger(SpecParseResultCache.class);
+  private static final String CACHE_NAME = "spec-parse-results";
+  private static final Pattern BLOB_SHA_PATTERN = Pattern.compile("[0-9a-f]{40,64}");
+  private static final int OBJECT_OVERHEAD_BYTES = 64;
+
+  private final Cache<String, OpenApiSpecParseResult> parseResultCache;
+  private final Path directory;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * A cache of spec file parse results.
+   *
+   * @param meterRegistry the registry the cache metrics are exposed through
+   * @param maxWeightBytes the approximate number of bytes the parse results kept in memory may take up
+   * @param directory the directory to keep parse results in on disk, or empty to only keep them in memory
+   */
+  public SpecParseResultCache(MeterRegistry meterRegistry,
+                              @Value("${specs.parse-result-cache.max-weight-bytes}") long maxWeightBytes,
+                              @Value("${specs.parse-result-cache.directory}") String directory) {
+    this.parseResultCache = Caffeine.newBuilder()
+        .maximumWeight(maxWeightBytes)
+        .weigher((String blobSha, OpenApiSpecParseResult parseResult) -> estimateWeight(blobSha, parseResult))
+        .recordStats()
+        .build();
+    this.directory = directory.isBlank() ? null : Paths.get(directory);
+    CaffeineCacheMetrics.monitor(meterRegistry, parseResultCache, CACHE_NAME);
+  }
+
+  /**
+   * Gets the parse result of spec file contents from the cache, parsing the contents if they have not been parsed before.
+   * Concurrent requests for the parse result of the same contents wait for it to be parsed once.
+   *
+   * @param blobSha the git blob SHA of the spec file contents
+   * @param contents the spec file contents, such as a String or a stream of them
+   * @param parser the parser to use if the contents have not been parsed before
+   * @param <T> the type of the contents
+   * @return the OpenApiSpecParseResult of the contents
+   */
+  public <T> OpenApiSpecParseResult getParseResult(String blobSha, T contents, Function<T, OpenApiSpecParseResult> parser) {
+    if (blobSha == null) {
+      return parser.apply(contents);
+    }
+    return parseResultCache.get(blobSha, key -> readFromDirectory(key).orElseGet(() -> {
+      var parseResult = parser.apply(contents);
+      writeToDirectory(key, parseResult);
+      return parseResult;
+    }));
+  }
+
+  private Optional<OpenApiSpecParseResult> readFromDirectory(String blobSha) {
+    var file = getDirectoryFile(blobSha);
+    if (file == null || !Files.exists(file)) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(objectMapper.readValue(file.toFile(), OpenApiSpecParseResult.class));
+    } catch (IOException e) {
+      logger.warn("Failed to read the cached parse result of blob " + blobSha + " from disk", e);
+      return Optional.empty();
+    }
+  }
+
+  private void writeToDirectory(String blobSha, OpenApiSpecParseResult parseResult) {
+    var file = getDirectoryFile(blobSha);
+    if (file == null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(directory);
+      var tempFile = Files.createTempFile(directory, blobSha, ".tmp");
+      objectMapper.writeValue(tempFile.toFile(), parseResult);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write the parse result of blob " + blobSha + " to disk", e);
+    }
+  }
+
+  private Path getDirectoryFile(String blobSha) {
+    if (directory == null || !BLOB_SHA_PATTERN.matcher(blobSha).matches()) {
+      return null;
+    }
+    return directory.resolve(blobSha + ".json");
+  }
+
+  // an approximation of the bytes retained, counting 2 bytes for every character of the strings held
+  private static int estimateWeight(String blobSha, OpenApiSpecParseResult parseResult) {
+    var characters = blobSha.length();
+    if (parseResult.getErrors() != null) {
+      characters += parseResult.getErrors().stream().mapToInt(String::length).sum();
+    }
+
+    var objects = 1;
+    var spec = parseResult.getOpenApiSpec();
+    if (spec != null) {
+      objects++;
+      characters += length(spec.getTitle()) + length(spec.getVersion());
+      if (spec.getOperations() != null) {
+        objects += spec.getOperations().size();
+        characters += spec.getOperations().stream().mapToInt(operation -> length(operation.getName()) + length(operation.getPath())).sum();
+      }
+    }
+
+    return objects * OBJECT_OVERHEAD_BYTES + characters * 2;
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+}
@@ -17,13 +17,16 @@ import spectacular.backend.specs.openapi.OpenApiParser;
 public class SpecService {
   private static final Logger logger = LoggerFactory.getLogger(SpecService.class);
   private final RestApiClient restApiClient;
+  private final SpecParseResultCache specParseResultCache;
 
-  public SpecService(RestApiClient restApiClient) {
+  public SpecService(RestApiClient restApiClient, SpecParseResultCache specParseResultCache) {
     this.restApiClient = restApiClient;
+    this.specParseResultCache = specParseResultCache;
   }
 
   /**
    * Gets the details of a specific spec file and the parsed OpenAPI YAML contents of the file.
+   * The contents are only parsed the first time they are seen, identified by their git blob SHA.
    *
    * @param repoId the repository the spec file belongs to
    * @param filePath the file path of the spec file
@@ -40,7 +43,7 @@ public class SpecService {
       htmlUrl = contentItem.getHtml_url();
       sha = contentItem.getSha();
       lastModified = contentItem.getLastModified();
-      parseResult = OpenApiParser.parseYaml(contentItem.getDecodedContent());
+      parseResult = specParseResultCache.getParseResult(sha, contentItem.getDecodedContentStream(), OpenApiParser::parseYaml);
     } catch (HttpClientErrorException.NotFound nf) {
       logger.debug("Failed to retrieve file contents due an file not found on the github api.", nf);
       parseResult = new OpenApiSpecParseResult()
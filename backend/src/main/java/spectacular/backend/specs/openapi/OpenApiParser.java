@@ -1,24 +1,26 @@
 package spectacular.backend.specs.openapi;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spectacular.backend.api.model.OpenApiOperation;
 import spectacular.backend.api.model.OpenApiSpec;
 import spectacular.backend.api.model.OpenApiSpecParseResult;
 
+/**
+ * Parses the parts of OpenAPI YAML files needed to create OpenApiSpecParseResult objects.
+ * The YAML is read as a stream of tokens, only reading the title and version from the info node and the operation names from the
+ * paths node, so large spec files are parsed without building a tree of the whole file in memory.
+ */
 public class OpenApiParser {
   private static final Logger logger = LoggerFactory.getLogger(OpenApiParser.class);
+  private static final YAMLFactory YAML_FACTORY = new YAMLFactory();
 
   /**
    * Reads the YAML contents of an OpenAPI file and find specific nodes required to create an OpenApiSpecParseResult object.
@@ -27,59 +29,121 @@ public class OpenApiParser {
    * @return a OpenApiSpecParseResult object with the values found in the yaml and any errors occurred
    */
   public static OpenApiSpecParseResult parseYaml(String yaml) {
+    try (var parser = YAML_FACTORY.createParser(yaml)) {
+      return parse(parser);
+    } catch (IOException e) {
+      logger.debug("an io error occurred while parsing yaml contents", e);
+    }
+    return new OpenApiSpecParseResult().errors(new ArrayList<>());
+  }
+
+  /**
+   * Reads the YAML contents of an OpenAPI file from a stream and find specific nodes required to create an OpenApiSpecParseResult
+   * object. The stream is closed once it has been read.
+   *
+   * @param yaml a stream of the OpenAPI YAML file's contents, encoded in UTF-8, UTF-16 or UTF-32
+   * @return a OpenApiSpecParseResult object with the values found in the yaml and any errors occurred
+   */
+  public static OpenApiSpecParseResult parseYaml(InputStream yaml) {
+    try (var parser = YAML_FACTORY.createParser(yaml)) {
+      return parse(parser);
+    } catch (IOException e) {
+      logger.debug("an io error occurred while parsing yaml contents", e);
+    }
+    return new OpenApiSpecParseResult().errors(new ArrayList<>());
+  }
+
+  private static OpenApiSpecParseResult parse(JsonParser parser) throws IOException {
     //todo: refactor using a builder pattern
     List<String> errorList = new ArrayList<>();
-    try {
-      JsonNode rootNode = new YAMLMapper().readTree(yaml);
-      if (rootNode == null) {
-        errorList.add("Missing root node");
+
+    var rootToken = parser.nextToken();
+    if (rootToken == null) {
+      errorList.add("Missing root node");
+      return new OpenApiSpecParseResult().errors(errorList);
+    }
+    if (rootToken != JsonToken.START_OBJECT) {
+      errorList.add("Missing info node");
+      return new OpenApiSpecParseResult().errors(errorList);
+    }
+
+    OpenApiSpec spec = null;
+    List<OpenApiOperation> operationList = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var fieldName = parser.getCurrentName();
+      parser.nextToken();
+      if ("info".equals(fieldName) && spec == null) {
+        spec = readInfo(parser);
+      } else if ("paths".equals(fieldName) && operationList == null) {
+        operationList = readOperations(parser, errorList);
       } else {
-        JsonNode infoNode = rootNode.path("info");
-        if (infoNode.isMissingNode()) {
-          errorList.add("Missing info node");
-        } else {
-          String title = infoNode.path("title").asText();
-          String version = infoNode.path("version").asText();
-          var operationList = getOperationsFromRoot(rootNode, errorList);
-          var spec = new OpenApiSpec().title(title).version(version).operations(operationList);
-          return new OpenApiSpecParseResult().openApiSpec(spec).errors(errorList);
-        }
+        parser.skipChildren();
       }
-    } catch (IOException e) {
-      logger.debug("an io error occurred while parsing yaml contents", e);
     }
-    return new OpenApiSpecParseResult().errors(errorList);
+
+    if (spec == null) {
+      errorList.add("Missing info node");
+      return new OpenApiSpecParseResult().errors(errorList);
+    }
+    if (operationList == null) {
+      errorList.add("Missing path node");
+      operationList = new ArrayList<>();
+    }
+    return new OpenApiSpecParseResult().openApiSpec(spec.operations(operationList)).errors(errorList);
   }
 
-  private static List<OpenApiOperation> getOperationsFromRoot(JsonNode rootNode, List<String> errorList) {
-    List<OpenApiOperation> operationList = new ArrayList<>();
-    JsonNode pathsNode = rootNode.get("paths");
+  private static OpenApiSpec readInfo(JsonParser parser) throws IOException {
+    var spec = new OpenApiSpec().title("").version("");
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return spec;
+    }
 
-    if (pathsNode.isMissingNode()) {
-      errorList.add("Missing path node");
-      return operationList;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var fieldName = parser.getCurrentName();
+      parser.nextToken();
+      if ("title".equals(fieldName)) {
+        spec.title(readText(parser));
+      } else if ("version".equals(fieldName)) {
+        spec.version(readText(parser));
+      } else {
+        parser.skipChildren();
+      }
     }
-    if (!pathsNode.isObject()) {
+    return spec;
+  }
+
+  private static List<OpenApiOperation> readOperations(JsonParser parser, List<String> errorList) throws IOException {
+    List<OpenApiOperation> operationList = new ArrayList<>();
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
       errorList.add("Invalid path node");
+      parser.skipChildren();
       return operationList;
     }
 
-    var pathFieldsSpliterator = Spliterators.spliteratorUnknownSize(pathsNode.fields(), Spliterator.ORDERED);
-    return StreamSupport.stream(pathFieldsSpliterator, false)
-        .map(OpenApiParser::getOperationsFromPath)
-        .flatMap(Collection::stream)
-        .collect(Collectors.toList());
-  }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var pathKey = parser.getCurrentName();
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
 
-  private static List<OpenApiOperation> getOperationsFromPath(Map.Entry<String, JsonNode> pathField) {
-    var operationFieldsSpliterator = Spliterators.spliteratorUnknownSize(pathField.getValue().fields(), Spliterator.ORDERED);
-    return StreamSupport.stream(operationFieldsSpliterator, false)
-        .map(operation -> createOperationFromOperation(operation, pathField.getKey()))
-        .collect(Collectors.toList());
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        //var topicName = operationField.getValue().path("x-topic-name").asText();
+        operationList.add(new OpenApiOperation().name(parser.getCurrentName()).path(pathKey));
+        parser.nextToken();
+        parser.skipChildren();
+      }
+    }
+    return operationList;
   }
 
-  private static OpenApiOperation createOperationFromOperation(Map.Entry<String, JsonNode> operationField, String pathKey) {
-    //var topicName = operationField.getValue().path("x-topic-name").asText();
-    return new OpenApiOperation().name(operationField.getKey()).path(pathKey);
+  // the text of a scalar value, or an empty string for an object or array value
+  private static String readText(JsonParser parser) throws IOException {
+    if (parser.currentToken().isStructStart()) {
+      parser.skipChildren();
+      return "";
+    }
+    return parser.getText();
   }
 }
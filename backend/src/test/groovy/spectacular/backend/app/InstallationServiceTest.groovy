@@ -1,5 +1,7 @@
 package spectacular.backend.app
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.boot.web.client.RestTemplateBuilder
 import org.springframework.util.StringUtils
 import spectacular.backend.api.model.Catalogue
 import spectacular.backend.api.model.GetInterfaceResult
@@ -8,14 +10,26 @@ import spectacular.backend.cataloguemanifest.model.Interface
 import spectacular.backend.common.CatalogueId
 import spectacular.backend.common.RepositoryId
 import spectacular.backend.github.app.AppApiClient
+import spectacular.backend.github.app.AppApiResponseErrorHandler
+import spectacular.backend.github.app.GitHubAppAuthenticationHeaderRequestInterceptor
 import spectacular.backend.github.domain.Account
 import spectacular.backend.github.domain.Installation
 import spock.lang.Specification
 
+import java.time.Duration
+import java.util.concurrent.Executors
+
 class InstallationServiceTest extends Specification {
     def appApiClient = Mock(AppApiClient)
     def installationMapper = Mock(InstallationMapper)
-    def installationService = new InstallationService(appApiClient, installationMapper)
+    def meterRegistry = new SimpleMeterRegistry()
+    def installationLookupExecutor = Executors.newFixedThreadPool(4)
+    def installationService = new InstallationService(appApiClient, installationMapper, meterRegistry, installationLookupExecutor, 100,
+            Duration.ofMinutes(5))
+
+    def cleanup() {
+        installationLookupExecutor.shutdownNow()
+    }
 
     def aCatalogueId() {
         def catalogueRepo = new RepositoryId("test-owner","test-repo987")
@@ -94,4 +108,45 @@ class InstallationServiceTest extends Specification {
         result.installations.size() == 1
         result.installations.get(0) == mappedInstallation
     }
+
+    def "get installations retrieves the installations concurrently"() {
+        given: "a GitHub app api that takes 300ms to return each installation"
+        def slowAppApiClient = new AppApiClient("https://api.github.com", new RestTemplateBuilder(),
+                Mock(GitHubAppAuthenticationHeaderRequestInterceptor), Mock(AppApiResponseErrorHandler)) {
+            @Override
+            Installation getAppInstallation(String installationId) {
+                sleep(300)
+                return new Installation(installationId.toInteger(), 1, new Account("test-owner", 1, null, null))
+            }
+        }
+        def concurrentInstallationService = new InstallationService(slowAppApiClient, installationMapper, meterRegistry,
+                installationLookupExecutor, 100, Duration.ofMinutes(5))
+
+        when: "4 installations are retrieved"
+        def start = System.currentTimeMillis()
+        def result = concurrentInstallationService.getInstallations([1l, 2l, 3l, 4l], Optional.empty())
+        def duration = System.currentTimeMillis() - start
+
+        then: "all installations are returned in less time than retrieving them one after the other"
+        result.installations.size() == 4
+        duration < 1000
+    }
+
+    def "get installations serves recently retrieved installations from the cache"() {
+        given: "an installation that has already been retrieved"
+        def installation1 = Mock(Installation)
+        def installation2 = Mock(Installation)
+        appApiClient.getAppInstallation("1") >> installation1
+        installationService.getInstallation(1)
+
+        when: "the installations are retrieved"
+        def result = installationService.getInstallations([1l, 2l], Optional.empty())
+
+        then: "only the installation that has not been retrieved before is requested from the github app rest api"
+        0 * appApiClient.getAppInstallation("1")
+        1 * appApiClient.getAppInstallation("2") >> installation2
+        2 * installationMapper.mapInstallation(_) >> Mock(spectacular.backend.api.model.Installation)
+        result.installations.size() == 2
+        meterRegistry.get("cache.gets").tag("cache", "github-app-installations").tag("result", "hit").functionCounter().count() == 1
+    }
 }
@@ -0,0 +1,45 @@
+package spectacular.backend.app
+
+import org.springframework.security.authentication.TestingAuthenticationToken
+import org.springframework.security.core.context.SecurityContextHolder
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.web.server.ResponseStatusException
+import spock.lang.Specification
+
+import java.time.Duration
+
+class UserSessionTokenServiceTest extends Specification {
+    def userSessionTokenService = new UserSessionTokenService("a-signing-secret-of-at-least-256-bits-long!!", Duration.ofHours(1))
+
+    def aSessionToken(List<Long> installationIds) {
+        return Jwt.withTokenValue("a-token").header("alg", "HS256").subject("test-user").claim("installations", installationIds).build()
+    }
+
+    def cleanup() {
+        SecurityContextHolder.clearContext()
+    }
+
+    def "GetSessionTokenForInstallation returns the session token of a user with access to the installation"() {
+        given: "a request with the session token of a user with access to an installation"
+        def jwt = aSessionToken([123L, 456L])
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(jwt, null))
+
+        when: "the session token is retrieved for the installation"
+        def result = userSessionTokenService.getSessionTokenForInstallation(456)
+
+        then: "the session token is returned"
+        result.is(jwt)
+    }
+
+    def "GetSessionTokenForInstallation rejects a user without access to the installation as not found"() {
+        given: "a request with the session token of a user without access to an installation"
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(aSessionToken([123L]), null))
+
+        when: "the session token is retrieved for the installation"
+        userSessionTokenService.getSessionTokenForInstallation(456)
+
+        then: "the request is rejected as not found"
+        def e = thrown(ResponseStatusException)
+        e.getStatus().value() == 404
+    }
+}
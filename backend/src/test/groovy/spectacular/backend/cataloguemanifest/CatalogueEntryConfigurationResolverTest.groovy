@@ -1,5 +1,6 @@
 package spectacular.backend.cataloguemanifest
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import spectacular.backend.cataloguemanifest.catalogueentry.CatalogueEntryConfigurationResolver
 import spectacular.backend.cataloguemanifest.configurationitem.ConfigurationItemErrorType
 import spectacular.backend.cataloguemanifest.model.Catalogue
@@ -17,10 +18,14 @@ import spectacular.backend.github.domain.ContentItem
 import spectacular.backend.github.domain.RepositoryTopics
 import spock.lang.Specification
 
+import java.util.concurrent.Executor
+
 class CatalogueEntryConfigurationResolverTest extends Specification {
     def catalogueManifestParser = Mock(CatalogueManifestParser)
     def catalogueManifestProvider = Mock(CatalogueManifestProvider)
-    def catalogueEntryConfigurationResolver = new CatalogueEntryConfigurationResolver(catalogueManifestParser, catalogueManifestProvider)
+    def meterRegistry = new SimpleMeterRegistry()
+    def catalogueEntryConfigurationResolver = new CatalogueEntryConfigurationResolver(catalogueManifestParser, catalogueManifestProvider,
+            { it.run() } as Executor, { it.run() } as Executor, meterRegistry, 2, 1)
 
     def catalogueManifestYmlFilename = "spectacular-config.yml"
     def aUsername = "test-user"
@@ -184,7 +189,9 @@ class CatalogueEntryConfigurationResolverTest extends Specification {
         def result = catalogueEntryConfigurationResolver.findCataloguesForOrgAndUser(org, username)
 
         then: "the catalogue manifests are found for the org and user"
-        1 * catalogueManifestProvider.findCatalogueManifestsForOrg(org, username) >> [getCatalogueManifestFileContentResult]
+        1 * catalogueManifestProvider.findCatalogueManifestIdsForOrg(org) >> [manifestFileId]
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds([manifestFileId], username) >> [manifestFileId]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents([manifestFileId]) >> [getCatalogueManifestFileContentResult]
 
         and: "manifest config is parsed from the catalogue manifest contents"
         1 * catalogueManifestParser.parseManifestFileContentItem(catalogueManifestFileContents) >> catalogueManifestContentItemParseResult
@@ -208,7 +215,9 @@ class CatalogueEntryConfigurationResolverTest extends Specification {
         def result = catalogueEntryConfigurationResolver.findCataloguesForOrgAndUser(org, username)
 
         then: "the catalogue manifests are found for the org and user"
-        1 * catalogueManifestProvider.findCatalogueManifestsForOrg(org, username) >> [getCatalogueManifestFileContentResult]
+        1 * catalogueManifestProvider.findCatalogueManifestIdsForOrg(org) >> [manifestFileId]
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds([manifestFileId], username) >> [manifestFileId]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents([manifestFileId]) >> [getCatalogueManifestFileContentResult]
 
         and: "no manifest config is parsed from the catalogue manifest contents"
         0 * catalogueManifestParser.parseManifestFileContentItem(_)
@@ -237,7 +246,9 @@ class CatalogueEntryConfigurationResolverTest extends Specification {
         def result = catalogueEntryConfigurationResolver.findCataloguesForOrgAndUser(org, username)
 
         then: "the catalogue manifests are found for the org and user"
-        1 * catalogueManifestProvider.findCatalogueManifestsForOrg(org, username) >> [getCatalogueManifestFileContentResult]
+        1 * catalogueManifestProvider.findCatalogueManifestIdsForOrg(org) >> [manifestFileId]
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds([manifestFileId], username) >> [manifestFileId]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents([manifestFileId]) >> [getCatalogueManifestFileContentResult]
 
         and: "manifest config is parsed from the catalogue manifest contents"
         1 * catalogueManifestParser.parseManifestFileContentItem(catalogueManifestFileContents) >> catalogueManifestContentItemParseResult
@@ -267,7 +278,9 @@ class CatalogueEntryConfigurationResolverTest extends Specification {
         def result = catalogueEntryConfigurationResolver.findCataloguesForOrgAndUser(org, username)
 
         then: "the catalogue manifests are found for the org and user"
-        1 * catalogueManifestProvider.findCatalogueManifestsForOrg(org, username) >> [getCatalogueManifestFileContentResult]
+        1 * catalogueManifestProvider.findCatalogueManifestIdsForOrg(org) >> [manifestFileId]
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds([manifestFileId], username) >> [manifestFileId]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents([manifestFileId]) >> [getCatalogueManifestFileContentResult]
 
         and: "manifest config is parsed from the catalogue manifest contents"
         1 * catalogueManifestParser.parseManifestFileContentItem(catalogueManifestFileContents) >> catalogueManifestContentItemParseResult
@@ -275,4 +288,54 @@ class CatalogueEntryConfigurationResolverTest extends Specification {
         and: "no catalogue entries are returned"
         !result
     }
+
+    def "scanCataloguesForOrgAndUser scans the manifest files in batches and passes on the catalogue entries of each manifest file"() {
+        given: "3 catalogue manifest files accessible by the user in the org"
+        def manifestFileIds = (1..3).collect {
+            new CatalogueManifestId(new RepositoryId("test-owner", "test-repo" + it), catalogueManifestYmlFilename)
+        }
+        def manifestFileContents = manifestFileIds.collect { Mock(ContentItem) }
+        def manifestFileResults = (0..2).collect {
+            GetCatalogueManifestFileContentResult.createSuccessfulResult(manifestFileIds[it], manifestFileContents[it], Mock(RepositoryTopics))
+        }
+
+        and: "each manifest has a catalogue entry"
+        def catalogueEntries = (0..2).collect { Mock(Catalogue) }
+        def parseResults = (0..2).collect {
+            def parseResult = Mock(CatalogueManifestContentItemParseResult)
+            parseResult.getCatalogueManifest() >> aCatalogueManifest("testCatalogue" + it, catalogueEntries[it])
+            return parseResult
+        }
+
+        and: "a consumer of the catalogue entries of each manifest file"
+        def scannedCatalogueEntries = []
+
+        when: "the catalogue entries of the org are scanned"
+        def result = catalogueEntryConfigurationResolver.scanCataloguesForOrgAndUser(anOrg, aUsername, { scannedCatalogueEntries.add(it) }).join()
+
+        then: "the catalogue manifests are found for the org"
+        1 * catalogueManifestProvider.findCatalogueManifestIdsForOrg(anOrg) >> manifestFileIds
+
+        and: "the access of the user is checked and the manifest files retrieved in batches of 2"
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds(manifestFileIds[0..1], aUsername) >> manifestFileIds[0..1]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents(manifestFileIds[0..1]) >> manifestFileResults[0..1]
+        1 * catalogueManifestProvider.getAccessibleCatalogueManifestIds([manifestFileIds[2]], aUsername) >> [manifestFileIds[2]]
+        1 * catalogueManifestProvider.getCatalogueManifestFileContents([manifestFileIds[2]]) >> [manifestFileResults[2]]
+
+        and: "each manifest file is parsed"
+        1 * catalogueManifestParser.parseManifestFileContentItem(manifestFileContents[0]) >> parseResults[0]
+        1 * catalogueManifestParser.parseManifestFileContentItem(manifestFileContents[1]) >> parseResults[1]
+        1 * catalogueManifestParser.parseManifestFileContentItem(manifestFileContents[2]) >> parseResults[2]
+
+        and: "the catalogue entries of each manifest file are passed on"
+        scannedCatalogueEntries*.getAt(0)*.getCatalogueEntry() == catalogueEntries
+
+        and: "all the catalogue entries are returned in the order of the manifest files"
+        result*.getCatalogueEntry() == catalogueEntries
+
+        and: "the time taken by each stage is recorded"
+        ["permissions", "fetch", "parse"].every { meterRegistry.find("catalogues.org-scan.stage").tag("stage", it).timer() != null }
+        meterRegistry.find("catalogues.org-scan.stage").tag("stage", "parse").timer().count() == 3
+        meterRegistry.find("catalogues.org-scan").tag("result", "success").timer().count() == 1
+    }
 }
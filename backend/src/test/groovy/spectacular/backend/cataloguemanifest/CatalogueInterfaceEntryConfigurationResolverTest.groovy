@@ -53,7 +53,7 @@ class CatalogueInterfaceEntryConfigurationResolverTest extends Specification {
         def getCatalogueEntryConfigurationResult = aSuccessfulCatalogueEntryResult(catalogueId, catalogue)
 
         and: "a spec file location on the interface entry"
-        def specFileLocation = new SpecFileLocation()
+        def specFileLocation = new SpecFileLocation().withFilePath("specs/spec.yaml")
         interfaceEntry.setSpecFile(specFileLocation)
 
         when: "the interface configuration is retrieved"
@@ -62,9 +62,31 @@ class CatalogueInterfaceEntryConfigurationResolverTest extends Specification {
         then: "the result has no error"
         !result.getError()
 
-        and: "the interface entry is returned"
+        and: "the interface entry is returned with its spec file location in the catalogue's repository"
         result.getInterfaceName() == interfaceEntryName
-        result.getInterfaceEntry() == interfaceEntry
+        result.getInterfaceEntry().getSpecFile().getFilePath() == "specs/spec.yaml"
+        result.getInterfaceEntry().getSpecFile().getRepo() == "test-owner/test-repo987"
+
+        and: "the interface entry in the catalogue entry is left unchanged"
+        specFileLocation.getRepo() == null
+    }
+
+    def "GetCatalogueInterfaceEntryConfiguration for interface entry with a spec file in another repository returns the interface entry"() {
+        given: "a location for a catalogue config and interface entry name"
+        def catalogueId = aCatalogueId()
+        def interfaceEntryName = "testInterface1"
+
+        and: "a catalogue config entry in the manifest file with an interface entry with a spec file location in another repository"
+        def interfaceEntry = new Interface().withSpecFile(new SpecFileLocation().withFilePath("specs/spec.yaml").withRepo("test-owner/specs"))
+        def catalogue = aCatalogueEntry(interfaceEntryName, interfaceEntry)
+        def getCatalogueEntryConfigurationResult = aSuccessfulCatalogueEntryResult(catalogueId, catalogue)
+
+        when: "the interface configuration is retrieved"
+        def result = catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(getCatalogueEntryConfigurationResult, interfaceEntryName)
+
+        then: "the interface entry is returned as it is"
+        !result.getError()
+        result.getInterfaceEntry().is(interfaceEntry)
     }
 
     def "GetCatalogueInterfaceEntryConfiguration for catalogue entry with no interfaces returns not found error result"() {
@@ -0,0 +1,184 @@
+package spectacular.backend.cataloguemanifest
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.SerializationFeature
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestIndex
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.RestApiClient
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spectacular.backend.github.graphql.GraphQlRequest
+import spectacular.backend.github.graphql.GraphQlResponse
+import spectacular.backend.github.webhooks.WebhookSignatureVerifier
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.Duration
+
+class CatalogueManifestIndexTest extends Specification {
+    def restApiClient = Mock(RestApiClient)
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+    def meterRegistry = new SimpleMeterRegistry()
+    def directory = Files.createTempDirectory("catalogue-manifest-index")
+    def webhookSignatureVerifier = new WebhookSignatureVerifier("a-webhook-secret")
+    def catalogueManifestIndex = new CatalogueManifestIndex(restApiClient, appInstallationContextProvider, objectMapper, meterRegistry, 100,
+            Duration.ofHours(1), Duration.ofHours(1), "", webhookSignatureVerifier)
+
+    def setup() {
+        appInstallationContextProvider.setInstallationId("123")
+    }
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def aResponse(String json) {
+        return objectMapper.readValue(json, GraphQlResponse)
+    }
+
+    def aRepositoriesPage(boolean hasNextPage, String endCursor, String nodes) {
+        return aResponse("""
+        {
+          "data": {
+            "repositoryOwner": {
+              "repositories": {
+                "totalCount": 3,
+                "pageInfo": { "hasNextPage": ${hasNextPage}, "endCursor": "${endCursor}" },
+                "nodes": [ ${nodes} ]
+              }
+            }
+          }
+        }
+        """)
+    }
+
+    def firstPage = aRepositoriesPage(true, "cursor1", """
+        { "nameWithOwner": "test-org/repo1", "url": "https://github.com/test-org/repo1",
+          "ymlManifest": { "oid": "yml-sha1" }, "yamlManifest": { "oid": "yaml-sha1" } },
+        { "nameWithOwner": "test-org/repo2", "url": "https://github.com/test-org/repo2", "ymlManifest": null, "yamlManifest": null }
+    """)
+
+    def secondPage = aRepositoriesPage(false, "cursor2", """
+        { "nameWithOwner": "test-org/repo3", "url": "https://github.com/test-org/repo3",
+          "ymlManifest": null, "yamlManifest": { "oid": "yaml-sha3" } }
+    """)
+
+    def "GetCatalogueManifestLocations scans every page of the owner's repositories once and indexes their manifest files"() {
+        when: "the catalogue manifest locations of an org are retrieved twice"
+        def locations = catalogueManifestIndex.getCatalogueManifestLocations("test-org")
+        def secondLocations = catalogueManifestIndex.getCatalogueManifestLocations("Test-Org")
+
+        then: "the first page of the org's repositories is queried once"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('repositoryOwner(login: "test-org")') && !request.getQuery().contains("after:")
+        }) >> firstPage
+
+        and: "the next page is queried after the cursor of the first"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request -> request.getQuery().contains('after: "cursor1"') }) >> secondPage
+
+        and: "the repositories with a manifest file are indexed, preferring the .yml manifest file"
+        locations*.getRepositoryNameWithOwner() == ["test-org/repo1", "test-org/repo3"]
+        locations*.getPath() == ["spectacular-config.yml", "spectacular-config.yaml"]
+        locations*.getBlobSha() == ["yml-sha1", "yaml-sha3"]
+
+        and: "the second retrieval is served from the index"
+        secondLocations*.getBlobSha() == locations*.getBlobSha()
+    }
+
+    def "GetCatalogueManifestLocations scans the repositories again if the scan had errors"() {
+        given: "a scan that fails"
+        def failedResponse = new GraphQlResponse(null, objectMapper.valueToTree([[message: "something went wrong"]]))
+
+        when: "the catalogue manifest locations of an org are retrieved twice"
+        def locations = catalogueManifestIndex.getCatalogueManifestLocations("test-org")
+        def secondLocations = catalogueManifestIndex.getCatalogueManifestLocations("test-org")
+
+        then: "the repositories are scanned both times"
+        2 * restApiClient.graphQlQuery(_) >>> [failedResponse, secondPage]
+
+        and: "nothing is found by the failed scan"
+        locations.isEmpty()
+        secondLocations*.getRepositoryNameWithOwner() == ["test-org/repo3"]
+    }
+
+    def "RefreshRepository indexes a single repository of an indexed owner again"() {
+        given: "an indexed org"
+        restApiClient.graphQlQuery({ GraphQlRequest request -> request.getQuery().contains("repositoryOwner") }) >> secondPage
+        catalogueManifestIndex.getCatalogueManifestLocations("test-org")
+
+        and: "a repository of the org that has had a manifest file added"
+        def manifestRepositoryResponse = aResponse("""
+        {
+          "data": {
+            "manifestRepository": { "nameWithOwner": "test-org/repo2", "url": "https://github.com/test-org/repo2",
+              "ymlManifest": { "oid": "yml-sha2" }, "yamlManifest": null }
+          }
+        }
+        """)
+
+        and: "a repository of the org the installation no longer has access to"
+        def noRepositoryResponse = aResponse("""{ "data": { "manifestRepository": null } }""")
+
+        when: "the repositories are indexed again"
+        def refreshed = catalogueManifestIndex.refreshRepository(RepositoryId.createForNameWithOwner("test-org/repo2"))
+        def removed = catalogueManifestIndex.refreshRepository(RepositoryId.createForNameWithOwner("test-org/repo3"))
+
+        then: "each repository is queried"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('manifestRepository: repository(owner: "test-org", name: "repo2")')
+        }) >> manifestRepositoryResponse
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('manifestRepository: repository(owner: "test-org", name: "repo3")')
+        }) >> noRepositoryResponse
+
+        and: "the index is updated without scanning the org again"
+        refreshed
+        removed
+        catalogueManifestIndex.getCatalogueManifestLocations("test-org")*.getRepositoryNameWithOwner() == ["test-org/repo2"]
+    }
+
+    def "RefreshRepository does nothing for an owner that has not been indexed"() {
+        when: "a repository of an org that has not been indexed is indexed again"
+        def refreshed = catalogueManifestIndex.refreshRepository(RepositoryId.createForNameWithOwner("other-org/repo1"))
+
+        then: "nothing is queried"
+        0 * restApiClient.graphQlQuery(_)
+        !refreshed
+    }
+
+    def "GetCatalogueManifestLocations reads an index kept in the directory by another index"() {
+        given: "an org indexed by an index kept in a directory"
+        def firstIndex = new CatalogueManifestIndex(restApiClient, appInstallationContextProvider, objectMapper, meterRegistry, 100,
+                Duration.ofHours(1), Duration.ofHours(1), directory.toString(), webhookSignatureVerifier)
+        restApiClient.graphQlQuery(_) >>> [firstPage, secondPage]
+        firstIndex.getCatalogueManifestLocations("test-org")
+
+        when: "another index using the same directory retrieves the org's catalogue manifest locations"
+        def otherIndex = new CatalogueManifestIndex(restApiClient, appInstallationContextProvider, objectMapper, meterRegistry, 100,
+                Duration.ofHours(1), Duration.ofHours(1), directory.toString(), webhookSignatureVerifier)
+        def locations = otherIndex.getCatalogueManifestLocations("test-org")
+
+        then: "the repositories are not scanned again"
+        0 * restApiClient.graphQlQuery(_)
+
+        and: "the locations are read from the directory"
+        locations*.getBlobSha() == ["yml-sha1", "yaml-sha3"]
+    }
+
+    def "GetCatalogueManifestLocations scans the repositories again after a shorter interval when no webhook secret is configured"() {
+        given: "an index without a webhook secret to keep it up to date, with a short rescan interval for that case"
+        def noWebhooksIndex = new CatalogueManifestIndex(restApiClient, appInstallationContextProvider, objectMapper, meterRegistry, 100,
+                Duration.ofHours(1), Duration.ofMillis(1), "", new WebhookSignatureVerifier(""))
+        restApiClient.graphQlQuery(_) >>> [firstPage, secondPage]
+        noWebhooksIndex.getCatalogueManifestLocations("test-org")
+
+        when: "the org's catalogue manifest locations are retrieved again after the short rescan interval"
+        Thread.sleep(10)
+        def locations = noWebhooksIndex.getCatalogueManifestLocations("test-org")
+
+        then: "the repositories are scanned again"
+        1 * restApiClient.graphQlQuery(_) >> secondPage
+        locations*.getRepositoryNameWithOwner() == ["test-org/repo3"]
+    }
+}
@@ -1,11 +1,12 @@
 package spectacular.backend.cataloguemanifest
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import spectacular.backend.cataloguemanifest.parse.CatalogueManifestParser
 import spectacular.backend.github.domain.ContentItem
 import spock.lang.Specification
 
 class CatalogueManifestParserTest extends Specification {
-    def catalogueManifestParser = new CatalogueManifestParser()
+    def catalogueManifestParser = new CatalogueManifestParser(new SimpleMeterRegistry(), 100)
 
     def aValidYamlCatalogueManifestFileContents = "spectacular: '0.1'\n" +
             "catalogues:\n" +
@@ -198,4 +199,49 @@ class CatalogueManifestParserTest extends Specification {
         and: "there is no error"
         !result.error
     }
+
+    def "parseManifestFileContentItem and FindAndParseCatalogueInManifestFileContents parse each manifest file version once"() {
+        given: "2 content items with the same version of a catalogue manifest file"
+        def contentItem = Mock(ContentItem)
+        contentItem.getSha() >> "manifest-sha1"
+        def sameVersionContentItem = Mock(ContentItem)
+        sameVersionContentItem.getSha() >> "manifest-sha1"
+
+        when: "the manifest and a catalogue in it are parsed from both content items"
+        def manifestResult = catalogueManifestParser.parseManifestFileContentItem(contentItem)
+        def catalogueResult = catalogueManifestParser.findAndParseCatalogueInManifestFileContents(sameVersionContentItem, "testCatalogue1")
+        def missingCatalogueResult = catalogueManifestParser.findAndParseCatalogueInManifestFileContents(sameVersionContentItem, "another")
+
+        then: "the file contents are decoded once"
+        1 * contentItem.getDecodedContent() >> aValidYamlCatalogueManifestFileContents
+        0 * sameVersionContentItem.getDecodedContent()
+
+        and: "the results are from the parsed manifest, with the content item they were requested for"
+        manifestResult.catalogueManifest.getCatalogues().getAdditionalProperties().keySet() == ["testCatalogue1"] as Set
+        catalogueResult.catalogue.getTitle() == "Test Catalogue 1"
+        catalogueResult.manifestContentItem == sameVersionContentItem
+        missingCatalogueResult.isCatalogueEntryNotFound()
+    }
+
+    def "FindAndParseCatalogueInManifestFileContents returns the validation errors found once for each catalogue of a manifest file version"() {
+        given: "a version of a catalogue manifest file with a valid and an invalid catalogue entry"
+        def yamlManifest = aCatalogueManifestWithMissingCatalogueTitle + "\n" +
+                "  testCatalogue2:\n" +
+                "    title: \"Test Catalogue 2\"\n"
+        def contentItem = Mock(ContentItem)
+        contentItem.getSha() >> "manifest-sha2"
+
+        when: "each catalogue is found and parsed twice"
+        def invalidResults = (1..2).collect { catalogueManifestParser.findAndParseCatalogueInManifestFileContents(contentItem, "testCatalogue1") }
+        def validResults = (1..2).collect { catalogueManifestParser.findAndParseCatalogueInManifestFileContents(contentItem, "testCatalogue2") }
+
+        then: "the file contents are decoded once"
+        1 * contentItem.getDecodedContent() >> yamlManifest
+
+        and: "the invalid catalogue has the same validation error each time"
+        invalidResults*.error == ["The following validation errors were found with catalogue entry 'testCatalogue1': title must not be null"] * 2
+
+        and: "the valid catalogue is found despite the other catalogue being invalid"
+        validResults*.catalogue*.getTitle() == ["Test Catalogue 2"] * 2
+    }
 }
@@ -1,23 +1,28 @@
 package spectacular.backend.cataloguemanifest
 
+import com.fasterxml.jackson.databind.ObjectMapper
 import org.springframework.http.HttpStatus
 import org.springframework.web.client.HttpClientErrorException
 import spectacular.backend.api.model.Catalogue
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestIndex
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestLocation
 import spectacular.backend.cataloguemanifest.model.CatalogueManifest
 import spectacular.backend.common.CatalogueId
 import spectacular.backend.common.CatalogueManifestId
 import spectacular.backend.common.RepositoryId
 import spectacular.backend.github.RestApiClient
 import spectacular.backend.github.domain.ContentItem
-import spectacular.backend.github.domain.Repository
 import spectacular.backend.github.domain.RepositoryTopics
-import spectacular.backend.github.domain.SearchCodeResultItem
-import spectacular.backend.github.domain.SearchCodeResults
+import spectacular.backend.github.graphql.GraphQlRequest
+import spectacular.backend.github.graphql.GraphQlResponse
+import spectacular.backend.github.permissions.RepositoryPermissionResolver
 import spock.lang.Specification
 
 class CatalogueManifestProviderTest extends Specification {
     def restApiClient = Mock(RestApiClient)
-    def catalogueManifestProvider = new CatalogueManifestProvider(restApiClient)
+    def catalogueManifestIndex = Mock(CatalogueManifestIndex)
+    def repositoryPermissionResolver = Mock(RepositoryPermissionResolver)
+    def catalogueManifestProvider = new CatalogueManifestProvider(restApiClient, catalogueManifestIndex, repositoryPermissionResolver, 2)
 
     def catalogueManifestYamlFilename = "spectacular-config.yaml"
     def catalogueManifestYmlFilename = "spectacular-config.yml"
@@ -31,20 +36,26 @@ class CatalogueManifestProviderTest extends Specification {
         return new CatalogueManifestId(catalogueRepo, catalogueManifestFile)
     }
 
-    def searchCodeResultsForInstallation(RepositoryId catalogueRepository, boolean isBothFilesPresent = false) {
-        def searchCodeResultItems = [];
-
-        def searchCodeResultRepo = new Repository(1234, catalogueRepository.getNameWithOwner(), new URI("https://test-url"), null)
-        def searchCodeResultItem = new SearchCodeResultItem(catalogueManifestYmlFilename, catalogueManifestYmlFilename, "test_url", "test_git_url", "test_html_url", searchCodeResultRepo)
-        searchCodeResultItems.add(searchCodeResultItem)
-
-        if (isBothFilesPresent) {
-            def searchCodeResultRepo2 = new Repository(1234, catalogueRepository.getNameWithOwner(), new URI("https://test-url"), null)
-            def searchCodeResultItem2 = new SearchCodeResultItem(catalogueManifestYamlFilename, catalogueManifestYamlFilename, "test_url", "test_git_url", "test_html_url", searchCodeResultRepo2)
-            searchCodeResultItems.add(searchCodeResultItem2)
+    def aManifestFilesResponse(Map<String, Map> manifestFilesByAlias, Map<String, String> errorTypesByAlias = [:]) {
+        def data = manifestFilesByAlias.collectEntries { alias, manifestFile ->
+            [(alias): manifestFile == null ? null : [
+                    nameWithOwner: "test-owner/" + alias,
+                    url: "https://github.com/test-owner/" + alias,
+                    defaultBranchRef: [name: "main"],
+                    manifestFile: manifestFile,
+                    repositoryTopics: [nodes: [[topic: [name: "topic1"]], [topic: [name: "topic2"]]]]]]
         }
+        def errors = errorTypesByAlias.collect { alias, type -> [type: type, path: [alias], message: "an error"] }
+        def objectMapper = new ObjectMapper()
+        return objectMapper.readValue(objectMapper.writeValueAsString([data: data, errors: errors]), GraphQlResponse)
+    }
+
+    def aManifestFile(String oid) {
+        return [oid: oid, text: "spectacular: '0.1'", isTruncated: false]
+    }
 
-        return new SearchCodeResults(searchCodeResultItems.size(), searchCodeResultItems, false)
+    def aCatalogueManifestLocation(RepositoryId catalogueRepository, String path = catalogueManifestYmlFilename) {
+        return new CatalogueManifestLocation(catalogueRepository.getNameWithOwner(), path, "a-blob-sha")
     }
 
     def "getCatalogueManifest returns a manifest file doesn't exist result if the user or the app doesn't have access to the repo containing the manifest file"() {
@@ -56,7 +67,7 @@ class CatalogueManifestProviderTest extends Specification {
         def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
         then: "github is checked if the user is a collaborator of the repository"
-        1 * restApiClient.isUserRepositoryCollaborator(catalogueManifestId.getRepositoryId(), aUsername) >> userAndInstallationAccessToCatalogueRepository
+        1 * repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> userAndInstallationAccessToCatalogueRepository
 
         and: "no file contents are retrieved"
         0 * restApiClient.getRepositoryContent(*_)
@@ -73,148 +84,197 @@ class CatalogueManifestProviderTest extends Specification {
         def catalogueManifestId = aCatalogueManifestId()
         def userAndInstallationAccessToCatalogueRepository = true
 
-        and: "there is a manifest file at the location specified"
-        def manifestFileContentItem = Mock(ContentItem)
-
-        and: "the repo the manifest file is in has topics"
-        def repositoryTopics = Mock(RepositoryTopics)
-
         when: "the getCatalogueManifest is called by the user"
         def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
         then: "github is checked if the user is a collaborator of the repository"
-        1 * restApiClient.isUserRepositoryCollaborator(catalogueManifestId.getRepositoryId(), aUsername) >> userAndInstallationAccessToCatalogueRepository
-
-        and: "the .yml manifest file contents is retrieved"
-        1 * restApiClient.getRepositoryContent(catalogueManifestId.getRepositoryId(), catalogueManifestId.getPath(), null) >> manifestFileContentItem
-
-        and: "the topics of the repository the manifest file is in are retrieved"
-        1 * restApiClient.getRepositoryTopics(catalogueManifestId.getRepositoryId()) >> repositoryTopics
+        1 * repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> userAndInstallationAccessToCatalogueRepository
+
+        and: "the .yml manifest file contents and the topics of its repository are retrieved in a single query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('manifest0: repository(owner: "test-owner", name: "test-repo987")') &&
+                    request.getQuery().contains('manifestFile: object(expression: "HEAD:spectacular-config.yml")') &&
+                    request.getQuery().contains("repositoryTopics")
+        }) >> aManifestFilesResponse([manifest0: aManifestFile("manifest-sha")])
+        0 * restApiClient.getRepositoryContent(*_)
+        0 * restApiClient.getRepositoryTopics(*_)
 
         and: "the result is for a manifest file that does exist"
         !result.isFileNotFoundResult()
 
         and: "the result has the content item"
-        result.getCatalogueManifestContent() == manifestFileContentItem
+        result.getCatalogueManifestContent().getDecodedContent() == "spectacular: '0.1'"
+        result.getCatalogueManifestContent().getSha() == "manifest-sha"
+        result.getCatalogueManifestContent().getHtml_url().toString() == "https://github.com/test-owner/manifest0/blob/main/spectacular-config.yml"
 
         and: "the result has the repository topics"
-        result.getRepositoryTopics() == repositoryTopics
+        result.getRepositoryTopics().getNames() == ["topic1", "topic2"]
     }
 
-    def "findCatalogueManifestsForOrg returns all catalogue manifest file locations and their content that the user and app has access to for an org"() {
-        given: "user and app installation access to a repository with a catalogue config manifest file"
-        def repo = new RepositoryId("test-owner","test-repo987")
-        def searchCodeResults = searchCodeResultsForInstallation(repo)
-        def userAndInstallationAccessToCatalogueRepository = true
+    def "getCatalogueManifest returns a manifest file doesn't exist result if there is no file at the location"() {
+        given: "a catalogue at a location the user or app does have access to"
+        def catalogueManifestId = aCatalogueManifestId()
+        repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> true
 
-        and: "valid catalogue manifest YAML content in the manifest file"
-        def manifestFileContentItem = Mock(ContentItem)
+        when: "the getCatalogueManifest is called by the user"
+        def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
-        and: "the repo the manifest file is in has topics"
-        def repositoryTopics = Mock(RepositoryTopics)
+        then: "there is no manifest file in the repository"
+        1 * restApiClient.graphQlQuery(_) >> aManifestFilesResponse([manifest0: null])
 
-        when: "the find catalogues for user and org is called"
-        def result = catalogueManifestProvider.findCatalogueManifestsForOrg(anOrg, aUsername)
+        and: "the result is for a manifest file that doesn't exist"
+        result.isFileNotFoundResult()
+    }
 
-        then: "github is searched for catalogue manifest files"
-        1 * restApiClient.findFiles("spectacular-config", ["yaml", "yml"], "/", anOrg, null) >> searchCodeResults
+    def "getCatalogueManifest returns a manifest file doesn't exist result if the repository was not found"() {
+        given: "a catalogue at a location the user or app does have access to"
+        def catalogueManifestId = aCatalogueManifestId()
+        repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> true
 
-        and: "github is checked if the user is a collaborator of the found repository"
-        1 * restApiClient.isUserRepositoryCollaborator(repo, aUsername) >> userAndInstallationAccessToCatalogueRepository
+        when: "the getCatalogueManifest is called by the user"
+        def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
-        and: "the .yml manifest file contents is retrieved"
-        1 * restApiClient.getRepositoryContent(repo, catalogueManifestYmlFilename, null) >> manifestFileContentItem
+        then: "the repository is reported as not found by the query"
+        1 * restApiClient.graphQlQuery(_) >> aManifestFilesResponse([manifest0: null], [manifest0: "NOT_FOUND"])
 
-        and: "the topics of the repository the manifest file is in are retrieved"
-        1 * restApiClient.getRepositoryTopics(repo) >> repositoryTopics
+        and: "the manifest file is not retrieved from the rest api"
+        0 * restApiClient.getRepositoryContent(_, _, _)
 
-        and: "the find catalogues result returns the location and content of the found manifest file"
-        result.size() == 1
-        result.first().getCatalogueManifestContent() == manifestFileContentItem
-        result.first().getCatalogueManifestId().getRepositoryId() == repo
-        result.first().getRepositoryTopics() == repositoryTopics
+        and: "the result is for a manifest file that doesn't exist"
+        result.isFileNotFoundResult()
     }
 
-    def "findCatalogueManifestsForOrg returns only one manifest file when both file extensions are present in a repository"() {
-        given: "user and app installation access to a repository with both catalogue config manifest file extensions present"
-        def repo = new RepositoryId("test-owner","test-repo987")
-        def searchCodeResults = searchCodeResultsForInstallation(repo, true)
-        def userAndInstallationAccessToCatalogueRepository = true
-
-        and: "valid catalogue manifest YAML content in the manifest file"
+    def "getCatalogueManifest retrieves a manifest file from the rest api if the query failed to retrieve its repository"() {
+        given: "a catalogue at a location the user or app does have access to"
+        def catalogueManifestId = aCatalogueManifestId()
+        repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> true
         def manifestFileContentItem = Mock(ContentItem)
-
-        and: "the repo the manifest file is in has topics"
         def repositoryTopics = Mock(RepositoryTopics)
 
-        when: "the find catalogues for user and org is called"
-        def result = catalogueManifestProvider.findCatalogueManifestsForOrg(anOrg, aUsername)
-
-        then: "github is searched for catalogue manifest files"
-        1 * restApiClient.findFiles("spectacular-config", ["yaml", "yml"], "/", anOrg, null) >> searchCodeResults
-
-        and: "github is checked if the user is a collaborator of the found repository"
-        1 * restApiClient.isUserRepositoryCollaborator(repo, aUsername) >> userAndInstallationAccessToCatalogueRepository
+        when: "the getCatalogueManifest is called by the user"
+        def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
-        and: "the .yml manifest file contents is retrieved"
-        1 * restApiClient.getRepositoryContent(repo, catalogueManifestYmlFilename, null) >> manifestFileContentItem
+        then: "the query fails to retrieve the repository with a transient error"
+        1 * restApiClient.graphQlQuery(_) >> aManifestFilesResponse([manifest0: null], [manifest0: "RATE_LIMITED"])
 
-        and: "the topics of the repository the manifest file is in are retrieved"
-        1 * restApiClient.getRepositoryTopics(repo) >> repositoryTopics
+        and: "the manifest file contents and the topics of its repository are retrieved from the rest api"
+        1 * restApiClient.getRepositoryContent(catalogueManifestId.getRepositoryId(), catalogueManifestId.getPath(), null) >> manifestFileContentItem
+        1 * restApiClient.getRepositoryTopics(catalogueManifestId.getRepositoryId()) >> repositoryTopics
 
-        and: "the find catalogues result returns the location and content of the .yml manifest file"
-        result.size() == 1
-        result.first().getCatalogueManifestContent() == manifestFileContentItem
-        result.first().getCatalogueManifestId().getRepositoryId() == repo
-        result.first().getCatalogueManifestId().getPath().endsWith(".yml")
-        result.first().getRepositoryTopics() == repositoryTopics
+        and: "the result has the content item and topics from the rest api rather than being not found"
+        !result.isFileNotFoundResult()
+        result.getCatalogueManifestContent() == manifestFileContentItem
+        result.getRepositoryTopics() == repositoryTopics
     }
 
-    def "findCatalogueManifestsForOrg filters out repos the user or app does not have access to"() {
-        given: "1 repository with a catalogue config manifest file the user or app does not have access to"
-        def repo = new RepositoryId("test-owner","test-repo987")
-        def searchCodeResults = searchCodeResultsForInstallation(repo)
-        def userAndInstallationAccessToCatalogueRepository = false
+    def "getCatalogueManifest retrieves a manifest file too large for the GraphQL api from the rest api"() {
+        given: "a catalogue at a location the user or app does have access to"
+        def catalogueManifestId = aCatalogueManifestId()
+        repositoryPermissionResolver.isAccessible(catalogueManifestId.getRepositoryId(), aUsername) >> true
 
-        when: "the find catalogues for user and org is called"
-        def result = catalogueManifestProvider.findCatalogueManifestsForOrg(anOrg, aUsername)
+        and: "a manifest file with contents too large to be returned in full by a GraphQL query"
+        def truncatedManifestFile = [oid: "manifest-sha", text: "spectacular", isTruncated: true]
+        def manifestFileContentItem = Mock(ContentItem)
+        def repositoryTopics = Mock(RepositoryTopics)
 
-        then: "github is search for instance manifest files"
-        1 * restApiClient.findFiles("spectacular-config", ["yaml", "yml"], "/", anOrg, null) >> searchCodeResults
+        when: "the getCatalogueManifest is called by the user"
+        def result = catalogueManifestProvider.getCatalogueManifest(catalogueManifestId, aUsername)
 
-        and: "github is checked if the user is a collaborator of the found repositories"
-        1 * restApiClient.isUserRepositoryCollaborator(repo, aUsername) >> userAndInstallationAccessToCatalogueRepository
+        then: "the truncated manifest file is returned by the query"
+        1 * restApiClient.graphQlQuery(_) >> aManifestFilesResponse([manifest0: truncatedManifestFile])
 
-        and: "no catalogues are returned"
-        result.isEmpty()
+        and: "the manifest file contents and the topics of its repository are retrieved from the rest api"
+        1 * restApiClient.getRepositoryContent(catalogueManifestId.getRepositoryId(), catalogueManifestId.getPath(), null) >> manifestFileContentItem
+        1 * restApiClient.getRepositoryTopics(catalogueManifestId.getRepositoryId()) >> repositoryTopics
 
-        and: "no file contents are retrieved"
-        0 * restApiClient.getRepositoryContent(*_)
+        and: "the result has the content item and topics from the rest api"
+        result.getCatalogueManifestContent() == manifestFileContentItem
+        result.getRepositoryTopics() == repositoryTopics
     }
 
-    def "findCatalogueManifestsForOrg filters out incorrect filename matches"() {
-        given: "an incorrect filename search result"
-        def searchResultFilename = "spectacular-app-config.yaml"
+    def "findCatalogueManifestIdsForOrg returns all catalogue manifest file locations indexed for an org"() {
+        given: "3 repositories with catalogue config manifest files"
+        def repo1 = new RepositoryId("test-owner","test-repo1")
+        def repo2 = new RepositoryId("test-owner","test-repo2")
+        def repo3 = new RepositoryId("test-owner","test-repo3")
 
-        and: "an app installation with access to 1 repository with a catalogue config manifest file"
-        def repo = new RepositoryId("test-owner","test-repo987")
-        def searchCodeResultRepo = new Repository(1234, repo.getNameWithOwner(), new URI("https://test-url"), null)
-        def searchCodeResultItem = new SearchCodeResultItem(searchResultFilename, searchResultFilename, "test_url", "test_git_url", "test_html_url", searchCodeResultRepo)
-        def searchCodeResults = new SearchCodeResults(1, List.of(searchCodeResultItem), false)
+        when: "the catalogue manifests of the org are found"
+        def result = catalogueManifestProvider.findCatalogueManifestIdsForOrg(anOrg)
+
+        then: "the catalogue manifest index is looked up for the org"
+        1 * catalogueManifestIndex.getCatalogueManifestLocations(anOrg) >> [
+                aCatalogueManifestLocation(repo1), aCatalogueManifestLocation(repo2, catalogueManifestYamlFilename), aCatalogueManifestLocation(repo3)]
+
+        and: "github is not searched for catalogue manifest files"
+        0 * restApiClient.findFiles(*_)
+
+        and: "the locations of the indexed manifest files are returned, with the extension the index has for each repository"
+        result*.getRepositoryId() == [repo1, repo2, repo3]
+        result*.getPath() == [catalogueManifestYmlFilename, catalogueManifestYamlFilename, catalogueManifestYmlFilename]
+    }
 
-        when: "the find catalogues for user and org is called"
-        def result = catalogueManifestProvider.findCatalogueManifestsForOrg(anOrg, aUsername)
+    def "findCatalogueManifestIdsForOrg returns no catalogue manifests for an org without indexed manifest files"() {
+        when: "the catalogue manifests of the org are found"
+        def result = catalogueManifestProvider.findCatalogueManifestIdsForOrg(anOrg)
 
-        then: "github is search for instance manifest files"
-        1 * restApiClient.findFiles("spectacular-config", ["yaml", "yml"], "/", anOrg, null) >> searchCodeResults
+        then: "the catalogue manifest index has no manifest files for the org"
+        1 * catalogueManifestIndex.getCatalogueManifestLocations(anOrg) >> []
 
-        and: "no catalogues are returned"
+        and: "no catalogue manifests are returned"
         result.isEmpty()
+    }
+
+    def "getAccessibleCatalogueManifestIds filters out repos the user or app does not have access to"() {
+        given: "2 repositories with catalogue config manifest files, one of which the user or app does not have access to"
+        def repo1 = new RepositoryId("test-owner","test-repo1")
+        def repo2 = new RepositoryId("test-owner","test-repo2")
+        def manifestIds = [new CatalogueManifestId(repo1, catalogueManifestYmlFilename), new CatalogueManifestId(repo2, catalogueManifestYmlFilename)]
+
+        when: "the accessible catalogue manifests are found"
+        def result = catalogueManifestProvider.getAccessibleCatalogueManifestIds(manifestIds, aUsername)
 
-        and: "github is not checked if the user is a collaborator of any found repositories"
-        0 * restApiClient.isUserRepositoryCollaborator(*_)
+        then: "github is checked if the user is a collaborator of the repositories"
+        1 * repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], aUsername) >> ([repo2] as Set)
+
+        and: "only the accessible manifest file is returned"
+        result == [manifestIds[1]]
 
         and: "no file contents are retrieved"
+        0 * restApiClient.graphQlQuery(_)
         0 * restApiClient.getRepositoryContent(*_)
     }
+
+    def "getCatalogueManifestFileContents retrieves the manifest files and topics of their repositories in batches"() {
+        given: "3 catalogue config manifest files"
+        def repo1 = new RepositoryId("test-owner","test-repo1")
+        def repo2 = new RepositoryId("test-owner","test-repo2")
+        def repo3 = new RepositoryId("test-owner","test-repo3")
+        def manifestIds = [new CatalogueManifestId(repo1, catalogueManifestYmlFilename),
+                           new CatalogueManifestId(repo2, catalogueManifestYamlFilename),
+                           new CatalogueManifestId(repo3, catalogueManifestYmlFilename)]
+
+        when: "the contents of the manifest files are retrieved"
+        def result = catalogueManifestProvider.getCatalogueManifestFileContents(manifestIds)
+
+        then: "the manifest files of the first 2 repositories and their topics are retrieved in a single query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('manifest0: repository(owner: "test-owner", name: "test-repo1")') &&
+                    request.getQuery().contains('manifest1: repository(owner: "test-owner", name: "test-repo2")') &&
+                    request.getQuery().contains('manifestFile: object(expression: "HEAD:spectacular-config.yaml")')
+        }) >> aManifestFilesResponse([manifest0: aManifestFile("sha1"), manifest1: aManifestFile("sha2")])
+
+        and: "the manifest file of the last repository is retrieved in another query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('manifest0: repository(owner: "test-owner", name: "test-repo3")') && !request.getQuery().contains("manifest1")
+        }) >> aManifestFilesResponse([manifest0: aManifestFile("sha3")])
+
+        and: "no manifest files or topics are retrieved from the rest api"
+        0 * restApiClient.getRepositoryContent(*_)
+        0 * restApiClient.getRepositoryTopics(*_)
+
+        and: "the location and content of each manifest file is returned in order"
+        result*.getCatalogueManifestId() == manifestIds
+        result*.getCatalogueManifestContent()*.getSha() == ["sha1", "sha2", "sha3"]
+        result*.getRepositoryTopics()*.getNames() == [["topic1", "topic2"]] * 3
+    }
 }
@@ -19,6 +19,11 @@ import spectacular.backend.github.domain.ContentItem
 import spectacular.backend.interfaces.GetInterfaceFileContentsResult
 import spectacular.backend.interfaces.InterfaceService
 
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
 import spock.lang.Specification
 
 class CatalogueServiceTest extends Specification {
@@ -27,11 +32,17 @@ class CatalogueServiceTest extends Specification {
     def catalogueInterfaceEntryConfigurationResolver = Mock(CatalogueInterfaceEntryConfigurationResolver)
     def catalogueMapper = Mock(CatalogueMapper)
     def interfaceService = Mock(InterfaceService)
-    def catalogueService = new CatalogueService(catalogueEntryConfigurationResolver, catalogueInterfaceEntryConfigurationResolver, catalogueMapper, interfaceService)
+    def interfaceDetailsExecutor = Executors.newFixedThreadPool(4)
+    def interfaceDetailsDeadline = Duration.ofSeconds(5)
+    def catalogueService = new CatalogueService(catalogueEntryConfigurationResolver, catalogueInterfaceEntryConfigurationResolver, catalogueMapper, interfaceService, interfaceDetailsExecutor, interfaceDetailsDeadline)
 
     def aUsername = "test-user"
     def anOrg = "test-org"
 
+    def cleanup() {
+        interfaceDetailsExecutor.shutdownNow()
+    }
+
     def aCatalogueManifestId() {
         def catalogueRepo = new RepositoryId("test-owner","test-repo987")
         def catalogueManifestFile = catalogueManifestYmlFilename;
@@ -120,6 +131,165 @@ class CatalogueServiceTest extends Specification {
         result.getCatalogueDetails() == catalogueDetails
     }
 
+    def "get catalogue returns evolution summaries in interface entry order and leaves out interfaces not retrieved within the deadline"() {
+        given: "a catalogue config entry in the manifest file with three interface entries in it"
+        def catalogueId = aCatalogueId()
+        def interfaces = new Interfaces()
+                .withAdditionalProperty("interface1", Mock(Interface))
+                .withAdditionalProperty("interface2", Mock(Interface))
+                .withAdditionalProperty("interface3", Mock(Interface))
+        def catalogue = new spectacular.backend.cataloguemanifest.model.Catalogue().withInterfaces(interfaces)
+        def getCatalogueEntryConfigurationResult = aSuccessfulCatalogueEntryResult(catalogueId, catalogue)
+        def interfaceEntryNames = interfaces.getAdditionalProperties().keySet().toList()
+        def interfaceEntryResults = interfaceEntryNames.collect { aSuccessfulInterfaceEntryResult(interfaces.getAdditionalProperties().get(it)) }
+
+        and: "interface details for each interface entry with a spec evolution summary"
+        def specEvolutionSummaries = interfaceEntryNames.collect { Mock(SpecEvolutionSummary) }
+        def interfaceDetails = specEvolutionSummaries.collect { summary ->
+            def details = Mock(GetInterfaceResult)
+            details.getSpecEvolutionSummary() >> summary
+            return details
+        }
+
+        and: "an interface service that takes longer than the deadline to retrieve the details of the second interface"
+        def slowRetrievalInterrupted = new CountDownLatch(1)
+        def slowInterfaceService = new InterfaceService(null, null, null) {
+            @Override
+            GetInterfaceResult getInterfaceDetails(CatalogueInterfaceEntryConfigurationResolver.GetInterfaceEntryConfigurationResult interfaceEntryResult) {
+                def index = interfaceEntryResults.indexOf(interfaceEntryResult)
+                try {
+                    Thread.sleep(index == 1 ? 3000 : 100)
+                } catch (InterruptedException e) {
+                    slowRetrievalInterrupted.countDown()
+                    throw e
+                }
+                return interfaceDetails[index]
+            }
+        }
+
+        and: "a catalogue service with a short deadline for retrieving interface details"
+        def shortDeadlineCatalogueService = new CatalogueService(catalogueEntryConfigurationResolver, catalogueInterfaceEntryConfigurationResolver, catalogueMapper, slowInterfaceService, interfaceDetailsExecutor, Duration.ofSeconds(1))
+
+        and: "a catalogue API model representation of the catalogue manifest object without interface details"
+        def catalogueDetails = Mock(Catalogue)
+
+        when: "the get catalogue for user is called"
+        def result = shortDeadlineCatalogueService.getCatalogueForUser(catalogueId, aUsername)
+
+        then: "the catalogue entry configuration is resolved"
+        1 * catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, aUsername) >> getCatalogueEntryConfigurationResult
+
+        and: "the interface entry configurations are resolved"
+        3 * catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(getCatalogueEntryConfigurationResult, _) >> {
+            args -> interfaceEntryResults[interfaceEntryNames.indexOf(args[1])]
+        }
+
+        and: "the manifest catalogue entry object is mapped to an API catalogue model"
+        1 * catalogueMapper.mapCatalogue(getCatalogueEntryConfigurationResult) >> catalogueDetails
+
+        and: "the spec evolutions retrieved within the deadline are added in interface entry order"
+        1 * catalogueDetails.specEvolutionSummaries([specEvolutionSummaries[0], specEvolutionSummaries[2]]) >> catalogueDetails
+
+        and: "the mapped catalogue API model object is returned"
+        result.getCatalogueDetails() == catalogueDetails
+
+        and: "the retrieval that overran the deadline is interrupted"
+        slowRetrievalInterrupted.await(1, TimeUnit.SECONDS)
+    }
+
+    def "get catalogue leaves out the evolution summaries of interfaces that fail to be retrieved"() {
+        given: "a catalogue config entry in the manifest file with two interface entries in it"
+        def catalogueId = aCatalogueId()
+        def interfaces = new Interfaces()
+                .withAdditionalProperty("interface1", Mock(Interface))
+                .withAdditionalProperty("interface2", Mock(Interface))
+        def catalogue = new spectacular.backend.cataloguemanifest.model.Catalogue().withInterfaces(interfaces)
+        def getCatalogueEntryConfigurationResult = aSuccessfulCatalogueEntryResult(catalogueId, catalogue)
+        def interfaceEntryNames = interfaces.getAdditionalProperties().keySet().toList()
+        def interfaceEntryResults = interfaceEntryNames.collect { aSuccessfulInterfaceEntryResult(interfaces.getAdditionalProperties().get(it)) }
+
+        and: "interface details for the second interface entry with a spec evolution summary"
+        def specEvolutionSummary = Mock(SpecEvolutionSummary)
+        def interfaceDetails = Mock(GetInterfaceResult)
+        interfaceDetails.getSpecEvolutionSummary() >> specEvolutionSummary
+
+        and: "a catalogue API model representation of the catalogue manifest object without interface details"
+        def catalogueDetails = Mock(Catalogue)
+
+        when: "the get catalogue for user is called"
+        def result = catalogueService.getCatalogueForUser(catalogueId, aUsername)
+
+        then: "the catalogue entry configuration is resolved"
+        1 * catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, aUsername) >> getCatalogueEntryConfigurationResult
+
+        and: "the interface entry configurations are resolved"
+        2 * catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(getCatalogueEntryConfigurationResult, _) >> {
+            args -> interfaceEntryResults[interfaceEntryNames.indexOf(args[1])]
+        }
+
+        and: "the manifest catalogue entry object is mapped to an API catalogue model"
+        1 * catalogueMapper.mapCatalogue(getCatalogueEntryConfigurationResult) >> catalogueDetails
+
+        and: "the details of the first interface fail to be retrieved"
+        1 * interfaceService.getInterfaceDetails(interfaceEntryResults[0]) >> { throw new RuntimeException("something went wrong") }
+        1 * interfaceService.getInterfaceDetails(interfaceEntryResults[1]) >> interfaceDetails
+
+        and: "only the spec evolution of the interface that was retrieved is added"
+        1 * catalogueDetails.specEvolutionSummaries([specEvolutionSummary]) >> catalogueDetails
+
+        and: "the mapped catalogue API model object is returned"
+        result.getCatalogueDetails() == catalogueDetails
+    }
+
+    def "stream catalogue returns the catalogue and a pending evolution summary for each interface in manifest catalogue entry"() {
+        given: "a catalogue config entry in the manifest file with two interface entries in it"
+        def catalogueId = aCatalogueId()
+        def interfaces = new Interfaces()
+                .withAdditionalProperty("interface1", Mock(Interface))
+                .withAdditionalProperty("interface2", Mock(Interface))
+        def catalogue = new spectacular.backend.cataloguemanifest.model.Catalogue().withInterfaces(interfaces)
+        def getCatalogueEntryConfigurationResult = aSuccessfulCatalogueEntryResult(catalogueId, catalogue)
+        def interfaceEntryNames = interfaces.getAdditionalProperties().keySet().toList()
+        def interfaceEntryResults = interfaceEntryNames.collect {
+            def interfaceEntryResult = aSuccessfulInterfaceEntryResult(interfaces.getAdditionalProperties().get(it))
+            interfaceEntryResult.getInterfaceName() >> it
+            return interfaceEntryResult
+        }
+
+        and: "interface details for each interface entry with a spec evolution summary"
+        def specEvolutionSummaries = interfaceEntryNames.collect { Mock(SpecEvolutionSummary) }
+        def interfaceDetails = specEvolutionSummaries.collect { summary ->
+            def details = Mock(GetInterfaceResult)
+            details.getSpecEvolutionSummary() >> summary
+            return details
+        }
+
+        and: "a catalogue API model representation of the catalogue manifest object without interface details"
+        def catalogueDetails = Mock(Catalogue)
+
+        when: "the stream catalogue for user is called and the pending summaries are waited for"
+        def result = catalogueService.streamCatalogueForUser(catalogueId, aUsername)
+        def summaries = result.getPendingSpecEvolutionSummaries().values()*.join()
+
+        then: "the catalogue entry and interface entry configurations are resolved"
+        1 * catalogueEntryConfigurationResolver.getCatalogueEntryConfiguration(catalogueId, aUsername) >> getCatalogueEntryConfigurationResult
+        2 * catalogueInterfaceEntryConfigurationResolver.getCatalogueInterfaceEntryConfiguration(getCatalogueEntryConfigurationResult, _) >> {
+            args -> interfaceEntryResults[interfaceEntryNames.indexOf(args[1])]
+        }
+
+        and: "the manifest catalogue entry object is mapped to an API catalogue model without spec evolution summaries"
+        1 * catalogueMapper.mapCatalogue(getCatalogueEntryConfigurationResult) >> catalogueDetails
+        0 * catalogueDetails.specEvolutionSummaries(_)
+
+        and: "the interface details are retrieved for each interface entry in the catalogue"
+        2 * interfaceService.getInterfaceDetails(_) >> { args -> interfaceDetails[interfaceEntryResults.indexOf(args[0])] }
+
+        and: "the catalogue is returned with the pending spec evolution summaries in interface entry order"
+        result.getCatalogueDetails() == catalogueDetails
+        result.getPendingSpecEvolutionSummaries().keySet().toList() == interfaceEntryNames
+        summaries == specEvolutionSummaries
+    }
+
     def "get catalogue ignores interface entries in catalogue manifest with errors"() {
         given: "a location for a catalogue config"
         def catalogueId = aCatalogueId()
@@ -0,0 +1,88 @@
+package spectacular.backend.catalogues
+
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.test.web.servlet.setup.MockMvcBuilders
+import spectacular.backend.api.model.Catalogue
+import spectacular.backend.api.model.SpecEvolutionSummary
+import spectacular.backend.app.InstallationService
+import spectacular.backend.app.UserSessionTokenService
+import spectacular.backend.common.CatalogueId
+import spectacular.backend.common.RepositoryId
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+
+class CatalogueSummariesControllerTest extends Specification {
+    def catalogueService = Mock(CatalogueService)
+    def installationService = Mock(InstallationService)
+    def userSessionTokenService = Mock(UserSessionTokenService)
+    def controller = new CatalogueSummariesController(catalogueService, installationService, userSessionTokenService,
+            Duration.ofSeconds(5), Duration.ofSeconds(5))
+    def mockMvc = MockMvcBuilders.standaloneSetup(controller).build()
+
+    def anInstallationId = 123
+    def aCatalogueId = new CatalogueId(new RepositoryId("test-owner", "test-repo"), "spectacular-config.yml", "testCatalogue1")
+    def jwt = Jwt.withTokenValue("a-token").header("alg", "none").subject("test-user").build()
+
+    def setup() {
+        userSessionTokenService.getSessionTokenForInstallation(anInstallationId) >> jwt
+    }
+
+    def "StreamSpecEvolutionSummaries sends the summary of every interface before completing the stream"() {
+        given: "a catalogue with two interfaces whose summaries are still being retrieved"
+        def pendingSummary1 = new CompletableFuture<SpecEvolutionSummary>()
+        def pendingSummary2 = new CompletableFuture<SpecEvolutionSummary>()
+        def pendingSummaries = new LinkedHashMap<String, CompletableFuture<SpecEvolutionSummary>>()
+        pendingSummaries.put("interface1", pendingSummary1)
+        pendingSummaries.put("interface2", pendingSummary2)
+        catalogueService.streamCatalogueForUser(aCatalogueId, "test-user") >>
+                StreamCatalogueForUserResult.createFoundResult(new Catalogue().name("testCatalogue1"), pendingSummaries)
+
+        and: "the stream of the summaries has been requested"
+        def encodedId = Base64.getEncoder().encodeToString(aCatalogueId.getCombined().getBytes())
+        def mvcResult = mockMvc.perform(get("/catalogues/{installationId}/{encodedId}/spec-evolution-summaries", anInstallationId, encodedId))
+                .andReturn()
+
+        when: "the summaries are retrieved one after the other"
+        pendingSummary1.complete(new SpecEvolutionSummary().interfaceName("interface1"))
+        pendingSummary2.complete(new SpecEvolutionSummary().interfaceName("interface2"))
+        mvcResult.getAsyncResult(5000)
+
+        then: "the stream has the catalogue, then a summary event for each interface, then the complete event"
+        def events = mvcResult.getResponse().getContentAsString().readLines().findAll { it.startsWith("event:") }
+        events == ["event:catalogue", "event:spec-evolution-summary", "event:spec-evolution-summary", "event:complete"]
+
+        and: "the summaries of both interfaces were sent"
+        def content = mvcResult.getResponse().getContentAsString()
+        content.contains('"interfaceName":"interface1"')
+        content.contains('"interfaceName":"interface2"')
+    }
+
+    def "StreamSpecEvolutionSummaries sends an error event for an interface whose summary fails before completing the stream"() {
+        given: "a catalogue with two interfaces whose summaries are still being retrieved"
+        def pendingSummary1 = new CompletableFuture<SpecEvolutionSummary>()
+        def pendingSummary2 = new CompletableFuture<SpecEvolutionSummary>()
+        def pendingSummaries = new LinkedHashMap<String, CompletableFuture<SpecEvolutionSummary>>()
+        pendingSummaries.put("interface1", pendingSummary1)
+        pendingSummaries.put("interface2", pendingSummary2)
+        catalogueService.streamCatalogueForUser(aCatalogueId, "test-user") >>
+                StreamCatalogueForUserResult.createFoundResult(new Catalogue().name("testCatalogue1"), pendingSummaries)
+
+        and: "the stream of the summaries has been requested"
+        def encodedId = Base64.getEncoder().encodeToString(aCatalogueId.getCombined().getBytes())
+        def mvcResult = mockMvc.perform(get("/catalogues/{installationId}/{encodedId}/spec-evolution-summaries", anInstallationId, encodedId))
+                .andReturn()
+
+        when: "the first summary is retrieved and the last one fails to be"
+        pendingSummary1.complete(new SpecEvolutionSummary().interfaceName("interface1"))
+        pendingSummary2.completeExceptionally(new RuntimeException("failed"))
+        mvcResult.getAsyncResult(5000)
+
+        then: "the error event for the failed interface is sent before the complete event"
+        def events = mvcResult.getResponse().getContentAsString().readLines().findAll { it.startsWith("event:") }
+        events == ["event:catalogue", "event:spec-evolution-summary", "event:interface-error", "event:complete"]
+    }
+}
@@ -0,0 +1,15 @@
+package spectacular.backend.common
+
+import spock.lang.Specification
+
+class HashesTest extends Specification {
+    def "sha256Hex returns the lower case hex SHA-256 digest of a value"() {
+        expect: "the digest of a known value"
+        Hashes.sha256Hex("abc") == "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"
+    }
+
+    def "toHex writes out each byte as two lower case hex digits"() {
+        expect: "bytes with leading zeros and the sign bit set are written out in full"
+        Hashes.toHex([0x00, 0x0f, 0xab, 0xff] as byte[]) == "000fabff"
+    }
+}
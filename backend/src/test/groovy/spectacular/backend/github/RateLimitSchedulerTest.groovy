@@ -0,0 +1,196 @@
+package spectacular.backend.github
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpRequest
+import org.springframework.http.client.ClientHttpRequestExecution
+import org.springframework.http.client.ClientHttpResponse
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.Instant
+
+class RateLimitSchedulerTest extends Specification {
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def meterRegistry = new SimpleMeterRegistry()
+    def execution = Mock(ClientHttpRequestExecution)
+    def rateLimitScheduler = new RateLimitScheduler(appInstallationContextProvider, meterRegistry, Duration.ofSeconds(5),
+            Duration.ofSeconds(5), 0.2, Duration.ofMinutes(1), Duration.ofMinutes(15))
+
+    def setup() {
+        appInstallationContextProvider.setInstallationId("123")
+    }
+
+    def aRequest(String path) {
+        return Stub(HttpRequest) {
+            getURI() >> new URI("https://api.github.com" + path)
+        }
+    }
+
+    def aResponse(int statusCode, Map<String, String> headerValues, String body = "") {
+        def headers = new HttpHeaders()
+        headerValues.each { name, value -> headers.set(name, value) }
+        return Stub(ClientHttpResponse) {
+            getRawStatusCode() >> statusCode
+            getHeaders() >> headers
+            getBody() >> new ByteArrayInputStream(body.getBytes())
+        }
+    }
+
+    def rateLimitHeaders(int remaining) {
+        return ["X-RateLimit-Limit": "10", "X-RateLimit-Remaining": remaining.toString(),
+                "X-RateLimit-Reset": Instant.now().plus(Duration.ofHours(1)).getEpochSecond().toString()]
+    }
+
+    def throttledCount(String priority, String result) {
+        return meterRegistry.get("github.api.rate-limit.throttled").tag("priority", priority).tag("result", result).counter().count()
+    }
+
+    def "Intercept rejects requests once the rate limit of the installation is used up"() {
+        given: "a request that uses up the rate limit of the installation"
+        1 * execution.execute(_, _) >> aResponse(200, rateLimitHeaders(0))
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "another request is made before the rate limit resets"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo/tags"), new byte[0], execution)
+
+        then: "the request is rejected without being sent"
+        thrown(RateLimitExceededException)
+        0 * execution.execute(_, _)
+
+        and: "the rejected request and remaining budget are exposed as metrics"
+        throttledCount("interactive", "rejected") == 1
+        meterRegistry.get("github.api.rate-limit.remaining").tag("resource", "core").gauge().value() == 0
+    }
+
+    def "Intercept counts down the rate limit of the installation for each request sent"() {
+        given: "a response reporting 2 requests remaining"
+        1 * execution.execute(_, _) >> aResponse(200, rateLimitHeaders(2))
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "3 more requests are made before the rate limit resets"
+        2 * execution.execute(_, _) >> aResponse(200, [:])
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the request beyond the remaining budget is rejected"
+        thrown(RateLimitExceededException)
+    }
+
+    def "Intercept keeps a reserve of the rate limit for interactive requests"() {
+        given: "a response reporting 2 of 10 requests remaining"
+        execution.execute(_, _) >> aResponse(200, rateLimitHeaders(2))
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "a background request is made"
+        appInstallationContextProvider.setRequestPriority(RequestPriority.BACKGROUND)
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the background request is rejected as the remaining requests are reserved for interactive requests"
+        thrown(RateLimitExceededException)
+        throttledCount("background", "rejected") == 1
+
+        when: "an interactive request is made"
+        appInstallationContextProvider.setRequestPriority(RequestPriority.INTERACTIVE)
+        def response = rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the interactive request is sent"
+        response.getRawStatusCode() == 200
+    }
+
+    def "Intercept keeps separate budgets for each installation and rate limit resource"() {
+        given: "a request that uses up the graphql rate limit of the installation"
+        execution.execute(_, _) >> aResponse(200, rateLimitHeaders(0))
+        rateLimitScheduler.intercept(aRequest("/graphql"), new byte[0], execution)
+
+        when: "a core api request is made for the same installation"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        and: "a graphql request is made for another installation"
+        appInstallationContextProvider.setInstallationId("456")
+        rateLimitScheduler.intercept(aRequest("/graphql"), new byte[0], execution)
+
+        then: "both requests are sent"
+        noExceptionThrown()
+
+        when: "another graphql request is made for the first installation"
+        appInstallationContextProvider.setInstallationId("123")
+        rateLimitScheduler.intercept(aRequest("/graphql"), new byte[0], execution)
+
+        then: "the request is rejected"
+        thrown(RateLimitExceededException)
+    }
+
+    def "Intercept holds back requests for the Retry-After period of a secondary rate limit"() {
+        given: "a request that hits a secondary rate limit with a Retry-After header of 1 second"
+        1 * execution.execute(_, _) >> aResponse(403, ["Retry-After": "1"])
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+        def hitAt = System.nanoTime()
+
+        when: "another request is made"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the request is sent after the Retry-After period"
+        1 * execution.execute(_, _) >> aResponse(200, [:])
+        Duration.ofNanos(System.nanoTime() - hitAt) >= Duration.ofMillis(900)
+
+        and: "the delayed request is exposed as a metric"
+        throttledCount("interactive", "delayed") == 1
+    }
+
+    def "Intercept rejects requests while backing off from a secondary rate limit for longer than the request can wait"() {
+        given: "a request that hits a secondary rate limit without a Retry-After header"
+        1 * execution.execute(_, _) >> aResponse(429, [:])
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "another request is made during the backoff"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the request is rejected without being sent"
+        thrown(RateLimitExceededException)
+        0 * execution.execute(_, _)
+    }
+
+    def "Intercept backs off from a secondary rate limit reported by a 403 response without a Retry-After header"() {
+        given: "a request that hits a secondary rate limit reported with a 403 response while the rate limit has requests remaining"
+        1 * execution.execute(_, _) >> aResponse(403, rateLimitHeaders(5),
+                '{"message": "You have exceeded a secondary rate limit. Please wait a few minutes before you try again."}')
+        def response = rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "another request is made during the backoff"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the request is rejected without being sent"
+        thrown(RateLimitExceededException)
+        0 * execution.execute(_, _)
+
+        and: "the message of the 403 response can still be read"
+        response.getBody().text.contains("secondary rate limit")
+    }
+
+    def "Intercept does not back off for a 403 response that is not a rate limit"() {
+        given: "a request the installation does not have permission for"
+        1 * execution.execute(_, _) >> aResponse(403, rateLimitHeaders(5), '{"message": "Resource not accessible by integration"}')
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        when: "another request is made"
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        then: "the request is sent"
+        1 * execution.execute(_, _) >> aResponse(200, [:])
+    }
+
+    def "Intercept exposes the fewest requests remaining for any installation for each rate limit resource"() {
+        given: "responses reporting different numbers of requests remaining for 2 installations"
+        execution.execute(_, _) >>> [aResponse(200, rateLimitHeaders(7)), aResponse(200, rateLimitHeaders(3))]
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+        appInstallationContextProvider.setInstallationId("456")
+        rateLimitScheduler.intercept(aRequest("/repos/test-owner/test-repo"), new byte[0], execution)
+
+        expect: "a single remaining gauge for the resource reports the fewest requests remaining"
+        meterRegistry.find("github.api.rate-limit.remaining").tag("resource", "core").gauges().size() == 1
+        meterRegistry.get("github.api.rate-limit.remaining").tag("resource", "core").gauge().value() == 3
+    }
+}
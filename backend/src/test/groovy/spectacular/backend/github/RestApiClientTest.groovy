@@ -1,28 +1,37 @@
 package spectacular.backend.github
 
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.spockframework.spring.SpringBean
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
 import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpMethod
 import org.springframework.http.HttpRequest
+import org.springframework.http.HttpStatus
 import org.springframework.http.MediaType
 import org.springframework.http.client.ClientHttpRequestExecution
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory
 import org.springframework.test.web.client.MockRestServiceServer
+import org.springframework.web.client.HttpClientErrorException
 import spectacular.backend.common.RepositoryId
 import spectacular.backend.github.app.AppInstallationAuthenticationHeaderRequestInterceptor
+import spectacular.backend.github.app.AppInstallationContextProvider
 import spock.lang.Specification
 
 import java.time.OffsetDateTime
 import java.time.ZoneOffset
 
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.header
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess
 
-@RestClientTest(components = RestApiClient.class)
+@RestClientTest(components = [RestApiClient.class, RateLimitScheduler.class, ConditionalRequestCache.class])
 class RestApiClientTest extends Specification {
     @Autowired
     private RestApiClient client
@@ -30,6 +39,24 @@ class RestApiClientTest extends Specification {
     @Autowired
     private MockRestServiceServer server
 
+    @Autowired
+    private MeterRegistry meterRegistry
+
+    @TestConfiguration
+    static class InstallationContextConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry()
+        }
+
+        @Bean
+        AppInstallationContextProvider appInstallationContextProvider() {
+            def appInstallationContextProvider = new AppInstallationContextProvider()
+            appInstallationContextProvider.setInstallationId("123")
+            return appInstallationContextProvider
+        }
+    }
+
     @SpringBean
     AppInstallationAuthenticationHeaderRequestInterceptor appInstallationAuthenticationHeaderRequestInterceptor = Mock()
 
@@ -89,6 +116,55 @@ class RestApiClientTest extends Specification {
         contentItemResult.getLastModified() == lastModifiedDate
     }
 
+    def "GetRepositoryContentStream streams the raw content of a file"() {
+        given: "a content file to fetch"
+        def repo = new RepositoryId("testOwner", "testRepo")
+        def filePath = "specs/test-file.yaml"
+        def ref = "some-branch"
+
+        and: "the app installation authentication header interceptor to be used for the request"
+        1 * appInstallationAuthenticationHeaderRequestInterceptor.intercept(_,_,_) >> { HttpRequest request, byte[] body, ClientHttpRequestExecution execution ->
+            execution.execute(request, body)
+        }
+
+        expect: "the github content api endpoint to be called with a get and the raw media type accept header"
+        def repoNameWithOwner = repo.getNameWithOwner()
+        this.server.expect(requestTo("/repos/$repoNameWithOwner/contents/$filePath?ref=$ref"))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("Accept", "application/vnd.github.v3.raw"))
+                .andRespond(withSuccess("openapi: 3.0.1", MediaType.APPLICATION_OCTET_STREAM))
+
+        and: "the raw content of the file to be streamed back"
+        def contentStream = client.getRepositoryContentStream(repo, filePath, ref)
+        contentStream.getText("UTF-8") == "openapi: 3.0.1"
+
+        cleanup:
+        contentStream?.close()
+    }
+
+    def "GetRepositoryContentStream throws a not found error for a file that does not exist"() {
+        given: "a content file that does not exist"
+        def repo = new RepositoryId("testOwner", "testRepo")
+        def filePath = "specs/missing-file.yaml"
+
+        and: "the app installation authentication header interceptor to be used for the request"
+        1 * appInstallationAuthenticationHeaderRequestInterceptor.intercept(_,_,_) >> { HttpRequest request, byte[] body, ClientHttpRequestExecution execution ->
+            execution.execute(request, body)
+        }
+
+        and: "the github content api endpoint to respond with not found"
+        def repoNameWithOwner = repo.getNameWithOwner()
+        this.server.expect(requestTo("/repos/$repoNameWithOwner/contents/$filePath"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND))
+
+        when: "the content stream is requested"
+        client.getRepositoryContentStream(repo, filePath, null)
+
+        then: "a not found client error is thrown"
+        def exception = thrown(HttpClientErrorException)
+        exception.getStatusCode() == HttpStatus.NOT_FOUND
+    }
+
     def "findFiles"() {
         given: "a filename to find"
         def filename = "spectacular-app-config.yaml"
@@ -194,4 +270,44 @@ class RestApiClientTest extends Specification {
         searchCodeResults.getItems()[0].getRepository().getFull_name() == "pburls/specs-app"
         searchCodeResults.getItems()[0].getRepository().getHtml_url() == new URI("https://github.com/pburls/specs-app");
     }
+
+    def "GetRepositoryTopics revalidates a previous response with a conditional request"() {
+        given: "a repository to get the topics of"
+        def repo = new RepositoryId("testOwner", "testRepo")
+        def topicsUri = "/repos/${repo.getNameWithOwner()}/topics"
+
+        and: "a topics response with an ETag"
+        def responseContent = "{\"names\": [\"spectacular\", \"openapi\"]}"
+        def responseHeaders = new HttpHeaders()
+        responseHeaders.setETag("\"topics-etag\"")
+
+        and: "the app installation authentication header interceptor to be used for both requests"
+        2 * appInstallationAuthenticationHeaderRequestInterceptor.intercept(_,_,_) >> { HttpRequest request, byte[] body, ClientHttpRequestExecution execution ->
+            execution.execute(request, body)
+        }
+
+        expect: "the first request to be made without an If-None-Match header"
+        this.server.expect(requestTo(topicsUri))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess(responseContent, MediaType.APPLICATION_JSON).headers(responseHeaders))
+
+        and: "the second request to be made with the ETag of the first response and answered with not modified"
+        this.server.expect(requestTo(topicsUri))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"topics-etag\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED))
+
+        and: "both requests to return the topics of the first response"
+        client.getRepositoryTopics(repo).getNames() == ["spectacular", "openapi"]
+        client.getRepositoryTopics(repo).getNames() == ["spectacular", "openapi"]
+        this.server.verify()
+
+        and: "the not modified response to be counted against the topics endpoint"
+        def counter = { String result ->
+            meterRegistry.get("github.api.conditional.requests").tag("endpoint", "/repos/{repo}/topics").tag("result", result).counter().count()
+        }
+        counter("unconditional") == 1
+        counter("not-modified") == 1
+    }
 }
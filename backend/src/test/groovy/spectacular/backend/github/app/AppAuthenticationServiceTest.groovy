@@ -1,18 +1,27 @@
 package spectacular.backend.github.app
 
+import com.nimbusds.jose.crypto.RSASSAVerifier
 import com.nimbusds.jwt.SignedJWT
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter
 import spock.lang.Specification
 
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.security.KeyPairGenerator
+import java.security.interfaces.RSAPublicKey
 import java.time.Duration
+import java.time.Instant
 
 class AppAuthenticationServiceTest extends Specification {
+    def pemFilePath = "src/test/resources/spectacular-test-app.2019-12-01.private-key.pem"
+
     def "GenerateJWT"() {
-        given: "A GitHub App private key pem file path"
-        def pemFilePath = "src/test/resources/spectacular-test-app.2019-12-01.private-key.pem"
-        and: "App id"
+        given: "App id"
         def appId = "123456"
         and: "a AppAuthenticationService is create"
-        def appAuthenticationService = new AppAuthenticationService(appId, pemFilePath, Duration.ofSeconds(10))
+        def appAuthenticationService = new AppAuthenticationService(appId, pemFilePath, Duration.ofSeconds(10), Duration.ofSeconds(1))
 
         when: "a JWT is generated"
         def jwtContents = appAuthenticationService.generateJwt()
@@ -22,5 +31,49 @@ class AppAuthenticationServiceTest extends Specification {
         jwt.JWTClaimsSet.issuer == appId
         and: "the JWT expiration time is in the future"
         jwt.JWTClaimsSet.expirationTime > new Date()
+        and: "the JWT issue time is backdated to allow for clock drift"
+        jwt.JWTClaimsSet.issueTime < new Date()
+    }
+
+    def "GenerateJWT reuses the JWT until it is within the refresh margin of its expiry"() {
+        given: "a AppAuthenticationService creating JWTs valid for 2 seconds, reused until 1 second before they expire"
+        def appAuthenticationService = new AppAuthenticationService("123456", pemFilePath, Duration.ofSeconds(2), Duration.ofSeconds(1))
+
+        when: "JWTs are generated straight after each other"
+        def firstJwt = appAuthenticationService.generateJwt()
+        def secondJwt = appAuthenticationService.generateJwt()
+
+        then: "the same JWT is returned"
+        firstJwt == secondJwt
+
+        when: "a JWT is generated once the first is within the refresh margin"
+        sleep(1100)
+        def thirdJwt = appAuthenticationService.generateJwt()
+
+        then: "a new JWT is returned"
+        thirdJwt != firstJwt
+        SignedJWT.parse(thirdJwt).JWTClaimsSet.expirationTime > SignedJWT.parse(firstJwt).JWTClaimsSet.expirationTime
+    }
+
+    def "GenerateJWT signs new JWTs with the new private key once the key file has been modified"() {
+        given: "a private key file"
+        def keyFile = Files.createTempFile("app-private-key", ".pem")
+        Files.copy(Path.of(pemFilePath), keyFile, StandardCopyOption.REPLACE_EXISTING)
+        def appAuthenticationService = new AppAuthenticationService("123456", keyFile.toString(), Duration.ofSeconds(2), Duration.ofSeconds(2))
+        appAuthenticationService.generateJwt()
+
+        and: "the key file is replaced with a new private key"
+        def newKeyPair = KeyPairGenerator.getInstance("RSA").with { initialize(2048); generateKeyPair() }
+        keyFile.withWriter { writer -> new JcaPEMWriter(writer).withCloseable { it.writeObject(newKeyPair.getPrivate()) } }
+        Files.setLastModifiedTime(keyFile, FileTime.from(Instant.now().plusSeconds(60)))
+
+        when: "a new JWT is generated"
+        def jwt = SignedJWT.parse(appAuthenticationService.generateJwt())
+
+        then: "it is signed with the new private key"
+        jwt.verify(new RSASSAVerifier((RSAPublicKey) newKeyPair.getPublic()))
+
+        cleanup:
+        Files.deleteIfExists(keyFile)
     }
 }
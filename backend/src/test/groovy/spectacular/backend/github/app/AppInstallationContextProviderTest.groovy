@@ -0,0 +1,78 @@
+package spectacular.backend.github.app
+
+import spectacular.backend.InstallationContextTaskDecorator
+import spectacular.backend.github.RequestPriority
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.function.Supplier
+
+class AppInstallationContextProviderTest extends Specification {
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def executor = Executors.newFixedThreadPool(2)
+
+    def cleanup() {
+        executor.shutdownNow()
+        appInstallationContextProvider.clear()
+    }
+
+    def "the installation context set on one thread is not seen by another thread"() {
+        given: "an installation context set on the current thread"
+        appInstallationContextProvider.setInstallationId("123")
+
+        when: "the installation id is read on another thread"
+        def otherThreadInstallationId = CompletableFuture.supplyAsync({ -> appInstallationContextProvider.getContext().getInstallationId() },
+                executor).join()
+
+        then: "the other thread has no installation context"
+        otherThreadInstallationId == null
+        appInstallationContextProvider.getInstallationId() == "123"
+    }
+
+    def "a wrapped supplier runs in the installation context it was wrapped in, on any thread"() {
+        given: "a supplier wrapped in an installation context"
+        appInstallationContextProvider.setInstallationId("123")
+        appInstallationContextProvider.setRequestPriority(RequestPriority.BACKGROUND)
+        def supplier = appInstallationContextProvider.wrap({ -> appInstallationContextProvider.getContext() } as Supplier)
+
+        and: "the installation context of the current thread changes afterwards"
+        appInstallationContextProvider.setInstallationId("456")
+
+        when: "the supplier is run in a CompletableFuture chain on a pool thread"
+        def context = CompletableFuture.supplyAsync(supplier, executor).join()
+
+        then: "it sees the installation context it was wrapped in"
+        context == new AppInstallationContext("123", RequestPriority.BACKGROUND)
+    }
+
+    def "tasks decorated by the task decorator run in the installation context of the submitting thread and leave none behind"() {
+        given: "a task decorator and a task submitted in an installation context"
+        def taskDecorator = new InstallationContextTaskDecorator(appInstallationContextProvider)
+        appInstallationContextProvider.setInstallationId("123")
+        def taskInstallationId = null
+        def task = taskDecorator.decorate({ -> taskInstallationId = appInstallationContextProvider.getInstallationId() })
+
+        when: "the task is run on a pool thread, followed by an undecorated task on the same thread"
+        def singleThreadExecutor = Executors.newSingleThreadExecutor()
+        singleThreadExecutor.submit(task).get()
+        def afterwardsInstallationId = singleThreadExecutor.submit({ -> appInstallationContextProvider.getContext().getInstallationId() }
+                as Callable).get()
+        singleThreadExecutor.shutdown()
+
+        then: "the task ran in the installation context it was submitted in"
+        taskInstallationId == "123"
+
+        and: "the pool thread is left without an installation context"
+        afterwardsInstallationId == null
+    }
+
+    def "getInstallationId fails when no installation context has been set"() {
+        when:
+        appInstallationContextProvider.getInstallationId()
+
+        then:
+        thrown(AppInstallationContextNotSetException)
+    }
+}
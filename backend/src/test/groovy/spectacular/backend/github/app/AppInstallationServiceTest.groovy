@@ -1,14 +1,24 @@
 package spectacular.backend.github.app
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import spectacular.backend.github.domain.AccessTokenResult
 import spock.lang.Specification
 
+import java.time.Duration
 import java.time.ZonedDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
 
 class AppInstallationServiceTest extends Specification {
     def appApiClient = Mock(AppApiClient)
     def appInstallationAccessTokenStore = Mock(AppInstallationAccessTokenStore)
-    def appInstallationService = new AppInstallationService(appApiClient, appInstallationAccessTokenStore)
+    def meterRegistry = new SimpleMeterRegistry()
+    def backgroundRefreshes = []
+    def tokenRefreshExecutor = { Runnable refresh -> backgroundRefreshes.add(refresh) } as Executor
+    def appInstallationService = new AppInstallationService(appApiClient, appInstallationAccessTokenStore, meterRegistry,
+            tokenRefreshExecutor, Duration.ofSeconds(30), Duration.ofMinutes(2))
 
     def "GetAccessTokenForInstallation with no existing token for installation"() {
         given: "an app installation with no existing access token"
@@ -65,4 +75,85 @@ class AppInstallationServiceTest extends Specification {
         and: "the new valid token is returned"
         accessToken == newAccessToken
     }
+
+    def "GetAccessTokenForInstallation refreshes a token close to expiring in the background while still returning it"() {
+        given: "an app installation with an access token expiring soon, but valid for long enough to use"
+        def installationId = "95"
+        def expiringAccessToken = new AccessTokenResult("test-token-expiring", ZonedDateTime.now().plusMinutes(1))
+        def tokenStore = new AppInstallationAccessTokenStore()
+        tokenStore.putAccessTokenForInstallation(expiringAccessToken, installationId)
+        def service = new AppInstallationService(appApiClient, tokenStore, meterRegistry, tokenRefreshExecutor, Duration.ofSeconds(30),
+                Duration.ofMinutes(2))
+        and: "a new, 10 minute access token"
+        def newAccessToken = new AccessTokenResult("new-test-token", ZonedDateTime.now().plusMinutes(10))
+
+        when: "an access token is requested twice before the background refresh runs"
+        def firstAccessToken = service.getAccessTokenForInstallation(installationId)
+        def secondAccessToken = service.getAccessTokenForInstallation(installationId)
+
+        then: "the expiring token is returned without waiting for a new one"
+        firstAccessToken == expiringAccessToken
+        secondAccessToken == expiringAccessToken
+        0 * appApiClient.requestNewAppInstallationAccessToken(_)
+
+        and: "a single background refresh is scheduled"
+        backgroundRefreshes.size() == 1
+
+        when: "the background refresh runs"
+        backgroundRefreshes.each { it.run() }
+
+        then: "a new access token is created and used from then on"
+        1 * appApiClient.requestNewAppInstallationAccessToken(installationId) >> newAccessToken
+        service.getAccessTokenForInstallation(installationId) == newAccessToken
+
+        and: "the refresh latency is recorded"
+        meterRegistry.get("github.app.installation-token.refresh").tag("trigger", "ahead").tag("result", "success").timer().count() == 1
+    }
+
+    def "GetAccessTokenForInstallation creates a single new token for concurrent requests"() {
+        given: "an app installation with no existing access token and a slow GitHub api"
+        def installationId = "94"
+        def requestCount = new AtomicInteger()
+        def slowAppApiClient = Stub(AppApiClient) {
+            requestNewAppInstallationAccessToken(installationId) >> {
+                requestCount.incrementAndGet()
+                sleep(200)
+                new AccessTokenResult("new-test-token", ZonedDateTime.now().plusMinutes(10))
+            }
+        }
+        def service = new AppInstallationService(slowAppApiClient, new AppInstallationAccessTokenStore(), meterRegistry,
+                tokenRefreshExecutor, Duration.ofSeconds(30), Duration.ofMinutes(2))
+
+        when: "access tokens are requested for the installation concurrently"
+        def executor = Executors.newFixedThreadPool(4)
+        def accessTokens = executor.invokeAll((1..4).collect {
+            { -> service.getAccessTokenForInstallation(installationId) } as Callable
+        })*.get()
+        executor.shutdown()
+
+        then: "a single access token is created and returned to every request"
+        requestCount.get() == 1
+        accessTokens.toSet().size() == 1
+        meterRegistry.get("github.app.installation-token.refresh").tag("trigger", "on-demand").tag("result", "success").timer().count() == 1
+    }
+
+    def "GetAccessTokenForInstallation fails every request waiting for a token that could not be created"() {
+        given: "an app installation with no existing access token"
+        def installationId = "93"
+
+        when: "an access token is requested"
+        appInstallationService.getAccessTokenForInstallation(installationId)
+
+        then: "the failure to create a new token is thrown"
+        1 * appApiClient.requestNewAppInstallationAccessToken(installationId) >> { throw new IllegalStateException("failed") }
+        thrown(IllegalStateException)
+
+        when: "an access token is requested again"
+        def accessToken = appInstallationService.getAccessTokenForInstallation(installationId)
+
+        then: "creating a new token is tried again"
+        1 * appApiClient.requestNewAppInstallationAccessToken(installationId) >> new AccessTokenResult("new-test-token",
+                ZonedDateTime.now().plusMinutes(10))
+        accessToken.getToken() == "new-test-token"
+    }
 }
@@ -0,0 +1,115 @@
+package spectacular.backend.github.commitgraph
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.RestApiClient
+import spectacular.backend.github.graphql.GraphQlRequest
+import spectacular.backend.github.graphql.GraphQlResponse
+import spock.lang.Specification
+
+class CommitGraphRepositoryTest extends Specification {
+    def restApiClient = Mock(RestApiClient)
+    def commitGraphRepository = new CommitGraphRepository(restApiClient, 1000)
+
+    def repo = RepositoryId.createForNameWithOwner("test-owner/test-repo")
+
+    def historyPage(Map<String, Map> pagesByAlias) {
+        def refHistories = pagesByAlias.collectEntries { alias, page ->
+            [(alias): [
+                    name: alias,
+                    target: [
+                            oid: page.commits[0][0],
+                            history: [
+                                    pageInfo: [hasNextPage: page.hasNextPage, endCursor: page.endCursor],
+                                    nodes: page.commits.collect { commit ->
+                                        [oid: commit[0], parents: [totalCount: commit.size() - 1, nodes: commit.drop(1).collect { [oid: it] }]]
+                                    }
+                            ]
+                    ]
+            ]]
+        }
+        def json = new ObjectMapper().writeValueAsString([data: [refHistories: refHistories], errors: []])
+        return new ObjectMapper().readValue(json, GraphQlResponse)
+    }
+
+    def "GetCommitGraph pages through the history of all the branches together"() {
+        when: "the commit graph of a main and release branch is retrieved"
+        def commitGraph = commitGraphRepository.getCommitGraph(repo, ["main", "release/1"])
+
+        then: "the first page of both branches' history is requested in a single query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('refHistories: repository(owner: "test-owner", name: "test-repo")') &&
+                    request.getQuery().contains('history0: ref(qualifiedName: "refs/heads/main")') &&
+                    request.getQuery().contains('history1: ref(qualifiedName: "refs/heads/release/1")') &&
+                    request.getQuery().contains('history(first: 100)')
+        }) >> historyPage([
+                history0: [commits: [["head", "c2"], ["c2", "c1"]], hasNextPage: true, endCursor: "mainCursor"],
+                history1: [commits: [["release", "c2"]], hasNextPage: true, endCursor: "releaseCursor"]
+        ])
+
+        and: "the next page of both branches' history is requested after their cursors in a single query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('history(first: 100, after: "mainCursor")') &&
+                    request.getQuery().contains('history(first: 100, after: "releaseCursor")')
+        }) >> historyPage([
+                history0: [commits: [["c1", "root"], ["root"]], hasNextPage: false, endCursor: "mainCursor2"],
+                history1: [commits: [["c2", "c1"], ["c1", "root"]], hasNextPage: true, endCursor: "releaseCursor2"]
+        ])
+
+        and: "no further pages are requested as the main branch has no more history and the release branch brought no new commits"
+        0 * restApiClient.graphQlQuery(_)
+
+        and: "the commit graph has every commit fetched"
+        commitGraph.size() == 5
+
+        and: "the commit graph can compare the branches"
+        commitGraph.compare("head", "release").get().getAhead_by() == 1
+        commitGraph.compare("head", "release").get().getBehind_by() == 1
+    }
+
+    def "GetCommitGraph stops paging through a branch once a page brings no new commits"() {
+        when: "the commit graph of two branches on the same commits is retrieved"
+        def commitGraph = commitGraphRepository.getCommitGraph(repo, ["main", "release/1"])
+
+        then: "the first page of the release branch has no commits the main branch's page did not, so only the main branch is paged"
+        1 * restApiClient.graphQlQuery(_) >> historyPage([
+                history0: [commits: [["head", "c1"]], hasNextPage: true, endCursor: "mainCursor"],
+                history1: [commits: [["head", "c1"]], hasNextPage: true, endCursor: "releaseCursor"]
+        ])
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request -> !request.getQuery().contains('history1') }) >> historyPage([
+                history0: [commits: [["c1"]], hasNextPage: false, endCursor: null]
+        ])
+
+        and:
+        commitGraph.size() == 2
+    }
+
+    def "GetCommitGraph stops requesting pages once the max number of commits has been fetched"() {
+        given: "a commit graph repository that fetches up to 2 commits"
+        def limitedCommitGraphRepository = new CommitGraphRepository(restApiClient, 2)
+
+        when: "the commit graph is retrieved"
+        def commitGraph = limitedCommitGraphRepository.getCommitGraph(repo, ["main"])
+
+        then: "a single page is requested"
+        1 * restApiClient.graphQlQuery(_) >> historyPage([
+                history0: [commits: [["head", "c2"], ["c2", "c1"]], hasNextPage: true, endCursor: "mainCursor"]
+        ])
+
+        and: "the commit graph has the history cut off after the commits fetched"
+        commitGraph.size() == 2
+        commitGraph.compare("head", "c2").get().getBehind_by() == 1
+        !commitGraph.isOutsideHistoryOf("c0", "head")
+    }
+
+    def "GetCommitGraph makes no requests for no branches"() {
+        when: "the commit graph of no branches is retrieved"
+        def commitGraph = commitGraphRepository.getCommitGraph(repo, [])
+
+        then: "the history is not queried"
+        0 * restApiClient.graphQlQuery(_)
+
+        and: "the commit graph is empty"
+        commitGraph.size() == 0
+    }
+}
@@ -0,0 +1,104 @@
+package spectacular.backend.github.commitgraph
+
+import spock.lang.Specification
+
+class CommitGraphTest extends Specification {
+    // main:    head -> merge -> c2 -> c1 -> root
+    //                    \-> feature -> c1
+    // release: release -> c2
+    def fullHistory = [
+            head: ["merge"],
+            merge: ["c2", "feature"],
+            feature: ["c1"],
+            release: ["c2"],
+            c2: ["c1"],
+            c1: ["root"],
+            root: []
+    ]
+
+    def "Compare counts the commits reachable from only the head commit as ahead and from only the base commit as behind"() {
+        given: "a commit graph with the full history of the branches"
+        def commitGraph = CommitGraph.createFrom(fullHistory)
+
+        expect: "the comparison of the head commit to the base commit matches the compare api"
+        def comparison = commitGraph.compare(base, head).get()
+        comparison.getAhead_by() == aheadBy
+        comparison.getBehind_by() == behindBy
+        comparison.getStatus() == status
+
+        where:
+        base      | head      | aheadBy | behindBy | status
+        "head"    | "c1"      | 0       | 4        | "behind"
+        "head"    | "feature" | 0       | 3        | "behind"
+        "c2"      | "head"    | 3       | 0        | "ahead"
+        "head"    | "release" | 1       | 3        | "diverged"
+        "release" | "release" | 0       | 0        | "identical"
+    }
+
+    def "Compare gives no comparison for commits that are not in the graph"() {
+        given: "a commit graph with the full history of the branches"
+        def commitGraph = CommitGraph.createFrom(fullHistory)
+
+        expect: "no comparison is given"
+        commitGraph.compare("head", "unknown").isEmpty()
+        commitGraph.compare("unknown", "head").isEmpty()
+    }
+
+    def "Compare only gives comparisons that can not be changed by the commits beyond a cut off history"() {
+        given: "a commit graph with the history of the branches cut off at c2"
+        def commitGraph = CommitGraph.createFrom([
+                head: ["merge"],
+                merge: ["c2", "feature"],
+                feature: ["c1"],
+                c2: ["c1"]
+        ])
+
+        expect: "commits with the same cut off commits in their history can be compared"
+        commitGraph.compare("head", "merge").get().getBehind_by() == 1
+
+        and: "commits with different cut off commits in their history can not be compared"
+        commitGraph.compare("head", "c2").isEmpty()
+        commitGraph.compare("merge", "feature").isEmpty()
+        commitGraph.compare("c2", "feature").isEmpty()
+    }
+
+    def "Compare treats parents beyond the ones fetched as cut off"() {
+        given: "a commit graph with a commit with more parents than were fetched"
+        def commitGraph = CommitGraph.createFrom([
+                head: ["c1", null],
+                c1: []
+        ])
+
+        expect: "the commits can not be compared"
+        commitGraph.compare("head", "c1").isEmpty()
+    }
+
+    def "IsOutsideHistoryOf is true only for commits known not to be in the full history of the head commit"() {
+        given: "a commit graph with the full history of the branches"
+        def commitGraph = CommitGraph.createFrom(fullHistory)
+
+        expect:
+        commitGraph.isOutsideHistoryOf("release", "head")
+        commitGraph.isOutsideHistoryOf("unknown", "head")
+        !commitGraph.isOutsideHistoryOf("feature", "head")
+        !commitGraph.isOutsideHistoryOf("head", "unknown")
+    }
+
+    def "IsOutsideHistoryOf is false when the history of the head commit is cut off"() {
+        given: "a commit graph with the history of the branch cut off"
+        def commitGraph = CommitGraph.createFrom([
+                head: ["c1"],
+                c1: ["c0"]
+        ])
+
+        expect: "a commit not in the graph may be beyond the cut off history"
+        !commitGraph.isOutsideHistoryOf("unknown", "head")
+    }
+
+    def "An empty commit graph has no commits"() {
+        expect:
+        CommitGraph.empty().size() == 0
+        CommitGraph.empty().compare("head", "c1").isEmpty()
+        !CommitGraph.empty().isOutsideHistoryOf("c1", "head")
+    }
+}
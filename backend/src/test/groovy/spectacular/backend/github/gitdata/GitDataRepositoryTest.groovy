@@ -0,0 +1,452 @@
+package spectacular.backend.github.gitdata
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.boot.web.client.RestTemplateBuilder
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.ConditionalRequestCache
+import spectacular.backend.github.RateLimitScheduler
+import spectacular.backend.github.RestApiClient
+import spectacular.backend.github.app.AppInstallationAuthenticationHeaderRequestInterceptor
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spectacular.backend.github.graphql.ChangedFile
+import spectacular.backend.github.graphql.Connection
+import spectacular.backend.github.graphql.GraphQlRequest
+import spectacular.backend.github.graphql.GraphQlResponse
+import spectacular.backend.github.graphql.Repository
+import spectacular.backend.github.graphql.RepositoryRef
+import spectacular.backend.github.graphql.RepositoryWithPullRequests
+import spectacular.backend.github.graphql.ResponseData
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.OffsetDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+
+class GitDataRepositoryTest extends Specification {
+    def restApiClient = Mock(RestApiClient)
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def meterRegistry = new SimpleMeterRegistry()
+    def gitDataRepository = new GitDataRepository(restApiClient, appInstallationContextProvider, meterRegistry, 100, Duration.ofMinutes(1), 50)
+
+    def repo = RepositoryId.createForNameWithOwner("test-owner/test-repo")
+
+    def setup() {
+        appInstallationContextProvider.setInstallationId("123")
+    }
+
+    def aGraphQlResponse(errors = []) {
+        def repositoryWithPullRequests = new RepositoryWithPullRequests("test-owner/test-repo", new URI("some-url"), new Connection(0, []), null)
+        return new GraphQlResponse(new ResponseData(repositoryWithPullRequests), new ObjectMapper().valueToTree(errors))
+    }
+
+    def "GetGitData requests every ref selection under its own alias in a single query"() {
+        given: "a query for a main branch, tags and release branches"
+        def gitDataQuery = GitDataQuery.forRepository(repo)
+                .withBranches("main")
+                .withTags("v")
+                .withBranches("release/")
+                .withBranches("main")
+
+        when: "the git data is retrieved"
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "a single GraphQL query is made with an aliased refs connection for each distinct ref selection"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('repository(owner: "test-owner", name: "test-repo")') &&
+                    request.getQuery().contains('refs0: refs(refPrefix: "refs/heads/", first: 100, query: "main")') &&
+                    request.getQuery().contains('refs1: refs(refPrefix: "refs/tags/", first: 100, query: "v")') &&
+                    request.getQuery().contains('refs2: refs(refPrefix: "refs/heads/", first: 100, query: "release/")') &&
+                    !request.getQuery().contains('refs3') &&
+                    request.getQuery().contains('pullRequests(first: 100, states: [OPEN], orderBy: {field: CREATED_AT, direction: ASC})')
+        }) >> new GraphQlResponse(null, JsonNodeFactory.instance.arrayNode())
+    }
+
+    def "GetGitData requests all refs without a query filter for a null query"() {
+        given: "a query for all the tags"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withTags(null)
+
+        when: "the git data is retrieved"
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the tags refs connection has no query filter"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('refs0: refs(refPrefix: "refs/tags/", first: 100) {')
+        }) >> new GraphQlResponse(null, JsonNodeFactory.instance.arrayNode())
+    }
+
+    def "GetGitData maps the aliased refs connections of the response to their ref selections"() {
+        given: "a query for a main branch and tags"
+        def gitDataQuery = GitDataQuery.forRepository(repo)
+                .withBranches("main")
+                .withTags("v")
+
+        and: "a GraphQL response with the aliased refs connections"
+        def responseJson = """
+        {
+          "data": {
+            "repository": {
+              "nameWithOwner": "test-owner/test-repo",
+              "url": "https://github.com/test-owner/test-repo",
+              "pullRequests": { "totalCount": 0, "nodes": [] },
+              "refs0": { "totalCount": 1, "nodes": [ { "name": "main", "target": { "oid": "commit0" } } ] },
+              "refs1": { "totalCount": 2, "nodes": [
+                { "name": "v1", "target": { "oid": "commit1" } },
+                { "name": "v2", "target": { "oid": "tagObject2", "target": { "oid": "commit2" } } }
+              ] }
+            }
+          }
+        }
+        """
+        def graphQlResponse = new ObjectMapper().registerModule(new JavaTimeModule()).readValue(responseJson, GraphQlResponse)
+
+        when: "the git data is retrieved"
+        def gitData = gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the git data is queried"
+        1 * restApiClient.graphQlQuery(_) >> graphQlResponse
+
+        and: "the branches and tags are returned for their ref selections"
+        gitData.getBranches("main")*.getName() == ["main"]
+        gitData.getTags("v")*.getName() == ["v1", "v2"]
+
+        and: "the commit of an annotated tag is the commit its tag object points to"
+        gitData.getTags("v")*.getCommit() == ["commit1", "commit2"]
+    }
+
+    def "GetGitData pages through the refs and pull request files with more nodes than fit on a page in a single follow up query"() {
+        given: "a query for all the tags"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withTags(null)
+
+        and: "a first page with more tags and more changed files of a pull request to come"
+        def firstPageJson = """
+        {
+          "data": {
+            "repository": {
+              "nameWithOwner": "test-owner/test-repo",
+              "url": "https://github.com/test-owner/test-repo",
+              "pullRequests": { "totalCount": 1, "pageInfo": { "hasNextPage": false, "endCursor": "prs-end" }, "nodes": [
+                { "number": 7, "url": "https://github.com/test-owner/test-repo/pull/7", "updatedAt": "2020-01-01T00:00:00Z",
+                  "title": "a PR", "baseRefName": "main",
+                  "headRef": { "name": "feature", "repository": { "nameWithOwner": "test-owner/test-repo", "url": "some-url" } },
+                  "labels": { "totalCount": 0, "pageInfo": { "hasNextPage": false, "endCursor": null }, "nodes": [] },
+                  "files": { "totalCount": 2, "pageInfo": { "hasNextPage": true, "endCursor": "files-cursor" }, "nodes": [ { "path": "file1" } ] } }
+              ] },
+              "refs0": { "totalCount": 2, "pageInfo": { "hasNextPage": true, "endCursor": "tags-cursor" }, "nodes": [
+                { "name": "v1", "target": { "oid": "commit1" } }
+              ] }
+            }
+          }
+        }
+        """
+
+        and: "a second page with the rest of the tags and changed files"
+        def secondPageJson = """
+        {
+          "data": {
+            "repository": {
+              "refs0": { "totalCount": 2, "pageInfo": { "hasNextPage": false, "endCursor": "tags-end" }, "nodes": [
+                { "name": "v2", "target": { "oid": "commit2" } }
+              ] }
+            },
+            "pullRequestPages": {
+              "pr7": { "number": 7, "files": { "totalCount": 2, "pageInfo": { "hasNextPage": false, "endCursor": "files-end" }, "nodes": [ { "path": "file2" } ] } }
+            }
+          }
+        }
+        """
+        def objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+
+        when: "the git data is retrieved"
+        def gitData = gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the first page of every connection is queried"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request -> !request.getQuery().contains("after:") }) >>
+                objectMapper.readValue(firstPageJson, GraphQlResponse)
+
+        and: "the next pages of the tags and changed files are queried together after their cursors"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('refs0: refs(refPrefix: "refs/tags/", first: 100, after: "tags-cursor")') &&
+                    request.getQuery().contains('pr7: pullRequest(number: 7)') &&
+                    request.getQuery().contains('files(first: 100, after: "files-cursor")') &&
+                    !request.getQuery().contains('labels(') &&
+                    !request.getQuery().contains('pullRequests(')
+        }) >> objectMapper.readValue(secondPageJson, GraphQlResponse)
+
+        and: "the nodes of both pages are returned"
+        gitData.getTags(null)*.getName() == ["v1", "v2"]
+        gitData.getOpenPullRequests("main").first().getChangedFiles() == ["file1", "file2"]
+        !gitData.isIncomplete()
+    }
+
+    def "GetGitData stops paging through the git data after the maximum number of requests"() {
+        given: "a git data repository that makes at most 2 requests per query"
+        def limitedGitDataRepository = new GitDataRepository(restApiClient, appInstallationContextProvider, meterRegistry, 100, Duration.ofMinutes(1), 2)
+
+        and: "a tags connection that always has another page"
+        def pageJson = """
+        {
+          "data": {
+            "repository": {
+              "refs0": { "totalCount": 1000, "pageInfo": { "hasNextPage": true, "endCursor": "cursor" }, "nodes": [
+                { "name": "v1", "target": { "oid": "commit1" } }
+              ] }
+            }
+          }
+        }
+        """
+        def graphQlResponse = new ObjectMapper().registerModule(new JavaTimeModule()).readValue(pageJson, GraphQlResponse)
+
+        when: "the git data is retrieved"
+        def gitData = limitedGitDataRepository.getGitData(GitDataQuery.forRepository(repo).withTags(null))
+
+        then: "only 2 pages are queried"
+        2 * restApiClient.graphQlQuery(_) >> graphQlResponse
+
+        and: "the tags of those pages are returned"
+        gitData.getTags(null).size() == 2
+
+        and: "the git data is marked as incomplete"
+        gitData.isIncomplete()
+
+        when: "the git data is retrieved again"
+        limitedGitDataRepository.getGitData(GitDataQuery.forRepository(repo).withTags(null))
+
+        then: "it is requested again rather than served from the cache"
+        2 * restApiClient.graphQlQuery(_) >> graphQlResponse
+    }
+
+    def aPullRequestNode(int number, String title) {
+        return """
+                { "number": ${number}, "url": "https://github.com/test-owner/test-repo/pull/${number}", "updatedAt": "2020-01-01T00:00:00Z",
+                  "title": "${title}", "baseRefName": "main",
+                  "headRef": { "name": "feature${number}", "repository": { "nameWithOwner": "test-owner/test-repo", "url": "some-url" } },
+                  "labels": { "totalCount": 0, "pageInfo": { "hasNextPage": false, "endCursor": null }, "nodes": [] },
+                  "files": { "totalCount": 0, "pageInfo": { "hasNextPage": false, "endCursor": null }, "nodes": [] } }
+        """
+    }
+
+    def "GetGitData pages through the pull requests in the order they were created in and adds each only once"() {
+        given: "a first page of pull requests with more to come"
+        def firstPageJson = """
+        {
+          "data": {
+            "repository": {
+              "nameWithOwner": "test-owner/test-repo",
+              "url": "https://github.com/test-owner/test-repo",
+              "pullRequests": { "totalCount": 3, "pageInfo": { "hasNextPage": true, "endCursor": "prs-cursor" }, "nodes": [
+                ${aPullRequestNode(1, "first PR")}, ${aPullRequestNode(2, "second PR")}
+              ] }
+            }
+          }
+        }
+        """
+
+        and: "a second page on which a pull request of the first page appears again"
+        def secondPageJson = """
+        {
+          "data": {
+            "repository": {
+              "pullRequests": { "totalCount": 3, "pageInfo": { "hasNextPage": false, "endCursor": "prs-end" }, "nodes": [
+                ${aPullRequestNode(2, "second PR again")}, ${aPullRequestNode(3, "third PR")}
+              ] }
+            }
+          }
+        }
+        """
+        def objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+
+        when: "the git data is retrieved"
+        def gitData = gitDataRepository.getGitData(GitDataQuery.forRepository(repo))
+
+        then: "the first page of pull requests is queried in the order they were created in"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request -> !request.getQuery().contains("after:") }) >>
+                objectMapper.readValue(firstPageJson, GraphQlResponse)
+
+        and: "the next page is queried after the cursor of the first in the same order"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('pullRequests(first: 100, after: "prs-cursor", states: [OPEN], orderBy: {field: CREATED_AT, direction: ASC})')
+        }) >> objectMapper.readValue(secondPageJson, GraphQlResponse)
+
+        and: "every pull request is returned once, as it was first seen"
+        gitData.getOpenPullRequests("main")*.getNumber() == [1, 2, 3]
+        gitData.getOpenPullRequests("main")*.getTitle() == ["first PR", "second PR", "third PR"]
+        !gitData.isIncomplete()
+    }
+
+    def "GetGitData ignores pull requests from unknown branches"() {
+        given: "A repository and target branch"
+        def graphQlRepo = new Repository("test-owner/test-repo", new URI("some-url"))
+        def baseRefName = "base-branch"
+
+        and: "a Pull Request from a valid branch"
+        def validRef = new RepositoryRef("a-valid-branch-name", graphQlRepo, null)
+        def labels = new Connection(0, [])
+        def changedFiles = new Connection(1, [new ChangedFile("test-changed-file")])
+        def validPullRequest = new spectacular.backend.github.graphql.PullRequest(99, new URI("test-url"), labels, changedFiles, "valid PR title", OffsetDateTime.now(), validRef, baseRefName)
+
+        and: "a Pull Request from an unknown branch"
+        def unknownRef = null
+        def unknownPullRequest = new spectacular.backend.github.graphql.PullRequest(101, new URI("test-url2"), labels, changedFiles, "unknown branch PR title", OffsetDateTime.now(), unknownRef, baseRefName)
+
+        and: "the Pull Requests belong to the repository"
+        def pullRequestsConnection = new Connection(2, [validPullRequest, unknownPullRequest])
+        def repositoryWithPullRequests = new RepositoryWithPullRequests(graphQlRepo.getNameWithOwner(), graphQlRepo.getUrl(), pullRequestsConnection, null)
+        def graphQlResponseData = new ResponseData(repositoryWithPullRequests)
+        def graphQlReponse = new GraphQlResponse(graphQlResponseData, JsonNodeFactory.instance.arrayNode())
+
+        when: "the git data is retrieved"
+        def gitData = gitDataRepository.getGitData(GitDataQuery.forRepository(repo))
+
+        then: "the git data should have been queried from the GitHub GraphQL API for the repository"
+        1 * restApiClient.graphQlQuery(_) >> graphQlReponse
+
+        and: "only the valid Pull Request should be returned"
+        def pullRequests = gitData.getOpenPullRequests(baseRefName)
+        pullRequests.size() == 1
+        pullRequests.first().getBranchName() == "a-valid-branch-name"
+    }
+
+    def "GetGitData caches the git data for the installation of the request"() {
+        given: "a query for the main branch"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withBranches("main")
+
+        when: "the git data is retrieved twice with an equivalent query"
+        gitDataRepository.getGitData(gitDataQuery)
+        gitDataRepository.getGitData(GitDataQuery.forRepository(repo).withBranches("main"))
+
+        then: "the git data is only queried once"
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse()
+
+        when: "the git data is retrieved for another installation"
+        appInstallationContextProvider.setInstallationId("456")
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the git data is queried again for that installation"
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse()
+
+        and: "the cache hits and misses are exposed as metrics"
+        meterRegistry.get("cache.gets").tag("cache", "git-data").tag("result", "hit").functionCounter().count() == 1
+        meterRegistry.get("cache.gets").tag("cache", "git-data").tag("result", "miss").functionCounter().count() == 2
+    }
+
+    def "GetGitData does not cache git data retrieved with errors"() {
+        given: "a query for the main branch"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withBranches("main")
+
+        when: "the git data is retrieved twice"
+        gitDataRepository.getGitData(gitDataQuery)
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the git data is queried both times as the first response had errors"
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse([[message: "something went wrong"]])
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse()
+    }
+
+    def "Invalidate removes the git data cached for a repository for the installation of the request"() {
+        given: "a github api that counts the git data queries made"
+        def queryCount = 0
+        restApiClient.graphQlQuery(_) >> { queryCount++; aGraphQlResponse() }
+
+        and: "git data cached for a repository for two installations"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withBranches("main")
+        gitDataRepository.getGitData(gitDataQuery)
+        appInstallationContextProvider.setInstallationId("456")
+        gitDataRepository.getGitData(gitDataQuery)
+
+        and: "git data cached for another repository"
+        def otherRepoQuery = GitDataQuery.forRepository(RepositoryId.createForNameWithOwner("test-owner/other-repo")).withBranches("main")
+        gitDataRepository.getGitData(otherRepoQuery)
+
+        when: "the git data of the repository is invalidated for one of the installations"
+        gitDataRepository.invalidate(repo)
+
+        and: "the git data is retrieved again"
+        gitDataRepository.getGitData(gitDataQuery)
+        gitDataRepository.getGitData(otherRepoQuery)
+        appInstallationContextProvider.setInstallationId("123")
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "only the invalidated git data is queried again"
+        queryCount == 4
+    }
+
+    def "GetGitData collapses concurrent retrievals of the same git data into a single query"() {
+        given: "a github api that takes some time to respond"
+        def queryCount = new AtomicInteger()
+        def slowRestApiClient = new RestApiClient("https://api.github.com", new RestTemplateBuilder(), new HttpComponentsClientHttpRequestFactory(),
+                Mock(AppInstallationAuthenticationHeaderRequestInterceptor), Mock(RateLimitScheduler),
+                Mock(ConditionalRequestCache)) {
+            @Override
+            GraphQlResponse graphQlQuery(GraphQlRequest graphQlRequest) {
+                queryCount.incrementAndGet()
+                sleep(200)
+                return aGraphQlResponse()
+            }
+        }
+        def cachingGitDataRepository = new GitDataRepository(slowRestApiClient, appInstallationContextProvider, meterRegistry, 100, Duration.ofMinutes(1), 50)
+
+        when: "the same git data is retrieved concurrently"
+        def executor = Executors.newFixedThreadPool(4)
+        def getGitData = appInstallationContextProvider.wrap({ ->
+            cachingGitDataRepository.getGitData(GitDataQuery.forRepository(repo).withBranches("main"))
+        } as Supplier)
+        def results = executor.invokeAll((1..4).collect { { -> getGitData.get() } as Callable })*.get()
+        executor.shutdown()
+
+        then: "every retrieval gets the same git data from a single query"
+        queryCount.get() == 1
+        results.toSet().size() == 1
+    }
+
+    def "GetGitData does not cache git data that failed to be retrieved"() {
+        given: "a query for the main branch"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withBranches("main")
+
+        when: "the git data is retrieved and the github api fails"
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the query fails"
+        1 * restApiClient.graphQlQuery(_) >> { throw new RuntimeException("something went wrong") }
+        thrown(RuntimeException)
+
+        when: "the git data is retrieved again"
+        def gitData = gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the git data is queried again"
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse()
+        gitData != null
+    }
+
+    def "GetGitData does not leave the git data waiting to be retrieved when the retrieval fails with an error"() {
+        given: "a query for the main branch"
+        def gitDataQuery = GitDataQuery.forRepository(repo).withBranches("main")
+
+        when: "the git data is retrieved and the retrieval fails with an error rather than an exception"
+        gitDataRepository.getGitData(gitDataQuery)
+
+        then: "the error is thrown"
+        1 * restApiClient.graphQlQuery(_) >> { throw new StackOverflowError() }
+        thrown(StackOverflowError)
+
+        when: "the git data is retrieved again"
+        def executor = Executors.newSingleThreadExecutor()
+        def pendingGitData = executor.submit({
+            appInstallationContextProvider.setInstallationId("123")
+            gitDataRepository.getGitData(gitDataQuery)
+        } as Callable)
+        def gitData = pendingGitData.get(5, TimeUnit.SECONDS)
+        executor.shutdown()
+
+        then: "the git data is queried again rather than waiting on the failed retrieval"
+        1 * restApiClient.graphQlQuery(_) >> aGraphQlResponse()
+        gitData != null
+    }
+}
@@ -0,0 +1,137 @@
+package spectacular.backend.github.permissions
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.RestApiClient
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spectacular.backend.github.graphql.GraphQlRequest
+import spectacular.backend.github.graphql.GraphQlResponse
+import spock.lang.Specification
+
+import java.time.Duration
+
+class RepositoryPermissionResolverTest extends Specification {
+    def restApiClient = Mock(RestApiClient)
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def meterRegistry = new SimpleMeterRegistry()
+    def repositoryPermissionResolver = new RepositoryPermissionResolver(restApiClient, appInstallationContextProvider, meterRegistry, 100,
+            Duration.ofMinutes(1), 2)
+
+    def repo1 = RepositoryId.createForNameWithOwner("test-org/repo1")
+    def repo2 = RepositoryId.createForNameWithOwner("test-org/repo2")
+    def repo3 = RepositoryId.createForNameWithOwner("test-org/repo3")
+
+    def setup() {
+        appInstallationContextProvider.setInstallationId("123")
+    }
+
+    def aPermissionsResponse(Map<String, Integer> collaboratorCountsByAlias, Map<String, String> errorTypesByAlias = [:]) {
+        def data = collaboratorCountsByAlias.collectEntries { alias, count ->
+            [(alias): count == null ? null : [nameWithOwner: "test-org/" + alias, url: "some-url", collaborators: [totalCount: count]]]
+        }
+        def errors = errorTypesByAlias.collect { alias, type -> [type: type, path: [alias], message: "an error"] }
+        def objectMapper = new ObjectMapper()
+        return objectMapper.readValue(objectMapper.writeValueAsString([data: data, errors: errors]), GraphQlResponse)
+    }
+
+    def "GetAccessibleRepositories checks the repositories in batches of aliased repositories in single queries"() {
+        when: "the accessible repositories of a user are found for 3 repositories"
+        def accessibleRepositories = repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2, repo3], "test-user")
+
+        then: "the first 2 repositories are checked in a single query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('permission0: repository(owner: "test-org", name: "repo1")') &&
+                    request.getQuery().contains('permission1: repository(owner: "test-org", name: "repo2")') &&
+                    request.getQuery().contains('collaborators(login: "test-user", first: 1) { totalCount }')
+        }) >> aPermissionsResponse([permission0: 1, permission1: 0])
+
+        and: "the last repository is checked in another query"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('permission0: repository(owner: "test-org", name: "repo3")') && !request.getQuery().contains('permission1')
+        }) >> aPermissionsResponse([permission0: null])
+
+        and: "only the repository the user is a collaborator of is accessible"
+        accessibleRepositories == [repo1] as Set
+    }
+
+    def "GetAccessibleRepositories serves allow and deny decisions from the cache"() {
+        given: "the repositories have been checked for a user"
+        restApiClient.graphQlQuery(_) >> aPermissionsResponse([permission0: 1, permission1: 0])
+        repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "test-user")
+
+        when: "the repositories are checked again"
+        def isRepo1Accessible = repositoryPermissionResolver.isAccessible(repo1, "test-user")
+        def isRepo2Accessible = repositoryPermissionResolver.isAccessible(repo2, "test-user")
+
+        then: "no further queries are made"
+        0 * restApiClient.graphQlQuery(_)
+
+        and: "the cached decisions are returned"
+        isRepo1Accessible
+        !isRepo2Accessible
+    }
+
+    def "Invalidate removes the cached decisions of a user for a repository"() {
+        given: "the repositories have been checked for 2 users"
+        restApiClient.graphQlQuery(_) >> aPermissionsResponse([permission0: 1, permission1: 1])
+        repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "test-user")
+        repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "other-user")
+
+        when: "the decisions of one user for one repository are invalidated and all the repositories are checked again"
+        repositoryPermissionResolver.invalidate("Test-User", repo1)
+        repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "test-user")
+        repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "other-user")
+
+        then: "only the invalidated decision is checked again"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('name: "repo1"') && !request.getQuery().contains('name: "repo2"') &&
+                    request.getQuery().contains('login: "test-user"')
+        }) >> aPermissionsResponse([permission0: 0])
+        0 * restApiClient.graphQlQuery(_)
+    }
+
+    def "GetAccessibleRepositories caches a deny decision for a repository that was not found"() {
+        given: "a repository the installation has no access to was checked for a user"
+        restApiClient.graphQlQuery(_) >> aPermissionsResponse([permission0: null], [permission0: "NOT_FOUND"])
+        repositoryPermissionResolver.getAccessibleRepositories([repo1], "test-user")
+
+        when: "the repository is checked again"
+        def isAccessible = repositoryPermissionResolver.isAccessible(repo1, "test-user")
+
+        then: "the cached decision is returned without querying it again"
+        0 * restApiClient.graphQlQuery(_)
+        !isAccessible
+    }
+
+    def "GetAccessibleRepositories does not cache the decision for a repository that failed to be checked"() {
+        given: "2 repositories were checked for a user, one of which failed to be checked"
+        restApiClient.graphQlQuery(_) >> aPermissionsResponse([permission0: 1, permission1: null], [permission1: "RATE_LIMITED"])
+        def firstAccessibleRepositories = repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "test-user")
+
+        when: "the repositories are checked again"
+        def accessibleRepositories = repositoryPermissionResolver.getAccessibleRepositories([repo1, repo2], "test-user")
+
+        then: "only the repository that failed to be checked is queried again"
+        1 * restApiClient.graphQlQuery({ GraphQlRequest request ->
+            request.getQuery().contains('name: "repo2"') && !request.getQuery().contains('name: "repo1"')
+        }) >> aPermissionsResponse([permission0: 1])
+
+        and: "the repository that failed to be checked was not accessible until it could be checked"
+        firstAccessibleRepositories == [repo1] as Set
+        accessibleRepositories == [repo1, repo2] as Set
+    }
+
+    def "GetAccessibleRepositories shares the cached decisions of a user regardless of the case of their username"() {
+        given: "a repository has been checked for a user"
+        restApiClient.graphQlQuery(_) >> aPermissionsResponse([permission0: 1])
+        repositoryPermissionResolver.getAccessibleRepositories([repo1], "test-user")
+
+        when: "the repository is checked for the same user with their username in another case"
+        def isAccessible = repositoryPermissionResolver.isAccessible(repo1, "Test-User")
+
+        then: "the cached decision is returned"
+        0 * restApiClient.graphQlQuery(_)
+        isAccessible
+    }
+}
@@ -0,0 +1,67 @@
+package spectacular.backend.github.webhooks
+
+import spectacular.backend.cataloguemanifest.index.CatalogueManifestIndex
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.RequestPriority
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spectacular.backend.github.gitdata.GitDataRepository
+import spectacular.backend.specevolution.SpecEvolutionService
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class WebhookRefreshServiceTest extends Specification {
+    def gitDataRepository = Mock(GitDataRepository)
+    def specEvolutionService = Mock(SpecEvolutionService)
+    def catalogueManifestIndex = Mock(CatalogueManifestIndex)
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def scheduledRefreshes = []
+    def executor = { Runnable refresh -> scheduledRefreshes.add(refresh) } as Executor
+    def webhookRefreshService = new WebhookRefreshService(gitDataRepository, specEvolutionService, catalogueManifestIndex, appInstallationContextProvider, executor)
+
+    def repo = RepositoryId.createForNameWithOwner("test-owner/test-repo")
+
+    def "ScheduleRefresh invalidates and rebuilds the repository's data in a background installation context"() {
+        given: "a refresh scheduled for a repository"
+        webhookRefreshService.scheduleRefresh("123", repo)
+
+        when: "the refresh runs"
+        scheduledRefreshes.each { it.run() }
+
+        then: "the cached git data of the repository is invalidated in the installation context"
+        1 * gitDataRepository.invalidate(repo) >> {
+            assert appInstallationContextProvider.getInstallationId() == "123"
+            assert appInstallationContextProvider.getRequestPriority() == RequestPriority.BACKGROUND
+        }
+
+        then: "the spec evolutions of the repository are rebuilt"
+        1 * specEvolutionService.refreshSpecEvolutions(repo) >> 2
+
+        then: "the catalogue manifest file of the repository is indexed again"
+        1 * catalogueManifestIndex.refreshRepository(repo) >> true
+
+        and: "the background installation context is removed once the refresh is done"
+        appInstallationContextProvider.getContext().getInstallationId() == null
+        appInstallationContextProvider.getRequestPriority() == RequestPriority.INTERACTIVE
+    }
+
+    def "ScheduleRefresh merges refreshes of a repository that are waiting to start"() {
+        when: "several refreshes of the same repository are scheduled before they start"
+        def firstScheduled = webhookRefreshService.scheduleRefresh("123", repo)
+        def secondScheduled = webhookRefreshService.scheduleRefresh("123", RepositoryId.createForNameWithOwner("Test-Owner/Test-Repo"))
+        def otherInstallationScheduled = webhookRefreshService.scheduleRefresh("456", repo)
+
+        then: "only one refresh per installation is scheduled"
+        firstScheduled
+        !secondScheduled
+        otherInstallationScheduled
+        scheduledRefreshes.size() == 2
+
+        when: "the refreshes start and another refresh of the repository is scheduled"
+        scheduledRefreshes.each { it.run() }
+        def scheduledAfterStart = webhookRefreshService.scheduleRefresh("123", repo)
+
+        then: "the new refresh is scheduled"
+        scheduledAfterStart
+    }
+}
@@ -0,0 +1,37 @@
+package spectacular.backend.github.webhooks
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class WebhookSignatureVerifierTest extends Specification {
+    // the example from GitHub's documentation on validating webhook deliveries
+    def payload = "Hello, World!".getBytes(StandardCharsets.UTF_8)
+    def signature = "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17"
+
+    def "IsValidSignature accepts a payload signed with the webhook secret"() {
+        given: "a verifier with the webhook secret"
+        def webhookSignatureVerifier = new WebhookSignatureVerifier("It's a Secret to Everybody")
+
+        expect: "the signature of the payload to be valid"
+        webhookSignatureVerifier.isValidSignature(payload, signature)
+    }
+
+    def "IsValidSignature rejects a payload that was not signed with the webhook secret"() {
+        given: "a verifier with the webhook secret"
+        def webhookSignatureVerifier = new WebhookSignatureVerifier("It's a Secret to Everybody")
+
+        expect: "a tampered payload, a different signature or no signature to be invalid"
+        !webhookSignatureVerifier.isValidSignature("Hello, World?".getBytes(StandardCharsets.UTF_8), signature)
+        !webhookSignatureVerifier.isValidSignature(payload, "sha256=" + "0" * 64)
+        !webhookSignatureVerifier.isValidSignature(payload, null)
+    }
+
+    def "IsValidSignature rejects every payload when no webhook secret is configured"() {
+        given: "a verifier without a webhook secret"
+        def webhookSignatureVerifier = new WebhookSignatureVerifier("")
+
+        expect: "even a correctly signed payload to be invalid"
+        !webhookSignatureVerifier.isValidSignature(payload, signature)
+    }
+}
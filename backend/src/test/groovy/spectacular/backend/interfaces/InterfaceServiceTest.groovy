@@ -12,11 +12,12 @@ import spectacular.backend.cataloguemanifest.model.SpecFileLocation
 import spectacular.backend.common.CatalogueId
 import spectacular.backend.common.RepositoryId
 import spectacular.backend.github.RestApiClient
-import spectacular.backend.github.domain.ContentItem
 import spectacular.backend.specevolution.SpecEvolutionService
 import spectacular.backend.specevolution.SpecEvolutionSummaryMapper
 import spock.lang.Specification
 
+import java.nio.charset.StandardCharsets
+
 class InterfaceServiceTest extends Specification {
     def restApiClient = Mock(RestApiClient)
     def specEvolutionService = Mock(SpecEvolutionService)
@@ -45,19 +46,19 @@ class InterfaceServiceTest extends Specification {
 
         and: "content for the spec file at a given git ref"
         def ref = "some-ref"
-        def specFileContentItem = new ContentItem(specFilePath, specFilePath, "some-sha", "type?", null, "dGVzdCBmaWxlIGNvbnRlbnQ=", "base64")
+        def specFileContents = new ByteArrayInputStream("test file content".getBytes(StandardCharsets.UTF_8))
 
         when: "getting the interface file contents for the interface entry and git ref"
         def result = interfaceService.getInterfaceFileContents(catalogueId, interfaceEntry, ref)
 
         then: "the file contents are retrieved"
-        1 * restApiClient.getRepositoryContent(specFileRepoId, specFilePath, "some-ref") >> specFileContentItem
+        1 * restApiClient.getRepositoryContentStream(specFileRepoId, specFilePath, "some-ref") >> specFileContents
 
         and: "there is no error"
         !result.hasError()
 
-        and: "the decoded file contents are returned with yaml media type"
-        result.getInterfaceFileContents().contents == "test file content"
+        and: "the raw file contents are returned with yaml media type"
+        result.getInterfaceFileContents().contents.getText("UTF-8") == "test file content"
         result.getInterfaceFileContents().getMediaTypeGuess().toString() == "application/yaml"
     }
 
@@ -74,19 +75,19 @@ class InterfaceServiceTest extends Specification {
 
         and: "content for the spec file at a given git ref"
         def ref = "some-ref"
-        def specFileContentItem = new ContentItem(specFilePath, specFilePath, "some-sha", "type?", null, "dGVzdCBmaWxlIGNvbnRlbnQ=", "base64")
+        def specFileContents = new ByteArrayInputStream("test file content".getBytes(StandardCharsets.UTF_8))
 
         when: "getting the interface file contents for the interface entry and git ref"
         def result = interfaceService.getInterfaceFileContents(catalogueId, interfaceEntry, ref)
 
         then: "the file contents are retrieved from the catalogue's repo"
-        1 * restApiClient.getRepositoryContent(catalogueId.getRepositoryId(), specFilePath, "some-ref") >> specFileContentItem
+        1 * restApiClient.getRepositoryContentStream(catalogueId.getRepositoryId(), specFilePath, "some-ref") >> specFileContents
 
         and: "there is no error"
         !result.hasError()
 
-        and: "the decoded file contents are returned"
-        result.getInterfaceFileContents().contents == "test file content"
+        and: "the raw file contents are returned"
+        result.getInterfaceFileContents().contents.getText("UTF-8") == "test file content"
     }
 
     def "GetInterfaceFileContents returns config error for an interface without a spec file location"() {
@@ -117,7 +118,7 @@ class InterfaceServiceTest extends Specification {
         def result = interfaceService.getInterfaceFileContents(catalogueId, interfaceEntry, "some-ref")
 
         then: "the missing file contents are retrieved"
-        1 * restApiClient.getRepositoryContent(catalogueId.getRepositoryId(), specFilePath, "some-ref") >> { throw new HttpClientErrorException(HttpStatus.NOT_FOUND) }
+        1 * restApiClient.getRepositoryContentStream(catalogueId.getRepositoryId(), specFilePath, "some-ref") >> { throw new HttpClientErrorException(HttpStatus.NOT_FOUND) }
 
         and: "a not found error is returned"
         result.hasError()
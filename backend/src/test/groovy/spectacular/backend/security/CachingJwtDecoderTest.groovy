@@ -0,0 +1,71 @@
+package spectacular.backend.security
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.security.oauth2.jwt.JwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import spock.lang.Specification
+
+import java.time.Instant
+
+class CachingJwtDecoderTest extends Specification {
+    def jwtDecoder = Mock(JwtDecoder)
+    def meterRegistry = new SimpleMeterRegistry()
+    def cachingJwtDecoder = new CachingJwtDecoder(jwtDecoder, meterRegistry, 100)
+
+    def aJwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .subject("test-user")
+                .claim("installations", [123L])
+                .issuedAt(Instant.now().minusSeconds(10))
+                .expiresAt(expiresAt)
+                .build()
+    }
+
+    def "Decode verifies a token once and serves repeated requests with the same token from the cache"() {
+        given: "a valid session token"
+        def jwt = aJwt("token-1", Instant.now().plusSeconds(3600))
+
+        when: "the token is decoded twice"
+        def firstJwt = cachingJwtDecoder.decode("token-1")
+        def secondJwt = cachingJwtDecoder.decode("token-1")
+
+        then: "the token is only verified once"
+        1 * jwtDecoder.decode("token-1") >> jwt
+
+        and: "both decodes get the verified JWT"
+        firstJwt.is(jwt)
+        secondJwt.is(jwt)
+        meterRegistry.get("cache.gets").tag("cache", "session-jwt-claims").tag("result", "hit").functionCounter().count() == 1
+    }
+
+    def "Decode verifies a token again once it has expired"() {
+        given: "a session token that expires straight away"
+        def jwt = aJwt("token-1", Instant.now().plusMillis(100))
+
+        when: "the token is decoded before and after it expires"
+        cachingJwtDecoder.decode("token-1")
+        sleep(200)
+        cachingJwtDecoder.decode("token-1")
+
+        then: "the expired token is passed to the decoder again"
+        2 * jwtDecoder.decode("token-1") >> jwt
+    }
+
+    def "Decode does not cache tokens that fail to verify"() {
+        when: "an invalid token is decoded"
+        cachingJwtDecoder.decode("invalid-token")
+
+        then: "the failure is thrown"
+        1 * jwtDecoder.decode("invalid-token") >> { throw new JwtException("invalid") }
+        thrown(JwtException)
+
+        when: "the invalid token is decoded again"
+        cachingJwtDecoder.decode("invalid-token")
+
+        then: "it is verified again"
+        1 * jwtDecoder.decode("invalid-token") >> { throw new JwtException("invalid") }
+        thrown(JwtException)
+    }
+}
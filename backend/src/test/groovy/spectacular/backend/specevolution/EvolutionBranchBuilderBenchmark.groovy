@@ -0,0 +1,121 @@
+package spectacular.backend.specevolution
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.boot.web.client.RestTemplateBuilder
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.ConditionalRequestCache
+import spectacular.backend.github.RateLimitScheduler
+import spectacular.backend.github.RestApiClient
+import spectacular.backend.github.WebPageUrlGenerator
+import spectacular.backend.github.app.AppInstallationAuthenticationHeaderRequestInterceptor
+import spectacular.backend.github.commitgraph.CommitGraph
+import spectacular.backend.github.domain.Comparison
+import spectacular.backend.github.refs.BranchRef
+import spectacular.backend.github.refs.TagRef
+import spectacular.backend.specs.SpecService
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * Measures how the latency of generating the evolution items of a branch grows with the number of tags on the repository.
+ * Each tag comparison made through the compare API is simulated with a fixed GitHub API round trip latency. The GitHub API client is overridden directly rather than
+ * stubbed because spock serialises invocations on its mocks, which would hide any concurrency.
+ *
+ * Run with: SPECTACULAR_BENCHMARKS=true ./gradlew test --tests '*EvolutionBranchBuilderBenchmark'
+ */
+@Requires({ env.containsKey("SPECTACULAR_BENCHMARKS") })
+class EvolutionBranchBuilderBenchmark extends Specification {
+    static final Logger logger = LoggerFactory.getLogger(EvolutionBranchBuilderBenchmark)
+    static final int COMPARISON_LATENCY_MILLIS = 50
+
+    def specFileRepoId = RepositoryId.createForNameWithOwner("test-owner/test-repo")
+    def specFilePath = "spec-file.yaml"
+    def branch = new BranchRef("main", "headCommit")
+
+    @Unroll
+    def "generating evolution items for #tagCount tags with a max concurrency of #maxConcurrency"() {
+        given: "a github api that takes a fixed time to compare a tag to a branch"
+        def restApiClient = new RestApiClient("https://api.github.com", new RestTemplateBuilder(), new HttpComponentsClientHttpRequestFactory(),
+                Mock(AppInstallationAuthenticationHeaderRequestInterceptor), Mock(RateLimitScheduler),
+                Mock(ConditionalRequestCache)) {
+            @Override
+            Comparison getComparison(RepositoryId repo, String base, String head) {
+                sleep(COMPARISON_LATENCY_MILLIS)
+                return new Comparison(null, "behind", 0, Math.abs(head.hashCode() % 10) + 1, 1)
+            }
+        }
+
+        and: "an evolution branch builder with a bounded tag comparison pool"
+        def tagComparisonExecutor = Executors.newFixedThreadPool(maxConcurrency)
+        def evolutionBranchBuilder = new EvolutionBranchBuilder(restApiClient, Mock(SpecService), Mock(WebPageUrlGenerator), tagComparisonExecutor)
+
+        and: "a number of tags behind the branch head"
+        def tags = (1..tagCount).collect { new TagRef("v1.0.$it", "commit$it") }
+
+        when: "the evolution items are generated"
+        def start = System.nanoTime()
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tags, [], CommitGraph.empty())
+        def elapsedMillis = (System.nanoTime() - start).intdiv(1_000_000)
+        tagComparisonExecutor.shutdown()
+
+        and: "the latency is reported"
+        logger.info("tags: {}, max concurrency: {}, latency: {}ms, serial estimate: {}ms", tagCount, maxConcurrency, elapsedMillis,
+                tagCount * COMPARISON_LATENCY_MILLIS)
+
+        then: "every tag has been assigned an evolution item"
+        evolutionItems.sum { it.getTags().size() } == tagCount
+
+        where:
+        tagCount | maxConcurrency
+        10       | 1
+        10       | 4
+        50       | 1
+        50       | 4
+        100      | 1
+        100      | 4
+        100      | 8
+    }
+
+    @Unroll
+    def "generating evolution items for #tagCount tags from a commit graph of #commitCount commits"() {
+        given: "a github api that is never called"
+        def restApiClient = Mock(RestApiClient)
+        def evolutionBranchBuilder = new EvolutionBranchBuilder(restApiClient, Mock(SpecService), Mock(WebPageUrlGenerator), { Runnable task -> task.run() } as Executor)
+
+        and: "a commit graph with the full linear history of the branch"
+        def history = new LinkedHashMap<String, List<String>>()
+        history.put(branch.getCommit(), ["commit1"])
+        (1..<commitCount).each { history.put("commit$it".toString(), ["commit${it + 1}".toString()]) }
+        history.put("commit$commitCount".toString(), [])
+        def commitGraph = CommitGraph.createFrom(history)
+
+        and: "a number of tags spread along the history of the branch"
+        def tags = (1..tagCount).collect { new TagRef("v1.0.$it", "commit${it * commitCount.intdiv(tagCount)}") }
+
+        when: "the evolution items are generated"
+        def start = System.nanoTime()
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tags, [], commitGraph)
+        def elapsedMillis = (System.nanoTime() - start).intdiv(1_000_000)
+
+        and: "the latency is reported"
+        logger.info("tags: {}, commits: {}, latency: {}ms", tagCount, commitCount, elapsedMillis)
+
+        then: "no tag has been compared using the compare api"
+        0 * restApiClient.getComparison(*_)
+
+        and: "every tag has been assigned an evolution item"
+        evolutionItems.sum { it.getTags().size() } == tagCount
+
+        where:
+        tagCount | commitCount
+        10       | 1000
+        100      | 1000
+        100      | 10000
+    }
+}
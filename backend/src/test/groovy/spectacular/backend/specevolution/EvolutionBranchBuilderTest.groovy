@@ -4,6 +4,7 @@ package spectacular.backend.specevolution
 import spectacular.backend.common.RepositoryId
 import spectacular.backend.github.RestApiClient
 import spectacular.backend.github.WebPageUrlGenerator
+import spectacular.backend.github.commitgraph.CommitGraph
 import spectacular.backend.github.domain.Comparison
 import spectacular.backend.github.pullrequests.PullRequest
 import spectacular.backend.github.refs.BranchRef
@@ -12,23 +13,29 @@ import spectacular.backend.specs.SpecService
 import spock.lang.Specification
 
 import java.time.OffsetDateTime
+import java.util.concurrent.Executors
 
 class EvolutionBranchBuilderTest extends Specification {
     def restApiClient = Mock(RestApiClient)
     def specService = Mock(SpecService)
     def webPageURLGenerator = Mock(WebPageUrlGenerator)
-    def evolutionBranchBuilder = new EvolutionBranchBuilder(restApiClient, specService, webPageURLGenerator)
+    def tagComparisonExecutor = Executors.newFixedThreadPool(4)
+    def evolutionBranchBuilder = new EvolutionBranchBuilder(restApiClient, specService, webPageURLGenerator, tagComparisonExecutor)
 
     def specFileRepoId = RepositoryId.createForNameWithOwner("test-owner/test-repo")
     def specFilePath = "spec-file.yaml"
 
+    def cleanup() {
+        tagComparisonExecutor.shutdownNow()
+    }
+
     def "GenerateEvolutionItems an evolution item for the head commit of the branch"() {
         given: "a spec file repository and branch"
         def branchName = "test-branch"
         def branch = new BranchRef(branchName, "1234asdf5678")
 
         when: "generating the evolution items for the branch"
-        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [], [])
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [], [], CommitGraph.empty())
 
         then: "a spec evolution item for the head commit is returned"
         evolutionItems.size() == 1
@@ -55,7 +62,7 @@ class EvolutionBranchBuilderTest extends Specification {
         def tagList = [behindTag, aheadTag]
 
         when: "generating the evolution items for the branch"
-        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [])
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [], CommitGraph.empty())
 
         then: "both tags are compared to the branch"
         1 * restApiClient.getComparison(specFileRepoId, branch.getName(), behindTag.getName()) >> behindTagComparison
@@ -87,7 +94,7 @@ class EvolutionBranchBuilderTest extends Specification {
         def tagList = [behindTag, behindTag2]
 
         when: "generating the evolution items for the branch"
-        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [])
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [], CommitGraph.empty())
 
         then: "both tags are compared to the branch"
         1 * restApiClient.getComparison(specFileRepoId, branch.getName(), behindTag.getName()) >> behindTagComparison
@@ -110,7 +117,7 @@ class EvolutionBranchBuilderTest extends Specification {
         def tagList = [onHeadTag]
 
         when: "generating the evolution items for the branch"
-        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [])
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, tagList, [], CommitGraph.empty())
 
         then: "only a spec evolution item for the head commit is returned"
         evolutionItems.size() == 1
@@ -132,7 +139,7 @@ class EvolutionBranchBuilderTest extends Specification {
         def pullRequest = new PullRequest(specFileRepoId, prBranch, releaseBranch.getName(), 99, new URI("https://test-url"), [], [], "test-pr", OffsetDateTime.now())
 
         when: "generating the evolution items for the branch"
-        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, releaseBranch, [], [pullRequest])
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, releaseBranch, [], [pullRequest], CommitGraph.empty())
 
         then: "2 spec evolution items are returned"
         evolutionItems.size() == 2
@@ -165,7 +172,7 @@ class EvolutionBranchBuilderTest extends Specification {
         def pullRequest = new PullRequest(specFileRepoId, prBranch, branch.getName(), 99, new URI("https://test-url"), [], [], "test-pr", OffsetDateTime.now())
 
         when: "generating the evolution items for the branch"
-        evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [behindTag], [pullRequest])
+        evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [behindTag], [pullRequest], CommitGraph.empty())
 
         then: "the spec item for the branch is retrieved"
         1 * specService.getSpecItem(specFileRepoId, specFilePath, branchName)
@@ -176,4 +183,59 @@ class EvolutionBranchBuilderTest extends Specification {
         and: "the spec item htmlUrl for the pr is generated"
         1 * webPageURLGenerator.generateContentPageUrl(specFileRepoId, prBranch, specFilePath)
     }
+
+    def "GenerateEvolutionItems compares tags to the branch using the commit graph where it can"() {
+        given: "a spec file repository and branch"
+        def branch = new BranchRef("test-branch", "headCommit")
+
+        and: "a commit graph with the history of the branch cut off after a few commits"
+        def commitGraph = CommitGraph.createFrom([
+                headCommit: ["commit1"],
+                commit1: ["commit2"],
+                commit2: ["cutOffCommit"]
+        ])
+
+        and: "a tag in the commit graph history of the branch"
+        def graphTag = new TagRef("graphTag", "commit2")
+
+        and: "a tag beyond the commit graph history of the branch"
+        def olderTag = new TagRef("olderTag", "olderCommit")
+        def olderTagComparison = new Comparison(null, "behind", 0, 5, 0)
+
+        when: "generating the evolution items for the branch"
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [graphTag, olderTag], [], commitGraph)
+
+        then: "only the tag beyond the commit graph history is compared to the branch using the compare api"
+        0 * restApiClient.getComparison(specFileRepoId, branch.getName(), graphTag.getName())
+        1 * restApiClient.getComparison(specFileRepoId, branch.getName(), olderTag.getName()) >> olderTagComparison
+
+        and: "evolution items are returned for both tags ordered by the number of commits they are behind"
+        evolutionItems.size() == 3
+        evolutionItems[1].getTags() == [graphTag.getName()]
+        evolutionItems[2].getTags() == [olderTag.getName()]
+    }
+
+    def "GenerateEvolutionItems leaves out tags known not to be in the history of the branch without comparing them"() {
+        given: "a spec file repository and branch"
+        def branch = new BranchRef("test-branch", "headCommit")
+
+        and: "a commit graph with the full history of the branch"
+        def commitGraph = CommitGraph.createFrom([
+                headCommit: ["commit1"],
+                commit1: []
+        ])
+
+        and: "a tag on a commit that is not in the history of the branch"
+        def otherBranchTag = new TagRef("otherBranchTag", "otherBranchCommit")
+
+        when: "generating the evolution items for the branch"
+        def evolutionItems = evolutionBranchBuilder.generateEvolutionItems(specFileRepoId, specFilePath, branch, [otherBranchTag], [], commitGraph)
+
+        then: "the tag is not compared to the branch"
+        0 * restApiClient.getComparison(*_)
+
+        and: "only the branch head evolution item is returned"
+        evolutionItems.size() == 1
+        evolutionItems[0].getBranchName() == branch.getName()
+    }
 }
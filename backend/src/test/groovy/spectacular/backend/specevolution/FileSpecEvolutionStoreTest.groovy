@@ -0,0 +1,58 @@
+package spectacular.backend.specevolution
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.SerializationFeature
+import spectacular.backend.api.model.EvolutionBranch
+import spectacular.backend.api.model.SpecEvolution
+import spectacular.backend.common.RepositoryId
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class FileSpecEvolutionStoreTest extends Specification {
+    def directory = Files.createTempDirectory("spec-evolutions")
+    def objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+    def specRepoId = RepositoryId.createForNameWithOwner("test/repo")
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def aKey(String refFingerprint) {
+        return new SpecEvolutionStoreKey(specRepoId, "spec.yaml", refFingerprint)
+    }
+
+    def "a saved spec evolution is found by another store using the same directory"() {
+        given: "a spec evolution saved by a store"
+        def specEvolution = new SpecEvolution().interfaceName("interface1").main(new EvolutionBranch().branchName("main"))
+        new FileSpecEvolutionStore(objectMapper, directory.toString(), 10).save(aKey("fingerprint1"), specEvolution)
+
+        when: "another store finds the spec evolution"
+        def otherStore = new FileSpecEvolutionStore(objectMapper, directory.toString(), 10)
+        def found = otherStore.find(aKey("fingerprint1"))
+
+        then: "the spec evolution is read from the directory"
+        found.isPresent()
+        found.get().getInterfaceName() == "interface1"
+        found.get().getMain().getBranchName() == "main"
+
+        and: "nothing is found for other refs"
+        !otherStore.find(aKey("fingerprint2")).isPresent()
+    }
+
+    def "only the most recently saved spec evolutions of a spec file are kept"() {
+        given: "a store keeping two spec evolutions per spec file"
+        def store = new FileSpecEvolutionStore(objectMapper, directory.toString(), 2)
+
+        when: "three spec evolutions of the spec file are saved"
+        ["fingerprint1", "fingerprint2", "fingerprint3"].each { fingerprint ->
+            store.save(aKey(fingerprint), new SpecEvolution().interfaceName(fingerprint))
+            sleep(20)
+        }
+
+        then: "the first spec evolution saved has been deleted"
+        !store.find(aKey("fingerprint1")).isPresent()
+        store.find(aKey("fingerprint2")).isPresent()
+        store.find(aKey("fingerprint3")).isPresent()
+    }
+}
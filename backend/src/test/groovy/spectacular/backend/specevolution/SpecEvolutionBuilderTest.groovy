@@ -41,7 +41,7 @@ class SpecEvolutionBuilderTest extends Specification {
         def specEvolution = specEvolutionBuilder.generateSpecEvolution(interfaceName, specRepoId, specFilePath, specEvolutionData)
 
         then: "the evolutionBranchBuilder is called for the main branch"
-        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, mainBranchRef, _, _) >> []
+        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, mainBranchRef, _, _, _) >> []
     }
 
     def "GenerateSpecEvolution returns release branches if release branches were found"() {
@@ -56,8 +56,8 @@ class SpecEvolutionBuilderTest extends Specification {
         def specEvolution = specEvolutionBuilder.generateSpecEvolution(interfaceName, specRepoId, specFilePath, specEvolutionData)
 
         then: "the evolutionBranchBuilder is called for each release branch"
-        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef1, _, _) >> []
-        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef2, _, _) >> []
+        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef1, _, _, _) >> []
+        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef2, _, _, _) >> []
     }
 
     def "GenerateSpecEvolution uses a tag only once per branch"() {
@@ -80,9 +80,9 @@ class SpecEvolutionBuilderTest extends Specification {
         def specEvolution = specEvolutionBuilder.generateSpecEvolution(interfaceName, specRepoId, specFilePath, specEvolutionData)
 
         then: "the evolutionBranchBuilder is called for the first release branch with both tags"
-        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef1, [tagRef1, tagRef2], _) >> releaseBranch1EvolutionItems
+        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef1, [tagRef1, tagRef2], _, _) >> releaseBranch1EvolutionItems
 
         and: "the evolutionBranchBuilder is called for the second release branch with the unused tag"
-        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef2, [tagRef2], _) >> []
+        1 * evolutionBranchBuilder.generateEvolutionItems(specRepoId, specFilePath, releaseBranchRef2, [tagRef2], _, _) >> []
     }
 }
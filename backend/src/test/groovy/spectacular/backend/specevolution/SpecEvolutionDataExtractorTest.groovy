@@ -5,139 +5,179 @@ import spectacular.backend.cataloguemanifest.model.ReleaseBranchConfig
 import spectacular.backend.cataloguemanifest.model.ReleaseTagConfig
 import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig
 import spectacular.backend.common.RepositoryId
-import spectacular.backend.github.pullrequests.PullRequestRepository
-import spectacular.backend.github.refs.BranchRef
-import spectacular.backend.github.refs.RefRepository
-import spectacular.backend.github.refs.TagRef
+import spectacular.backend.github.commitgraph.CommitGraph
+import spectacular.backend.github.commitgraph.CommitGraphRepository
+import spectacular.backend.github.gitdata.GitData
+import spectacular.backend.github.gitdata.GitDataQuery
+import spectacular.backend.github.gitdata.GitDataRepository
+import spectacular.backend.github.gitdata.RefSelection
+import spectacular.backend.github.graphql.Commit
+import spectacular.backend.github.graphql.RepositoryRef
+import spectacular.backend.github.pullrequests.PullRequest
 import spock.lang.Specification
 
+import java.time.OffsetDateTime
+
 class SpecEvolutionDataExtractorTest extends Specification {
-    def refRepository = Mock(RefRepository)
-    def pullRequestRepository = Mock(PullRequestRepository)
-    def specEvolutionDataExtractor = new SpecEvolutionDataExtractor(refRepository)
+    def gitDataRepository = Mock(GitDataRepository)
+    def commitGraphRepository = Mock(CommitGraphRepository)
+    def specEvolutionDataExtractor = new SpecEvolutionDataExtractor(gitDataRepository, commitGraphRepository)
 
     def specFilePath = "some/path/spec.yaml"
     def specRepoId = RepositoryId.createForNameWithOwner("test/repo")
 
-    def setup() {
-        specEvolutionDataExtractor.pullRequestRepository = pullRequestRepository
+    def aRef(String name, String commit) {
+        return new RepositoryRef(name, null, new Commit(commit, null, null))
+    }
+
+    def aPullRequest(String baseBranchName, String changedFile) {
+        return new PullRequest(specRepoId, "feature-branch", baseBranchName, 1, new URI("https://test-url"), [], [changedFile], "test-pr", OffsetDateTime.now())
     }
 
-    def "GetMainBranchAccordingToConfig selects the first exact matching branch to the main branch name"() {
+    def aConfig(String mainBranchName, String tagPrefix, String releaseBranchPrefix) {
+        return new SpecEvolutionConfig()
+                .withMainBranchConfig(new MainBranchConfig().withBranchName(mainBranchName))
+                .withReleaseTagConfig(new ReleaseTagConfig().withTagPrefix(tagPrefix))
+                .withReleaseBranchConfig(new ReleaseBranchConfig().withBranchPrefix(releaseBranchPrefix))
+    }
+
+    def "GetSpecEvolutionData retrieves the branches, tags and pull requests with a single query"() {
+        given: "a spec evolution config with main branch, tag prefix and release branch prefix config set"
+        def specEvolutionConfig = aConfig("main", "v", "release/")
+
+        when: "the spec evolution data is extracted"
+        specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
+
+        then: "the git data is retrieved once for the main branch, the tags and the release branches"
+        1 * gitDataRepository.getGitData({ GitDataQuery query ->
+            query.getRepositoryId() == specRepoId &&
+                    query.getRefSelectionAliases().keySet() == [RefSelection.branches("main"), RefSelection.tags("v"), RefSelection.branches("release/")] as Set
+        }) >> new GitData([:], [])
+    }
+
+    def "GetSpecEvolutionData selects the first exact matching branch to the main branch name with its pull requests changing the spec file"() {
         given: "a spec evolution config with a main branch name config set"
         def mainBranchName = "a-main-branch"
-        def mainBranchConfig = new MainBranchConfig().withBranchName(mainBranchName)
-        def specEvolutionConfig = new SpecEvolutionConfig().withMainBranchConfig(mainBranchConfig)
+        def specEvolutionConfig = aConfig(mainBranchName, null, null)
 
         and: "different branches matching the main branch name on the repository"
-        def branches = [
-                new BranchRef("a-main-branch", "commit1"),
-                new BranchRef("a-main-branch-2", "commit2"),
-        ]
+        def branches = [aRef("a-main-branch", "commit1"), aRef("a-main-branch-2", "commit2")]
 
-        when: "the main branch data is extracted"
-        def result = specEvolutionDataExtractor.getMainBranchAccordingToConfig(specEvolutionConfig, specRepoId, specFilePath)
+        and: "open pull requests on the repository"
+        def specFilePullRequest = aPullRequest(mainBranchName, specFilePath)
+        def otherFilePullRequest = aPullRequest(mainBranchName, "other-file.yaml")
+        def otherBranchPullRequest = aPullRequest("a-main-branch-2", specFilePath)
 
-        then: "branches for the repository are retrieved with the main branch name as the query filter"
-        1 * refRepository.getBranchesForRepo(specRepoId, mainBranchName, specFilePath) >> branches
+        and: "the git data of the repository"
+        def gitData = new GitData([(RefSelection.branches(mainBranchName)): branches], [specFilePullRequest, otherFilePullRequest, otherBranchPullRequest])
 
-        and: "the pull requests for only one branch is retrieved"
-        1 * pullRequestRepository.getPullRequestsForRepoAndFile(specRepoId, specFilePath, _)
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
+
+        then: "the git data is retrieved"
+        1 * gitDataRepository.getGitData(_) >> gitData
 
         and: "the main branch returned is an exact match"
-        result.get().getBranch().getName() == mainBranchName
+        result.getMainBranch().get().getBranch().getName() == mainBranchName
+
+        and: "only the pull requests targeting the main branch and changing the spec file are associated to it"
+        result.getMainBranch().get().getAssociatedPullRequest() == [specFilePullRequest]
     }
 
-    def "GetMainBranchAccordingToConfig returns an empty result if no main branch match is found"() {
+    def "GetSpecEvolutionData returns an empty main branch if no main branch match is found"() {
         given: "a spec evolution config with a main branch name config set that matches no branches"
-        def mainBranchName = "a-main-branch"
-        def mainBranchConfig = new MainBranchConfig().withBranchName(mainBranchName)
-        def specEvolutionConfig = new SpecEvolutionConfig().withMainBranchConfig(mainBranchConfig)
-
-        when: "the main branch data is extracted"
-        def result = specEvolutionDataExtractor.getMainBranchAccordingToConfig(specEvolutionConfig, specRepoId, specFilePath)
+        def specEvolutionConfig = aConfig("a-main-branch", null, null)
 
-        then: "branches for the repository are retrieved with the main branch name as the query filter"
-        1 * refRepository.getBranchesForRepo(specRepoId, mainBranchName, specFilePath) >> []
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
 
-        and: "no pull requests for are retrieved"
-        0 * pullRequestRepository.getPullRequestsForRepoAndFile(specRepoId, specFilePath, _)
+        then: "the git data is retrieved without any matching branches"
+        1 * gitDataRepository.getGitData(_) >> new GitData([:], [])
 
         and: "the main branch returned is empty"
-        result.isEmpty()
+        result.getMainBranch().isEmpty()
     }
 
-    def "GetRepoTagsAccordingToConfig gets all tags without a query filter if tag config is set without a prefix"() {
-        given: "a spec evolution config with no tags prefix config set"
-        def tagConfig = new ReleaseTagConfig()
-        def specEvolutionConfig = new SpecEvolutionConfig().withReleaseTagConfig(tagConfig)
+    def "GetSpecEvolutionData returns all the tags matching the tag prefix"() {
+        given: "a spec evolution config with a tag prefix config set"
+        def tagPrefix = "x-"
+        def specEvolutionConfig = aConfig("main", tagPrefix, null)
 
         and: "tags on the repository"
-        def tags = [ new TagRef("tag-123", "commit1"), new TagRef("x-tag-456", "commit2") ]
+        def gitData = new GitData([(RefSelection.tags(tagPrefix)): [aRef("x-tag-123", "commit1"), aRef("x-tag-456", "commit2")]], [])
 
-        when: "the tag data is extracted"
-        def result = specEvolutionDataExtractor.getRepoTagsAccordingToConfig(specEvolutionConfig, specRepoId)
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
 
-        then: "tags for the repository are retrieved with no query filter"
-        1 * refRepository.getTagsForRepo(specRepoId, null) >> tags
+        then: "the git data is retrieved"
+        1 * gitDataRepository.getGitData(_) >> gitData
 
         and: "all the tags are returned"
-        result == tags
+        result.getTags()*.getName() == ["x-tag-123", "x-tag-456"]
     }
 
-    def "GetRepoTagsAccordingToConfig get tags with a query filter if tag config is set with a prefix"() {
-        given: "a spec evolution config with tags prefix config set"
-        def tagPrefix = "x-"
-        def tagConfig = new ReleaseTagConfig().withTagPrefix(tagPrefix)
-        def specEvolutionConfig = new SpecEvolutionConfig().withReleaseTagConfig(tagConfig)
+    def "GetSpecEvolutionData retrieves the commit graph of the main and release branches"() {
+        given: "a spec evolution config with a main branch name and release branch prefix config set"
+        def branchPrefix = "release/"
+        def specEvolutionConfig = aConfig("main", null, branchPrefix)
 
-        and: "tags on the repository"
-        def tags = [ new TagRef("tag-123", "commit1"), new TagRef("x-tag-456", "commit2") ]
+        and: "a main branch and release branches on the repository"
+        def gitData = new GitData([
+                (RefSelection.branches("main")): [aRef("main", "commit0")],
+                (RefSelection.branches(branchPrefix)): [aRef("release/1", "commit1"), aRef("release/2", "commit2")]
+        ], [])
 
-        when: "the tag data is extracted"
-        def result = specEvolutionDataExtractor.getRepoTagsAccordingToConfig(specEvolutionConfig, specRepoId)
+        and: "a commit graph of the history of the branches"
+        def commitGraph = CommitGraph.createFrom([commit0: ["commit1"], commit1: []])
 
-        then: "tags for the repository are retrieved with the tag prefix query filter"
-        1 * refRepository.getTagsForRepo(specRepoId, tagPrefix) >> tags
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
+
+        then: "the git data is retrieved"
+        1 * gitDataRepository.getGitData(_) >> gitData
+
+        and: "the commit graph is retrieved once for all the branches"
+        1 * commitGraphRepository.getCommitGraph(specRepoId, ["main", "release/1", "release/2"]) >> commitGraph
+
+        and: "the commit graph is returned with the spec evolution data"
+        result.getCommitGraph() == commitGraph
     }
 
-    def "GetReleaseBranchesAccordingToConfig gets no release branches if release branch config is set without a prefix"() {
+    def "GetSpecEvolutionData gets no release branches if release branch config is set without a prefix"() {
         given: "a spec evolution config with no release branch prefix config set"
-        def releaseBranchConfig = new ReleaseBranchConfig()
-        def specEvolutionConfig = new SpecEvolutionConfig().withReleaseBranchConfig(releaseBranchConfig)
+        def specEvolutionConfig = aConfig("main", null, null)
 
-        when: "the release branch data is extracted"
-        def result = specEvolutionDataExtractor.getReleaseBranchesAccordingToConfig(specEvolutionConfig, specRepoId, specFilePath)
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
 
-        then: "no branches for the repository are retrieved"
-        0 * refRepository.getBranchesForRepo(specRepoId, _)
+        then: "no release branches are part of the git data query"
+        1 * gitDataRepository.getGitData({ GitDataQuery query -> query.getRefSelectionAliases().size() == 2 }) >> new GitData([:], [])
 
         and: "the result has no extracted release branches"
-        result.isEmpty()
+        result.getReleaseBranches().isEmpty()
     }
 
-    def "GetReleaseBranchesAccordingToConfig gets release branch with specified filter query if release branch config is set with a prefix"() {
+    def "GetSpecEvolutionData gets release branches matching the release branch prefix with their pull requests"() {
         given: "a spec evolution config with a release branch prefix config set"
         def branchPrefix = "release/x-"
-        def releaseBranchConfig = new ReleaseBranchConfig().withBranchPrefix(branchPrefix)
-        def specEvolutionConfig = new SpecEvolutionConfig().withReleaseBranchConfig(releaseBranchConfig)
+        def specEvolutionConfig = aConfig("main", null, branchPrefix)
 
-        and: "branches on the repository"
-        def branches = [
-                new BranchRef("release/x-branch-123", "commit1"),
-                new BranchRef("release/x-branch-456", "commit2")
-        ]
+        and: "release branches and an open pull request targeting one of them on the repository"
+        def releaseBranches = [aRef("release/x-branch-123", "commit1"), aRef("release/x-branch-456", "commit2")]
+        def pullRequest = aPullRequest("release/x-branch-456", specFilePath)
+        def gitData = new GitData([(RefSelection.branches(branchPrefix)): releaseBranches], [pullRequest])
 
-        when: "the release branch data is extracted"
-        def result = specEvolutionDataExtractor.getReleaseBranchesAccordingToConfig(specEvolutionConfig, specRepoId, specFilePath)
+        when: "the spec evolution data is extracted"
+        def result = specEvolutionDataExtractor.getSpecEvolutionData(specEvolutionConfig, specRepoId, specFilePath)
 
-        then: "branches for the repository are retrieved with the branchPrefix query filter"
-        1 * refRepository.getBranchesForRepo(specRepoId, branchPrefix, specFilePath) >> branches
-
-        and: "the pull requests for each matching branch is retrieved"
-        2 * pullRequestRepository.getPullRequestsForRepoAndFile(specRepoId, specFilePath, _)
+        then: "the git data is retrieved"
+        1 * gitDataRepository.getGitData(_) >> gitData
 
         and: "the result has the extracted release branches"
-        result.size() == 2
+        result.getReleaseBranches().size() == 2
+
+        and: "the pull request is associated to the release branch it targets"
+        result.getReleaseBranches()[0].getAssociatedPullRequest().isEmpty()
+        result.getReleaseBranches()[1].getAssociatedPullRequest() == [pullRequest]
     }
 }
@@ -0,0 +1,261 @@
+package spectacular.backend.specevolution
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spectacular.backend.api.model.EvolutionBranch
+import spectacular.backend.api.model.EvolutionItem
+import spectacular.backend.api.model.SpecEvolution
+import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.app.AppInstallationContextProvider
+import spectacular.backend.github.refs.BranchRef
+import spectacular.backend.github.webhooks.WebhookSignatureVerifier
+import spock.lang.Specification
+
+import java.time.Duration
+
+class SpecEvolutionServiceTest extends Specification {
+    def specEvolutionDataExtractor = Mock(SpecEvolutionDataExtractor)
+    def specEvolutionBuilder = Mock(SpecEvolutionBuilder)
+    def specEvolutionConfigResolver = Mock(SpecEvolutionConfigResolver)
+    def specEvolutionSnapshotStore = new SpecEvolutionSnapshotStore(new SimpleMeterRegistry(), 100, Duration.ofHours(1),
+            new WebhookSignatureVerifier("a-webhook-secret"))
+    def specEvolutionStore = new InMemorySpecEvolutionStore(new SimpleMeterRegistry(), 100)
+    def partialSpecEvolutionStore = new PartialSpecEvolutionStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10))
+    def appInstallationContextProvider = new AppInstallationContextProvider()
+    def specEvolutionService = new SpecEvolutionService(specEvolutionDataExtractor, specEvolutionBuilder, specEvolutionConfigResolver,
+            specEvolutionSnapshotStore, specEvolutionStore, partialSpecEvolutionStore, appInstallationContextProvider)
+
+    def specEvolutionConfig = new SpecEvolutionConfig()
+    def specRepoId = RepositoryId.createForNameWithOwner("test-owner/spec-repo")
+    def otherRepoId = RepositoryId.createForNameWithOwner("test-owner/other-repo")
+    def mainBranchCommit = "commit1"
+    def releaseBranches = []
+
+    def setup() {
+        appInstallationContextProvider.setInstallationId("123")
+        specEvolutionConfigResolver.resolveConfig(_, _) >> specEvolutionConfig
+        specEvolutionDataExtractor.getSpecEvolutionRefData(_, _, _) >> { refData() }
+        specEvolutionDataExtractor.addCommitGraph(_, _) >> { SpecEvolutionData specEvolutionRefData, RepositoryId repo -> specEvolutionRefData }
+    }
+
+    def refData() {
+        return new SpecEvolutionData(Optional.of(new BranchData(new BranchRef("main", mainBranchCommit), [])), [], releaseBranches,
+                specEvolutionConfig)
+    }
+
+    def "GetSpecEvolution builds the spec evolution once and serves it from the snapshot afterwards"() {
+        given: "a spec evolution built from the git data of a spec file"
+        def specEvolution = new SpecEvolution().interfaceName("interface1")
+
+        when: "the spec evolution of the spec file is requested twice"
+        def firstSpecEvolution = specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+        def secondSpecEvolution = specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        then: "the refs and the commit graph are only retrieved once"
+        1 * specEvolutionDataExtractor.getSpecEvolutionRefData(specEvolutionConfig, specRepoId, "spec.yaml") >> refData()
+        1 * specEvolutionDataExtractor.addCommitGraph(_, specRepoId) >> { SpecEvolutionData specEvolutionRefData, RepositoryId repo ->
+            specEvolutionRefData
+        }
+
+        and: "the spec evolution is built from the git data once"
+        1 * specEvolutionBuilder.generateSpecEvolution("interface1", specRepoId, "spec.yaml", _) >> specEvolution
+
+        and: "both requests get the spec evolution"
+        firstSpecEvolution.is(specEvolution)
+        secondSpecEvolution.is(specEvolution)
+    }
+
+    def "GetSpecEvolution checks the refs on every request when no webhook secret is configured"() {
+        given: "a spec evolution service without a webhook secret to keep its snapshots up to date"
+        def noSnapshotStore = new SpecEvolutionSnapshotStore(new SimpleMeterRegistry(), 100, Duration.ofHours(1), new WebhookSignatureVerifier(""))
+        def noSnapshotService = new SpecEvolutionService(specEvolutionDataExtractor, specEvolutionBuilder, specEvolutionConfigResolver,
+                noSnapshotStore, specEvolutionStore, partialSpecEvolutionStore, appInstallationContextProvider)
+
+        and: "the spec evolution of a spec file was built"
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> new SpecEvolution().interfaceName("old")
+        noSnapshotService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        when: "the main branch moves and the spec evolution is requested again"
+        mainBranchCommit = "commit2"
+        def result = noSnapshotService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        then: "the refs are checked again"
+        1 * specEvolutionDataExtractor.getSpecEvolutionRefData(specEvolutionConfig, specRepoId, "spec.yaml") >> { refData() }
+
+        and: "the spec evolution is built again for the new refs"
+        1 * specEvolutionBuilder.generateSpecEvolution("interface1", specRepoId, "spec.yaml", _) >> new SpecEvolution().interfaceName("new")
+        result.getInterfaceName() == "new"
+    }
+
+    def "GetSpecEvolution reuses the spec evolution stored for the same refs by another installation"() {
+        given: "the spec evolution of a spec file was built for an installation"
+        def specEvolution = new SpecEvolution().interfaceName("interface1")
+        def buildCount = 0
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> { buildCount++; specEvolution }
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        when: "the spec evolution of the spec file is requested for another installation"
+        appInstallationContextProvider.setInstallationId("456")
+        def result = specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        then: "the refs are checked again for the other installation"
+        1 * specEvolutionDataExtractor.getSpecEvolutionRefData(specEvolutionConfig, specRepoId, "spec.yaml") >> refData()
+
+        and: "the stored spec evolution is used without retrieving the commit graph or building it again"
+        0 * specEvolutionDataExtractor.addCommitGraph(_, _)
+        buildCount == 1
+        result.is(specEvolution)
+    }
+
+    def "GetSpecEvolution builds the spec evolution again when the refs have changed"() {
+        given: "the spec evolution of a spec file was built for an installation"
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> new SpecEvolution().interfaceName("old")
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        when: "the main branch moves and the spec evolution is requested for another installation"
+        mainBranchCommit = "commit2"
+        appInstallationContextProvider.setInstallationId("456")
+        def result = specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        then: "the spec evolution is built again"
+        1 * specEvolutionBuilder.generateSpecEvolution("interface1", specRepoId, "spec.yaml", _) >> new SpecEvolution().interfaceName("new")
+        result.getInterfaceName() == "new"
+    }
+
+    def "RefreshSpecEvolutions rebuilds the snapshots of the spec files in the repository only"() {
+        given: "snapshots of spec files in two repositories"
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> new SpecEvolution().interfaceName("old")
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec1.yaml")
+        specEvolutionService.getSpecEvolution("interface2", specEvolutionConfig, specRepoId, "spec2.yaml")
+        specEvolutionService.getSpecEvolution("interface3", specEvolutionConfig, otherRepoId, "spec3.yaml")
+
+        when: "the main branch moves and the snapshots of one of the repositories are refreshed"
+        mainBranchCommit = "commit2"
+        def refreshed = specEvolutionService.refreshSpecEvolutions(specRepoId)
+
+        then: "the spec evolutions of the spec files in the repository are rebuilt"
+        1 * specEvolutionBuilder.generateSpecEvolution("interface1", specRepoId, "spec1.yaml", _) >> new SpecEvolution().interfaceName("new1")
+        1 * specEvolutionBuilder.generateSpecEvolution("interface2", specRepoId, "spec2.yaml", _) >> { throw new RuntimeException("failed") }
+        0 * specEvolutionBuilder.generateSpecEvolution(_, _, _, _)
+        refreshed == 1
+
+        and: "the rebuilt snapshot is served, and the snapshot that failed to rebuild is left as it was"
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec1.yaml").getInterfaceName() == "new1"
+        specEvolutionService.getSpecEvolution("interface2", specEvolutionConfig, specRepoId, "spec2.yaml").getInterfaceName() == "old"
+    }
+
+    def anEvolutionBranch(String branchName, int itemCount) {
+        def evolutionItems = (1..itemCount).collect { new EvolutionItem().ref(branchName + "-" + it).tags([]) }
+        return new EvolutionBranch().branchName(branchName).evolutionItems(evolutionItems)
+    }
+
+    def "GetSpecEvolutionPage only builds the branches the page has evolution items from"() {
+        given: "a spec file repository with a main branch and two release branches"
+        releaseBranches = [new BranchData(new BranchRef("release/1.0", "commit3"), []), new BranchData(new BranchRef("release/2.0", "commit4"), [])]
+
+        when: "the first page is requested"
+        def firstPage = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.firstPage(), 3)
+
+        then: "only the main branch is built"
+        1 * specEvolutionBuilder.generateEvolutionBranch({ it.getBranch().getName() == "main" }, _, _, specRepoId, "spec.yaml") >>
+                anEvolutionBranch("main", 3)
+        0 * specEvolutionBuilder.generateEvolutionBranch(_, _, _, _, _)
+
+        and: "the page has the main branch items and a cursor to the next page"
+        firstPage.getMain().getEvolutionItems()*.ref == ["main-1", "main-2", "main-3"]
+        firstPage.getReleases().isEmpty()
+        firstPage.getNextCursor() != null
+
+        when: "the next page is requested"
+        def secondPage = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.decode(firstPage.getNextCursor()), 3)
+
+        then: "the release branches are built without building the main branch again"
+        1 * specEvolutionBuilder.generateEvolutionBranch({ it.getBranch().getName() == "release/1.0" }, _, _, _, _) >>
+                anEvolutionBranch("release/1.0", 2)
+        1 * specEvolutionBuilder.generateEvolutionBranch({ it.getBranch().getName() == "release/2.0" }, _, _, _, _) >>
+                anEvolutionBranch("release/2.0", 2)
+        0 * specEvolutionBuilder.generateEvolutionBranch(_, _, _, _, _)
+
+        and: "the page is continued across the release branches up to the page size"
+        secondPage.getMain() == null
+        secondPage.getReleases()*.branchName == ["release/1.0", "release/2.0"]
+        secondPage.getReleases()*.evolutionItems*.ref == [["release/1.0-1", "release/1.0-2"], ["release/2.0-1"]]
+
+        when: "the last page is requested"
+        def lastPage = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.decode(secondPage.getNextCursor()), 3)
+
+        then: "the page has the rest of the last release branch and no next cursor"
+        lastPage.getReleases()*.evolutionItems*.ref == [["release/2.0-2"]]
+        lastPage.getNextCursor() == null
+
+        and: "the complete spec evolution is served without being built again"
+        def specEvolution = specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+        0 * specEvolutionBuilder.generateSpecEvolution(_, _, _, _)
+        specEvolution.getMain().getEvolutionItems().size() == 3
+        specEvolution.getReleases()*.branchName == ["release/1.0", "release/2.0"]
+    }
+
+    def "GetSpecEvolutionPage pages over a spec evolution that has already been built"() {
+        given: "the spec evolution of a spec file has been built"
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> new SpecEvolution().interfaceName("interface1")
+                .main(anEvolutionBranch("main", 2))
+                .releases([anEvolutionBranch("release/1.0", 2)])
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        when: "a page of it is requested"
+        def page = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.firstPage(), 3)
+
+        then: "no branches are built"
+        0 * specEvolutionBuilder.generateEvolutionBranch(_, _, _, _, _)
+
+        and: "the page is taken from the built spec evolution"
+        page.getMain().getEvolutionItems()*.ref == ["main-1", "main-2"]
+        page.getReleases()*.evolutionItems*.ref == [["release/1.0-1"]]
+        SpecEvolutionPageCursor.decode(page.getNextCursor()).getBranchIndex() == 1
+        SpecEvolutionPageCursor.decode(page.getNextCursor()).getItemOffset() == 1
+    }
+
+    def "GetSpecEvolutionPage rejects a cursor from before the refs of the spec file repository changed"() {
+        given: "the first page of a spec evolution that is built a branch at a time was served"
+        releaseBranches = [new BranchData(new BranchRef("release/1.0", "commit3"), [])]
+        specEvolutionBuilder.generateEvolutionBranch(_, _, _, _, _) >> { args -> anEvolutionBranch(args[0].getBranch().getName(), 3) }
+        def firstPage = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.firstPage(), 3)
+
+        when: "the main branch moves and the next page is requested"
+        mainBranchCommit = "commit2"
+        specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.decode(firstPage.getNextCursor()), 3)
+
+        then: "the cursor is rejected rather than paging over a spec evolution built from different refs"
+        thrown(StaleSpecEvolutionPageCursorException)
+
+        when: "the first page is requested again"
+        def newFirstPage = specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                SpecEvolutionPageCursor.firstPage(), 3)
+
+        then: "it is served with a cursor for the new refs"
+        newFirstPage.getMain().getEvolutionItems()*.ref == ["main-1", "main-2", "main-3"]
+        SpecEvolutionPageCursor.decode(newFirstPage.getNextCursor()).getRefFingerprint() !=
+                SpecEvolutionPageCursor.decode(firstPage.getNextCursor()).getRefFingerprint()
+    }
+
+    def "GetSpecEvolutionPage rejects a cursor from another spec evolution than the snapshot it is served from"() {
+        given: "the spec evolution of a spec file has been built and snapshotted"
+        specEvolutionBuilder.generateSpecEvolution(_, _, _, _) >> new SpecEvolution().interfaceName("interface1")
+                .main(anEvolutionBranch("main", 2))
+                .releases([anEvolutionBranch("release/1.0", 2)])
+        specEvolutionService.getSpecEvolution("interface1", specEvolutionConfig, specRepoId, "spec.yaml")
+
+        when: "a page is requested with a cursor issued for different refs"
+        specEvolutionService.getSpecEvolutionPage("interface1", specEvolutionConfig, specRepoId, "spec.yaml",
+                new SpecEvolutionPageCursor(0, 1, "another-fingerprint"), 3)
+
+        then: "the cursor is rejected"
+        thrown(StaleSpecEvolutionPageCursorException)
+    }
+}
@@ -0,0 +1,55 @@
+package spectacular.backend.specevolution
+
+import spectacular.backend.cataloguemanifest.model.MainBranchConfig
+import spectacular.backend.cataloguemanifest.model.ReleaseBranchConfig
+import spectacular.backend.cataloguemanifest.model.ReleaseTagConfig
+import spectacular.backend.cataloguemanifest.model.SpecEvolutionConfig
+import spectacular.backend.common.RepositoryId
+import spectacular.backend.github.pullrequests.PullRequest
+import spectacular.backend.github.refs.BranchRef
+import spectacular.backend.github.refs.TagRef
+import spock.lang.Specification
+
+import java.time.OffsetDateTime
+
+class SpecEvolutionStoreKeyTest extends Specification {
+    def specRepoId = RepositoryId.createForNameWithOwner("test/repo")
+    def specFilePath = "some/path/spec.yaml"
+    def updatedAt = OffsetDateTime.parse("2020-01-01T10:00:00Z")
+    def config = new SpecEvolutionConfig()
+            .withMainBranchConfig(new MainBranchConfig().withBranchName("main"))
+            .withReleaseTagConfig(new ReleaseTagConfig().withTagPrefix("v"))
+            .withReleaseBranchConfig(new ReleaseBranchConfig().withBranchPrefix("release/"))
+
+    def aPullRequest(String title) {
+        return new PullRequest(specRepoId, "feature-branch", "main", 1, new URI("https://test-url"), [], [specFilePath], title, updatedAt)
+    }
+
+    def refData(List<TagRef> tags, String pullRequestTitle) {
+        def mainBranch = new BranchData(new BranchRef("main", "main-commit"), [aPullRequest(pullRequestTitle)])
+        def releaseBranches = [new BranchData(new BranchRef("release/1.0", "release-commit"), [])]
+        return new SpecEvolutionData(Optional.of(mainBranch), tags, releaseBranches, config)
+    }
+
+    def "the same refs create the same key regardless of their order"() {
+        when:
+        def firstKey = SpecEvolutionStoreKey.createFor("interface1",
+                refData([new TagRef("v1", "commit1"), new TagRef("v2", "commit2")], "pr"), specRepoId, specFilePath)
+        def secondKey = SpecEvolutionStoreKey.createFor("interface1",
+                refData([new TagRef("v2", "commit2"), new TagRef("v1", "commit1")], "pr"), specRepoId, specFilePath)
+
+        then:
+        firstKey == secondKey
+        firstKey.getRefFingerprint() ==~ /[0-9a-f]{64}/
+    }
+
+    def "a moved tag, a changed pull request or a different interface name create a different key"() {
+        given:
+        def key = SpecEvolutionStoreKey.createFor("interface1", refData([new TagRef("v1", "commit1")], "pr"), specRepoId, specFilePath)
+
+        expect:
+        SpecEvolutionStoreKey.createFor("interface1", refData([new TagRef("v1", "commit2")], "pr"), specRepoId, specFilePath) != key
+        SpecEvolutionStoreKey.createFor("interface1", refData([new TagRef("v1", "commit1")], "new pr title"), specRepoId, specFilePath) != key
+        SpecEvolutionStoreKey.createFor("interface2", refData([new TagRef("v1", "commit1")], "pr"), specRepoId, specFilePath) != key
+    }
+}
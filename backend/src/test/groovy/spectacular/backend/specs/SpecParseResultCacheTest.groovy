@@ -0,0 +1,90 @@
+package spectacular.backend.specs
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spectacular.backend.api.model.OpenApiOperation
+import spectacular.backend.api.model.OpenApiSpec
+import spectacular.backend.api.model.OpenApiSpecParseResult
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.function.Function
+
+class SpecParseResultCacheTest extends Specification {
+    def blobSha = "0123456789abcdef0123456789abcdef01234567"
+    def parser = Mock(Function)
+    def meterRegistry = new SimpleMeterRegistry()
+
+    def aParseResult() {
+        def spec = new OpenApiSpec().title("An API").version("1.0.0").operations([new OpenApiOperation().name("get").path("/things")])
+        return new OpenApiSpecParseResult().openApiSpec(spec).errors([])
+    }
+
+    def "GetParseResult parses the contents of a blob once"() {
+        given: "an in memory spec parse result cache"
+        def specParseResultCache = new SpecParseResultCache(meterRegistry, 1_000_000, "")
+        def parseResult = aParseResult()
+
+        when: "the parse result of the same blob is requested twice"
+        def firstResult = specParseResultCache.getParseResult(blobSha, "contents", parser)
+        def secondResult = specParseResultCache.getParseResult(blobSha, "contents", parser)
+
+        then: "the contents are parsed once"
+        1 * parser.apply("contents") >> parseResult
+
+        and: "the same parse result is returned for both"
+        firstResult.is(parseResult)
+        secondResult.is(parseResult)
+
+        and: "the cache hits and misses are exposed as metrics"
+        meterRegistry.get("cache.gets").tag("cache", "spec-parse-results").tag("result", "hit").functionCounter().count() == 1
+        meterRegistry.get("cache.gets").tag("cache", "spec-parse-results").tag("result", "miss").functionCounter().count() == 1
+    }
+
+    def "GetParseResult parses the contents every time when there is no blob SHA"() {
+        given: "an in memory spec parse result cache"
+        def specParseResultCache = new SpecParseResultCache(meterRegistry, 1_000_000, "")
+
+        when: "the parse result of contents without a blob SHA is requested twice"
+        specParseResultCache.getParseResult(null, "contents", parser)
+        specParseResultCache.getParseResult(null, "contents", parser)
+
+        then: "the contents are parsed both times"
+        2 * parser.apply("contents") >> aParseResult()
+    }
+
+    def "GetParseResult keeps parse results on disk when a directory is configured"() {
+        given: "a directory for the parse results"
+        def directory = Files.createTempDirectory("spec-parse-results")
+
+        and: "a spec parse result cache that has parsed a blob"
+        new SpecParseResultCache(meterRegistry, 1_000_000, directory.toString()).getParseResult(blobSha, "contents", { aParseResult() })
+
+        when: "a new spec parse result cache using the same directory is asked for the parse result of the blob"
+        def parseResult = new SpecParseResultCache(new SimpleMeterRegistry(), 1_000_000, directory.toString())
+                .getParseResult(blobSha, "contents", parser)
+
+        then: "the contents are not parsed again"
+        0 * parser.apply(_)
+
+        and: "the parse result is read from disk"
+        parseResult.getOpenApiSpec().getTitle() == "An API"
+        parseResult.getOpenApiSpec().getOperations()[0].getPath() == "/things"
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+
+    def "GetParseResult does not keep parse results on disk for values that are not blob SHAs"() {
+        given: "a directory for the parse results"
+        def directory = Files.createTempDirectory("spec-parse-results")
+
+        when: "the parse result of contents with a key that is not a blob SHA is requested"
+        new SpecParseResultCache(meterRegistry, 1_000_000, directory.toString()).getParseResult("../not-a-sha", "contents", { aParseResult() })
+
+        then: "nothing is written to the directory"
+        directory.toFile().list().length == 0
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+}
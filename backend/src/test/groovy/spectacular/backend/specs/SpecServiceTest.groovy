@@ -1,5 +1,6 @@
 package spectacular.backend.specs
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.http.HttpStatus
 import org.springframework.web.client.HttpClientErrorException
 import spectacular.backend.common.RepositoryId
@@ -12,7 +13,17 @@ import java.time.ZoneOffset
 
 class SpecServiceTest extends Specification {
     def restApiClient = Mock(RestApiClient)
-    def specService = new SpecService(restApiClient)
+    def specParseResultCache = new SpecParseResultCache(new SimpleMeterRegistry(), 1_000_000, "")
+    def specService = new SpecService(restApiClient, specParseResultCache)
+
+    def encodedContent = "b3BlbmFwaTogMy4wLjEKaW5mbzoKICB0aXRsZTogQW4gZW1wdHkgQVBJIHNw\n" +
+            "ZWMKICB2ZXJzaW9uOiAiMC4xLjAiCiAgY29udGFjdDogCiAgICBuYW1lOiAi\n" +
+            "VGhlIHRlYW0gbmFtZSBnb2luZyB0byBpbXBsZW1lbnQgdGhpcyBzcGVjIgog\n" +
+            "ICAgdXJsOiAiaHR0cHM6Ly9naXRodWIuY29tL3Rlc3Qtb3duZXIvYWN0dWFs\n" +
+            "LWFwaS1pbXBsZW1lbnRhdGlvbi1yZXBvc2l0b3J5Igp0YWdzOiAKICAtIG5h\n" +
+            "bWU6IFNhbXBsZSBSZXNvdXJjZQogICAgZGVzY3JpcHRpb246ICJTYW1wbGUg\n" +
+            "UmVzb3VyY2UgZGVzY3JpcHRpb24iCnBhdGhzOiB7fQpjb21wb25lbnRzOgog\n" +
+            "IHNjaGVtYXM6IHt9"
 
     def "Get spec item for spec repo and file path returns spec item"() {
         given: "a spec file repo, path and ref"
@@ -21,14 +32,6 @@ class SpecServiceTest extends Specification {
         def ref = "xyz"
 
         and: "the spec file has a valid yaml content"
-        def encodedContent = "b3BlbmFwaTogMy4wLjEKaW5mbzoKICB0aXRsZTogQW4gZW1wdHkgQVBJIHNw\n" +
-                "ZWMKICB2ZXJzaW9uOiAiMC4xLjAiCiAgY29udGFjdDogCiAgICBuYW1lOiAi\n" +
-                "VGhlIHRlYW0gbmFtZSBnb2luZyB0byBpbXBsZW1lbnQgdGhpcyBzcGVjIgog\n" +
-                "ICAgdXJsOiAiaHR0cHM6Ly9naXRodWIuY29tL3Rlc3Qtb3duZXIvYWN0dWFs\n" +
-                "LWFwaS1pbXBsZW1lbnRhdGlvbi1yZXBvc2l0b3J5Igp0YWdzOiAKICAtIG5h\n" +
-                "bWU6IFNhbXBsZSBSZXNvdXJjZQogICAgZGVzY3JpcHRpb246ICJTYW1wbGUg\n" +
-                "UmVzb3VyY2UgZGVzY3JpcHRpb24iCnBhdGhzOiB7fQpjb21wb25lbnRzOgog\n" +
-                "IHNjaGVtYXM6IHt9"
         def contentItem = new ContentItem("htmlUrl", specFilePath, "some sha", "file", new URI("some-url"), encodedContent, "base64")
         def lastModifiedDate = OffsetDateTime.of(2020, 2, 16, 20, 46, 03, 0, ZoneOffset.UTC) //"Sun, 16 Feb 2020 20:46:03 GMT"
         contentItem.setLastModified(lastModifiedDate)
@@ -89,4 +92,27 @@ class SpecServiceTest extends Specification {
         and: "the parse result has no open api spec"
         !specItem.getParseResult().getOpenApiSpec()
     }
+
+    def "Get spec item only parses the same spec file contents once"() {
+        given: "a spec file repo and path"
+        def specFileRepo = new RepositoryId("test-owner", "spec-repo")
+        def specFilePath = "test-specs/example-spec.yaml"
+
+        and: "the same spec file contents on two refs"
+        def blobSha = "0123456789abcdef0123456789abcdef01234567"
+        def contentItem = new ContentItem("htmlUrl", specFilePath, blobSha, "file", new URI("some-url"), encodedContent, "base64")
+        restApiClient.getRepositoryContent(specFileRepo, specFilePath, _) >> contentItem
+
+        when: "the spec items are retrieved for both refs"
+        def mainSpecItem = specService.getSpecItem(specFileRepo, specFilePath, "main")
+        def tagSpecItem = specService.getSpecItem(specFileRepo, specFilePath, "v1.0.0")
+
+        then: "both spec items have the parse result of the contents"
+        mainSpecItem.getRef() == "main"
+        tagSpecItem.getRef() == "v1.0.0"
+        tagSpecItem.getParseResult().getOpenApiSpec().getTitle() == "An empty API spec"
+
+        and: "the contents were parsed once"
+        tagSpecItem.getParseResult().is(mainSpecItem.getParseResult())
+    }
 }
@@ -0,0 +1,69 @@
+package spectacular.backend.specs.openapi
+
+import spectacular.backend.github.domain.ContentItem
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class OpenApiParserTest extends Specification {
+    def specYaml = """\
+openapi: 3.0.1
+info:
+  title: An API – with a dash
+  version: 1.0
+  contact:
+    name: A team
+paths:
+  /things:
+    get:
+      responses:
+        '200':
+          description: OK
+    post:
+      requestBody:
+        content: {}
+  /things/{id}:
+    delete: {}
+components:
+  schemas:
+    Thing:
+      type: object
+"""
+
+    def "ParseYaml reads the title, version and operations of a spec"() {
+        when:
+        def parseResult = OpenApiParser.parseYaml(specYaml)
+
+        then:
+        parseResult.getErrors().isEmpty()
+        parseResult.getOpenApiSpec().getTitle() == "An API – with a dash"
+        parseResult.getOpenApiSpec().getVersion() == "1.0"
+        parseResult.getOpenApiSpec().getOperations().collect { it.getName() + " " + it.getPath() } ==
+                ["get /things", "post /things", "delete /things/{id}"]
+    }
+
+    def "ParseYaml reads a spec streamed from base64 encoded content in the same way as from a string"() {
+        given: "the spec as mime base64 encoded content"
+        def encodedContent = Base64.getMimeEncoder().encodeToString(specYaml.getBytes(StandardCharsets.UTF_8))
+        def contentItem = new ContentItem("spec.yaml", "spec.yaml", "sha", "file", new URI("some-url"), encodedContent, "base64")
+
+        when:
+        def streamedParseResult = OpenApiParser.parseYaml(contentItem.getDecodedContentStream())
+
+        then:
+        streamedParseResult == OpenApiParser.parseYaml(specYaml)
+    }
+
+    def "ParseYaml reports the nodes that are missing or invalid"() {
+        expect:
+        OpenApiParser.parseYaml(yaml).getErrors() == errors
+        (OpenApiParser.parseYaml(yaml).getOpenApiSpec() != null) == hasSpec
+
+        where:
+        yaml                                      | errors                  | hasSpec
+        ""                                        | ["Missing root node"]   | false
+        "openapi: 3.0.1\npaths: {}"               | ["Missing info node"]   | false
+        "info:\n  title: An API"                  | ["Missing path node"]   | true
+        "info:\n  title: An API\npaths: [a, b]"   | ["Invalid path node"]   | true
+    }
+}